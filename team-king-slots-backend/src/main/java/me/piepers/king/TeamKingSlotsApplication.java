@@ -1,6 +1,7 @@
 package me.piepers.king;
 
 import io.reactivex.Completable;
+import io.reactivex.Observable;
 import io.vertx.config.ConfigRetrieverOptions;
 import io.vertx.config.ConfigStoreOptions;
 import io.vertx.core.DeploymentOptions;
@@ -12,12 +13,18 @@ import io.vertx.reactivex.core.AbstractVerticle;
 import io.vertx.serviceproxy.ServiceBinder;
 import me.piepers.king.application.HttpServerVerticle;
 import me.piepers.king.application.RandomNumberVerticle;
+import me.piepers.king.application.SlotRepositoryVerticle;
+import me.piepers.king.application.SlotRingVerticle;
+import me.piepers.king.domain.RtpCalculator;
+import me.piepers.king.domain.Slot;
 import me.piepers.king.domain.SlotService;
+import me.piepers.king.domain.SlotType;
 import me.piepers.king.infrastructure.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Optional;
+import java.util.UUID;
 
 
 /**
@@ -28,6 +35,9 @@ import java.util.Optional;
 public class TeamKingSlotsApplication extends AbstractVerticle {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TeamKingSlotsApplication.class);
+    private static final Double DEFAULT_MIN_RTP = 0.0;
+    private static final Double DEFAULT_MAX_RTP = 1.0;
+    private static final Integer DEFAULT_HTTP_SERVER_INSTANCES = 1;
 
     @Override
     public void start(Future<Void> startFuture) {
@@ -62,23 +72,51 @@ public class TeamKingSlotsApplication extends AbstractVerticle {
 
                             LOGGER.info("Using profile: {}", profile.getName());
 
+                            // Refuse to start with a slot configuration that pays out too little or too much.
+                            this.verifyRtp(Optional.ofNullable(configuration.getJsonObject("rtp")).orElse(new JsonObject()));
+
+                            // Domain objects that are sent over the event bus use a binary format between nodes.
+                            DomainMessageCodec.registerDefaultCodecs(vertx.eventBus().getDelegate());
+
+                            // In a cluster every node owns part of the slots and handles all requests for them.
+                            Optional<SlotRing> ring = this.createSlotRing(configuration);
+
                             // Register event bus services
-                            new ServiceBinder(vertx.getDelegate())
-                                    .setAddress(SlotRepository.EVENT_BUS_ADDRESS)
-                                    .register(SlotRepository.class, SlotRepository.create(vertx.getDelegate()));
+                            SlotService slotService = SlotService.createWithConfiguration(vertx.getDelegate(), configuration);
+                            if (ring.isPresent()) {
+                                new ServiceBinder(vertx.getDelegate()).setAddress(RoutingSlotService.address(ring.get().getLocalNode()))
+                                        .register(SlotService.class, slotService);
+                                slotService = new RoutingSlotService(vertx.getDelegate(), ring.get(), slotService).bind();
+                            }
                             new ServiceBinder(vertx.getDelegate()).setAddress(SlotService.EVENT_BUS_ADDRESS)
-                                    .register(SlotService.class, SlotService.create(vertx.getDelegate()));
+                                    .register(SlotService.class, slotService);
+                            LocalServiceRegistry.register(vertx.getDelegate(), SlotService.EVENT_BUS_ADDRESS, slotService);
                             new ServiceBinder(vertx.getDelegate()).setAddress(RandomNumberService.EVENT_BUS_ADDRESS)
                                     // The profile determines which random number service to choose. Always falls back to local.
                                     .register(RandomNumberService.class, profile == ApplicationProfile.LOCAL ?
-                                            new LocalRandomNumberServiceImpl() :
-                                            new RandomOrgNumberServiceImpl(vertx.getDelegate(), configuration));
+                                            new LocalRandomNumberServiceImpl(configuration) :
+                                            this.createRandomNumberSources(configuration));
+
+                            // Every shard of the slot repository gets its own context.
+                            int shards = ShardedSlotRepository.shards(configuration);
+                            LOGGER.info("Deploying the slot repository with {} shard(s).", shards);
 
                             return Completable.fromAction(() -> LOGGER.debug("Deploying Team King Slot machine backend"))
+                                    .andThen(Observable.range(0, shards)
+                                            .flatMapCompletable(shard -> this.vertx
+                                                    .rxDeployVerticle(SlotRepositoryVerticle.class.getName(),
+                                                            new DeploymentOptions().setConfig(configuration.copy()
+                                                                    .put(SlotRepositoryVerticle.SHARD_CONFIG_KEY, shard)))
+                                                    .toCompletable()))
+                                    .andThen(ring.isPresent() ?
+                                            this.vertx.rxDeployVerticle(SlotRingVerticle.class.getName(),
+                                                    new DeploymentOptions().setConfig(configuration)).toCompletable() :
+                                            Completable.complete())
 //                    .andThen(this.vertx.rxDeployVerticle(SlotCommandHandlerVerticle.class.getName(), new DeploymentOptions().setConfig(configuration)))
 //                    .toCompletable()
                                     .andThen(this.vertx.rxDeployVerticle(HttpServerVerticle.class.getName(),
-                                            new DeploymentOptions().setConfig(configuration)))
+                                            new DeploymentOptions().setConfig(configuration)
+                                                    .setInstances(this.httpServerInstances(configuration))))
                                     .toCompletable()
                                     .andThen(this.vertx.rxDeployVerticle(RandomNumberVerticle.class.getName(),
                                             new DeploymentOptions().setConfig(configuration)))
@@ -92,4 +130,61 @@ public class TeamKingSlotsApplication extends AbstractVerticle {
             startFuture.fail(throwable);
         });
     }
+
+    // Only when the application is started in a cluster (with -cluster). The slots of a node are called directly, so
+    // local binding is always on in a cluster.
+    private Optional<SlotRing> createSlotRing(JsonObject configuration) {
+        if (!vertx.isClustered()) {
+            return Optional.empty();
+        }
+        if (!LocalServiceRegistry.isEnabled(configuration)) {
+            LOGGER.warn("Local binding is required in a cluster, enabling it.");
+            configuration.put("local_binding", true);
+        }
+        SlotRing ring = SlotRing.create(UUID.randomUUID().toString(), configuration);
+        LocalServiceRegistry.register(vertx.getDelegate(), SlotRing.ADDRESS, ring);
+        LOGGER.info("Starting node {} of the cluster.", ring.getLocalNode());
+        return Optional.of(ring);
+    }
+
+    // The amount of http server verticles, 0 means one per core. They share the port.
+    private int httpServerInstances(JsonObject configuration) {
+        int instances = Optional.ofNullable(configuration.getJsonObject("http_server"))
+                .map(config -> config.getInteger("instances"))
+                .orElse(DEFAULT_HTTP_SERVER_INSTANCES);
+        return instances > 0 ? instances : Runtime.getRuntime().availableProcessors();
+    }
+
+    // In production the random numbers come from the configured sources with fail over between them. By default that
+    // is random.org with the local generator as a fallback.
+    private RandomNumberService createRandomNumberSources(JsonObject configuration) throws Exception {
+        JsonArray sources = Optional.ofNullable(configuration.getJsonArray("random_number_sources"))
+                .orElse(new JsonArray()
+                        .add(new JsonObject().put("type", "random_org").put("weight", 1))
+                        .add(new JsonObject().put("type", "local").put("weight", 0)));
+        FailoverRandomNumberService service = new FailoverRandomNumberService(vertx.getDelegate(), configuration);
+        for (int i = 0; i < sources.size(); i++) {
+            JsonObject source = sources.getJsonObject(i);
+            String type = source.getString("type");
+            int weight = Optional.ofNullable(source.getInteger("weight")).orElse(1);
+            if ("random_org".equals(type)) {
+                service.addSource(type, new RandomOrgNumberServiceImpl(vertx.getDelegate(), configuration), weight);
+            } else if ("local".equals(type)) {
+                service.addSource(type, new LocalRandomNumberServiceImpl(configuration), weight);
+            } else {
+                throw new IllegalArgumentException("Unknown random number source: " + type + ".");
+            }
+        }
+        this.vertx.eventBus().<JsonObject>consumer(FailoverRandomNumberService.METRICS_ADDRESS, message -> message.reply(service.metrics()));
+        return service;
+    }
+
+    private void verifyRtp(JsonObject config) {
+        double minRtp = Optional.ofNullable(config.getDouble("min")).orElse(DEFAULT_MIN_RTP);
+        double maxRtp = Optional.ofNullable(config.getDouble("max")).orElse(DEFAULT_MAX_RTP);
+        for (SlotType type : SlotType.values()) {
+            double rtp = RtpCalculator.verify(Slot.of(type, "RTP verification"), minRtp, maxRtp);
+            LOGGER.info("The RTP of slot type {} is {}.", type, rtp);
+        }
+    }
 }
@@ -5,12 +5,17 @@ import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.JsonObject;
+import io.vertx.serviceproxy.ServiceException;
 import io.vertx.reactivex.core.AbstractVerticle;
+import io.vertx.reactivex.core.http.HttpServerResponse;
 import io.vertx.reactivex.ext.web.Router;
 import io.vertx.reactivex.ext.web.RoutingContext;
 import io.vertx.reactivex.ext.web.handler.BodyHandler;
 import io.vertx.reactivex.ext.web.handler.CorsHandler;
 import io.vertx.reactivex.ext.web.handler.StaticHandler;
+import me.piepers.king.infrastructure.FailoverRandomNumberService;
+import me.piepers.king.infrastructure.LocalServiceRegistry;
+import me.piepers.king.infrastructure.RandomNumberCache;
 import me.piepers.king.reactivex.domain.SlotService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +34,7 @@ public class HttpServerVerticle extends AbstractVerticle {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpServerVerticle.class);
 
     private Integer port;
+    private String stompPath;
 
     // FIXME: for now a direct reference to the (proxy of) the SlotService. Must be decoupled to a command handler later on.
     private SlotService slotService;
@@ -42,15 +48,20 @@ public class HttpServerVerticle extends AbstractVerticle {
 
         this.port = httpServerOptional.map(obj -> obj.getInteger("port"))
                 .orElse(8080);
-
-        this.slotService = SlotService.createProxy(super.vertx);
+        this.stompPath = httpServerOptional.map(obj -> obj.getString("stomp_path"))
+                .orElse(SlotStompBridge.DEFAULT_PATH);
+
+        // With local binding the service implementation in this JVM is called directly.
+        this.slotService = LocalServiceRegistry.isEnabled(context.config()) ?
+                LocalServiceRegistry
+                        .lookup(vertx, me.piepers.king.domain.SlotService.EVENT_BUS_ADDRESS, me.piepers.king.domain.SlotService.class)
+                        .map(SlotService::newInstance)
+                        .orElseGet(() -> SlotService.createProxy(super.vertx)) :
+                SlotService.createProxy(super.vertx);
     }
 
     @Override
     public void start(Future<Void> future) throws Exception {
-        // Instantiate the service we will communicate with for the prototype. Later on this must be decoupled.
-        slotService = SlotService.createProxy(vertx);
-
         Router router = Router.router(vertx);
 
         // Accept GET and POST requests from the client that runs on port 8081
@@ -68,13 +79,20 @@ public class HttpServerVerticle extends AbstractVerticle {
         subRouter.route(HttpMethod.PUT, "/quit/:slotId").handler(this::quitHandler);
         subRouter.route(HttpMethod.POST, "/spin/:slotId").handler(this::spinHandler);
         subRouter.route(HttpMethod.PUT, "/stop/:slotId").handler(this::stopHandler);
+        subRouter.route(HttpMethod.POST, "/autospin/:slotId").handler(this::autoSpinHandler);
+        subRouter.route(HttpMethod.GET, "/metrics/numbers").handler(this::numberMetricsHandler);
+        subRouter.route(HttpMethod.GET, "/metrics/sources").handler(this::sourceMetricsHandler);
 //        subRouter.route(HttpMethod.GET, "/random/:amount").handler(this::randomNumberHandler);
         router.mountSubRouter("/api", subRouter);
 
+        // Spins over a persistent STOMP connection, with the results pushed to everybody that follows the slot.
+        SlotStompBridge stompBridge = new SlotStompBridge(vertx.getDelegate(), slotService, stompPath);
+
         // Start the server
         vertx.
                 createHttpServer()
                 .requestHandler(router::accept)
+                .websocketHandler(webSocket -> stompBridge.handle(webSocket.getDelegate()))
                 .rxListen(this.port)
                 .subscribe(result -> {
                     LOGGER.debug("Http server has started on port {}.", this.port);
@@ -184,16 +202,99 @@ public class HttpServerVerticle extends AbstractVerticle {
                         this.jsonResponse(routingContext, slot.toJson());
                     }, throwable -> {
                         LOGGER.error("Failure while trying to stop spinning.", throwable);
-                        routingContext
-                                .response()
-                                .putHeader("Content-Type", "application/json; charset=UTF-8")
-                                .end(new JsonObject()
-                                        .put("Error", throwable.getMessage())
-                                        .encode(), StandardCharsets.UTF_8.name());
+                        this.errorResponse(routingContext, throwable);
                     });
         }
     }
 
+    // Streams the result of every spin as a separate json line (ndjson) as soon as it has been played, followed by a
+    // line with the totals once the slot has been saved.
+    private void autoSpinHandler(RoutingContext routingContext) {
+        LOGGER.debug("Invoking auto spin end-point");
+
+        String id = routingContext.request().getParam("slotId");
+        Integer spins = this.parseInteger(routingContext.request().getParam("spins"));
+        if (Objects.isNull(id) || Objects.isNull(spins)) {
+            routingContext
+                    .response()
+                    .setStatusCode(400)
+                    .end();
+        } else {
+            HttpServerResponse response = routingContext.response();
+            slotService.getDelegate().autoSpin(id, spins, spin -> {
+                if (!response.headWritten()) {
+                    response.setStatusCode(200)
+                            .setChunked(true)
+                            .putHeader("Content-Type", "application/x-ndjson; charset=UTF-8");
+                }
+                response.write(spin.encode() + "\n", StandardCharsets.UTF_8.name());
+            }, result -> {
+                if (result.succeeded()) {
+                    LOGGER.debug("Played {} spins for id {}", result.result().getSpins(), id);
+                    response.end(result.result().summaryToJson().encode() + "\n", StandardCharsets.UTF_8.name());
+                } else if (response.headWritten()) {
+                    // The spins were played but the slot could not be saved.
+                    LOGGER.error("Failure while trying to save the slot after an auto spin.", result.cause());
+                    response.end(new JsonObject()
+                            .put("Error", result.cause().getMessage())
+                            .encode() + "\n", StandardCharsets.UTF_8.name());
+                } else {
+                    LOGGER.error("Failure while trying to auto spin.", result.cause());
+                    this.errorResponse(routingContext, result.cause());
+                }
+            });
+        }
+    }
+
+    private void numberMetricsHandler(RoutingContext routingContext) {
+        LOGGER.debug("Invoking random number metrics end-point");
+
+        this.vertx
+                .eventBus()
+                .<JsonObject>rxSend(RandomNumberCache.METRICS_ADDRESS, new JsonObject())
+                .subscribe(message -> this.jsonResponse(routingContext, message.body()),
+                        throwable -> this.errorResponse(routingContext, throwable));
+    }
+
+    // Only available in production, where the random numbers come from several sources.
+    private void sourceMetricsHandler(RoutingContext routingContext) {
+        LOGGER.debug("Invoking random number source metrics end-point");
+
+        this.vertx
+                .eventBus()
+                .<JsonObject>rxSend(FailoverRandomNumberService.METRICS_ADDRESS, new JsonObject())
+                .subscribe(message -> this.jsonResponse(routingContext, message.body()),
+                        throwable -> this.errorResponse(routingContext, throwable));
+    }
+
+    private Integer parseInteger(String value) {
+        try {
+            return Objects.nonNull(value) ? Integer.valueOf(value) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Responds with the code of a service exception. If the service is temporarily out of random numbers, the caller is
+    // told when to try again.
+    private void errorResponse(RoutingContext routingContext, Throwable throwable) {
+        HttpServerResponse response = routingContext.response();
+        if (throwable instanceof ServiceException) {
+            ServiceException serviceException = (ServiceException) throwable;
+            response.setStatusCode(serviceException.failureCode() >= 400 ? serviceException.failureCode() : 503);
+            Optional.ofNullable(serviceException.getDebugInfo())
+                    .map(debugInfo -> debugInfo.getInteger("retryAfter"))
+                    .ifPresent(retryAfter -> response.putHeader("Retry-After", String.valueOf(retryAfter)));
+        } else {
+            response.setStatusCode(503);
+        }
+        response
+                .putHeader("Content-Type", "application/json; charset=UTF-8")
+                .end(new JsonObject()
+                        .put("Error", throwable.getMessage())
+                        .encode(), StandardCharsets.UTF_8.name());
+    }
+
     private void ok(RoutingContext routingContext) {
         this.jsonResponse(routingContext, null);
     }
@@ -1,23 +1,36 @@
 package me.piepers.king.application;
 
 import io.reactivex.Completable;
+import io.reactivex.Maybe;
 import io.reactivex.Single;
+import io.vertx.core.AsyncResult;
 import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.shareddata.LocalMap;
 import io.vertx.reactivex.core.AbstractVerticle;
 import io.vertx.serviceproxy.ServiceException;
+import io.vertx.serviceproxy.ServiceExceptionMessageCodec;
+import me.piepers.king.infrastructure.LocalServiceRegistry;
+import me.piepers.king.infrastructure.PendingNumberRequests;
+import me.piepers.king.infrastructure.RandomNumberCache;
+import me.piepers.king.infrastructure.RandomNumberPrefetcher;
+import me.piepers.king.infrastructure.RandomNumberRingBuffer;
+import me.piepers.king.infrastructure.RandomNumberStore;
 import me.piepers.king.reactivex.infrastructure.RandomNumberService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A Verticle that keeps a random number stock obtained from one of the random service services. Depending on the
@@ -33,12 +46,40 @@ public class RandomNumberVerticle extends AbstractVerticle {
     private static final Integer DEFAULT_HIGHEST_NUMBER = 1000;
     private static final Integer DEFAULT_LOWEST_NUMBER = 0;
     private static final Integer DEFAULT_BLOCK_AMOUNT = 2000;
+    private static final Integer DEFAULT_CACHE_CAPACITY = 1 << 16;
+    private static final Integer DEFAULT_MAX_BLOCK_AMOUNT = 10000;
+    private static final Integer DEFAULT_MAX_IN_FLIGHT = 2;
+    private static final Long DEFAULT_PREFETCH_HORIZON_MS = 5000L;
+    private static final Long DEFAULT_RATE_HALF_LIFE_MS = 1000L;
+    private static final Integer DEFAULT_WAIT_QUEUE_SIZE = 1000;
+    private static final Long DEFAULT_WAIT_TIMEOUT_MS = 2000L;
+    private static final Integer DEFAULT_RETRY_AFTER_SECONDS = 1;
+    private static final Integer DEFAULT_STORE_CAPACITY = 1 << 20;
+    private static final Integer DEFAULT_BANK_AMOUNT = 0;
+    private static final Integer DEFAULT_BANK_RESERVE_REQUESTS = 100;
+    private static final long RATE_SAMPLE_INTERVAL_MS = 100;
+    private static final int TRANSFER_SIZE = 4096;
 
     private static final String REQUEST_COUNTER_LOCK = "request-counter";
     private static final String SHARED_MAP = "shared-map";
 
     // The cache of random numbers.
-    private ConcurrentLinkedDeque<Integer> rcache;
+    private RandomNumberRingBuffer rcache;
+    // Preallocated to drain the numbers of one request into.
+    private int[] drained;
+    // Decides when to request new blocks and how large they are.
+    private RandomNumberPrefetcher prefetcher;
+    // The numbers that were served or are waited for since the consumption rate was sampled, from any thread.
+    private final AtomicLong consumed = new AtomicLong();
+    private long lastSample;
+    private int inFlightRequests = 0;
+    private int inFlightNumbers = 0;
+    // The requests that wait for numbers because the cache did not hold enough of them.
+    private PendingNumberRequests pending;
+    // Keeps the numbers that are not in the cache across restarts. Null if no file is configured.
+    private RandomNumberStore store;
+    // Used to move numbers between the cache and the store.
+    private final int[] transfer = new int[TRANSFER_SIZE];
 
     // The service that is used to obtain blocks of random numbers.
     private RandomNumberService randomNumberService;
@@ -53,8 +94,18 @@ public class RandomNumberVerticle extends AbstractVerticle {
     private Integer highestNumber;
     // The lowest possible value in the block of random numbers
     private Integer lowestNumber;
-    // The amount of random numbers we request per call to the random service
+    // The (minimum) amount of random numbers we request per call to the random service
     private Integer blockAmount;
+    // The maximum amount of random numbers we request per call to the random service
+    private Integer maxBlockAmount;
+    // The maximum amount of calls to the random service that may be in flight at the same time
+    private Integer maxInFlight;
+    // The maximum amount of numbers the cache can hold
+    private Integer cacheCapacity;
+    // The amount of numbers to keep in the store while it is quiet. 0 means the store only holds left-overs.
+    private Integer bankAmount;
+    // The amount of requests to the random service that must remain for the day before numbers are banked
+    private Integer bankReserveRequests;
 
     @Override
     public void init(Vertx vertx, Context context) {
@@ -64,98 +115,311 @@ public class RandomNumberVerticle extends AbstractVerticle {
 
         // Obtain the configuration with the threshold and the indicator for the get-block-on-init
         JsonObject config = context.config().getJsonObject("random_number_service");
-        if (Objects.nonNull(config)) {
-            this.getBlockUponInit = Optional.ofNullable(config.getBoolean("initial_block_on_start")).orElse(false);
-            this.minThreshHold = Optional.ofNullable(config.getInteger("min_threshold")).orElse(DEFAULT_MIN_THRESHOLD);
-            this.maxNrsPerRequest = Optional.ofNullable(config.getInteger("max_nrs_per_request")).orElse(DEFAULT_MAX_NRS_PER_REQUEST);
-            this.lowestNumber = Optional.ofNullable(config.getInteger("lowest_number")).orElse(DEFAULT_LOWEST_NUMBER);
-            this.highestNumber = Optional.ofNullable(config.getInteger("highest_number")).orElse(DEFAULT_HIGHEST_NUMBER);
-            this.blockAmount = Optional.ofNullable(config.getInteger("block_amount")).orElse(DEFAULT_BLOCK_AMOUNT);
-
-        } else {
+        if (Objects.isNull(config)) {
             LOGGER.warn("No configuration was found for the Random Number Verticle. Falling back to defaults.");
+            config = new JsonObject();
+        }
+        this.getBlockUponInit = Optional.ofNullable(config.getBoolean("initial_block_on_start")).orElse(false);
+        this.minThreshHold = Optional.ofNullable(config.getInteger("min_threshold")).orElse(DEFAULT_MIN_THRESHOLD);
+        this.maxNrsPerRequest = Optional.ofNullable(config.getInteger("max_nrs_per_request")).orElse(DEFAULT_MAX_NRS_PER_REQUEST);
+        this.lowestNumber = Optional.ofNullable(config.getInteger("lowest_number")).orElse(DEFAULT_LOWEST_NUMBER);
+        this.highestNumber = Optional.ofNullable(config.getInteger("highest_number")).orElse(DEFAULT_HIGHEST_NUMBER);
+        this.blockAmount = Optional.ofNullable(config.getInteger("block_amount")).orElse(DEFAULT_BLOCK_AMOUNT);
+        this.maxBlockAmount = Math.max(Optional.ofNullable(config.getInteger("max_block_amount")).orElse(DEFAULT_MAX_BLOCK_AMOUNT), blockAmount);
+        this.maxInFlight = Optional.ofNullable(config.getInteger("max_in_flight")).orElse(DEFAULT_MAX_IN_FLIGHT);
+        // The cache must at least be able to hold a new block on top of the threshold.
+        this.cacheCapacity = Math.max(Optional.ofNullable(config.getInteger("cache_capacity")).orElse(DEFAULT_CACHE_CAPACITY),
+                blockAmount + minThreshHold);
+
+        rcache = new RandomNumberRingBuffer(cacheCapacity);
+        drained = new int[maxNrsPerRequest];
+        prefetcher = new RandomNumberPrefetcher(minThreshHold, blockAmount, maxBlockAmount, maxInFlight,
+                Optional.ofNullable(config.getLong("prefetch_horizon_ms")).orElse(DEFAULT_PREFETCH_HORIZON_MS),
+                Optional.ofNullable(config.getLong("rate_half_life_ms")).orElse(DEFAULT_RATE_HALF_LIFE_MS));
+        pending = new PendingNumberRequests(Optional.ofNullable(config.getInteger("wait_queue_size")).orElse(DEFAULT_WAIT_QUEUE_SIZE),
+                Optional.ofNullable(config.getLong("wait_timeout_ms")).orElse(DEFAULT_WAIT_TIMEOUT_MS),
+                Optional.ofNullable(config.getInteger("retry_after_seconds")).orElse(DEFAULT_RETRY_AFTER_SECONDS));
+
+        this.bankAmount = Optional.ofNullable(config.getInteger("bank_amount")).orElse(DEFAULT_BANK_AMOUNT);
+        this.bankReserveRequests = Optional.ofNullable(config.getInteger("bank_reserve_requests")).orElse(DEFAULT_BANK_RESERVE_REQUESTS);
+        String storeFile = config.getString("store_file");
+        if (Objects.nonNull(storeFile)) {
+            try {
+                this.store = RandomNumberStore.open(Paths.get(storeFile),
+                        Optional.ofNullable(config.getInteger("store_capacity")).orElse(DEFAULT_STORE_CAPACITY));
+                LOGGER.info("Opened random number store {} containing {} numbers.", storeFile, store.size());
+            } catch (IOException e) {
+                LOGGER.error("Unable to open random number store {}. Unused numbers will not be kept.", storeFile, e);
+            }
         }
-        rcache = new ConcurrentLinkedDeque<>();
-
-        LOGGER.info("Random number verticle initialized. \nUsing {} as the minimum amount of numbers that must be present in the cache before obtaining a new block. \nInitial request on start: {}; max amount per request: {}.\nRequesting {} of numbers when the threshold is reached.", minThreshHold, getBlockUponInit, maxNrsPerRequest, blockAmount);
 
-        // TODO: if we had a block of cache previously, read it from storage and fill the cache with that list.
+        LOGGER.info("Random number verticle initialized. \nUsing {} as the minimum amount of numbers that must be present in the cache before obtaining a new block. \nInitial request on start: {}; max amount per request: {}.\nRequesting between {} and {} numbers at once with at most {} requests in flight. The cache holds at most {} numbers.", minThreshHold, getBlockUponInit, maxNrsPerRequest, blockAmount, maxBlockAmount, maxInFlight, rcache.capacity());
     }
 
     @Override
     public void start() {
 
-        if (getBlockUponInit) {
-            this.getNextBlock();
+        // Numbers that were left over the previous time are used first.
+        this.refillFromStore();
+        if (getBlockUponInit && rcache.size() <= prefetcher.lowWatermark()) {
+            this.getNextBlock(blockAmount);
+        }
+
+        // The consumption rate is sampled periodically. While numbers are taken, this also refills the cache ahead of
+        // time when the rate went up.
+        this.lastSample = System.nanoTime();
+        this.vertx.setPeriodic(RATE_SAMPLE_INTERVAL_MS, id -> {
+            long now = System.nanoTime();
+            long sampled = consumed.getAndSet(0);
+            prefetcher.sample(sampled, now - lastSample);
+            lastSample = now;
+            if (pending.expire(now) > 0) {
+                LOGGER.warn("Requests for random numbers timed out while waiting (cache contains {} items).", rcache.size());
+            }
+            if (sampled > 0) {
+                this.handleThreshold();
+            } else {
+                this.bank();
+            }
+        });
+
+        // Co-located callers take their numbers straight from the cache. The refill stays on the context of this verticle.
+        LocalServiceRegistry.register(vertx.getDelegate(), RandomNumberCache.EVENT_BUS_ADDRESS, new RandomNumberCache() {
+            @Override
+            public boolean take(int[] target, int amount) {
+                // Like the asynchronous take, numbers are only taken directly when nobody is waiting. A miss is counted
+                // by the take the caller falls back to.
+                if (amount > maxNrsPerRequest || !pending.isEmpty() || !rcache.drain(target, 0, amount)) {
+                    return false;
+                }
+                consumed.addAndGet(amount);
+                if (rcache.size() <= prefetcher.lowWatermark()) {
+                    context.runOnContext(v -> handleThreshold());
+                }
+                return true;
+            }
+
+            @Override
+            public void take(int amount, Handler<AsyncResult<int[]>> resultHandler) {
+                if (amount > maxNrsPerRequest) {
+                    resultHandler.handle(ServiceException.fail(500, "The amount of requested items is larger than allowed."));
+                    return;
+                }
+                // Only take numbers directly when nobody is waiting, otherwise the request joins the queue.
+                int[] numbers = new int[amount];
+                if (pending.isEmpty() && rcache.drain(numbers, 0, amount)) {
+                    consumed.addAndGet(amount);
+                    if (rcache.size() <= prefetcher.lowWatermark()) {
+                        context.runOnContext(v -> handleThreshold());
+                    }
+                    resultHandler.handle(Future.succeededFuture(numbers));
+                } else {
+                    // The result is handed back on the context of the caller.
+                    Context caller = Vertx.currentContext();
+                    context.runOnContext(v -> await(amount, result -> {
+                        if (Objects.isNull(caller)) {
+                            resultHandler.handle(result);
+                        } else {
+                            caller.runOnContext(w -> resultHandler.handle(result));
+                        }
+                    }));
+                }
+            }
+        });
+
+        // Registered in the same way as the service proxies do so that the retry information reaches the caller.
+        try {
+            this.vertx.getDelegate().eventBus().registerDefaultCodec(ServiceException.class, new ServiceExceptionMessageCodec());
+        } catch (IllegalStateException e) {
+            // Already registered.
         }
 
-        this.vertx.eventBus().<JsonObject>consumer("get.numbers", message -> {
+        this.vertx.eventBus().<JsonObject>consumer(RandomNumberCache.EVENT_BUS_ADDRESS, message -> {
             // TODO: expecting the message to contain a body with the "amount" of numbers that must be obtained but must handle this in case this is not present.
             Integer amount = message.body().getInteger("amount");
             if (amount > maxNrsPerRequest) {
                 message.fail(500, "The amount of requested items is larger than allowed.");
-            } else if (rcache.size() < amount) {
-                // In this case, we are requesting more items than we have available.
-                LOGGER.error("Amount of requested items ({}) is larger than we can handle (currently in stock: {}). Please increase the threshold to keep up with the amount of numbers that are requested.", amount, rcache.size());
-                message.fail(500, "The amount of requested items is larger than we can handle at the moment.");
-            } else {
-                List<Integer> randomNumbers = new ArrayList<>(amount);
-                while ((amount--) > 0) {
-                    randomNumbers.add(rcache.pop());
-                }
-                JsonArray jsonArray = new JsonArray(randomNumbers);
-                // TODO: dto
-                message.reply(new JsonObject().put("numbers", jsonArray));
+                return;
+            }
+            if (pending.isEmpty() && rcache.drain(drained, 0, amount)) {
+                consumed.addAndGet(amount);
+                message.reply(this.toJson(drained, amount));
                 this.handleThreshold();
+            } else {
+                // In this case, we are requesting more items than we have available so the request waits for the next block.
+                this.await(amount, result -> {
+                    if (result.succeeded()) {
+                        message.reply(this.toJson(result.result(), amount));
+                    } else {
+                        message.reply(result.cause());
+                    }
+                });
             }
-
         });
+
+        this.vertx.eventBus().<JsonObject>consumer(RandomNumberCache.METRICS_ADDRESS, message -> message.reply(pending
+                .metrics()
+                .put("available", rcache.size())
+                .put("lowWatermark", prefetcher.lowWatermark())
+                .put("consumptionRate", prefetcher.rate())));
+    }
+
+    private JsonObject toJson(int[] numbers, int amount) {
+        List<Integer> randomNumbers = new ArrayList<>(amount);
+        for (int i = 0; i < amount; i++) {
+            randomNumbers.add(numbers[i]);
+        }
+        JsonArray jsonArray = new JsonArray(randomNumbers);
+        // TODO: dto
+        return new JsonObject().put("numbers", jsonArray);
+    }
+
+    // Puts a request in the wait queue. It is served as soon as the cache holds enough numbers.
+    private void await(int amount, Handler<AsyncResult<int[]>> resultHandler) {
+        if (pending.isEmpty()) {
+            LOGGER.warn("Amount of requested items ({}) is larger than we can handle (currently in stock: {}). The request waits for the next block. Please increase the threshold to keep up with the amount of numbers that are requested.", amount, rcache.size());
+        }
+        // Only the numbers of a request that waits count as consumed, not those of a rejected one.
+        if (pending.add(amount, System.nanoTime(), resultHandler)) {
+            consumed.addAndGet(amount);
+        }
+        // Numbers may have arrived in the meantime.
+        pending.serve(rcache, System.nanoTime());
+        this.handleThreshold();
+    }
+
+    @Override
+    public void stop() {
+        LocalServiceRegistry.unregister(vertx.getDelegate(), RandomNumberCache.EVENT_BUS_ADDRESS);
+        if (Objects.nonNull(store)) {
+            // Checkpoint the numbers in the cache so they can be used after a restart.
+            int amount;
+            while ((amount = Math.min(Math.min(rcache.size(), store.remaining()), TRANSFER_SIZE)) > 0 && rcache.drain(transfer, 0, amount)) {
+                store.append(transfer, 0, amount);
+            }
+            LOGGER.info("Stored {} unused random numbers.", store.size());
+            try {
+                store.close();
+            } catch (IOException e) {
+                LOGGER.error("Unable to close random number store.", e);
+            }
+        }
+    }
+
+    // Once the cache drops below the low watermark, moves numbers from the store into the cache up to the amount a
+    // refill aims for.
+    private void refillFromStore() {
+        if (Objects.isNull(store) || store.size() == 0 || rcache.size() - pending.numbers() > prefetcher.lowWatermark()) {
+            return;
+        }
+        int moved = 0;
+        int amount;
+        while ((amount = Math.min(Math.min(store.size(), prefetcher.highWatermark() - rcache.size()),
+                Math.min(rcache.remaining(), TRANSFER_SIZE))) > 0) {
+            store.consume(transfer, 0, amount);
+            rcache.offer(transfer, 0, amount);
+            moved += amount;
+        }
+        if (moved > 0) {
+            LOGGER.info("Moved {} random numbers from the store to the cache ({} numbers left in the store).", moved, store.size());
+            pending.serve(rcache, System.nanoTime());
+        }
+    }
+
+    // While it is quiet, buys numbers to use later as long as enough requests remain for the day.
+    private void bank() {
+        if (Objects.nonNull(store) && inFlightRequests == 0 && store.size() < bankAmount) {
+            int amount = Math.min(Math.min(bankAmount - store.size(), store.remaining()), maxBlockAmount);
+            if (amount >= blockAmount) {
+                LOGGER.debug("Banking a block of {} random numbers (store contains {}).", amount, store.size());
+                this.getNextBlock(amount, bankReserveRequests, true);
+            }
+        }
     }
 
     private void handleThreshold() {
-        int size = rcache.size();
-        if (size <= minThreshHold) {
-            LOGGER.info("We have {} items in cache so we need to get the next block (threshold is: {}).", size, minThreshHold);
-            this.getNextBlock();
+        this.refillFromStore();
+        // The numbers the waiting requests need are as good as taken.
+        int size = rcache.size() - pending.numbers();
+        int amount;
+        while ((amount = prefetcher.nextRequest(size, inFlightNumbers, inFlightRequests, rcache.capacity() - pending.numbers())) > 0) {
+            LOGGER.info("We have {} items in cache and {} requested so we need to get the next block of {} (low watermark is: {}, consumption: {}/s).",
+                    size, inFlightNumbers, amount, prefetcher.lowWatermark(), (long) prefetcher.rate());
+            this.getNextBlock(amount);
+        }
+        if (size + inFlightNumbers <= prefetcher.lowWatermark()) {
+            if (inFlightRequests >= maxInFlight) {
+                LOGGER.debug("We have {} items in cache but {} requests are already in flight.", size, inFlightRequests);
+            } else {
+                LOGGER.warn("We have {} items in cache but a block of {} does not fit in the cache.", size, blockAmount);
+            }
         } else {
-            LOGGER.debug("Threshold not yet reached. Cache contains {} items, threshold is: {}", size, minThreshHold);
+            LOGGER.debug("Threshold not yet reached. Cache contains {} items, low watermark is: {}", size, prefetcher.lowWatermark());
         }
     }
 
+    private void getNextBlock(int amount) {
+        this.getNextBlock(amount, 0, false);
+    }
+
     // TODO: handle fetch errors and monitor the amount of numbers that are available after a failure.
-    private void getNextBlock() {
+    // Requests a block as long as more than the reserved amount of requests remain. A banked block goes to the store
+    // and is not expected by the cache.
+    private void getNextBlock(int amount, int reserve, boolean banked) {
+        int expected = banked ? 0 : amount;
+        this.inFlightRequests++;
+        this.inFlightNumbers += expected;
+        long requested = System.nanoTime();
         this.getRemainingRequests()
-                .flatMap(remaining -> {
-                    if (remaining > 0) {
+                .flatMapMaybe(remaining -> {
+                    if (remaining > reserve) {
                         return randomNumberService
-                                .rxGetRandomNumbers(blockAmount, lowestNumber, highestNumber);
+                                .rxGetRandomNumbers(amount, lowestNumber, highestNumber)
+                                .toMaybe();
+                    } else if (banked) {
+                        LOGGER.debug("Not banking random numbers, only {} requests are left.", remaining);
+                        return Maybe.empty();
                     } else {
-                        return Single.error(new ServiceException(500, "Unable to get new block of data. Insufficient requests left."));
+                        return Maybe.error(new ServiceException(500, "Unable to get new block of data. Insufficient requests left."));
                     }
                 })
+                .doOnSuccess(dto -> prefetcher.recordLatency(System.nanoTime() - requested))
                 .doOnError(this::handleServiceError)
+                .doFinally(() -> {
+                    this.inFlightRequests--;
+                    this.inFlightNumbers -= expected;
+                })
                 .subscribe(dto -> {
-                    if (this.rcache.addAll(dto.getData())) {
-                        LOGGER.info("Obtained next block of random numbers. Cache now contains {} items.",
-                                rcache.size());
-                        this.writeRemaining(dto.getBitsLeft(), dto.getRequestsLeft());
+                    int[] data = dto.getData();
+                    int added = banked ? 0 : this.rcache.offer(data, 0, data.length);
+                    // What does not fit in the cache is kept for later.
+                    if (Objects.nonNull(store)) {
+                        added += store.append(data, added, data.length - added);
+                    }
+                    if (added == data.length) {
+                        LOGGER.info("Obtained next block of random numbers. Cache now contains {} items{}.",
+                                rcache.size(), Objects.nonNull(store) ? " and the store " + store.size() : "");
                     } else {
-                        LOGGER.error("Failed to add {} random numbers to cache.", dto.getData().size());
+                        LOGGER.error("Failed to add {} random numbers to cache.", data.length - added);
+                    }
+                    if (pending.serve(rcache, System.nanoTime()) > 0) {
+                        this.handleThreshold();
                     }
+                    this.writeRemaining(dto.getBitsLeft(), dto.getRequestsLeft());
                 }, throwable -> LOGGER.error("Unable to obtain next block of numbers.", throwable));
 
 
     }
 
-    // TODO: as a safety precaution we reset to 0 regardless of the error but might want to check that.
+    // Only an error that says the requests or bits are exhausted stops the next requests. Other errors, like a random
+    // number service that is temporarily down, must not stop the game until a restart.
     private void handleServiceError(Throwable throwable) {
-        if (throwable instanceof ServiceException && ((ServiceException) throwable).failureCode() == 402 || ((ServiceException) throwable).failureCode() == 403) {
+        if (throwable instanceof ServiceException && (((ServiceException) throwable).failureCode() == 402 || ((ServiceException) throwable).failureCode() == 403)) {
             LOGGER.debug("Error received from random service number indicating requests or bits are exhausted for today (code:{})", ((ServiceException) throwable).failureCode());
+            this.writeRemaining(0, 0);
         } else {
-            LOGGER.debug("The error had a different cause.", throwable.getMessage());
+            LOGGER.debug("The error had a different cause: {}", throwable.getMessage());
         }
-
-        this.writeRemaining(0, 0);
     }
 
     // TODO: Focuses on the amount of requests for now. Bits may be something we can take into account later.
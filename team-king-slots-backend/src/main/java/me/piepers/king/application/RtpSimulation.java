@@ -0,0 +1,36 @@
+package me.piepers.king.application;
+
+import me.piepers.king.domain.RtpSimulator;
+import me.piepers.king.domain.SimulationReport;
+import me.piepers.king.domain.Slot;
+import me.piepers.king.domain.SlotType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Command line entry point that simulates spins on a slot type with the {@link RtpSimulator} and prints the report.
+ * Not part of the application that is deployed.
+ * <p>
+ * Arguments (all optional): the slot type (default CLASSIC), the amount of spins (default 100.000.000) and the seed
+ * (default: random).
+ *
+ * @author Bas Piepers
+ */
+public class RtpSimulation {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RtpSimulation.class);
+    private static final long DEFAULT_SPINS = 100_000_000L;
+
+    public static void main(String[] args) {
+        SlotType type = args.length > 0 ? SlotType.valueOf(args[0].toUpperCase()) : SlotType.CLASSIC;
+        long spins = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_SPINS;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+
+        LOGGER.info("Simulating {} spins on a {} slot with seed {}.", spins, type, seed);
+        long start = System.nanoTime();
+        SimulationReport report = RtpSimulator.of(Slot.of(type, "Simulation")).simulate(spins, seed);
+        LOGGER.info("Simulation finished in {} ms.", (System.nanoTime() - start) / 1_000_000);
+
+        System.out.println(report.toJson().encodePrettily());
+    }
+}
@@ -0,0 +1,113 @@
+package me.piepers.king.application;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.reactivex.core.AbstractVerticle;
+import io.vertx.serviceproxy.ServiceBinder;
+import me.piepers.king.infrastructure.ContextBoundSlotRepository;
+import me.piepers.king.infrastructure.InMemorySlotRepository;
+import me.piepers.king.infrastructure.JournalSlotRepository;
+import me.piepers.king.infrastructure.LocalServiceRegistry;
+import me.piepers.king.infrastructure.ShardedSlotRepository;
+import me.piepers.king.infrastructure.SlotRepository;
+import me.piepers.king.infrastructure.WriteBehindSlotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Hosts one shard of the {@link SlotRepository}. The verticle is deployed once per shard so that every shard has its
+ * own context (and event loop) and its own event bus address. The repository of a shard is only ever accessed from
+ * that context which serializes the operations on the slots it owns. See {@link ShardedSlotRepository}.
+ * <p>
+ * Optionally the slots are cached in front of the repository and written behind (see {@link WriteBehindSlotRepository}).
+ * The cached slots are written when the verticle stops. Writing behind is off by default: in front of the journal a save
+ * would be answered before it is in the journal.
+ *
+ * @author Bas Piepers
+ */
+public class SlotRepositoryVerticle extends AbstractVerticle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlotRepositoryVerticle.class);
+
+    public static final String SHARD_CONFIG_KEY = "slot_repository_shard";
+    private static final String MEMORY = "memory";
+    private static final String JOURNAL = "journal";
+
+    private int shard;
+    private int shards;
+    // Only set when the slots are kept in a journal.
+    private JournalSlotRepository journalRepository;
+    // Only set when the slots are written behind.
+    private WriteBehindSlotRepository writeBehindRepository;
+
+    @Override
+    public void init(Vertx vertx, Context context) {
+        super.init(vertx, context);
+        this.shards = ShardedSlotRepository.shards(context.config());
+        this.shard = context.config().getInteger(SHARD_CONFIG_KEY, 0);
+    }
+
+    @Override
+    public void start() throws Exception {
+        String address = ShardedSlotRepository.address(shard, shards);
+        SlotRepository repository = this.createRepository();
+        this.writeBehindRepository = WriteBehindSlotRepository.create(vertx.getDelegate(), config(), repository).orElse(null);
+        if (Objects.nonNull(writeBehindRepository)) {
+            if (Objects.nonNull(journalRepository)) {
+                LOGGER.warn("The slots of shard {} are written behind to the journal, a save is answered before it is in the journal.", shard + 1);
+            }
+            repository = writeBehindRepository;
+        }
+        new ServiceBinder(vertx.getDelegate())
+                .setAddress(address)
+                .register(SlotRepository.class, repository);
+        // Co-located callers may call the repository directly, it is still executed on the context of this verticle.
+        LocalServiceRegistry.register(vertx.getDelegate(), address,
+                new ContextBoundSlotRepository(vertx.getDelegate(), context, repository));
+        LOGGER.debug("Slot repository shard {} of {} registered on {}.", shard + 1, shards, address);
+    }
+
+    // The "type" of the slot repository is "memory" (the default) or "journal" to keep the slots across restarts.
+    private SlotRepository createRepository() throws IOException {
+        String type = Optional.ofNullable(config().getJsonObject("slot_repository"))
+                .map(config -> config.getString("type"))
+                .orElse(MEMORY);
+        switch (type) {
+            case MEMORY:
+                return new InMemorySlotRepository(vertx.getDelegate(), config());
+            case JOURNAL:
+                this.journalRepository = JournalSlotRepository.open(vertx.getDelegate(), config(), shard);
+                return journalRepository;
+            default:
+                throw new IllegalArgumentException("Unknown slot repository type: " + type + ".");
+        }
+    }
+
+    @Override
+    public void stop(Future<Void> stopFuture) {
+        LocalServiceRegistry.unregister(vertx.getDelegate(), ShardedSlotRepository.address(shard, shards));
+        if (Objects.isNull(writeBehindRepository)) {
+            this.closeJournal();
+            stopFuture.complete();
+        } else {
+            writeBehindRepository.close(result -> {
+                if (result.failed()) {
+                    LOGGER.error("Unable to write all cached slots of shard {}.", shard + 1, result.cause());
+                }
+                this.closeJournal();
+                stopFuture.complete();
+            });
+        }
+    }
+
+    private void closeJournal() {
+        if (Objects.nonNull(journalRepository)) {
+            journalRepository.close();
+        }
+    }
+}
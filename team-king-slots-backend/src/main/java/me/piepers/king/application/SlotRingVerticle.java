@@ -0,0 +1,116 @@
+package me.piepers.king.application;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.reactivex.core.AbstractVerticle;
+import io.vertx.serviceproxy.ServiceException;
+import me.piepers.king.infrastructure.HandoffSlotRepository;
+import me.piepers.king.infrastructure.LocalServiceRegistry;
+import me.piepers.king.infrastructure.ShardedSlotRepository;
+import me.piepers.king.infrastructure.SlotRepository;
+import me.piepers.king.infrastructure.SlotRing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps the {@link SlotRing} of this node up to date with the nodes of the cluster. Every node publishes a heartbeat
+ * with its id; a node is added to the ring when its first heartbeat arrives and removed when it says goodbye or when
+ * its heartbeats stop for longer than the configured timeout.
+ * <p>
+ * Also hands off the slots of this node to a node that became their owner (see {@link HandoffSlotRepository}).
+ *
+ * @author Bas Piepers
+ */
+public class SlotRingVerticle extends AbstractVerticle {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlotRingVerticle.class);
+    static final String HEARTBEAT_ADDRESS = "slot.ring.heartbeat";
+    private static final Long DEFAULT_HEARTBEAT_MS = 1000L;
+    private static final Long DEFAULT_NODE_TIMEOUT_MS = 5000L;
+
+    private SlotRing ring;
+    private SlotRepository repository;
+    private long heartbeatInterval;
+    private long nodeTimeout;
+    // The time the last heartbeat of every other node arrived.
+    private final Map<String, Long> lastSeen = new HashMap<>();
+
+    @Override
+    public void init(Vertx vertx, Context context) {
+        super.init(vertx, context);
+        this.ring = LocalServiceRegistry.lookup(vertx, SlotRing.ADDRESS, SlotRing.class)
+                .orElseThrow(() -> new IllegalStateException("The slot ring must be registered before the verticle is deployed."));
+        // The slots of this node are always in the shards in this JVM.
+        this.repository = SlotRepository.createLocalProxy(vertx, ShardedSlotRepository.shards(context.config()));
+        JsonObject config = Optional.ofNullable(context.config().getJsonObject("cluster")).orElse(new JsonObject());
+        this.heartbeatInterval = Optional.ofNullable(config.getLong("heartbeat_ms")).orElse(DEFAULT_HEARTBEAT_MS);
+        this.nodeTimeout = Optional.ofNullable(config.getLong("node_timeout_ms")).orElse(DEFAULT_NODE_TIMEOUT_MS);
+    }
+
+    @Override
+    public void start() {
+        String localNode = ring.getLocalNode();
+        this.vertx.eventBus().<JsonObject>consumer(HEARTBEAT_ADDRESS, message -> {
+            String node = message.body().getString("node");
+            if (localNode.equals(node)) {
+                return;
+            }
+            if (message.body().getBoolean("left", false)) {
+                lastSeen.remove(node);
+                this.remove(node, "left");
+            } else {
+                lastSeen.put(node, System.currentTimeMillis());
+                if (ring.add(node)) {
+                    LOGGER.info("Node {} joined, the ring now has {} node(s).", node, ring.nodes().size());
+                    // Let the new node know about this node right away.
+                    this.heartbeat();
+                }
+            }
+        });
+
+        this.vertx.eventBus().<String>consumer(HandoffSlotRepository.handoffAddress(localNode), message ->
+                repository.deleteById(message.body(), result -> {
+                    if (result.succeeded()) {
+                        message.reply(result.result());
+                    } else {
+                        message.fail(result.cause() instanceof ServiceException ?
+                                ((ServiceException) result.cause()).failureCode() : 503, result.cause().getMessage());
+                    }
+                }));
+
+        this.vertx.setPeriodic(heartbeatInterval, id -> {
+            this.heartbeat();
+            long now = System.currentTimeMillis();
+            lastSeen.entrySet().removeIf(entry -> {
+                boolean expired = now - entry.getValue() > nodeTimeout;
+                if (expired) {
+                    this.remove(entry.getKey(), "timed out");
+                }
+                return expired;
+            });
+        });
+        this.heartbeat();
+        // The other nodes answer the first heartbeat right away, they are all known after one interval.
+        this.vertx.setTimer(heartbeatInterval, id -> ring.joined());
+        LOGGER.info("Node {} joined the cluster.", localNode);
+    }
+
+    @Override
+    public void stop() {
+        this.vertx.eventBus().publish(HEARTBEAT_ADDRESS, new JsonObject().put("node", ring.getLocalNode()).put("left", true));
+    }
+
+    private void heartbeat() {
+        this.vertx.eventBus().publish(HEARTBEAT_ADDRESS, new JsonObject().put("node", ring.getLocalNode()));
+    }
+
+    private void remove(String node, String reason) {
+        if (ring.remove(node)) {
+            LOGGER.info("Node {} {}, the ring now has {} node(s).", node, reason, ring.nodes().size());
+        }
+    }
+}
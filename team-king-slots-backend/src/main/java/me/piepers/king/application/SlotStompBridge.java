@@ -0,0 +1,300 @@
+package me.piepers.king.application;
+
+import io.reactivex.Single;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.json.JsonObject;
+import io.vertx.serviceproxy.ServiceException;
+import me.piepers.king.infrastructure.StompFrame;
+import me.piepers.king.reactivex.domain.SlotService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Plays slots over one persistent STOMP-over-WebSocket connection instead of a http request per spin, and pushes the
+ * results to everybody that follows the slot (the player, spectators or tournament views).
+ * <p>
+ * A client connects (CONNECT), subscribes to the topic of a slot ("/topic/slot/{id}") and sends the commands to
+ * "/app/slot/{id}/spin" and "/app/slot/{id}/stop" (SEND, without a body). The result of a command is pushed as a
+ * MESSAGE to all subscribers of the topic with the json of the slot or the spin result as the body and an "event"
+ * header with the name of the command. If a command fails, only the sender is told, as a MESSAGE with the event "error"
+ * and the "code" of the failure, or with an ERROR frame and a closed connection if it does not follow the slot. A
+ * receipt that is asked for is sent when the command is done. The commands of a connection are handled one after the
+ * other, in the order they were sent.
+ * <p>
+ * Every result is encoded once and published on the event bus; each bridge delivers it to the subscribers that are
+ * connected to it, adding only their subscription id. Pushes to a subscriber that does not keep up are dropped.
+ *
+ * @author Bas Piepers
+ */
+public class SlotStompBridge implements Handler<ServerWebSocket> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlotStompBridge.class);
+    public static final String DEFAULT_PATH = "/stomp";
+    static final String TOPIC_PREFIX = "/topic/slot/";
+    static final String COMMAND_PREFIX = "/app/slot/";
+    // The results of a slot are published to this address followed by the id of the slot.
+    static final String EVENT_BUS_ADDRESS_PREFIX = "slot.topic.";
+    private static final String MESSAGE_LINE = StompFrame.MESSAGE + "\n";
+
+    private final Vertx vertx;
+    private final SlotService slotService;
+    private final String path;
+    private final Map<String, Topic> topics = new HashMap<>();
+    // Every http server verticle has its own bridge, on every node, so the ids of a bridge start with its own prefix.
+    private final String messageIdPrefix = UUID.randomUUID().toString();
+    private long messageIds;
+
+    public SlotStompBridge(Vertx vertx, SlotService slotService, String path) {
+        this.vertx = vertx;
+        this.slotService = slotService;
+        this.path = path;
+    }
+
+    @Override
+    public void handle(ServerWebSocket webSocket) {
+        if (!path.equals(webSocket.path())) {
+            webSocket.reject();
+            return;
+        }
+        Connection connection = new Connection(webSocket);
+        webSocket.textMessageHandler(text -> connection.receive(Buffer.buffer(text)));
+        webSocket.binaryMessageHandler(connection::receive);
+        webSocket.closeHandler(v -> connection.unsubscribeAll());
+    }
+
+    // Encodes the result once, without a subscription header, and publishes it to all bridges.
+    private void publish(String slotId, String event, JsonObject result) {
+        String frame = new StompFrame(StompFrame.MESSAGE, new LinkedHashMap<>(), result.encode())
+                .header("destination", TOPIC_PREFIX + slotId)
+                .header("message-id", nextMessageId(slotId))
+                .header("content-type", "application/json")
+                .header("event", event)
+                .encode();
+        vertx.eventBus().publish(EVENT_BUS_ADDRESS_PREFIX + slotId, frame);
+    }
+
+    private String nextMessageId(String slotId) {
+        return slotId + "-" + messageIdPrefix + "-" + messageIds++;
+    }
+
+    // The published frame with the subscription header of one subscriber.
+    private static String forSubscription(String frame, String subscriptionId) {
+        return MESSAGE_LINE + "subscription:" + StompFrame.escape(subscriptionId) + "\n" + frame.substring(MESSAGE_LINE.length());
+    }
+
+    // The subscribers of one slot that are connected to this bridge.
+    private final class Topic {
+        private final String slotId;
+        private final Map<Connection, String> subscribers = new HashMap<>();
+        private final MessageConsumer<String> consumer;
+
+        private Topic(String slotId) {
+            this.slotId = slotId;
+            this.consumer = vertx.eventBus().consumer(EVENT_BUS_ADDRESS_PREFIX + slotId, message ->
+                    subscribers.forEach((connection, subscriptionId) -> connection.push(forSubscription(message.body(), subscriptionId))));
+        }
+
+        private void remove(Connection connection) {
+            subscribers.remove(connection);
+            if (subscribers.isEmpty()) {
+                consumer.unregister();
+                topics.remove(slotId);
+            }
+        }
+    }
+
+    private final class Connection {
+        private final ServerWebSocket webSocket;
+        // The slot per subscription id.
+        private final Map<String, String> subscriptions = new HashMap<>();
+        // The commands that wait for the command in progress.
+        private final Deque<StompFrame> commands = new ArrayDeque<>();
+        private boolean busy;
+        private boolean connected;
+        private boolean closed;
+
+        private Connection(ServerWebSocket webSocket) {
+            this.webSocket = webSocket;
+        }
+
+        private void receive(Buffer data) {
+            try {
+                for (StompFrame frame : StompFrame.parse(data)) {
+                    if (closed) {
+                        return;
+                    }
+                    this.handle(frame);
+                }
+            } catch (IllegalArgumentException e) {
+                this.error(e.getMessage(), null);
+            }
+        }
+
+        private void handle(StompFrame frame) {
+            String command = frame.getCommand();
+            if (StompFrame.CONNECT.equals(command) || StompFrame.STOMP.equals(command)) {
+                this.connected = true;
+                this.write(new StompFrame(StompFrame.CONNECTED)
+                        .header("version", "1.2")
+                        .header("heart-beat", "0,0")
+                        .header("server", "team-king-slots"));
+            } else if (!connected) {
+                this.error("Expected a CONNECT frame.", frame);
+            } else if (StompFrame.SUBSCRIBE.equals(command)) {
+                this.subscribe(frame);
+            } else if (StompFrame.UNSUBSCRIBE.equals(command)) {
+                String slotId = subscriptions.remove(frame.getHeader("id"));
+                Optional.ofNullable(slotId).map(topics::get).ifPresent(topic -> topic.remove(this));
+                this.receipt(frame);
+            } else if (StompFrame.SEND.equals(command)) {
+                commands.add(frame);
+                this.next();
+            } else if (StompFrame.DISCONNECT.equals(command)) {
+                this.receipt(frame);
+                this.close();
+            } else {
+                this.error("Unsupported command " + command + ".", frame);
+            }
+        }
+
+        private void subscribe(StompFrame frame) {
+            String destination = Optional.ofNullable(frame.getHeader("destination")).orElse("");
+            String id = frame.getHeader("id");
+            if (!destination.startsWith(TOPIC_PREFIX) || destination.length() == TOPIC_PREFIX.length() || Objects.isNull(id)) {
+                this.error("Subscribe to " + TOPIC_PREFIX + "{slot id} with an id.", frame);
+                return;
+            }
+            String slotId = destination.substring(TOPIC_PREFIX.length());
+            // A connection follows a slot with one subscription.
+            if (subscriptions.containsValue(slotId)) {
+                this.error("Already subscribed to " + destination + ".", frame);
+                return;
+            }
+            subscriptions.put(id, slotId);
+            topics.computeIfAbsent(slotId, Topic::new).subscribers.put(this, id);
+            this.receipt(frame);
+        }
+
+        private void next() {
+            if (!busy && !closed && !commands.isEmpty()) {
+                this.busy = true;
+                this.send(commands.poll());
+            }
+        }
+
+        private void done() {
+            this.busy = false;
+            this.next();
+        }
+
+        private void send(StompFrame frame) {
+            String destination = Optional.ofNullable(frame.getHeader("destination")).orElse("");
+            int slash = destination.lastIndexOf('/');
+            String slotId = destination.startsWith(COMMAND_PREFIX) && slash > COMMAND_PREFIX.length() ?
+                    destination.substring(COMMAND_PREFIX.length(), slash) : null;
+            String event = destination.substring(slash + 1);
+            Single<JsonObject> result;
+            if (Objects.isNull(slotId)) {
+                result = null;
+            } else if ("spin".equals(event)) {
+                result = slotService.rxSpin(slotId).map(slot -> slot.toJson());
+            } else if ("stop".equals(event)) {
+                result = slotService.rxStop(slotId).map(spinResult -> spinResult.toJson());
+            } else {
+                result = null;
+            }
+            if (Objects.isNull(result)) {
+                this.error("Unknown destination " + destination + ".", frame);
+                return;
+            }
+            result.subscribe(json -> {
+                publish(slotId, event, json);
+                this.receipt(frame);
+                this.done();
+            }, throwable -> {
+                this.failure(slotId, throwable, frame);
+                this.done();
+            });
+        }
+
+        // Tells the sender that the command failed, on its subscription to the slot if it has one.
+        private void failure(String slotId, Throwable throwable, StompFrame frame) {
+            LOGGER.debug("Command {} failed: {}", frame.getHeader("destination"), throwable.getMessage());
+            int code = throwable instanceof ServiceException ? ((ServiceException) throwable).failureCode() : 503;
+            Optional<String> subscriptionId = subscriptions.entrySet().stream()
+                    .filter(entry -> entry.getValue().equals(slotId))
+                    .map(Map.Entry::getKey)
+                    .findFirst();
+            if (subscriptionId.isPresent()) {
+                StompFrame message = new StompFrame(StompFrame.MESSAGE, new LinkedHashMap<>(),
+                        new JsonObject().put("Error", throwable.getMessage()).encode())
+                        .header("subscription", subscriptionId.get())
+                        .header("destination", TOPIC_PREFIX + slotId)
+                        .header("message-id", nextMessageId(slotId))
+                        .header("content-type", "application/json")
+                        .header("event", "error")
+                        .header("code", String.valueOf(code));
+                Optional.ofNullable(frame.getHeader("receipt")).ifPresent(receipt -> message.header("receipt-id", receipt));
+                this.write(message);
+            } else {
+                this.error(throwable.getMessage(), frame);
+            }
+        }
+
+        private void receipt(StompFrame frame) {
+            Optional.ofNullable(frame.getHeader("receipt"))
+                    .ifPresent(receipt -> this.write(new StompFrame(StompFrame.RECEIPT).header("receipt-id", receipt)));
+        }
+
+        // The protocol requires the connection to be closed after an error.
+        private void error(String message, StompFrame frame) {
+            StompFrame error = new StompFrame(StompFrame.ERROR).header("message", Optional.ofNullable(message).orElse("Error"));
+            Optional.ofNullable(frame)
+                    .map(f -> f.getHeader("receipt"))
+                    .ifPresent(receipt -> error.header("receipt-id", receipt));
+            this.write(error);
+            this.close();
+        }
+
+        private void write(StompFrame frame) {
+            if (!closed) {
+                webSocket.writeTextMessage(frame.encode());
+            }
+        }
+
+        private void push(String frame) {
+            if (closed) {
+                return;
+            }
+            if (webSocket.writeQueueFull()) {
+                LOGGER.debug("Dropped a push to a subscriber that does not keep up.");
+                return;
+            }
+            webSocket.writeTextMessage(frame);
+        }
+
+        private void close() {
+            this.unsubscribeAll();
+            this.closed = true;
+            webSocket.close();
+        }
+
+        private void unsubscribeAll() {
+            subscriptions.values().forEach(slotId -> Optional.ofNullable(topics.get(slotId)).ifPresent(topic -> topic.remove(this)));
+            subscriptions.clear();
+            this.closed = true;
+        }
+    }
+}
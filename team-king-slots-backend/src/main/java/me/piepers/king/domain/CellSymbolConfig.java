@@ -28,13 +28,13 @@ import java.util.stream.IntStream;
 public class CellSymbolConfig implements JsonDomainObject {
 
     private final Symbol symbol;
-    // Must be a list due to JsonObject limitations.
-    private final List<Integer> numberAssignment;
+    // Kept as primitives, exposed as a list due to JsonObject limitations.
+    private final int[] numberAssignment;
     private final Map<SubsequentSymbols, ScoreValue> scoreValues;
 
     public CellSymbolConfig(JsonObject jsonObject) {
         this.symbol = Symbol.resolve(jsonObject.getString("symbol"));
-        this.numberAssignment = jsonObject.getJsonArray("numberAssignment").getList();
+        this.numberAssignment = jsonObject.getJsonArray("numberAssignment").stream().mapToInt(number -> (Integer) number).toArray();
         JsonObject scoreConfig = jsonObject.getJsonObject("scoreValues");
         Map<String, Object> scoreConfigMap = scoreConfig.getMap();
         // Map a String, Object pair to a SubsequentSumbols, ScoreValue pair.
@@ -47,9 +47,9 @@ public class CellSymbolConfig implements JsonDomainObject {
                                 s -> ScoreValue.of((Integer) scoreConfigMap.get(s.name()))));
     }
 
-    private CellSymbolConfig(Symbol symbol, Integer[] numberAssignment, Map<SubsequentSymbols, ScoreValue> scoreValues) {
+    private CellSymbolConfig(Symbol symbol, int[] numberAssignment, Map<SubsequentSymbols, ScoreValue> scoreValues) {
         this.symbol = symbol;
-        this.numberAssignment = Arrays.asList(numberAssignment);
+        this.numberAssignment = numberAssignment;
         this.scoreValues = scoreValues;
     }
 
@@ -70,9 +70,7 @@ public class CellSymbolConfig implements JsonDomainObject {
             throw new IllegalArgumentException("From must be smaller than to.");
         }
 
-        Integer[] range = IntStream.range(from, to).boxed().toArray(Integer[]::new);
-
-        return new CellSymbolConfig(symbol, range, scoreValues);
+        return new CellSymbolConfig(symbol, IntStream.range(from, to).toArray(), scoreValues);
     }
 
     /**
@@ -89,7 +87,7 @@ public class CellSymbolConfig implements JsonDomainObject {
             throw new IllegalArgumentException("Expecting at least one number to configure this instance.");
         }
         if (Arrays.stream(numbers).allMatch(new HashSet<>()::add)) {
-            return new CellSymbolConfig(symbol, numbers, scoreValues);
+            return new CellSymbolConfig(symbol, Arrays.stream(numbers).mapToInt(Integer::intValue).toArray(), scoreValues);
         } else {
             throw new IllegalArgumentException("The range of numbers need to be unique for a CellSymbolConfig.");
         }
@@ -105,7 +103,7 @@ public class CellSymbolConfig implements JsonDomainObject {
      * @return an instance of {@link CellSymbolConfig} that can be used in a slot to calculate the score of a spin.
      */
     public static CellSymbolConfig of(Symbol symbol, Map<SubsequentSymbols, ScoreValue> scoreValues, int number) {
-        return new CellSymbolConfig(symbol, new Integer[]{number}, scoreValues);
+        return new CellSymbolConfig(symbol, new int[]{number}, scoreValues);
     }
 
     public Symbol getSymbol() {
@@ -113,6 +111,21 @@ public class CellSymbolConfig implements JsonDomainObject {
     }
 
     public List<Integer> getNumberAssignment() {
+        return new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                return numberAssignment[index];
+            }
+
+            @Override
+            public int size() {
+                return numberAssignment.length;
+            }
+        };
+    }
+
+    // The assigned numbers without boxing, must not be modified.
+    int[] numbers() {
         return numberAssignment;
     }
 
@@ -142,12 +155,12 @@ public class CellSymbolConfig implements JsonDomainObject {
     public String toString() {
         return "CellSymbolConfig{" +
                 "symbol=" + symbol +
-                ", numberAssignment=" + numberAssignment +
+                ", numberAssignment=" + Arrays.toString(numberAssignment) +
                 ", scoreValues=" + scoreValues +
                 '}';
     }
 
-    enum Symbol {
+    public enum Symbol {
         NONE, SEVEN, BELL, BAR, TWO_BARS, THREE_BARS, EMPTY, IMAGE1, IMAGE2, IMAGE3, IMAGE4, CHAR1, CHAR2, CHAR3, CHAR4, CHAR5, CHAR6;
 
 
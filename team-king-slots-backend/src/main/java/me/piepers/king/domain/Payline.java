@@ -11,7 +11,7 @@ import java.util.Objects;
 
 /**
  * Paylines represent the structure of the paylines for a particular slot. The score is calculated based on these
- * paylines using DFS (depth-first-search).
+ * paylines by the {@link PaylineEvaluator}.
  * <p>
  * For inspiration of a relatively complex set of paylines, see:
  * <p>
@@ -139,6 +139,11 @@ public class Payline implements JsonDomainObject {
         return new Payline(reference, coordinates, active, bet);
     }
 
+    // The coordinates are shared with the other paylines of a template, see SlotTemplate.
+    static Payline of(int reference, JsonArray coordinates, boolean active, int bet) {
+        return new Payline(reference, coordinates, active, bet);
+    }
+
 
     @Override
     public boolean equals(Object o) {
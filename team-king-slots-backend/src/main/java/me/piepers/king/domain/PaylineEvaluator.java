@@ -0,0 +1,208 @@
+package me.piepers.king.domain;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Calculates the win of a spin for all the {@link Payline}s of a {@link Reel} in one pass.
+ * <p>
+ * The evaluator is compiled once for a reel and a {@link ReelConfig}: the coordinates of each payline are translated
+ * into offsets in a flat, row-major int array that holds the ordinals of the symbols of the cells. Cells that a
+ * payline spans but that are not present in the reel (rows with less columns) are left out of the compiled line, as
+ * described in the javadoc of {@link Payline}. The score table is taken from the {@link ReelConfig}. The paylines of
+ * a reel of a {@link SlotTemplate} are compiled once by the template and shared by all its evaluators.
+ * <p>
+ * Evaluating a spin copies the symbols of the cells into the grid and walks the compiled lines from left to right.
+ * The symbol in the first cell of a line is counted for as long as the subsequent cells show the same symbol. The
+ * amount of subsequent symbols is looked up in the score table and multiplied with the bet of the payline. Whether a
+ * payline is active and what its bet is, is read from the payline itself during evaluation so that changing these
+ * settings does not require a new compilation. No objects are allocated while evaluating.
+ * <p>
+ * An evaluator holds state (the grid and the win per line) and is therefore not thread-safe. It is meant to be used
+ * by the reel it was compiled for.
+ *
+ * @author Bas Piepers
+ */
+public final class PaylineEvaluator {
+    private static final int NO_SYMBOL = CellSymbolConfig.Symbol.NONE.ordinal();
+
+    private final ReelConfig reelConfig;
+    private final int width;
+    private final int[] grid;
+    private final Payline[] lines;
+    private final int[][] offsets;
+    private final long[][] scoreTable;
+    private final long[] lineWins;
+
+    private PaylineEvaluator(ReelConfig reelConfig, int rows, int width, Payline[] lines, int[][] offsets) {
+        this.reelConfig = reelConfig;
+        this.width = width;
+        this.grid = new int[rows * width];
+        this.lines = lines;
+        this.offsets = offsets;
+        this.scoreTable = reelConfig.getScoreTable();
+        this.lineWins = new long[lines.length];
+    }
+
+    /**
+     * Compiles the paylines of the given reel into an evaluator that scores against the given configuration.
+     *
+     * @param reel,       the reel with the cells and the paylines to compile.
+     * @param reelConfig, the configuration of the reel that contains the score values of the symbols.
+     * @return an evaluator for the given reel.
+     */
+    public static PaylineEvaluator compile(Reel reel, ReelConfig reelConfig) {
+        if (Objects.isNull(reelConfig)) {
+            throw new IllegalArgumentException("A reel configuration is required to calculate a win.");
+        }
+        List<List<ReelCell>> cells = reel.getCells();
+        int rows = cells.size();
+        int width = 0;
+        for (int r = 0; r < rows; r++) {
+            width = Math.max(width, Objects.nonNull(cells.get(r)) ? cells.get(r).size() : 0);
+        }
+
+        Set<Payline> payLines = reel.getPayLines();
+        Payline[] lines = Objects.nonNull(payLines) ? payLines.toArray(new Payline[0]) : new Payline[0];
+        int[][] offsets = new int[lines.length][];
+        SlotTemplate template = reel.getTemplate();
+        for (int i = 0; i < lines.length; i++) {
+            // The paylines of a template are compiled once for all its reels.
+            int[] shared = Objects.nonNull(template) ? template.compiledLine(lines[i]) : null;
+            offsets[i] = Objects.nonNull(shared) ? shared : compileLine(cells, width, lines[i].getCoordsAsArray());
+        }
+
+        return new PaylineEvaluator(reelConfig, rows, width, lines, offsets);
+    }
+
+    // Coordinates start at 1 and represent the row for each subsequent column.
+    static int[] compileLine(List<List<ReelCell>> cells, int width, int[] coordinates) {
+        int[] line = new int[coordinates.length];
+        int length = 0;
+        for (int column = 0; column < coordinates.length; column++) {
+            int row = coordinates[column] - 1;
+            if (row >= 0 && row < cells.size() && Objects.nonNull(cells.get(row)) && column < cells.get(row).size()
+                    && Objects.nonNull(cells.get(row).get(column))) {
+                line[length++] = row * width + column;
+            }
+        }
+        int[] compiled = new int[length];
+        System.arraycopy(line, 0, compiled, 0, length);
+        return compiled;
+    }
+
+    /**
+     * @param reelConfig, a reel configuration.
+     * @return true if this evaluator scores against the given (same instance) configuration.
+     */
+    public boolean isCompiledFor(ReelConfig reelConfig) {
+        return this.reelConfig == reelConfig;
+    }
+
+    /**
+     * Copies the symbols of the given cells to the grid and evaluates all paylines.
+     *
+     * @param cells, the cells of the reel this evaluator was compiled for.
+     * @return the total win over all active paylines.
+     */
+    public long evaluate(List<List<ReelCell>> cells) {
+        for (int r = 0, rows = cells.size(); r < rows; r++) {
+            List<ReelCell> row = cells.get(r);
+            int base = r * width;
+            int size = Objects.nonNull(row) ? row.size() : 0;
+            for (int c = 0; c < width; c++) {
+                ReelCell cell = c < size ? row.get(c) : null;
+                grid[base + c] = Objects.nonNull(cell) ? cell.getSymbol().ordinal() : NO_SYMBOL;
+            }
+        }
+        return this.evaluate();
+    }
+
+    /**
+     * Copies the given symbol ordinals to the grid and evaluates all paylines. Used to evaluate spins without cells,
+     * for example in a simulation.
+     *
+     * @param symbols, the ordinals of the symbols of all cells, row by row, {@link #gridSize()} in total. Cells that
+     *                 are not present in the reel are ignored.
+     * @return the total win over all active paylines.
+     */
+    public long evaluate(int[] symbols) {
+        System.arraycopy(symbols, 0, grid, 0, grid.length);
+        return this.evaluate();
+    }
+
+    /**
+     * Evaluates all paylines against the symbols that are currently in the grid.
+     *
+     * @return the total win over all active paylines.
+     */
+    public long evaluate() {
+        long total = 0;
+        for (int i = 0; i < lines.length; i++) {
+            long win = 0;
+            Payline payline = lines[i];
+            int[] line = offsets[i];
+            if (payline.isActive() && line.length > 0) {
+                int symbol = grid[line[0]];
+                if (symbol != NO_SYMBOL) {
+                    int run = 1;
+                    while (run < line.length && grid[line[run]] == symbol) {
+                        run++;
+                    }
+                    long[] scores = scoreTable[symbol];
+                    win = scores[Math.min(run, scores.length - 1)] * payline.getBet();
+                }
+            }
+            lineWins[i] = win;
+            total += win;
+        }
+        return total;
+    }
+
+    /**
+     * @return the amount of cells in the grid: the amount of rows times the widest row.
+     */
+    public int gridSize() {
+        return grid.length;
+    }
+
+    /**
+     * @return the amount of compiled paylines.
+     */
+    public int lineCount() {
+        return lines.length;
+    }
+
+    /**
+     * @param index, the index of the compiled payline.
+     * @return the reference of the payline at the given index.
+     */
+    public int reference(int index) {
+        return lines[index].getReference();
+    }
+
+    /**
+     * @param index, the index of the compiled payline.
+     * @return the payline at the given index.
+     */
+    public Payline payline(int index) {
+        return lines[index];
+    }
+
+    /**
+     * @param index, the index of the compiled payline.
+     * @return the amount of cells of the payline at the given index that are present in the reel.
+     */
+    public int lineLength(int index) {
+        return offsets[index].length;
+    }
+
+    /**
+     * @param index, the index of the compiled payline.
+     * @return the win of the payline at the given index during the last evaluation.
+     */
+    public long lineWin(int index) {
+        return lineWins[index];
+    }
+}
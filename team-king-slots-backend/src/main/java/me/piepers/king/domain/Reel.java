@@ -36,6 +36,10 @@ public class Reel implements JsonDomainObject {
 
     private final List<List<ReelCell>> cells;
     private Set<Payline> payLines;
+    // Compiled on the first calculation of a win, not part of the state of the reel.
+    private PaylineEvaluator evaluator;
+    // The template of the slot this reel belongs to, if any. Not part of the state of the reel either.
+    private SlotTemplate template;
 
     ////////////////////////////////////////////////////////////////////////////
     //////////////Constructors and factory methods/////////////////////////////
@@ -98,6 +102,19 @@ public class Reel implements JsonDomainObject {
         this.cells = Collections.unmodifiableList(rcs);
     }
 
+    // Creates the reel of a new slot of the given template, its paylines were validated by the template.
+    Reel(int rows, int columns, Set<Payline> payLines, SlotTemplate template) {
+        this(rows, columns);
+        this.payLines = payLines;
+        this.template = template;
+    }
+
+    // Restores a reel from its cells and paylines, used by the binary wire format.
+    Reel(List<List<ReelCell>> cells, Set<Payline> payLines) {
+        this.cells = Collections.unmodifiableList(cells);
+        this.payLines = payLines;
+    }
+
     /**
      * The factory method for the above convenience constructor.
      *
@@ -115,13 +132,18 @@ public class Reel implements JsonDomainObject {
 
 
     public Reel addPayline(int reference, Integer[] coordinates) {
+        return this.addPayline(reference, coordinates, false, 0);
+    }
+
+    public Reel addPayline(int reference, Integer[] coordinates, boolean active, int bet) {
         if (Objects.isNull(this.payLines)) {
             this.payLines = new HashSet<>();
         }
 
-        Payline p = Payline.of(reference, coordinates, 0);
+        Payline p = Payline.of(reference, coordinates, active, bet);
         if (!this.hasPayline(p) && this.payLineInGrid(coordinates)) {
             this.payLines.add(p);
+            this.evaluator = null;
         } else {
             throw new IllegalArgumentException("This payline is either not valid or already exists.");
         }
@@ -181,6 +203,71 @@ public class Reel implements JsonDomainObject {
         return this;
     }
 
+    /**
+     * Assigns a block of numbers to the cells, row by row. Used when numbers for several spins are drawn at once.
+     *
+     * @param numbers, the numbers of one or more spins.
+     * @param offset,  the position of the number for the first cell of this spin.
+     * @return this reel.
+     */
+    public Reel assignNumbersToReels(int[] numbers, int offset) {
+        if (numbers.length - offset < this.getCellAmount()) {
+            throw new IllegalArgumentException("Expect the amount of numbers to be at least the size of the reel");
+        }
+        int position = offset;
+        for (int r = 0, rows = cells.size(); r < rows; r++) {
+            List<ReelCell> row = cells.get(r);
+            for (int c = 0, columns = row.size(); c < columns; c++, position++) {
+                ReelCell cell = row.get(c);
+                if (Objects.nonNull(cell)) {
+                    cell.setValue(numbers[position]);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Assigns the symbols to the cells based on the random numbers of the cells.
+     *
+     * @param reelConfig, the configuration that maps random numbers to symbols.
+     * @return this instance for fluent programming.
+     */
+    public Reel assignSymbols(ReelConfig reelConfig) {
+        for (int r = 0, rows = this.cells.size(); r < rows; r++) {
+            List<ReelCell> row = this.cells.get(r);
+            for (int c = 0, columns = row.size(); c < columns; c++) {
+                ReelCell cell = row.get(c);
+                if (Objects.nonNull(cell)) {
+                    cell.assignSymbol(reelConfig);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Calculates the win of the current symbols on the active paylines. The paylines are compiled into a
+     * {@link PaylineEvaluator} once per configuration.
+     *
+     * @param reelConfig, the configuration that contains the score values of the symbols.
+     * @return the total win of all active paylines.
+     */
+    public long calculateWin(ReelConfig reelConfig) {
+        return this.evaluatorFor(reelConfig).evaluate(this.cells);
+    }
+
+    /**
+     * @param reelConfig, the configuration that contains the score values of the symbols.
+     * @return the evaluator of the paylines of this reel which also holds the win per line of the last calculation.
+     */
+    public PaylineEvaluator evaluatorFor(ReelConfig reelConfig) {
+        if (Objects.isNull(this.evaluator) || !this.evaluator.isCompiledFor(reelConfig)) {
+            this.evaluator = PaylineEvaluator.compile(this, reelConfig);
+        }
+        return this.evaluator;
+    }
+
     //////////////////////////////////////////////////////////////////////////////////////////////////////////////
     //////////////////// Accessors ///////////////////////////////////////////////////////////////////////////////
     //////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -201,8 +288,25 @@ public class Reel implements JsonDomainObject {
      */
     @JsonIgnore
     public int getCellAmount() {
-        // Done like this to accommodate for varying columns per row (counts columns per row).
-        return cells.stream().mapToInt(row -> row.size()).sum();
+        // Done like this to accommodate for varying columns per row (counts columns per row). A loop because this is
+        // called for every spin.
+        int amount = 0;
+        for (int r = 0, rows = cells.size(); r < rows; r++) {
+            amount += cells.get(r).size();
+        }
+        return amount;
+    }
+
+    SlotTemplate getTemplate() {
+        return template;
+    }
+
+    // Used when the reel of a slot was restored.
+    void useTemplate(SlotTemplate template) {
+        if (this.template != template && template.fits(this)) {
+            this.template = template;
+            this.evaluator = null;
+        }
     }
 
     public List<List<ReelCell>> getCells() {
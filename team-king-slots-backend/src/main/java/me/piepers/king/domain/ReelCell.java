@@ -56,8 +56,8 @@ public class ReelCell {
         this.symbol = symbol;
     }
 
-    public ReelCell assignSymbol(Slot.SymbolAssigner assigner, CellSymbolConfig config) {
-        this.symbol = assigner.assignForNumber(this.value, config);
+    public ReelCell assignSymbol(Slot.SymbolAssigner assigner) {
+        this.symbol = assigner.assignForNumber(this.value);
         return this;
     }
 
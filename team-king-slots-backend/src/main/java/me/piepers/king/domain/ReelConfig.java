@@ -2,14 +2,14 @@ package me.piepers.king.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.vertx.codegen.annotations.DataObject;
+import io.vertx.codegen.annotations.GenIgnore;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
  * Represents the configuration of a reel which needs to be valid before a spin can be executed on it. It needs a 'from'
@@ -17,25 +17,40 @@ import java.util.stream.IntStream;
  * {@link CellSymbolConfig} to determine which symbols are valid for the random numbers.
  * <p>
  * It makes sure that all random numbers are assigned a {@link CellSymbolConfig}. No duplicates or overlap are allowed.
+ * The assigned numbers are kept in a bitset so that adding and validating a configuration takes one pass over the
+ * numbers. The configuration is compiled into a table of symbols indexed by (number - from) so that the symbol of a
+ * random number is resolved with one array lookup.
  *
  * @author Bas Piepers
  */
 @DataObject
-public class ReelConfig implements JsonDomainObject {
+public class ReelConfig implements JsonDomainObject, Slot.SymbolAssigner {
+
+    private static final CellSymbolConfig.Symbol[] SYMBOLS = CellSymbolConfig.Symbol.values();
 
     private final int from;
     private final int to;
     private List<CellSymbolConfig> cellConfig;
+    // The numbers of the range that have been assigned to a symbol, indexed by (number - from).
+    private final BitSet assigned;
+    // The amount of assigned numbers that fall outside of the range, which makes this configuration invalid.
+    private int outOfRange;
+    // Derived from the cell configuration, see getScoreTable and symbolFor.
+    private volatile long[][] scoreTable;
+    private volatile byte[] symbolTable;
 
     private ReelConfig(final int from, final int to) {
         this.from = from;
         this.to = to;
+        this.assigned = new BitSet(to - from + 1);
     }
 
     public ReelConfig(JsonObject jsonObject) {
-        this.from = jsonObject.getInteger("from");
-        this.to = jsonObject.getInteger("to");
-        this.cellConfig = jsonObject.getJsonArray("cellConfig").getList();
+        this(jsonObject.getInteger("from"), jsonObject.getInteger("to"));
+        JsonArray cellConfigs = jsonObject.getJsonArray("cellConfig");
+        if (Objects.nonNull(cellConfigs)) {
+            cellConfigs.forEach(item -> this.addCellConfig(new CellSymbolConfig((JsonObject) item)));
+        }
     }
 
     public static ReelConfig of(final int from, final int to) {
@@ -59,47 +74,119 @@ public class ReelConfig implements JsonDomainObject {
      * @return this instance for fluent programming.
      */
     public ReelConfig addCellConfig(CellSymbolConfig cellSymbolConfig) {
-        if (Objects.nonNull(cellConfig) && this.numberAssignmentAlreadyExists(cellSymbolConfig)) {
-            throw new IllegalArgumentException("The cell configuration is not valid. One or more numbers are already mapped to other symbols.");
+        int[] numbers = cellSymbolConfig.numbers();
+        int outside = 0;
+        for (int number : numbers) {
+            if (number < from || number > to) {
+                outside++;
+            } else if (this.assigned.get(number - from)) {
+                throw new IllegalArgumentException("The cell configuration is not valid. One or more numbers are already mapped to other symbols.");
+            }
+        }
+        for (int number : numbers) {
+            if (number >= from && number <= to) {
+                this.assigned.set(number - from);
+            }
         }
+        this.outOfRange += outside;
 
         if (Objects.isNull(this.cellConfig)) {
             this.cellConfig = new ArrayList<>();
         }
 
         this.cellConfig.add(cellSymbolConfig);
+        this.scoreTable = null;
+        this.symbolTable = null;
 
         return this;
     }
 
-    private boolean numberAssignmentAlreadyExists(CellSymbolConfig cellSymbolConfig) {
-        return cellSymbolConfig.getNumberAssignment().stream().anyMatch(element -> this.getAssignedNumbers().contains(element));
-    }
-
-
-
     public boolean isValid() {
         if (Objects.isNull(this.cellConfig) || this.cellConfig.size() == 0) {
             return false;
         }
-        // No gaps, no overlap and spans entire range
-        List<Integer> reference = IntStream.rangeClosed(from, to).sorted().boxed().collect(Collectors.toList());
-        List<Integer> assignments = cellConfig.stream().flatMap(item -> item.getNumberAssignment().stream()).sorted().collect(Collectors.toList());
+        // No gaps, no overlap and spans entire range. Overlap is prevented when adding a configuration.
+        return this.outOfRange == 0 && this.assigned.cardinality() == to - from + 1;
+    }
 
-        if (!reference.equals(assignments)) {
-            return false;
+    /**
+     * Resolves the symbol that is configured for the given random number with one lookup in the symbol table that is
+     * compiled from the cell configuration.
+     *
+     * @param number, a random number.
+     * @return the symbol of the {@link CellSymbolConfig} the number is assigned to or NONE if it is not assigned.
+     */
+    public CellSymbolConfig.Symbol symbolFor(int number) {
+        return SYMBOLS[this.symbolOrdinalFor(number)];
+    }
+
+    /**
+     * @param number, a random number.
+     * @return the ordinal of the symbol the number is assigned to or the ordinal of NONE if it is not assigned.
+     */
+    public int symbolOrdinalFor(int number) {
+        if (number < from || number > to) {
+            return CellSymbolConfig.Symbol.NONE.ordinal();
         }
+        return this.symbolTable()[number - from];
+    }
+
+    @Override
+    public CellSymbolConfig.Symbol assignForNumber(int number) {
+        return this.symbolFor(number);
+    }
 
-        return true;
+    // The ordinals of the symbols indexed by (number - from). Unassigned numbers have the ordinal of NONE.
+    private byte[] symbolTable() {
+        byte[] table = this.symbolTable;
+        if (Objects.isNull(table)) {
+            table = new byte[to - from + 1];
+            if (Objects.nonNull(this.cellConfig)) {
+                for (CellSymbolConfig config : this.cellConfig) {
+                    byte ordinal = (byte) config.getSymbol().ordinal();
+                    for (int number : config.numbers()) {
+                        if (number >= from && number <= to) {
+                            table[number - from] = ordinal;
+                        }
+                    }
+                }
+            }
+            this.symbolTable = table;
+        }
+        return table;
     }
 
+    /**
+     * The score values of the cell configuration as a table that is indexed by the ordinal of the symbol and the
+     * amount of subsequent symbols. Amounts without a score have a value of 0. If a symbol is configured more than
+     * once, the score values of the first configuration apply.
+     *
+     * @return the score table that is used by the {@link PaylineEvaluator}.
+     */
     @JsonIgnore
-    private List<Integer> getAssignedNumbers() {
-        if (Objects.nonNull(this.cellConfig)) {
-            return this.cellConfig.stream().flatMap(item -> item.getNumberAssignment().stream()).sorted().collect(Collectors.toList());
-        } else {
-            return Collections.EMPTY_LIST;
+    @GenIgnore
+    public long[][] getScoreTable() {
+        long[][] scoreTable = this.scoreTable;
+        if (Objects.isNull(scoreTable)) {
+            int maxAmount = 0;
+            for (SubsequentSymbols subsequentSymbols : SubsequentSymbols.values()) {
+                maxAmount = Math.max(maxAmount, subsequentSymbols.getAmount());
+            }
+            long[][] table = new long[CellSymbolConfig.Symbol.values().length][maxAmount + 1];
+            boolean[] configured = new boolean[table.length];
+            if (Objects.nonNull(this.cellConfig)) {
+                for (CellSymbolConfig config : this.cellConfig) {
+                    int symbol = config.getSymbol().ordinal();
+                    if (!configured[symbol] && Objects.nonNull(config.getScoreValues())) {
+                        config.getScoreValues().forEach((amount, score) -> table[symbol][amount.getAmount()] = score.getValue());
+                        configured[symbol] = true;
+                    }
+                }
+            }
+            scoreTable = table;
+            this.scoreTable = scoreTable;
         }
+        return scoreTable;
     }
 
     public int getFrom() {
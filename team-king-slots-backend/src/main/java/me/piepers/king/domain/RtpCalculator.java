@@ -0,0 +1,148 @@
+package me.piepers.king.domain;
+
+import java.util.Objects;
+
+/**
+ * Calculates the exact return to player (RTP) of a slot from the probabilities of the symbols, as opposed to the
+ * {@link RtpSimulator} that estimates it. It is fast enough to be used whenever a configuration is loaded.
+ * <p>
+ * Every cell shows a symbol with the probability that a uniformly drawn number between the lowest and the highest
+ * number of the slot (both inclusive) maps to that symbol in the {@link ReelConfig}. The cells are independent, so the
+ * probability that a payline of n cells starts with exactly k times symbol s is p(s)^k * (1 - p(s)) for k < n and
+ * p(s)^n for k = n. The expected win of a payline is the sum over all symbols and run lengths of that probability
+ * times the score of the symbol for that run length (as in the {@link PaylineEvaluator}) times the bet of the payline.
+ * <p>
+ * The expected win of a spin is the sum of the expected wins of the active paylines, whether paylines share cells or
+ * not. The RTP is the expected win of a spin divided by the total bet of a spin.
+ *
+ * @author Bas Piepers
+ */
+public final class RtpCalculator {
+    private static final int NO_SYMBOL = CellSymbolConfig.Symbol.NONE.ordinal();
+
+    private final ReelConfig reelConfig;
+    // The probability of each symbol in a cell, indexed by the ordinal of the symbol.
+    private final double[] probabilities;
+    private final long[][] scoreTable;
+
+    public RtpCalculator(ReelConfig reelConfig, int lowestNr, int highestNr) {
+        if (Objects.isNull(reelConfig) || highestNr < lowestNr) {
+            throw new IllegalArgumentException("A reel configuration and a valid range of numbers are required.");
+        }
+        this.reelConfig = reelConfig;
+        this.scoreTable = reelConfig.getScoreTable();
+        this.probabilities = new double[scoreTable.length];
+        double range = highestNr - lowestNr + 1;
+        for (int number = lowestNr; number <= highestNr; number++) {
+            probabilities[reelConfig.symbolOrdinalFor(number)] += 1 / range;
+        }
+    }
+
+    /**
+     * Creates a calculator for the configuration and the range of numbers of the given slot.
+     */
+    public static RtpCalculator of(Slot slot) {
+        return new RtpCalculator(slot.getReelConfig(), slot.getLowestNr(), slot.getHighestNr());
+    }
+
+    /**
+     * @param symbol, a symbol.
+     * @return the probability that a cell shows the given symbol.
+     */
+    public double probabilityOf(CellSymbolConfig.Symbol symbol) {
+        return probabilities[symbol.ordinal()];
+    }
+
+    /**
+     * The expected win of a payline with a bet of one, broken down by the amount of subsequent symbols the win was
+     * scored with.
+     *
+     * @param lineLength, the amount of cells of the payline.
+     * @return the expected win per amount of subsequent symbols, indexed like the score table of the
+     * {@link ReelConfig}.
+     */
+    public double[] expectedWinByRun(int lineLength) {
+        double[] expected = new double[scoreTable[0].length];
+        for (int symbol = 0; symbol < probabilities.length; symbol++) {
+            double p = probabilities[symbol];
+            if (symbol == NO_SYMBOL || p == 0) {
+                continue;
+            }
+            long[] scores = scoreTable[symbol];
+            double run = p;
+            for (int k = 1; k <= lineLength; k++, run *= p) {
+                // Exactly k: the next cell (if any) shows another symbol.
+                double probability = k < lineLength ? run * (1 - p) : run;
+                int amount = Math.min(k, scores.length - 1);
+                expected[amount] += probability * scores[amount];
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * @param lineLength, the amount of cells of the payline.
+     * @return the expected win of a payline with a bet of one.
+     */
+    public double expectedWin(int lineLength) {
+        double total = 0;
+        for (double expected : this.expectedWinByRun(lineLength)) {
+            total += expected;
+        }
+        return total;
+    }
+
+    /**
+     * @param reel, the reel with the paylines to take into account.
+     * @return the expected win of each payline of the reel with its own bet, 0 for inactive paylines, in the order of
+     * the compiled paylines of the {@link PaylineEvaluator}.
+     */
+    public double[] expectedLineWins(Reel reel) {
+        PaylineEvaluator evaluator = PaylineEvaluator.compile(reel, reelConfig);
+        double[] expected = new double[evaluator.lineCount()];
+        for (int i = 0; i < expected.length; i++) {
+            Payline payline = evaluator.payline(i);
+            expected[i] = payline.isActive() ? this.expectedWin(evaluator.lineLength(i)) * payline.getBet() : 0;
+        }
+        return expected;
+    }
+
+    /**
+     * @param reel, the reel with the paylines to take into account.
+     * @return the expected win of a spin divided by the total bet of the active paylines.
+     */
+    public double rtp(Reel reel) {
+        double expected = 0;
+        for (double lineWin : this.expectedLineWins(reel)) {
+            expected += lineWin;
+        }
+        long bet = 0;
+        if (Objects.nonNull(reel.getPayLines())) {
+            for (Payline payline : reel.getPayLines()) {
+                bet += payline.isActive() ? payline.getBet() : 0;
+            }
+        }
+        if (bet <= 0) {
+            throw new IllegalArgumentException("The reel needs at least one active payline with a bet to calculate the RTP.");
+        }
+        return expected / bet;
+    }
+
+    /**
+     * Verifies that the RTP of the given slot lies within the given bounds.
+     *
+     * @param slot,   the slot to verify.
+     * @param minRtp, the lowest acceptable RTP.
+     * @param maxRtp, the highest acceptable RTP.
+     * @return the RTP of the slot.
+     * @throws IllegalArgumentException if the RTP is out of range.
+     */
+    public static double verify(Slot slot, double minRtp, double maxRtp) {
+        double rtp = RtpCalculator.of(slot).rtp(slot.getReel());
+        if (rtp < minRtp || rtp > maxRtp) {
+            throw new IllegalArgumentException("The RTP of slot " + slot.getName() + " is " + rtp +
+                    " which is not between " + minRtp + " and " + maxRtp + ".");
+        }
+        return rtp;
+    }
+}
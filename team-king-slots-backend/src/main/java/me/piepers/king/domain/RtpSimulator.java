@@ -0,0 +1,152 @@
+package me.piepers.king.domain;
+
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Estimates the return to player (RTP), the hit rate and the volatility of a slot by playing a large amount of spins
+ * (Monte Carlo simulation). This allows to verify a {@link ReelConfig} and a set of {@link Payline}s before they are
+ * used.
+ * <p>
+ * The spins are scored by a {@link PaylineEvaluator}, the same code that calculates the win of a spin of a slot, so
+ * the results match what a player would get. Random numbers are drawn uniformly between the lowest and the highest
+ * number of the slot (both inclusive), like the random number services do, and translated to symbols with the
+ * {@link ReelConfig}. The reel itself is not changed: each thread fills the grid of its own evaluator.
+ * <p>
+ * The spins are split in halves with a {@link ForkJoinPool} until a part is small enough to be played by one thread.
+ * Every part gets its own {@link SplittableRandom} that is split from its parent before the part is forked, so a
+ * simulation with the same seed and amount of spins always gives the same result, regardless of the amount of threads.
+ *
+ * @author Bas Piepers
+ */
+public final class RtpSimulator {
+    private static final long SPINS_PER_TASK = 1 << 20;
+
+    private final Reel reel;
+    private final ReelConfig reelConfig;
+    private final int lowestNr;
+    // The ordinal of the symbol of each number, indexed from the lowest number.
+    private final int[] ordinals;
+    // The total bet of one spin: the sum of the bets of all active paylines.
+    private final long bet;
+    private final ForkJoinPool pool;
+
+    public RtpSimulator(Reel reel, ReelConfig reelConfig, int lowestNr, int highestNr, ForkJoinPool pool) {
+        if (Objects.isNull(reelConfig) || highestNr < lowestNr) {
+            throw new IllegalArgumentException("A reel configuration and a valid range of numbers are required.");
+        }
+        this.reel = reel;
+        this.reelConfig = reelConfig;
+        this.lowestNr = lowestNr;
+        this.ordinals = new int[highestNr - lowestNr + 1];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = reelConfig.symbolOrdinalFor(lowestNr + i);
+        }
+        long totalBet = 0;
+        if (Objects.nonNull(reel.getPayLines())) {
+            for (Payline payline : reel.getPayLines()) {
+                totalBet += payline.isActive() ? payline.getBet() : 0;
+            }
+        }
+        if (totalBet <= 0) {
+            throw new IllegalArgumentException("The reel needs at least one active payline with a bet to simulate spins.");
+        }
+        this.bet = totalBet;
+        this.pool = pool;
+    }
+
+    /**
+     * Creates a simulator for the reel, the configuration and the range of numbers of the given slot that uses all
+     * available processors.
+     */
+    public static RtpSimulator of(Slot slot) {
+        return new RtpSimulator(slot.getReel(), slot.getReelConfig(), slot.getLowestNr(), slot.getHighestNr(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Plays the given amount of spins.
+     *
+     * @param spins, the amount of spins to play.
+     * @param seed,  the seed of the random numbers.
+     * @return the report with the statistics of all spins.
+     */
+    public SimulationReport simulate(long spins, long seed) {
+        if (spins < 1) {
+            throw new IllegalArgumentException("At least one spin is required.");
+        }
+        Tally tally = pool.invoke(new SpinTask(spins, new SplittableRandom(seed)));
+        return new SimulationReport(tally.spins, bet, tally.hits, tally.totalWin, tally.sumOfSquares, tally.maxWin, tally.distribution);
+    }
+
+    private final class SpinTask extends RecursiveTask<Tally> {
+        private static final long serialVersionUID = 1L;
+        private final long spins;
+        private final SplittableRandom random;
+
+        private SpinTask(long spins, SplittableRandom random) {
+            this.spins = spins;
+            this.random = random;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (spins <= SPINS_PER_TASK) {
+                return this.play();
+            }
+            SpinTask left = new SpinTask(spins / 2, random.split());
+            SpinTask right = new SpinTask(spins - spins / 2, random);
+            left.fork();
+            Tally tally = right.compute();
+            return tally.merge(left.join());
+        }
+
+        private Tally play() {
+            PaylineEvaluator evaluator = PaylineEvaluator.compile(reel, reelConfig);
+            int[] symbols = new int[evaluator.gridSize()];
+            int range = ordinals.length;
+            Tally tally = new Tally();
+            for (long spin = 0; spin < spins; spin++) {
+                for (int i = 0; i < symbols.length; i++) {
+                    symbols[i] = ordinals[random.nextInt(range)];
+                }
+                tally.add(evaluator.evaluate(symbols), bet);
+            }
+            return tally;
+        }
+    }
+
+    // The running totals of a part of the spins.
+    private static final class Tally {
+        private long spins;
+        private long hits;
+        private long totalWin;
+        private double sumOfSquares;
+        private long maxWin;
+        private final long[] distribution = new long[SimulationReport.PAYOUT_BUCKETS.length + 1];
+
+        private void add(long win, long bet) {
+            spins++;
+            if (win > 0) {
+                hits++;
+                totalWin += win;
+                sumOfSquares += (double) win * win;
+                maxWin = Math.max(maxWin, win);
+            }
+            distribution[SimulationReport.bucketOf(win, bet)]++;
+        }
+
+        private Tally merge(Tally other) {
+            spins += other.spins;
+            hits += other.hits;
+            totalWin += other.totalWin;
+            sumOfSquares += other.sumOfSquares;
+            maxWin = Math.max(maxWin, other.maxWin);
+            for (int i = 0; i < distribution.length; i++) {
+                distribution[i] += other.distribution[i];
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package me.piepers.king.domain;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The statistics of a series of simulated spins (see {@link RtpSimulator}). Returns are expressed relative to the bet
+ * of a spin: a return to player of 0.95 means that on average 95% of the bet is won back.
+ * <p>
+ * The confidence intervals are 95% intervals based on the normal approximation, which is accurate for the amount of
+ * spins a simulation typically plays.
+ * <p>
+ * The payout distribution counts the spins per range of the win as a multiple of the bet. The ranges are bounded by
+ * {@link #PAYOUT_BUCKETS}: the first range only holds the spins without a win, the last one the spins that won at
+ * least the highest bound times the bet.
+ *
+ * @author Bas Piepers
+ */
+public class SimulationReport implements JsonDomainObject {
+    static final long[] PAYOUT_BUCKETS = {0, 1, 2, 5, 10, 20, 50, 100, 500, 1000};
+    private static final double Z_95 = 1.959964;
+
+    private final long spins;
+    private final long bet;
+    private final long hits;
+    private final long totalWin;
+    private final double variance;
+    private final long maxWin;
+    private final long[] distribution;
+
+    SimulationReport(long spins, long bet, long hits, long totalWin, double sumOfSquares, long maxWin, long[] distribution) {
+        this.spins = spins;
+        this.bet = bet;
+        this.hits = hits;
+        this.totalWin = totalWin;
+        this.maxWin = maxWin;
+        this.distribution = distribution.clone();
+        double mean = this.getRtp();
+        this.variance = Math.max(0.0, sumOfSquares / ((double) bet * bet) / spins - mean * mean);
+    }
+
+    // The index of the range of the payout distribution of the given win.
+    static int bucketOf(long win, long bet) {
+        if (win <= 0) {
+            return 0;
+        }
+        for (int i = 1; i < PAYOUT_BUCKETS.length; i++) {
+            if (win < PAYOUT_BUCKETS[i] * bet) {
+                return i;
+            }
+        }
+        return PAYOUT_BUCKETS.length;
+    }
+
+    public long getSpins() {
+        return spins;
+    }
+
+    public long getTotalWin() {
+        return totalWin;
+    }
+
+    public long getMaxWin() {
+        return maxWin;
+    }
+
+    /**
+     * @return the total win divided by the total bet.
+     */
+    public double getRtp() {
+        return (double) totalWin / ((double) bet * spins);
+    }
+
+    public double getRtpLow() {
+        return this.getRtp() - Z_95 * this.getStandardDeviation() / Math.sqrt(spins);
+    }
+
+    public double getRtpHigh() {
+        return this.getRtp() + Z_95 * this.getStandardDeviation() / Math.sqrt(spins);
+    }
+
+    /**
+     * @return the fraction of the spins that had a win.
+     */
+    public double getHitRate() {
+        return (double) hits / spins;
+    }
+
+    public double getHitRateLow() {
+        return this.getHitRate() - this.hitRateMargin();
+    }
+
+    public double getHitRateHigh() {
+        return this.getHitRate() + this.hitRateMargin();
+    }
+
+    private double hitRateMargin() {
+        double hitRate = this.getHitRate();
+        return Z_95 * Math.sqrt(hitRate * (1 - hitRate) / spins);
+    }
+
+    /**
+     * @return the variance of the return of one spin, a measure for the volatility of the slot.
+     */
+    public double getVariance() {
+        return variance;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(variance);
+    }
+
+    /**
+     * @param range, the index of the range in the payout distribution.
+     * @return the amount of spins with a win in the given range.
+     */
+    public long getPayouts(int range) {
+        return distribution[range];
+    }
+
+    @Override
+    public JsonObject toJson() {
+        JsonObject payouts = new JsonObject().put("0", distribution[0]);
+        for (int i = 1; i < PAYOUT_BUCKETS.length; i++) {
+            payouts.put(PAYOUT_BUCKETS[i - 1] + "-" + PAYOUT_BUCKETS[i], distribution[i]);
+        }
+        payouts.put(PAYOUT_BUCKETS[PAYOUT_BUCKETS.length - 1] + "+", distribution[PAYOUT_BUCKETS.length]);
+
+        return new JsonObject()
+                .put("spins", spins)
+                .put("betPerSpin", bet)
+                .put("totalWin", totalWin)
+                .put("rtp", this.getRtp())
+                .put("rtpConfidenceInterval", new JsonObject().put("low", this.getRtpLow()).put("high", this.getRtpHigh()))
+                .put("hitRate", this.getHitRate())
+                .put("hitRateConfidenceInterval", new JsonObject().put("low", this.getHitRateLow()).put("high", this.getHitRateHigh()))
+                .put("variance", variance)
+                .put("standardDeviation", this.getStandardDeviation())
+                .put("maxWin", maxWin)
+                .put("payoutDistribution", payouts);
+    }
+
+    @Override
+    public String toString() {
+        return "SimulationReport{" +
+                "spins=" + spins +
+                ", rtp=" + this.getRtp() +
+                ", hitRate=" + this.getHitRate() +
+                ", variance=" + variance +
+                '}';
+    }
+}
@@ -1,12 +1,17 @@
 package me.piepers.king.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonUnwrapped;
 import io.reactivex.Single;
 import io.vertx.codegen.annotations.DataObject;
+import io.vertx.codegen.annotations.GenIgnore;
 import io.vertx.core.json.JsonObject;
 
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 
 /**
  * Slot domain model object that stores the state of a slot
@@ -27,6 +32,8 @@ public class Slot implements JsonDomainObject {
     // TODO: might not be necessary
     private final int lowestNr;
     private final int highestNr;
+    // Shared with the other slots of the same type, not part of the state of the slot.
+    private final SlotTemplate template;
 
     public Slot(JsonObject jsonObject) {
         this.id = SlotId.of(jsonObject.getString("id"));
@@ -38,11 +45,13 @@ public class Slot implements JsonDomainObject {
         this.reel = new Reel(jsonObject.getJsonObject("reel"));
         this.lowestNr = jsonObject.getInteger("lowestNr");
         this.highestNr = jsonObject.getInteger("highestNr");
+        this.template = this.templateOf(name, reel);
     }
 
-    private Slot(SlotId id, String name, Long score, Instant created, String player, Reel reel, int lowestNr, int highestNr) {
+    // Restores a slot with all its state, used by the binary wire format.
+    Slot(SlotId id, String name, Long score, Instant created, String player, Reel reel, SlotStatus status, int lowestNr, int highestNr) {
         this.id = id;
-        this.status = SlotStatus.INITIALIZED;
+        this.status = status;
         this.name = name;
         this.score = score;
         this.created = created;
@@ -50,28 +59,30 @@ public class Slot implements JsonDomainObject {
         this.reel = reel;
         this.lowestNr = lowestNr;
         this.highestNr = highestNr;
+        this.template = this.templateOf(name, reel);
+    }
+
+    // The reel of a restored slot shares the compiled paylines of its template too.
+    private SlotTemplate templateOf(String name, Reel reel) {
+        Optional<SlotTemplate> template = SlotTemplate.named(name);
+        if (template.isPresent() && Objects.nonNull(reel)) {
+            reel.useTemplate(template.get());
+        }
+        return template.orElse(null);
     }
 
     /**
      * Constructs default slot implementations with one payline.
      */
     public static Slot of(SlotType type, String player) {
-        switch (type) {
-            case CLASSIC:
-                Reel classicReel = Reel.of(3, 3);
-                classicReel.addPayline(1, new Integer[]{2, 2, 2});
-                return new Slot(SlotId.create(), "Classic", 0L, Instant.now(), player, classicReel, 0, 100);
-            case FIVE_BY_THREE:
-                Reel fiveByThree = Reel.of(3, 5);
-                fiveByThree.addPayline(1, new Integer[]{2, 2, 2, 2, 2});
-                return new Slot(SlotId.create(), "FiveByThree", 0L, Instant.now(), player, fiveByThree, 0, 100);
-            case FIVE_BY_FOUR:
-                Reel fiveByFour = Reel.of(4, 5);
-                fiveByFour.addPayline(1, new Integer[]{2, 2, 2, 2, 2});
-                return new Slot(SlotId.create(), "FiveByFour", 0L, Instant.now(), player, fiveByFour, 0, 100);
-            default:
-                throw new UnsupportedOperationException("Unsupported slot type.");
-        }
+        return of(SlotId.create(), type, player);
+    }
+
+    /**
+     * Constructs a default slot implementation with the given id.
+     */
+    public static Slot of(SlotId id, SlotType type, String player) {
+        return SlotTemplate.of(type).newSlot(id, player);
     }
 
     // BUSINESS LOGIC
@@ -93,15 +104,104 @@ public class Slot implements JsonDomainObject {
 
             return randomNumberFetcher
                     .fetch(this)
-                    .flatMap(numbers -> Single
-                            .just(this.reel
-                                    .assignNumbersToReels(numbers)))
-                    .flatMap(reel -> Single.just(SpinResult.create(this)));
+                    .map(numbers -> SpinResult.create(this, this.draw(this.toNumberBuffer(numbers), 0)));
         } else {
             return Single.error(new IllegalStateException("This slot machine is not spinning and can therefore not be stopped."));
         }
     }
 
+    /**
+     * Stops the spinning slot with the given numbers. The numbers and symbols end up in the cells of the reel and the
+     * win per payline in the evaluator of the reel (see {@link PaylineEvaluator#lineWin(int)}), so apart from compiling
+     * the evaluator for the first spin nothing is allocated.
+     *
+     * @param numbers, the random numbers, one for each cell of the reel from the offset on.
+     * @param offset,  the position of the number for the first cell.
+     * @return the total win of the spin.
+     */
+    public long stop(int[] numbers, int offset) {
+        if (this.status != SlotStatus.SPINNING) {
+            throw new IllegalStateException("This slot machine is not spinning and can therefore not be stopped.");
+        }
+        this.status = SlotStatus.IDLE;
+        return this.draw(numbers, offset);
+    }
+
+    private long draw(int[] numbers, int offset) {
+        ReelConfig reelConfig = this.getReelConfig();
+        return this.reel
+                .assignNumbersToReels(numbers, offset)
+                .assignSymbols(reelConfig)
+                .calculateWin(reelConfig);
+    }
+
+    private int[] toNumberBuffer(List<Integer> numbers) {
+        int[] buffer = new int[this.reel.getCellAmount()];
+        if (numbers.size() < buffer.length) {
+            throw new IllegalArgumentException("Expect the amount of numbers to be equal to the size of the reel");
+        }
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = numbers.get(i);
+        }
+        return buffer;
+    }
+
+    /**
+     * Plays a series of spins in one go with numbers that were drawn for all spins at once. The slot must not be
+     * spinning. The reel ends up with the numbers and symbols of the last spin.
+     *
+     * @param spins,   the amount of spins to play.
+     * @param numbers, the random numbers for all spins, the amount of cells of the reel per spin.
+     * @return the numbers, symbols and win of every spin.
+     */
+    public SpinBatch autoSpin(int spins, int[] numbers) {
+        return this.autoSpin(spins, numbers, (spinBatch, spin) -> {
+        });
+    }
+
+    /**
+     * Plays a series of spins like {@link #autoSpin(int, int[])} and tells the listener about every spin as soon as it
+     * has been played, so that its result can be sent before the next one is played.
+     *
+     * @param spins,    the amount of spins to play.
+     * @param numbers,  the random numbers for all spins, the amount of cells of the reel per spin.
+     * @param listener, called with the batch and the index of a spin after each spin.
+     * @return the numbers, symbols and win of every spin.
+     */
+    public SpinBatch autoSpin(int spins, int[] numbers, SpinListener listener) {
+        if (this.status == SlotStatus.SPINNING) {
+            throw new IllegalStateException("The slot is already spinning.");
+        }
+        int cellAmount = this.reel.getCellAmount();
+        if (spins < 1 || numbers.length < spins * cellAmount) {
+            throw new IllegalArgumentException("Expect at least one spin and the amount of numbers to be equal to the size of the reel for each spin.");
+        }
+
+        byte[] symbols = new byte[spins * cellAmount];
+        SpinBatch spinBatch = new SpinBatch(this.id.getId(), cellAmount, Arrays.copyOf(numbers, spins * cellAmount), symbols, new long[spins]);
+        ReelConfig reelConfig = this.getReelConfig();
+        PaylineEvaluator evaluator = this.reel.evaluatorFor(reelConfig);
+        List<List<ReelCell>> cells = this.reel.getCells();
+        for (int spin = 0; spin < spins; spin++) {
+            this.reel
+                    .assignNumbersToReels(numbers, spin * cellAmount)
+                    .assignSymbols(reelConfig);
+            long win = evaluator.evaluate(cells);
+            int position = spin * cellAmount;
+            for (int r = 0, rows = cells.size(); r < rows; r++) {
+                List<ReelCell> row = cells.get(r);
+                for (int c = 0, columns = row.size(); c < columns; c++, position++) {
+                    ReelCell cell = row.get(c);
+                    symbols[position] = (byte) (Objects.nonNull(cell) ? cell.getSymbol() : CellSymbolConfig.Symbol.NONE).ordinal();
+                }
+            }
+            spinBatch.played(spin, win);
+            listener.played(spinBatch, spin);
+        }
+        this.status = SlotStatus.IDLE;
+        return spinBatch;
+    }
+
     // GETTERS
     public SlotId getId() {
         return id;
@@ -131,6 +231,15 @@ public class Slot implements JsonDomainObject {
         return reel;
     }
 
+    /**
+     * @return the configuration that maps the random numbers to symbols and contains the scores of the symbols.
+     */
+    @JsonIgnore
+    @GenIgnore
+    public ReelConfig getReelConfig() {
+        return Objects.nonNull(template) ? template.getReelConfig() : SlotTemplate.defaultReelConfig();
+    }
+
     public void setStatus(SlotStatus status) {
         this.status = status;
     }
@@ -195,8 +304,13 @@ public class Slot implements JsonDomainObject {
         Single<List<Integer>> fetch(Slot slot);
     }
 
+    @FunctionalInterface
+    public interface SpinListener {
+        void played(SpinBatch spinBatch, int spin);
+    }
+
     @FunctionalInterface
     public interface SymbolAssigner {
-        CellSymbolConfig.Symbol assignForNumber(int number, CellSymbolConfig config);
+        CellSymbolConfig.Symbol assignForNumber(int number);
     }
 }
@@ -1,10 +1,13 @@
 package me.piepers.king.domain;
 
+import io.vertx.codegen.annotations.GenIgnore;
 import io.vertx.codegen.annotations.ProxyGen;
 import io.vertx.codegen.annotations.VertxGen;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import me.piepers.king.infrastructure.BlockingSlotServiceImpl;
 import me.piepers.king.infrastructure.SlotServiceImpl;
 
 import java.util.List;
@@ -24,6 +27,25 @@ public interface SlotService {
         return new SlotServiceImpl(vertx);
     }
 
+    /**
+     * Creates the service of the "mode" in the "slot_service" configuration: "rx" (the default) chains the calls to
+     * the repository and the random numbers, "blocking" handles each request as blocking calls on a worker thread.
+     *
+     * @param vertx,         the vertx instance.
+     * @param configuration, the configuration of the application.
+     * @return the slot service.
+     */
+    static SlotService createWithConfiguration(Vertx vertx, JsonObject configuration) {
+        String mode = configuration.getJsonObject("slot_service", new JsonObject()).getString("mode", "rx");
+        if ("blocking".equals(mode)) {
+            return new BlockingSlotServiceImpl(vertx, configuration);
+        } else if ("rx".equals(mode)) {
+            return new SlotServiceImpl(vertx, configuration);
+        } else {
+            throw new IllegalArgumentException("Unknown slot service mode: " + mode + ".");
+        }
+    }
+
     static SlotService createProxy(Vertx vertx) {
         return new SlotServiceVertxEBProxy(vertx, EVENT_BUS_ADDRESS);
     }
@@ -65,4 +87,38 @@ public interface SlotService {
      */
     void stop(String uuid, Handler<AsyncResult<SpinResult>> resultHandler);
 
+    /**
+     * Plays a series of spins on a slot in one call (auto play). The random numbers for all spins are obtained at
+     * once, all spins are evaluated and the slot is saved once with the state of the last spin.
+     *
+     * @param uuid,          the id of the slot to play.
+     * @param spins,         the amount of spins to play. Limited by the configuration of the service.
+     * @param resultHandler, contains the results of all spins or an error in case the slot was not found, the slot
+     *                       is spinning or the amount of spins is not allowed.
+     */
+    void autoSpin(String uuid, int spins, Handler<AsyncResult<SpinBatch>> resultHandler);
+
+    /**
+     * Plays a series of spins like {@link #autoSpin(String, int, Handler)} and hands the result of every spin to the
+     * spin handler as soon as it has been played, before the slot is saved. Only available when the service is called
+     * directly; the default implementation hands over the spins once all of them have been played.
+     *
+     * @param uuid,          the id of the slot to play.
+     * @param spins,         the amount of spins to play. Limited by the configuration of the service.
+     * @param spinHandler,   receives the numbers, symbols and win of each spin (see {@link SpinBatch#spinToJson(int)}).
+     *                       Not called if the spins could not be played.
+     * @param resultHandler, contains the results of all spins once the slot has been saved or an error.
+     */
+    @GenIgnore
+    default void autoSpin(String uuid, int spins, Handler<JsonObject> spinHandler, Handler<AsyncResult<SpinBatch>> resultHandler) {
+        this.autoSpin(uuid, spins, result -> {
+            if (result.succeeded()) {
+                for (int spin = 0; spin < result.result().getSpins(); spin++) {
+                    spinHandler.handle(result.result().spinToJson(spin));
+                }
+            }
+            resultHandler.handle(result);
+        });
+    }
+
 }
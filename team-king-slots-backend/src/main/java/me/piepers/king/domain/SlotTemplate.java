@@ -0,0 +1,186 @@
+package me.piepers.king.domain;
+
+import io.vertx.core.json.JsonArray;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The part of a slot that is the same for every slot of a {@link SlotType}: the name, the size of the reel, the
+ * paylines, the range of the random numbers and the {@link ReelConfig}. There is one immutable template per type that
+ * is shared by all slots of that type, so a {@link Slot} only holds its own state: the numbers and symbols of its
+ * cells, its status and the settings of its paylines.
+ * <p>
+ * The coordinates of the paylines of all slots of a type are the same instance and the paylines are compiled into
+ * offsets for the {@link PaylineEvaluator} once per template instead of once per slot. A reel that was restored from
+ * its JSON or binary representation uses the template of its slot when it fits.
+ *
+ * @author Bas Piepers
+ */
+public final class SlotTemplate {
+    private static final ReelConfig DEFAULT_REEL_CONFIG = createDefaultReelConfig();
+    private static final Map<SlotType, SlotTemplate> TEMPLATES = new EnumMap<>(SlotType.class);
+    private static final Map<String, SlotTemplate> TEMPLATES_BY_NAME = new HashMap<>();
+
+    static {
+        register(new SlotTemplate(SlotType.CLASSIC, "Classic", 3, 3, 0, 100,
+                new Line(1, new Integer[]{2, 2, 2}, true, 1)));
+        register(new SlotTemplate(SlotType.FIVE_BY_THREE, "FiveByThree", 3, 5, 0, 100,
+                new Line(1, new Integer[]{2, 2, 2, 2, 2}, true, 1)));
+        register(new SlotTemplate(SlotType.FIVE_BY_FOUR, "FiveByFour", 4, 5, 0, 100,
+                new Line(1, new Integer[]{2, 2, 2, 2, 2}, true, 1)));
+    }
+
+    private final SlotType type;
+    private final String name;
+    private final int rows;
+    private final int columns;
+    private final int lowestNr;
+    private final int highestNr;
+    private final Line[] lines;
+    // The offsets of the paylines in the grid of the evaluator, in the order of the lines.
+    private final int[][] offsets;
+
+    private SlotTemplate(SlotType type, String name, int rows, int columns, int lowestNr, int highestNr, Line... lines) {
+        this.type = type;
+        this.name = name;
+        this.rows = rows;
+        this.columns = columns;
+        this.lowestNr = lowestNr;
+        this.highestNr = highestNr;
+        this.lines = lines;
+        this.offsets = new int[lines.length][];
+        // Validates the paylines against the reel once.
+        Reel reel = Reel.of(rows, columns);
+        for (int i = 0; i < lines.length; i++) {
+            Line line = lines[i];
+            int[] coordinates = line.coordinatesAsArray();
+            reel.addPayline(line.reference, Arrays.stream(coordinates).boxed().toArray(Integer[]::new), line.active, line.bet);
+            offsets[i] = PaylineEvaluator.compileLine(reel.getCells(), columns, coordinates);
+        }
+    }
+
+    private static void register(SlotTemplate template) {
+        TEMPLATES.put(template.type, template);
+        TEMPLATES_BY_NAME.put(template.name, template);
+    }
+
+    /**
+     * @param type, the type of slot.
+     * @return the template of the given type.
+     */
+    public static SlotTemplate of(SlotType type) {
+        SlotTemplate template = TEMPLATES.get(type);
+        if (Objects.isNull(template)) {
+            throw new UnsupportedOperationException("Unsupported slot type.");
+        }
+        return template;
+    }
+
+    /**
+     * @param name, the name of a slot.
+     * @return the template that creates slots with that name.
+     */
+    public static Optional<SlotTemplate> named(String name) {
+        return Optional.ofNullable(name).map(TEMPLATES_BY_NAME::get);
+    }
+
+    /**
+     * Creates a new slot of this type with a reel with cells of value 0 and the paylines of this template.
+     *
+     * @param id,     the id of the slot.
+     * @param player, the player of the slot.
+     * @return the new slot.
+     */
+    public Slot newSlot(SlotId id, String player) {
+        Set<Payline> payLines = new HashSet<>();
+        for (Line line : lines) {
+            payLines.add(Payline.of(line.reference, line.coordinates, line.active, line.bet));
+        }
+        return new Slot(id, name, 0L, Instant.now(), player, new Reel(rows, columns, payLines, this),
+                SlotStatus.INITIALIZED, lowestNr, highestNr);
+    }
+
+    /**
+     * @param reel, a reel.
+     * @return true if the reel has the size of the reels of this template.
+     */
+    boolean fits(Reel reel) {
+        return reel.getRowSize() == rows && reel.getCells().stream().allMatch(row -> Objects.nonNull(row) && row.size() == columns);
+    }
+
+    /**
+     * @param payline, a payline of a reel of this template.
+     * @return the offsets the payline was compiled into or null if it is not one of the paylines of this template.
+     */
+    int[] compiledLine(Payline payline) {
+        for (int i = 0; i < lines.length; i++) {
+            Line line = lines[i];
+            if (line.reference == payline.getReference() &&
+                    (line.coordinates == payline.getCoordinates() || line.coordinates.equals(payline.getCoordinates()))) {
+                return offsets[i];
+            }
+        }
+        return null;
+    }
+
+    public SlotType getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ReelConfig getReelConfig() {
+        return DEFAULT_REEL_CONFIG;
+    }
+
+    /**
+     * @return the configuration that all slot types use for now.
+     */
+    static ReelConfig defaultReelConfig() {
+        return DEFAULT_REEL_CONFIG;
+    }
+
+    private static ReelConfig createDefaultReelConfig() {
+        SubsequentSymbols[] amounts = {SubsequentSymbols.THREE, SubsequentSymbols.FOUR, SubsequentSymbols.FIVE};
+        return ReelConfig.of(1, 100)
+                .addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.SEVEN, 1, 6, CellSymbolConfig.symbolScores(amounts, new Integer[]{300, 1000, 5000})))
+                .addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.BELL, 6, 16, CellSymbolConfig.symbolScores(amounts, new Integer[]{150, 300, 750})))
+                .addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.THREE_BARS, 16, 31, CellSymbolConfig.symbolScores(amounts, new Integer[]{60, 120, 300})))
+                .addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.TWO_BARS, 31, 51, CellSymbolConfig.symbolScores(amounts, new Integer[]{25, 50, 125})))
+                .addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.BAR, 51, 76, CellSymbolConfig.symbolScores(amounts, new Integer[]{12, 25, 60})))
+                .addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.EMPTY, 76, 101, CellSymbolConfig.symbolScores(new SubsequentSymbols[0], new Integer[0])));
+    }
+
+    // A payline as it is configured for new slots.
+    private static final class Line {
+        private final int reference;
+        // Shared by the paylines of all slots and therefore never changed.
+        private final JsonArray coordinates;
+        private final boolean active;
+        private final int bet;
+
+        private Line(int reference, Integer[] coordinates, boolean active, int bet) {
+            this.reference = reference;
+            this.coordinates = new JsonArray(Collections.unmodifiableList(Arrays.asList(coordinates)));
+            this.active = active;
+            this.bet = bet;
+        }
+
+        private int[] coordinatesAsArray() {
+            List<?> list = coordinates.getList();
+            return list.stream().mapToInt(coordinate -> (Integer) coordinate).toArray();
+        }
+    }
+}
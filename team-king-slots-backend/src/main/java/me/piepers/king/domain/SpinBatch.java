@@ -0,0 +1,161 @@
+package me.piepers.king.domain;
+
+import io.vertx.codegen.annotations.DataObject;
+import io.vertx.codegen.annotations.GenIgnore;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Arrays;
+
+/**
+ * The results of a series of spins that were played in one go (auto play). Instead of a {@link SpinResult} with a
+ * copy of the slot per spin, it only holds what changes per spin: the numbers and symbols of the cells, row by row,
+ * and the win. The numbers and symbols of all spins are stored one after the other in flat arrays.
+ *
+ * @author Bas Piepers
+ */
+@DataObject
+public class SpinBatch implements JsonDomainObject {
+    private static final CellSymbolConfig.Symbol[] SYMBOLS = CellSymbolConfig.Symbol.values();
+
+    private final String slotId;
+    private final int cellAmount;
+    private final int[] numbers;
+    private final byte[] symbols;
+    private final long[] wins;
+    private long totalWin;
+
+    SpinBatch(String slotId, int cellAmount, int[] numbers, byte[] symbols, long[] wins) {
+        this.slotId = slotId;
+        this.cellAmount = cellAmount;
+        this.numbers = numbers;
+        this.symbols = symbols;
+        this.wins = wins;
+        long total = 0;
+        for (long win : wins) {
+            total += win;
+        }
+        this.totalWin = total;
+    }
+
+    // Records the win of a spin of which the symbols have been written, while the batch is being played.
+    void played(int spin, long win) {
+        this.totalWin += win - wins[spin];
+        this.wins[spin] = win;
+    }
+
+    public SpinBatch(JsonObject jsonObject) {
+        this.slotId = jsonObject.getString("slotId");
+        this.cellAmount = jsonObject.getInteger("cellAmount");
+        JsonArray spins = jsonObject.getJsonArray("spins");
+        this.numbers = new int[spins.size() * cellAmount];
+        this.symbols = new byte[spins.size() * cellAmount];
+        this.wins = new long[spins.size()];
+        for (int spin = 0; spin < spins.size(); spin++) {
+            JsonObject result = spins.getJsonObject(spin);
+            JsonArray ns = result.getJsonArray("numbers");
+            JsonArray ss = result.getJsonArray("symbols");
+            for (int i = 0; i < cellAmount; i++) {
+                this.numbers[spin * cellAmount + i] = ns.getInteger(i);
+                this.symbols[spin * cellAmount + i] = (byte) CellSymbolConfig.Symbol.resolve(ss.getString(i)).ordinal();
+            }
+            this.wins[spin] = result.getLong("win");
+        }
+        this.totalWin = jsonObject.getLong("totalWin");
+    }
+
+    @Override
+    public JsonObject toJson() {
+        JsonArray spins = new JsonArray();
+        for (int spin = 0; spin < wins.length; spin++) {
+            spins.add(this.spinToJson(spin));
+        }
+        return this.summaryToJson().put("cellAmount", cellAmount).put("spins", spins);
+    }
+
+    /**
+     * @param spin, the index of the spin in this batch.
+     * @return the numbers, symbols and win of one spin.
+     */
+    @GenIgnore
+    public JsonObject spinToJson(int spin) {
+        JsonArray ns = new JsonArray();
+        JsonArray ss = new JsonArray();
+        for (int i = spin * cellAmount, end = i + cellAmount; i < end; i++) {
+            ns.add(numbers[i]);
+            ss.add(SYMBOLS[symbols[i]].name());
+        }
+        return new JsonObject()
+                .put("spin", spin)
+                .put("numbers", ns)
+                .put("symbols", ss)
+                .put("win", wins[spin]);
+    }
+
+    /**
+     * @return the totals of this batch without the individual spins.
+     */
+    @GenIgnore
+    public JsonObject summaryToJson() {
+        return new JsonObject()
+                .put("slotId", slotId)
+                .put("spins", wins.length)
+                .put("totalWin", totalWin);
+    }
+
+    public String getSlotId() {
+        return slotId;
+    }
+
+    public int getCellAmount() {
+        return cellAmount;
+    }
+
+    @GenIgnore
+    public int getSpins() {
+        return wins.length;
+    }
+
+    @GenIgnore
+    public long getWin(int spin) {
+        return wins[spin];
+    }
+
+    public long getTotalWin() {
+        return totalWin;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        SpinBatch that = (SpinBatch) o;
+
+        if (cellAmount != that.cellAmount) return false;
+        if (totalWin != that.totalWin) return false;
+        if (!slotId.equals(that.slotId)) return false;
+        if (!Arrays.equals(numbers, that.numbers)) return false;
+        if (!Arrays.equals(symbols, that.symbols)) return false;
+        return Arrays.equals(wins, that.wins);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = slotId.hashCode();
+        result = 31 * result + cellAmount;
+        result = 31 * result + Arrays.hashCode(numbers);
+        result = 31 * result + Arrays.hashCode(symbols);
+        result = 31 * result + Arrays.hashCode(wins);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "SpinBatch{" +
+                "slotId='" + slotId + '\'' +
+                ", spins=" + wins.length +
+                ", totalWin=" + totalWin +
+                '}';
+    }
+}
@@ -3,6 +3,8 @@ package me.piepers.king.domain;
 import io.vertx.codegen.annotations.DataObject;
 import io.vertx.core.json.JsonObject;
 
+import java.util.Optional;
+
 /**
  * Represents the result of one spin for a particular slot.
  *
@@ -11,22 +13,26 @@ import io.vertx.core.json.JsonObject;
 @DataObject
 public class SpinResult implements JsonDomainObject {
     private final Slot slot;
-    // TODO: just a bogus result for now
+    // TODO: just a message for now
     private final String result;
+    // The total win over all active paylines.
+    private final long win;
 
-    private SpinResult(Slot slot, String result) {
+    SpinResult(Slot slot, String result, long win) {
         this.slot = slot;
         this.result = result;
+        this.win = win;
     }
 
     public SpinResult(JsonObject jsonObject) {
         this.slot = new Slot(jsonObject.getJsonObject("slot"));
         this.result = jsonObject.getString("result");
+        this.win = Optional.ofNullable(jsonObject.getLong("win")).orElse(0L);
     }
 
-    // A factory that is responsible to generate a result for the given Slot
-    public static SpinResult create(Slot slot) {
-        return new SpinResult(slot, "YOU ARE A WINNER!!!");
+    // A factory that is responsible to generate a result for the given Slot and the win that was calculated for it.
+    public static SpinResult create(Slot slot, long win) {
+        return new SpinResult(slot, win > 0 ? "YOU ARE A WINNER!!!" : "No win this time.", win);
     }
 
     public Slot getSlot() {
@@ -37,6 +43,10 @@ public class SpinResult implements JsonDomainObject {
         return result;
     }
 
+    public long getWin() {
+        return win;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -44,6 +54,7 @@ public class SpinResult implements JsonDomainObject {
 
         SpinResult that = (SpinResult) o;
 
+        if (win != that.win) return false;
         if (!slot.equals(that.slot)) return false;
         return result.equals(that.result);
     }
@@ -52,6 +63,7 @@ public class SpinResult implements JsonDomainObject {
     public int hashCode() {
         int result1 = slot.hashCode();
         result1 = 31 * result1 + result.hashCode();
+        result1 = 31 * result1 + (int) (win ^ (win >>> 32));
         return result1;
     }
 
@@ -60,6 +72,7 @@ public class SpinResult implements JsonDomainObject {
         return "SpinResult{" +
                 "slot=" + slot +
                 ", result='" + result + '\'' +
+                ", win=" + win +
                 '}';
     }
 }
@@ -0,0 +1,283 @@
+package me.piepers.king.domain;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A compact binary representation of the domain objects {@link Slot}, {@link Reel}, {@link Payline} and
+ * {@link SpinResult}. It is the counterpart of the json representation of these objects but without field names and
+ * without the intermediate JsonObject tree. It is used for the copies of slots that are handed between contexts within
+ * the JVM and for the slots and spin results that are sent between nodes in a cluster, most of all the replies to the
+ * spins and stops that are routed to the owner of a slot.
+ * <p>
+ * Numbers are written as variable length integers (7 bits per byte, values that can be negative are zigzag encoded
+ * first) so that the typical cell value or coordinate takes one byte. A cell is written as the ordinal of its symbol
+ * followed by its value. The coordinates of a payline are packed in nibbles (two per byte) when they all fit in 4 bits,
+ * which is the case for any realistic reel. Strings are written as their UTF-8 bytes prefixed with the length. Nullable
+ * values are prefixed with a marker or with a length that is incremented by one, zero meaning null.
+ * <p>
+ * The format is not meant for persistence: it is only guaranteed to be readable by the same version of the
+ * application.
+ *
+ * @author Bas Piepers
+ */
+public final class WireFormat {
+    private static final CellSymbolConfig.Symbol[] SYMBOLS = CellSymbolConfig.Symbol.values();
+    private static final SlotStatus[] STATUSES = SlotStatus.values();
+
+    private static final int HAS_SCORE = 1;
+    private static final int HAS_CREATED = 1 << 1;
+    private static final int HAS_REEL = 1 << 2;
+
+    private static final int ACTIVE = 1;
+    private static final int NIBBLE_PACKED = 1 << 1;
+
+    private WireFormat() {
+    }
+
+    /**
+     * Appends the given slot to the buffer.
+     */
+    public static Buffer writeSlot(Buffer buffer, Slot slot) {
+        writeString(buffer, Objects.nonNull(slot.getId()) ? slot.getId().getId() : null);
+        writeString(buffer, slot.getName());
+        int flags = (Objects.nonNull(slot.getScore()) ? HAS_SCORE : 0) |
+                (Objects.nonNull(slot.getCreated()) ? HAS_CREATED : 0) |
+                (Objects.nonNull(slot.getReel()) ? HAS_REEL : 0);
+        buffer.appendByte((byte) flags);
+        if (Objects.nonNull(slot.getScore())) {
+            writeSignedLong(buffer, slot.getScore());
+        }
+        if (Objects.nonNull(slot.getCreated())) {
+            writeSignedLong(buffer, slot.getCreated().getEpochSecond());
+            writeLong(buffer, slot.getCreated().getNano());
+        }
+        writeString(buffer, slot.getPlayer());
+        buffer.appendByte((byte) slot.getStatus().ordinal());
+        writeSignedLong(buffer, slot.getLowestNr());
+        writeSignedLong(buffer, slot.getHighestNr());
+        if (Objects.nonNull(slot.getReel())) {
+            writeReel(buffer, slot.getReel());
+        }
+        return buffer;
+    }
+
+    /**
+     * Appends the given reel, including its paylines, to the buffer.
+     */
+    public static Buffer writeReel(Buffer buffer, Reel reel) {
+        List<List<ReelCell>> cells = reel.getCells();
+        writeLong(buffer, cells.size());
+        for (int r = 0, rows = cells.size(); r < rows; r++) {
+            List<ReelCell> row = cells.get(r);
+            if (Objects.isNull(row)) {
+                writeLong(buffer, 0);
+                continue;
+            }
+            writeLong(buffer, row.size() + 1);
+            for (int c = 0, columns = row.size(); c < columns; c++) {
+                ReelCell cell = row.get(c);
+                if (Objects.isNull(cell)) {
+                    buffer.appendByte((byte) 0);
+                } else {
+                    buffer.appendByte((byte) (cell.getSymbol().ordinal() + 1));
+                    writeSignedLong(buffer, cell.getValue());
+                }
+            }
+        }
+
+        Set<Payline> payLines = reel.getPayLines();
+        if (Objects.isNull(payLines)) {
+            writeLong(buffer, 0);
+        } else {
+            writeLong(buffer, payLines.size() + 1);
+            for (Payline payline : payLines) {
+                writePayline(buffer, payline);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Appends the given payline to the buffer.
+     */
+    public static Buffer writePayline(Buffer buffer, Payline payline) {
+        int[] coordinates = payline.getCoordsAsArray();
+        boolean nibbles = true;
+        for (int coordinate : coordinates) {
+            nibbles &= coordinate >= 0 && coordinate < 16;
+        }
+        writeSignedLong(buffer, payline.getReference());
+        buffer.appendByte((byte) ((payline.isActive() ? ACTIVE : 0) | (nibbles ? NIBBLE_PACKED : 0)));
+        writeSignedLong(buffer, payline.getBet());
+        writeLong(buffer, coordinates.length);
+        if (nibbles) {
+            for (int i = 0; i < coordinates.length; i += 2) {
+                int high = i + 1 < coordinates.length ? coordinates[i + 1] : 0;
+                buffer.appendByte((byte) (coordinates[i] | high << 4));
+            }
+        } else {
+            for (int coordinate : coordinates) {
+                writeSignedLong(buffer, coordinate);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Appends the given spin result, including its slot, to the buffer.
+     */
+    public static Buffer writeSpinResult(Buffer buffer, SpinResult spinResult) {
+        writeSlot(buffer, spinResult.getSlot());
+        writeString(buffer, spinResult.getResult());
+        writeSignedLong(buffer, spinResult.getWin());
+        return buffer;
+    }
+
+    private static void writeString(Buffer buffer, String value) {
+        if (Objects.isNull(value)) {
+            writeLong(buffer, 0);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeLong(buffer, bytes.length + 1);
+            buffer.appendBytes(bytes);
+        }
+    }
+
+    private static void writeSignedLong(Buffer buffer, long value) {
+        writeLong(buffer, (value << 1) ^ (value >> 63));
+    }
+
+    private static void writeLong(Buffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.appendByte((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.appendByte((byte) value);
+    }
+
+    /**
+     * Reads domain objects from a buffer, starting at a given position. The position is advanced past every object
+     * that is read.
+     */
+    public static final class Reader {
+        private final Buffer buffer;
+        private int position;
+
+        public Reader(Buffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        /**
+         * @return the position of the first byte that has not been read yet.
+         */
+        public int position() {
+            return position;
+        }
+
+        public Slot readSlot() {
+            String id = this.readString();
+            String name = this.readString();
+            int flags = buffer.getByte(position++);
+            Long score = (flags & HAS_SCORE) != 0 ? this.readSignedLong() : null;
+            Instant created = (flags & HAS_CREATED) != 0 ? Instant.ofEpochSecond(this.readSignedLong(), this.readLong()) : null;
+            String player = this.readString();
+            SlotStatus status = STATUSES[buffer.getByte(position++)];
+            int lowestNr = (int) this.readSignedLong();
+            int highestNr = (int) this.readSignedLong();
+            Reel reel = (flags & HAS_REEL) != 0 ? this.readReel() : null;
+            return new Slot(Objects.nonNull(id) ? SlotId.of(id) : null, name, score, created, player, reel, status, lowestNr, highestNr);
+        }
+
+        public Reel readReel() {
+            int rows = (int) this.readLong();
+            List<List<ReelCell>> cells = new ArrayList<>(rows);
+            for (int r = 0; r < rows; r++) {
+                int columns = (int) this.readLong() - 1;
+                if (columns < 0) {
+                    cells.add(null);
+                    continue;
+                }
+                List<ReelCell> row = new ArrayList<>(columns);
+                for (int c = 0; c < columns; c++) {
+                    int symbol = buffer.getByte(position++);
+                    row.add(symbol == 0 ? null : ReelCell.of((int) this.readSignedLong(), SYMBOLS[symbol - 1]));
+                }
+                cells.add(row);
+            }
+
+            int lines = (int) this.readLong() - 1;
+            Set<Payline> payLines = null;
+            if (lines >= 0) {
+                payLines = new HashSet<>();
+                for (int i = 0; i < lines; i++) {
+                    payLines.add(this.readPayline());
+                }
+            }
+            return new Reel(cells, payLines);
+        }
+
+        public Payline readPayline() {
+            int reference = (int) this.readSignedLong();
+            int flags = buffer.getByte(position++);
+            int bet = (int) this.readSignedLong();
+            Integer[] coordinates = new Integer[(int) this.readLong()];
+            if ((flags & NIBBLE_PACKED) != 0) {
+                for (int i = 0; i < coordinates.length; i += 2) {
+                    int packed = buffer.getUnsignedByte(position++);
+                    coordinates[i] = packed & 0x0F;
+                    if (i + 1 < coordinates.length) {
+                        coordinates[i + 1] = packed >>> 4;
+                    }
+                }
+            } else {
+                for (int i = 0; i < coordinates.length; i++) {
+                    coordinates[i] = (int) this.readSignedLong();
+                }
+            }
+            return Payline.of(reference, coordinates, (flags & ACTIVE) != 0, bet);
+        }
+
+        public SpinResult readSpinResult() {
+            Slot slot = this.readSlot();
+            String result = this.readString();
+            long win = this.readSignedLong();
+            return new SpinResult(slot, result, win);
+        }
+
+        private String readString() {
+            int length = (int) this.readLong() - 1;
+            if (length < 0) {
+                return null;
+            }
+            String value = buffer.getString(position, position + length, StandardCharsets.UTF_8.name());
+            position += length;
+            return value;
+        }
+
+        private long readSignedLong() {
+            long value = this.readLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private long readLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.getByte(position++);
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+import io.vertx.serviceproxy.ServiceException;
+import me.piepers.king.domain.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A {@link SlotService} that handles every request as straight-line code that waits for the repository and the random
+ * number cache instead of chaining callbacks. The requests wait on a pool of worker threads so the event loops are never
+ * blocked; the result is handed back on the context of the caller. Only the waiting happens on the worker: a slot is
+ * played on the context of the caller and the repository changes the slots it stores on the context of their shard.
+ * The slot that a request plays is its own copy (see {@link ContextBoundSlotRepository}). Selected with "mode": "blocking" in the
+ * "slot_service" configuration, the default is {@link SlotServiceImpl}.
+ * <p>
+ * Every request that is in progress occupies a thread of the pool ("blocking_pool_size") while it waits, so the pool
+ * limits the amount of concurrent requests. A request that waits longer than "blocking_timeout_ms" fails with 503.
+ *
+ * @author Bas Piepers
+ */
+public class BlockingSlotServiceImpl implements SlotService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlockingSlotServiceImpl.class);
+    private static final Integer DEFAULT_MAX_AUTO_SPINS = 10;
+    private static final Integer DEFAULT_POOL_SIZE = 32;
+    private static final Long DEFAULT_TIMEOUT_MS = 10000L;
+    private static final String WORKER_POOL_NAME = "slot-service";
+
+    private final Vertx vertx;
+    private final SlotRepository repository;
+    private final WorkerExecutor executor;
+    private final boolean localBinding;
+    private final int maxAutoSpins;
+    private final long timeout;
+
+    public BlockingSlotServiceImpl(Vertx vertx, JsonObject configuration) {
+        this.vertx = vertx;
+        this.localBinding = LocalServiceRegistry.isEnabled(configuration);
+        this.repository = SlotRepository.createForService(vertx, configuration);
+        JsonObject config = Optional.ofNullable(configuration.getJsonObject("slot_service")).orElse(new JsonObject());
+        this.maxAutoSpins = Optional.ofNullable(config.getInteger("max_auto_spins")).orElse(DEFAULT_MAX_AUTO_SPINS);
+        this.timeout = Optional.ofNullable(config.getLong("blocking_timeout_ms")).orElse(DEFAULT_TIMEOUT_MS);
+        int poolSize = Optional.ofNullable(config.getInteger("blocking_pool_size")).orElse(DEFAULT_POOL_SIZE);
+        this.executor = vertx.createSharedWorkerExecutor(WORKER_POOL_NAME, poolSize, TimeUnit.MILLISECONDS.toNanos(timeout));
+        LOGGER.info("Handling slot requests on {} worker threads.", poolSize);
+    }
+
+    @Override
+    public void start(Handler<AsyncResult<SlotId>> resultHandler) {
+        this.execute(caller -> {
+            Slot slot = this.<Slot>await(handler -> repository.add(Slot.of(SlotServiceImpl.newSlotId(vertx), SlotType.CLASSIC, "John Doe"), handler));
+            return slot.getId();
+        }, resultHandler);
+    }
+
+    @Override
+    public void quit(String uuid, Handler<AsyncResult<Void>> resultHandler) {
+        this.execute(caller -> {
+            this.<Slot>await(handler -> repository.deleteById(uuid, handler));
+            return null;
+        }, resultHandler);
+    }
+
+    @Override
+    public void spin(String uuid, Handler<AsyncResult<Slot>> resultHandler) {
+        this.execute(caller -> {
+            Slot slot = this.<Slot>await(handler -> repository.findById(uuid, handler));
+            this.onContext(caller, slot::spin);
+            return this.<Slot>await(handler -> repository.save(slot, handler));
+        }, resultHandler);
+    }
+
+    @Override
+    public void stop(String uuid, Handler<AsyncResult<SpinResult>> resultHandler) {
+        this.execute(caller -> {
+            Slot slot = this.<Slot>await(handler -> repository.findById(uuid, handler));
+            // The numbers are only fetched if the slot is spinning.
+            if (slot.getStatus() != SlotStatus.SPINNING) {
+                throw new IllegalStateException("This slot machine is not spinning and can therefore not be stopped.");
+            }
+            int[] numbers = this.getNumbers(slot.getReel().getCellAmount());
+            SpinResult spinResult = this.onContext(caller, () -> SpinResult.create(slot, slot.stop(numbers, 0)));
+            this.<Slot>await(handler -> repository.save(slot, handler));
+            return spinResult;
+        }, resultHandler);
+    }
+
+    @Override
+    public void autoSpin(String uuid, int spins, Handler<AsyncResult<SpinBatch>> resultHandler) {
+        this.autoSpin(uuid, spins, spin -> {
+        }, resultHandler);
+    }
+
+    @Override
+    public void autoSpin(String uuid, int spins, Handler<JsonObject> spinHandler, Handler<AsyncResult<SpinBatch>> resultHandler) {
+        if (spins < 1 || spins > maxAutoSpins) {
+            resultHandler.handle(ServiceException.fail(400, "The amount of spins must be between 1 and " + maxAutoSpins + "."));
+            return;
+        }
+        this.execute(caller -> {
+            Slot slot = this.<Slot>await(handler -> repository.findById(uuid, handler));
+            // The numbers are only fetched if the slot can be played.
+            if (slot.getStatus() == SlotStatus.SPINNING) {
+                throw new IllegalStateException("The slot is already spinning.");
+            }
+            int[] numbers = this.getNumbers(spins * slot.getReel().getCellAmount());
+            SpinBatch spinBatch = this.onContext(caller, () -> slot.autoSpin(spins, numbers,
+                    (batch, spin) -> spinHandler.handle(batch.spinToJson(spin))));
+            this.<Slot>await(handler -> repository.save(slot, handler));
+            return spinBatch;
+        }, resultHandler);
+    }
+
+    // Runs the request on the worker pool and hands the result back on the context of the caller.
+    private <T> void execute(BlockingRequest<T> request, Handler<AsyncResult<T>> resultHandler) {
+        Context caller = vertx.getOrCreateContext();
+        executor.<T>executeBlocking(future -> {
+            try {
+                future.complete(request.handle(caller));
+            } catch (Throwable throwable) {
+                future.fail(throwable);
+            }
+        }, false, result -> resultHandler.handle(result.succeeded() ? result : SlotServiceImpl.failure(result.cause())));
+    }
+
+    // Waits for the result of an asynchronous operation. Only to be called from the worker pool.
+    private <T> T await(Handler<Handler<AsyncResult<T>>> operation) throws Exception {
+        CompletableFuture<T> completable = new CompletableFuture<>();
+        operation.handle(result -> {
+            if (result.succeeded()) {
+                completable.complete(result.result());
+            } else {
+                completable.completeExceptionally(result.cause());
+            }
+        });
+        try {
+            return completable.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } catch (TimeoutException e) {
+            throw new ServiceException(503, "The request took longer than " + timeout + " ms.");
+        }
+    }
+
+    // Runs the work that does not block, like playing a slot, on the context of the caller and waits for it. Only to be
+    // called from the worker pool.
+    private <T> T onContext(Context context, Callable<T> work) throws Exception {
+        return this.await(handler -> context.runOnContext(v -> {
+            try {
+                handler.handle(Future.succeededFuture(work.call()));
+            } catch (Exception e) {
+                handler.handle(Future.failedFuture(e));
+            }
+        }));
+    }
+
+    private int[] getNumbers(int amount) throws Exception {
+        if (localBinding) {
+            Optional<RandomNumberCache> cache = LocalServiceRegistry
+                    .lookup(vertx, RandomNumberCache.EVENT_BUS_ADDRESS, RandomNumberCache.class);
+            if (cache.isPresent()) {
+                return this.await(handler -> cache.get().take(amount, handler));
+            }
+        }
+        JsonObject body = this.<Message<JsonObject>>await(handler -> vertx.eventBus()
+                .send(RandomNumberCache.EVENT_BUS_ADDRESS, new JsonObject().put("amount", amount), handler))
+                .body();
+        return SlotServiceImpl.toNumbers(body);
+    }
+
+    @FunctionalInterface
+    private interface BlockingRequest<T> {
+        T handle(Context caller) throws Exception;
+    }
+}
@@ -0,0 +1,73 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import me.piepers.king.domain.Slot;
+import me.piepers.king.domain.WireFormat;
+
+import java.util.Objects;
+
+/**
+ * A {@link SlotRepository} that is called directly by co-located callers but that still executes every operation on
+ * the context that owns the repository, so that a shard keeps handling its slots one at a time (see
+ * {@link ShardedSlotRepository}). The result is handed back on the context of the caller.
+ * <p>
+ * The slots that the shard stores never leave its context: a caller gets a copy of the slot it asks for and the shard
+ * stores a copy of the slot it is given. A caller can therefore change its slot (spin and stop it) on its own context
+ * while the shard serializes or evicts the stored one. The copy is made in the {@link WireFormat}, not in Json.
+ *
+ * @author Bas Piepers
+ */
+public class ContextBoundSlotRepository implements SlotRepository {
+
+    private final Vertx vertx;
+    private final Context context;
+    private final SlotRepository delegate;
+
+    public ContextBoundSlotRepository(Vertx vertx, Context context, SlotRepository delegate) {
+        this.vertx = vertx;
+        this.context = context;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void add(Slot slot, Handler<AsyncResult<Slot>> resultHandler) {
+        Slot stored = copy(slot);
+        // The caller keeps its own slot.
+        this.execute(handler -> delegate.add(stored, result -> handler.handle(result.map(slot))), resultHandler);
+    }
+
+    @Override
+    public void save(Slot slot, Handler<AsyncResult<Slot>> resultHandler) {
+        Slot stored = copy(slot);
+        this.execute(handler -> delegate.save(stored, result -> handler.handle(result.map(slot))), resultHandler);
+    }
+
+    @Override
+    public void deleteById(String uuid, Handler<AsyncResult<Slot>> resultHandler) {
+        this.execute(handler -> delegate.deleteById(uuid, result -> handler.handle(result.map(ContextBoundSlotRepository::copy))),
+                resultHandler);
+    }
+
+    @Override
+    public void findById(String uuid, Handler<AsyncResult<Slot>> resultHandler) {
+        this.execute(handler -> delegate.findById(uuid, result -> handler.handle(result.map(ContextBoundSlotRepository::copy))),
+                resultHandler);
+    }
+
+    private void execute(Handler<Handler<AsyncResult<Slot>>> operation, Handler<AsyncResult<Slot>> resultHandler) {
+        Context caller = vertx.getOrCreateContext();
+        if (caller == context) {
+            operation.handle(resultHandler);
+        } else {
+            context.runOnContext(v -> operation.handle(result -> caller.runOnContext(w -> resultHandler.handle(result))));
+        }
+    }
+
+    private static Slot copy(Slot slot) {
+        return Objects.isNull(slot) ? null : new WireFormat.Reader(WireFormat.writeSlot(Buffer.buffer(), slot), 0).readSlot();
+    }
+}
@@ -0,0 +1,90 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageCodec;
+import me.piepers.king.domain.Payline;
+import me.piepers.king.domain.Reel;
+import me.piepers.king.domain.Slot;
+import me.piepers.king.domain.SpinResult;
+import me.piepers.king.domain.WireFormat;
+
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * An event bus codec for the domain objects that uses the compact {@link WireFormat} when a message leaves the JVM
+ * instead of the json representation of the object.
+ * <p>
+ * Messages that stay within the JVM are copied through the {@link WireFormat} as well, without the length prefix, so
+ * that the receiver never shares a mutable object with the sender. A shard of the repository replies with the slot it
+ * stores and must be able to keep changing it on its own context.
+ * <p>
+ * The codecs are registered as the default codec of their type (see {@link #registerDefaultCodecs(EventBus)}) so that
+ * they are used for every message with a domain object as the body without having to specify delivery options.
+ *
+ * @author Bas Piepers
+ */
+public final class DomainMessageCodec<T> implements MessageCodec<T, T> {
+
+    public static final DomainMessageCodec<Slot> SLOT =
+            new DomainMessageCodec<>("slot", WireFormat::writeSlot, WireFormat.Reader::readSlot);
+    public static final DomainMessageCodec<Reel> REEL =
+            new DomainMessageCodec<>("reel", WireFormat::writeReel, WireFormat.Reader::readReel);
+    public static final DomainMessageCodec<Payline> PAYLINE =
+            new DomainMessageCodec<>("payline", WireFormat::writePayline, WireFormat.Reader::readPayline);
+    public static final DomainMessageCodec<SpinResult> SPIN_RESULT =
+            new DomainMessageCodec<>("spin-result", WireFormat::writeSpinResult, WireFormat.Reader::readSpinResult);
+
+    private final String name;
+    private final BiFunction<Buffer, T, Buffer> writer;
+    private final Function<WireFormat.Reader, T> reader;
+
+    private DomainMessageCodec(String name, BiFunction<Buffer, T, Buffer> writer, Function<WireFormat.Reader, T> reader) {
+        this.name = "king." + name;
+        this.writer = writer;
+        this.reader = reader;
+    }
+
+    /**
+     * Registers the codecs of the domain objects as the default codec for their type. Must be done once per event bus
+     * (so once per node in a cluster), before the first message with a domain object is sent.
+     *
+     * @param eventBus, the event bus to register the codecs on.
+     */
+    public static void registerDefaultCodecs(EventBus eventBus) {
+        eventBus.registerDefaultCodec(Slot.class, SLOT)
+                .registerDefaultCodec(Reel.class, REEL)
+                .registerDefaultCodec(Payline.class, PAYLINE)
+                .registerDefaultCodec(SpinResult.class, SPIN_RESULT);
+    }
+
+    @Override
+    public void encodeToWire(Buffer buffer, T object) {
+        // Reserve room for the length which is only known after the object has been written.
+        int start = buffer.length();
+        buffer.appendInt(0);
+        writer.apply(buffer, object);
+        buffer.setInt(start, buffer.length() - start - 4);
+    }
+
+    @Override
+    public T decodeFromWire(int position, Buffer buffer) {
+        return reader.apply(new WireFormat.Reader(buffer, position + 4));
+    }
+
+    @Override
+    public T transform(T object) {
+        return reader.apply(new WireFormat.Reader(writer.apply(Buffer.buffer(), object), 0));
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+}
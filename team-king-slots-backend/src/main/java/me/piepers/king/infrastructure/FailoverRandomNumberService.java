@@ -0,0 +1,272 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.serviceproxy.ServiceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A random number service that fronts several other random number services (sources), so that the game keeps running
+ * when one of them is down or out of quota.
+ * <p>
+ * Every request goes to a primary source that is picked at random in proportion to the weights of the sources. A source
+ * with weight 0 is only used when the others fail. If the primary fails, the request fails over to the next source in
+ * order of weight. If the primary is slow to answer, a second (hedged) request is sent to the next source and the first
+ * answer wins. The numbers of the answer that loses are not used. A source that reports that its requests or bits are
+ * exhausted for the day (code 402 or 403, or no requests left) is skipped for a while.
+ * <p>
+ * The latency, the amount of requests and failures per source are kept, see {@link #metrics()}. The service is meant to
+ * be used from one context.
+ *
+ * @author Bas Piepers
+ */
+public class FailoverRandomNumberService implements RandomNumberService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FailoverRandomNumberService.class);
+    public static final String METRICS_ADDRESS = "random-number-service.metrics";
+    private static final Long DEFAULT_HEDGE_AFTER_MS = 1000L;
+    private static final Long DEFAULT_EXHAUSTED_BACKOFF_MS = 600000L;
+    // The weight of a new latency measurement in the moving average.
+    private static final double LATENCY_WEIGHT = 0.25;
+
+    private final Vertx vertx;
+    private final List<Source> sources = new ArrayList<>();
+    // The time after which a request is hedged with the next source. 0 disables hedging.
+    private final long hedgeAfter;
+    // How long a source that ran out of quota is skipped.
+    private final long exhaustedBackoffNanos;
+    private long hedges;
+
+    public FailoverRandomNumberService(Vertx vertx, JsonObject configuration) {
+        this.vertx = vertx;
+        JsonObject config = Optional.ofNullable(configuration.getJsonObject("random_number_failover")).orElse(new JsonObject());
+        this.hedgeAfter = Optional.ofNullable(config.getLong("hedge_after_ms")).orElse(DEFAULT_HEDGE_AFTER_MS);
+        this.exhaustedBackoffNanos = Optional.ofNullable(config.getLong("exhausted_backoff_ms")).orElse(DEFAULT_EXHAUSTED_BACKOFF_MS) * 1_000_000L;
+    }
+
+    /**
+     * Adds a source.
+     *
+     * @param name,    the name of the source in the logging and the metrics.
+     * @param service, the random number service.
+     * @param weight,  the share of the requests the source gets as the primary source. 0 makes it a fallback only.
+     * @return this, for chaining.
+     */
+    public FailoverRandomNumberService addSource(String name, RandomNumberService service, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("The weight of a source must not be negative.");
+        }
+        sources.add(new Source(name, service, weight));
+        return this;
+    }
+
+    @Override
+    public void getRandomNumbers(Integer amount, Integer min, Integer max, Handler<AsyncResult<RandomNumberResponseDto>> resultHandler) {
+        if (sources.isEmpty()) {
+            resultHandler.handle(ServiceException.fail(503, "No random number sources are configured."));
+            return;
+        }
+        new Call(this.order(System.nanoTime()), amount, min, max, resultHandler).next();
+    }
+
+    // The primary source first, followed by the other sources by descending weight. Exhausted sources go last.
+    private List<Source> order(long now) {
+        List<Source> order = new ArrayList<>(sources);
+        order.sort(Comparator.<Source>comparingInt(source -> source.isExhausted(now) ? 1 : 0)
+                .thenComparing(Comparator.<Source>comparingInt(source -> source.weight).reversed()));
+        int total = 0;
+        for (Source source : order) {
+            total += source.isExhausted(now) ? 0 : source.weight;
+        }
+        if (total > 0) {
+            int pick = ThreadLocalRandom.current().nextInt(total);
+            for (int i = 0; i < order.size(); i++) {
+                Source source = order.get(i);
+                pick -= source.isExhausted(now) ? 0 : source.weight;
+                if (pick < 0) {
+                    order.add(0, order.remove(i));
+                    break;
+                }
+            }
+        }
+        return order;
+    }
+
+    // The requests that can still be made: the most of the sources that are not exhausted.
+    private int requestsLeft(long now) {
+        int requestsLeft = 0;
+        for (Source source : sources) {
+            if (!source.isExhausted(now)) {
+                requestsLeft = Math.max(requestsLeft, source.requestsLeft);
+            }
+        }
+        return requestsLeft;
+    }
+
+    /**
+     * @return per source the weight, the amount of requests, failures and answers that were not used because a hedged
+     * request answered first, the average latency in milliseconds and whether it is exhausted. Also the amount of
+     * hedged requests.
+     */
+    public JsonObject metrics() {
+        long now = System.nanoTime();
+        JsonArray metrics = new JsonArray();
+        for (Source source : sources) {
+            metrics.add(new JsonObject()
+                    .put("name", source.name)
+                    .put("weight", source.weight)
+                    .put("requests", source.requests)
+                    .put("failures", source.failures)
+                    .put("unused", source.unused)
+                    .put("latencyMs", source.latencyNanos / 1_000_000.0)
+                    .put("exhausted", source.isExhausted(now)));
+        }
+        return new JsonObject().put("sources", metrics).put("hedges", hedges);
+    }
+
+    private static boolean isExhausted(Throwable throwable) {
+        return throwable instanceof ServiceException &&
+                (((ServiceException) throwable).failureCode() == 402 || ((ServiceException) throwable).failureCode() == 403);
+    }
+
+    private final class Source {
+        private final String name;
+        private final RandomNumberService service;
+        private final int weight;
+        private long requests;
+        private long failures;
+        private long unused;
+        private double latencyNanos;
+        private long exhaustedAt;
+        private boolean exhausted;
+        // Unknown until the source answered.
+        private int requestsLeft = Integer.MAX_VALUE;
+
+        private Source(String name, RandomNumberService service, int weight) {
+            this.name = name;
+            this.service = service;
+            this.weight = weight;
+        }
+
+        private boolean isExhausted(long now) {
+            if (exhausted && now - exhaustedAt >= exhaustedBackoffNanos) {
+                // Give it another try.
+                this.exhausted = false;
+                this.requestsLeft = Integer.MAX_VALUE;
+            }
+            return exhausted;
+        }
+
+        private void exhaust(long now) {
+            this.exhausted = true;
+            this.exhaustedAt = now;
+            LOGGER.warn("Random number source {} is exhausted, skipping it for {} seconds.", name, exhaustedBackoffNanos / 1_000_000_000L);
+        }
+
+        private void recordLatency(long nanos) {
+            this.latencyNanos = requests == 1 ? nanos : latencyNanos + LATENCY_WEIGHT * (nanos - latencyNanos);
+        }
+    }
+
+    // One request for numbers that may be sent to several sources.
+    private final class Call {
+        private final List<Source> order;
+        private final Integer amount;
+        private final Integer min;
+        private final Integer max;
+        private final Handler<AsyncResult<RandomNumberResponseDto>> resultHandler;
+        private int index;
+        private int inFlight;
+        private boolean done;
+        private long hedgeTimer = -1;
+        private Throwable lastFailure;
+
+        private Call(List<Source> order, Integer amount, Integer min, Integer max, Handler<AsyncResult<RandomNumberResponseDto>> resultHandler) {
+            this.order = order;
+            this.amount = amount;
+            this.min = min;
+            this.max = max;
+            this.resultHandler = resultHandler;
+        }
+
+        private void next() {
+            if (index >= order.size()) {
+                if (inFlight == 0 && !done) {
+                    this.done = true;
+                    resultHandler.handle(ServiceException.fail(lastFailure instanceof ServiceException ?
+                            ((ServiceException) lastFailure).failureCode() : 503, "All random number sources failed: " + lastFailure.getMessage()));
+                }
+                return;
+            }
+            boolean first = index == 0;
+            Source source = order.get(index++);
+            this.inFlight++;
+            source.requests++;
+            long started = System.nanoTime();
+            source.service.getRandomNumbers(amount, min, max, result -> this.handle(source, started, result));
+            // Only the first request is hedged, a failure fails over right away.
+            if (first && !done && hedgeAfter > 0 && index < order.size()) {
+                this.hedgeTimer = vertx.setTimer(hedgeAfter, id -> {
+                    this.hedgeTimer = -1;
+                    if (!done) {
+                        hedges++;
+                        LOGGER.debug("Random number source {} did not answer within {} ms, hedging with {}.", source.name, hedgeAfter, order.get(index).name);
+                        this.next();
+                    }
+                });
+            }
+        }
+
+        private void handle(Source source, long started, AsyncResult<RandomNumberResponseDto> result) {
+            this.inFlight--;
+            long now = System.nanoTime();
+            source.recordLatency(now - started);
+            if (result.succeeded()) {
+                RandomNumberResponseDto dto = result.result();
+                source.requestsLeft = Optional.ofNullable(dto.getRequestsLeft()).orElse(Integer.MAX_VALUE);
+                if (source.requestsLeft <= 0) {
+                    source.exhaust(now);
+                }
+                if (done) {
+                    source.unused++;
+                    return;
+                }
+                this.done = true;
+                if (hedgeTimer >= 0) {
+                    vertx.cancelTimer(hedgeTimer);
+                }
+                // The caller may keep asking as long as one of the sources has requests left.
+                resultHandler.handle(Future.succeededFuture(new RandomNumberResponseDto(dto.getId(), dto.getBitsUsed(),
+                        dto.getBitsLeft(), requestsLeft(now), dto.getData())));
+            } else {
+                source.failures++;
+                if (isExhausted(result.cause())) {
+                    source.exhaust(now);
+                }
+                if (done) {
+                    return;
+                }
+                LOGGER.warn("Random number source {} failed: {}", source.name, result.cause().getMessage());
+                this.lastFailure = result.cause();
+                if (hedgeTimer >= 0) {
+                    vertx.cancelTimer(hedgeTimer);
+                    this.hedgeTimer = -1;
+                }
+                // Wait for a hedged request that is still in flight before moving on.
+                if (inFlight == 0) {
+                    this.next();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.serviceproxy.ServiceException;
+import me.piepers.king.domain.Slot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+
+/**
+ * The repository of the slots of this node in a cluster. A slot that this node became the owner of when a node joined
+ * or left the {@link SlotRing} is still stored on its previous owner. It is taken over from there the first time it is
+ * asked for, so slots only move once after a change of the ring and never for a single request.
+ * <p>
+ * Every node answers on its {@link #handoffAddress(String)} with the slot that is asked for and removes it from its own
+ * repository.
+ *
+ * @author Bas Piepers
+ */
+public class HandoffSlotRepository implements SlotRepository {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HandoffSlotRepository.class);
+    private static final String HANDOFF_ADDRESS_PREFIX = "slot.handoff.";
+
+    private final Vertx vertx;
+    private final SlotRing ring;
+    private final SlotRepository delegate;
+
+    public HandoffSlotRepository(Vertx vertx, SlotRing ring, SlotRepository delegate) {
+        this.vertx = vertx;
+        this.ring = ring;
+        this.delegate = delegate;
+    }
+
+    /**
+     * @param node, the id of a node.
+     * @return the address the node hands off its slots on, with the id of the slot as the body of the message.
+     */
+    public static String handoffAddress(String node) {
+        return HANDOFF_ADDRESS_PREFIX + node;
+    }
+
+    @Override
+    public void add(Slot slot, Handler<AsyncResult<Slot>> resultHandler) {
+        delegate.add(slot, resultHandler);
+    }
+
+    @Override
+    public void save(Slot slot, Handler<AsyncResult<Slot>> resultHandler) {
+        delegate.save(slot, resultHandler);
+    }
+
+    @Override
+    public void deleteById(String uuid, Handler<AsyncResult<Slot>> resultHandler) {
+        delegate.deleteById(uuid, result -> {
+            Optional<String> previousOwner = ring.previousOwnerOf(uuid);
+            if (result.succeeded() || !isNotFound(result.cause()) || !previousOwner.isPresent()) {
+                resultHandler.handle(result);
+            } else {
+                // Taking it over removes it from the previous owner.
+                this.takeOver(uuid, previousOwner.get(), result, resultHandler);
+            }
+        });
+    }
+
+    @Override
+    public void findById(String uuid, Handler<AsyncResult<Slot>> resultHandler) {
+        delegate.findById(uuid, result -> {
+            Optional<String> previousOwner = ring.previousOwnerOf(uuid);
+            if (result.succeeded() || !isNotFound(result.cause()) || !previousOwner.isPresent()) {
+                resultHandler.handle(result);
+            } else {
+                this.takeOver(uuid, previousOwner.get(), result, taken -> {
+                    if (taken.succeeded()) {
+                        delegate.save(taken.result(), resultHandler);
+                    } else {
+                        resultHandler.handle(taken);
+                    }
+                });
+            }
+        });
+    }
+
+    // Asks the previous owner for the slot. Answers with the original result if it does not have it either.
+    private void takeOver(String uuid, String previousOwner, AsyncResult<Slot> notFound, Handler<AsyncResult<Slot>> resultHandler) {
+        vertx.eventBus().<Slot>send(handoffAddress(previousOwner), uuid, reply -> {
+            if (reply.succeeded()) {
+                LOGGER.debug("Took over slot {} from node {}.", uuid, previousOwner);
+                resultHandler.handle(reply.map(message -> message.body()));
+            } else {
+                resultHandler.handle(notFound);
+            }
+        });
+    }
+
+    private static boolean isNotFound(Throwable throwable) {
+        return throwable instanceof ServiceException && ((ServiceException) throwable).failureCode() == 404;
+    }
+}
@@ -3,6 +3,7 @@ package me.piepers.king.infrastructure;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
 import io.vertx.reactivex.core.Vertx;
 import io.vertx.serviceproxy.ServiceException;
 import me.piepers.king.domain.Slot;
@@ -10,12 +11,13 @@ import me.piepers.king.domain.SlotId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
 
 /**
  * For prototyping purposes: store the slot instances that were created by users (and their instances)
+ * <p>
+ * Idle slots are evicted and spilled if "slot_repository" has an "eviction" block, see {@link SlotStore}. A spilled
+ * slot is reloaded the next time it is asked for.
  *
  * @author Bas Piepers
  */
@@ -23,25 +25,29 @@ public class InMemorySlotRepository implements SlotRepository {
     private static final Logger LOGGER = LoggerFactory.getLogger(InMemorySlotRepository.class);
 
     private Vertx rxVertx;
-    private Map<SlotId, Slot> slots;
+    private SlotStore slots;
 
     public InMemorySlotRepository(io.vertx.core.Vertx vertx) {
+        this(vertx, new JsonObject());
+    }
+
+    public InMemorySlotRepository(io.vertx.core.Vertx vertx, JsonObject configuration) {
         // TODO: check the need for instantiating a reactive vertx.
         this.rxVertx = new Vertx(vertx);
-        this.slots = new HashMap<>();
+        this.slots = new SlotStore(vertx, configuration);
     }
 
     @Override
     public void add(Slot slot, Handler<AsyncResult<Slot>> resultHandler) {
         if (Objects.isNull(slot.getId())) {
             resultHandler.handle(ServiceException.fail(503, "Unable to create slot due to missing id."));
-        } else if (slots.containsKey(slot.getId())) {
+        } else if (slots.contains(slot.getId())) {
             LOGGER.debug("Unable to create a slot with id {} since a slot machine with that id already exists.", slot.getId().getId());
             resultHandler.handle(ServiceException.fail(503, "Unable to create slot because the given id already exists."));
         } else {
-            slots.put(slot.getId(), slot);
+            slots.put(slot);
             LOGGER.debug("Slot has been added to store with id {}.", slot.getId().getId());
-            resultHandler.handle(Future.succeededFuture(slots.get(slot.getId())));
+            resultHandler.handle(Future.succeededFuture(slot));
         }
     }
 
@@ -50,15 +56,22 @@ public class InMemorySlotRepository implements SlotRepository {
         LOGGER.debug("Updating slot in repository with id: {}", slot.getId().getId());
 
         // TODO: probably good to at least validate if an id is present.
-        Slot previousValue = slots.put(slot.getId(), slot);
+        Slot previousValue = slots.get(slot.getId());
+        slots.put(slot);
+        if (Objects.isNull(previousValue)) {
+            // A spilled version is outdated now.
+            slots.deleteSpilled(slot.getId());
+        }
 
-        if (Objects.nonNull(previousValue)) {
-            LOGGER.debug("Replaced:\n{} \nwith:\n{}", previousValue.toJson().encodePrettily(), slot.toJson().encodePrettily());
-        } else {
-            LOGGER.debug("New slot saved:\n", slot.toJson().encodePrettily());
+        if (LOGGER.isDebugEnabled()) {
+            if (Objects.nonNull(previousValue)) {
+                LOGGER.debug("Replaced slot with:\n{}", slot.toJson().encodePrettily());
+            } else {
+                LOGGER.debug("New slot saved:\n{}", slot.toJson().encodePrettily());
+            }
         }
 
-        resultHandler.handle(Future.succeededFuture(slots.get(slot.getId())));
+        resultHandler.handle(Future.succeededFuture(slot));
     }
 
     @Override
@@ -66,12 +79,15 @@ public class InMemorySlotRepository implements SlotRepository {
         if (Objects.isNull(uuid)) {
             resultHandler.handle(ServiceException.fail(503, "Unable to delete slot due to missing slot id"));
         } else {
-            Slot removed = slots.remove(SlotId.of(uuid));
-            if (Objects.isNull(removed)) {
-                resultHandler.handle(ServiceException.fail(404, "Unable to remove Slot with id " + uuid));
-            } else {
-                resultHandler.handle(Future.succeededFuture(removed));
-            }
+            // A spilled slot is not loaded, just removed.
+            this.find(SlotId.of(uuid), false, result -> {
+                if (result.failed()) {
+                    resultHandler.handle(ServiceException.fail(404, "Unable to remove Slot with id " + uuid));
+                } else {
+                    slots.remove(SlotId.of(uuid));
+                    resultHandler.handle(result);
+                }
+            });
         }
 
 
@@ -82,13 +98,33 @@ public class InMemorySlotRepository implements SlotRepository {
         if (Objects.isNull(uuid)) {
             resultHandler.handle(ServiceException.fail(503, "Unable to find a slot due to missing id."));
         } else {
-            Slot slot = slots.get(SlotId.of(uuid));
-            if (Objects.nonNull(slot)) {
-                resultHandler.handle(Future.succeededFuture(slot));
-            } else {
-                resultHandler.handle(ServiceException.fail(404, "Unable to find a slot with id " + uuid));
-            }
+            this.find(SlotId.of(uuid), true, result -> resultHandler.handle(result.failed() ?
+                    ServiceException.fail(404, "Unable to find a slot with id " + uuid) :
+                    result));
         }
     }
 
+    // Finds the slot in memory or reads it if it was spilled, the spilled slot is stored again if it is kept.
+    private void find(SlotId id, boolean keep, Handler<AsyncResult<Slot>> resultHandler) {
+        Slot stored = slots.get(id);
+        if (Objects.nonNull(stored)) {
+            resultHandler.handle(Future.succeededFuture(stored));
+            return;
+        }
+        slots.load(id, read -> {
+            if (read.failed()) {
+                resultHandler.handle(Future.failedFuture(read.cause()));
+                return;
+            }
+            // Unless it was stored again in the meantime.
+            Slot current = slots.get(id);
+            Slot slot = Objects.nonNull(current) ? current : read.result();
+            if (keep && Objects.isNull(current)) {
+                slots.put(slot);
+                LOGGER.debug("Reloaded spilled slot {}.", id.getId());
+            }
+            slots.deleteSpilled(id);
+            resultHandler.handle(Future.succeededFuture(slot));
+        });
+    }
 }
@@ -0,0 +1,317 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.serviceproxy.ServiceException;
+import me.piepers.king.domain.Slot;
+import me.piepers.king.domain.SlotId;
+import me.piepers.king.domain.SlotStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A durable {@link SlotRepository}: the slots are kept in memory and every change is appended to a {@link SlotJournal}
+ * as a compact event instead of writing the whole slot. On boot the slots are restored from the last snapshot and the
+ * events after it.
+ * <p>
+ * Changes are committed in groups: the journal is forced to disk once per "fsync_interval_ms" for all changes since the
+ * previous time and the callers of these changes get their result after that. With an interval of 0 the result is
+ * handed back right away; the change then survives a crash of the process but not of the operating system. The
+ * journal switches segments and writes a snapshot when the current segment is half full or once per
+ * "snapshot_interval_ms", whichever comes first.
+ * <p>
+ * The slots are kept in a {@link SlotStore}, so with an "eviction" block in "slot_repository" idle slots are evicted
+ * and spilled like those of the {@link InMemorySlotRepository}. A snapshot only has the slots that are in memory or
+ * that are not spilled yet, so the slots that are spilled are kept by the spill directory and no longer by the
+ * journal. A slot that is reloaded from the spill directory is appended to the journal again before its spilled
+ * version is deleted. Without a spill directory an evicted slot is gone.
+ * <p>
+ * Like the {@link InMemorySlotRepository}, the repository must only be used from the context it was opened on.
+ *
+ * @author Bas Piepers
+ */
+public class JournalSlotRepository implements SlotRepository {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalSlotRepository.class);
+    private static final String DEFAULT_DIRECTORY = "slot-journal";
+    private static final Integer DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final Long DEFAULT_FSYNC_INTERVAL_MS = 10L;
+    private static final Long DEFAULT_SNAPSHOT_INTERVAL_MS = 60000L;
+    private static final double SNAPSHOT_FILL = 0.5;
+
+    private final Vertx vertx;
+    private final SlotJournal journal;
+    private final SlotStore slots;
+    private final long fsyncTimer;
+    private final long snapshotTimer;
+    // The callers that wait for the next group commit.
+    private List<Handler<AsyncResult<Void>>> uncommitted = new ArrayList<>();
+    private boolean forcing;
+    private boolean snapshotting;
+    // A snapshot that could not be written is written again, the journal can not switch before it is.
+    private Buffer unwritten;
+
+    private JournalSlotRepository(Vertx vertx, SlotJournal journal, SlotStore slots, long fsyncInterval, long snapshotInterval) {
+        this.vertx = vertx;
+        this.journal = journal;
+        this.slots = slots;
+        this.fsyncTimer = fsyncInterval > 0 ? vertx.setPeriodic(fsyncInterval, id -> this.groupCommit()) : -1L;
+        this.snapshotTimer = vertx.setPeriodic(snapshotInterval, id -> {
+            if (journal.fill() > 0) {
+                this.snapshot();
+            }
+        });
+    }
+
+    /**
+     * Opens the journal of the given shard and restores its slots. This blocks, it is meant to be called when the
+     * verticle that owns the repository starts.
+     *
+     * @param vertx,         the vertx instance.
+     * @param configuration, the configuration with the "slot_journal" settings.
+     * @param shard,         the shard the repository stores the slots of.
+     * @return the repository.
+     * @throws IOException if the journal can not be opened.
+     */
+    public static JournalSlotRepository open(Vertx vertx, JsonObject configuration, int shard) throws IOException {
+        JsonObject config = Optional.ofNullable(configuration.getJsonObject("slot_journal")).orElse(new JsonObject());
+        String directory = Optional.ofNullable(config.getString("directory")).orElse(DEFAULT_DIRECTORY);
+        Map<SlotId, Slot> restored = new HashMap<>();
+        long start = System.nanoTime();
+        SlotJournal journal = SlotJournal.open(Paths.get(directory), "slots-" + shard,
+                Optional.ofNullable(config.getInteger("segment_size")).orElse(DEFAULT_SEGMENT_SIZE), restored);
+        LOGGER.info("Restored {} slot(s) of shard {} from the journal in {} in {} ms.", restored.size(), shard, directory,
+                (System.nanoTime() - start) / 1000000);
+        SlotStore slots = new SlotStore(vertx, configuration);
+        restored.values().forEach(slots::put);
+        return new JournalSlotRepository(vertx, journal, slots,
+                Optional.ofNullable(config.getLong("fsync_interval_ms")).orElse(DEFAULT_FSYNC_INTERVAL_MS),
+                Optional.ofNullable(config.getLong("snapshot_interval_ms")).orElse(DEFAULT_SNAPSHOT_INTERVAL_MS));
+    }
+
+    @Override
+    public void add(Slot slot, Handler<AsyncResult<Slot>> resultHandler) {
+        if (Objects.isNull(slot.getId())) {
+            resultHandler.handle(ServiceException.fail(503, "Unable to create slot due to missing id."));
+        } else if (slots.contains(slot.getId())) {
+            resultHandler.handle(ServiceException.fail(503, "Unable to create slot because the given id already exists."));
+        } else {
+            slots.put(slot);
+            this.append(() -> journal.appendSlot(slot), result -> {
+                if (result.failed()) {
+                    slots.remove(slot.getId());
+                }
+                resultHandler.handle(result.map(slot));
+            });
+        }
+    }
+
+    @Override
+    public void save(Slot slot, Handler<AsyncResult<Slot>> resultHandler) {
+        if (Objects.isNull(slot.getId())) {
+            resultHandler.handle(ServiceException.fail(503, "Unable to save slot due to missing id."));
+            return;
+        }
+        BooleanSupplier event;
+        boolean stored = slots.contains(slot.getId());
+        if (!stored) {
+            event = () -> journal.appendSlot(slot);
+        } else if (slot.getStatus() == SlotStatus.IDLE) {
+            long win = slot.getReel().calculateWin(slot.getReelConfig());
+            event = () -> journal.appendDraw(slot, win);
+        } else {
+            event = () -> journal.appendStatus(slot);
+        }
+        slots.put(slot);
+        this.append(event, result -> {
+            if (result.succeeded() && !stored) {
+                // A spilled version is outdated now.
+                slots.deleteSpilled(slot.getId());
+            }
+            resultHandler.handle(result.map(slot));
+        });
+    }
+
+    @Override
+    public void deleteById(String uuid, Handler<AsyncResult<Slot>> resultHandler) {
+        if (Objects.isNull(uuid)) {
+            resultHandler.handle(ServiceException.fail(503, "Unable to delete slot due to missing slot id"));
+            return;
+        }
+        SlotId id = SlotId.of(uuid);
+        Slot removed = slots.remove(id);
+        if (Objects.nonNull(removed)) {
+            this.delete(id, removed, resultHandler);
+            return;
+        }
+        // A spilled slot is not reloaded, just removed.
+        slots.load(id, loaded -> {
+            if (loaded.failed()) {
+                resultHandler.handle(ServiceException.fail(404, "Unable to remove Slot with id " + uuid));
+            } else {
+                Slot current = slots.remove(id);
+                this.delete(id, Objects.nonNull(current) ? current : loaded.result(), resultHandler);
+            }
+        });
+    }
+
+    @Override
+    public void findById(String uuid, Handler<AsyncResult<Slot>> resultHandler) {
+        if (Objects.isNull(uuid)) {
+            resultHandler.handle(ServiceException.fail(503, "Unable to find a slot due to missing id."));
+        } else {
+            SlotId id = SlotId.of(uuid);
+            Slot slot = slots.get(id);
+            if (Objects.nonNull(slot)) {
+                resultHandler.handle(Future.succeededFuture(slot));
+            } else {
+                slots.load(id, loaded -> {
+                    if (loaded.failed()) {
+                        resultHandler.handle(ServiceException.fail(404, "Unable to find a slot with id " + uuid));
+                    } else {
+                        this.reload(loaded.result(), resultHandler);
+                    }
+                });
+            }
+        }
+    }
+
+    // Keeps a slot that was spilled in memory and in the journal again, unless it was stored in the meantime.
+    private void reload(Slot spilled, Handler<AsyncResult<Slot>> resultHandler) {
+        SlotId id = spilled.getId();
+        Slot current = slots.get(id);
+        if (Objects.nonNull(current)) {
+            resultHandler.handle(Future.succeededFuture(current));
+            return;
+        }
+        slots.put(spilled);
+        this.append(() -> journal.appendSlot(spilled), result -> {
+            if (result.succeeded()) {
+                slots.deleteSpilled(id);
+                LOGGER.debug("Reloaded spilled slot {}.", id.getId());
+            } else {
+                slots.remove(id);
+            }
+            resultHandler.handle(result.map(spilled));
+        });
+    }
+
+    private void delete(SlotId id, Slot removed, Handler<AsyncResult<Slot>> resultHandler) {
+        this.append(() -> journal.appendDeleted(id), result -> {
+            if (result.succeeded()) {
+                // A spilled version may be left over from before a restart.
+                slots.deleteSpilled(id);
+            }
+            resultHandler.handle(result.map(removed));
+        });
+    }
+
+    /**
+     * Stops the timers, commits what is left and closes the journal. This blocks.
+     */
+    public void close() {
+        slots.close();
+        vertx.cancelTimer(fsyncTimer);
+        vertx.cancelTimer(snapshotTimer);
+        try {
+            journal.close();
+            this.acknowledge(uncommitted, Future.succeededFuture());
+        } catch (IOException e) {
+            LOGGER.error("Unable to close the slot journal.", e);
+            this.acknowledge(uncommitted, ServiceException.fail(503, "Unable to commit the change to the slot journal."));
+        }
+        this.uncommitted = new ArrayList<>();
+    }
+
+    // Appends the event and hands back the result when it is committed. Switches segments when the current one is full.
+    private void append(BooleanSupplier event, Handler<AsyncResult<Void>> resultHandler) {
+        boolean appended = event.getAsBoolean();
+        if (!appended && this.snapshot()) {
+            appended = event.getAsBoolean();
+        }
+        if (!appended) {
+            LOGGER.error("The slot journal is full while a snapshot is written.");
+            resultHandler.handle(ServiceException.fail(503, "Unable to store the change, try again later."));
+            return;
+        }
+        if (journal.fill() > SNAPSHOT_FILL) {
+            this.snapshot();
+        }
+        if (fsyncTimer < 0) {
+            resultHandler.handle(Future.succeededFuture());
+        } else {
+            uncommitted.add(resultHandler);
+        }
+    }
+
+    private void groupCommit() {
+        if (forcing || uncommitted.isEmpty()) {
+            return;
+        }
+        List<Handler<AsyncResult<Void>>> batch = uncommitted;
+        this.uncommitted = new ArrayList<>();
+        this.forcing = true;
+        vertx.<Void>executeBlocking(future -> {
+            journal.force();
+            future.complete();
+        }, false, result -> {
+            this.forcing = false;
+            if (result.failed()) {
+                LOGGER.error("Unable to write the slot journal to disk.", result.cause());
+            }
+            this.acknowledge(batch, result.succeeded() ?
+                    Future.succeededFuture() :
+                    ServiceException.fail(503, "Unable to commit the change to the slot journal."));
+        });
+    }
+
+    private void acknowledge(List<Handler<AsyncResult<Void>>> batch, AsyncResult<Void> result) {
+        for (Handler<AsyncResult<Void>> handler : batch) {
+            handler.handle(result);
+        }
+    }
+
+    // Switches segments and writes the snapshot on a worker. Returns false if the previous snapshot is still pending.
+    private boolean snapshot() {
+        if (snapshotting) {
+            return false;
+        }
+        boolean switched = Objects.isNull(unwritten) && journal.canSwitch();
+        Buffer snapshot = switched ? journal.switchSegment(slots.unspilled()) : unwritten;
+        if (Objects.isNull(snapshot)) {
+            return false;
+        }
+        this.snapshotting = true;
+        vertx.<Void>executeBlocking(future -> {
+            try {
+                journal.writeSnapshot(snapshot);
+                future.complete();
+            } catch (IOException e) {
+                future.fail(e);
+            }
+        }, false, result -> {
+            this.snapshotting = false;
+            if (result.succeeded()) {
+                this.unwritten = null;
+                LOGGER.debug("Wrote a snapshot of {} slot(s).", slots.size());
+            } else {
+                this.unwritten = snapshot;
+                LOGGER.error("Unable to write a snapshot of the slots, trying again later.", result.cause());
+            }
+        });
+        return switched;
+    }
+}
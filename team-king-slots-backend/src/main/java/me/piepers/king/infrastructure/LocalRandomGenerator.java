@@ -0,0 +1,133 @@
+package me.piepers.king.infrastructure;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.SplittableRandom;
+
+/**
+ * Generates uniformly distributed random numbers in a range in bulk. The raw 32-bit values are reduced to the range
+ * with Lemire's multiply-shift method: the value is multiplied by the size of the range and the high 32 bits are the
+ * result. The few values that would make some results more likely than others are rejected and drawn again, so the
+ * result is unbiased without a division for almost every number.
+ * <p>
+ * A generator is not thread-safe. Every thread (event loop) is meant to have its own generator so that threads never
+ * contend on one generator, see {@link LocalRandomNumberServiceImpl}.
+ *
+ * @author Bas Piepers
+ */
+public abstract class LocalRandomGenerator {
+    private static final int BATCH_SIZE = 1024;
+
+    private final int[] raw = new int[BATCH_SIZE];
+
+    /**
+     * @return a fast generator that is not suitable where the numbers must be unpredictable.
+     */
+    public static LocalRandomGenerator splittable() {
+        return new Splittable(new SplittableRandom());
+    }
+
+    /**
+     * @param seed, the seed.
+     * @return a fast generator that always generates the same numbers for the same seed.
+     */
+    public static LocalRandomGenerator splittable(long seed) {
+        return new Splittable(new SplittableRandom(seed));
+    }
+
+    /**
+     * @param algorithm, the name of the secure random algorithm or null for the default of the platform.
+     * @return a cryptographically strong generator.
+     * @throws NoSuchAlgorithmException if the platform does not provide the algorithm.
+     */
+    public static LocalRandomGenerator secure(String algorithm) throws NoSuchAlgorithmException {
+        return new Secure(algorithm == null ? new SecureRandom() : SecureRandom.getInstance(algorithm));
+    }
+
+    /**
+     * Fills the given array with raw random 32-bit values.
+     *
+     * @param target, the array to fill.
+     * @param length, the amount of values to generate, starting at index 0.
+     */
+    protected abstract void nextInts(int[] target, int length);
+
+    /**
+     * @return one raw random 32-bit value.
+     */
+    protected abstract int nextInt();
+
+    /**
+     * Fills a part of the given array with random numbers.
+     *
+     * @param target, the array to fill.
+     * @param offset, the position of the first number.
+     * @param length, the amount of numbers.
+     * @param min,    the lowest possible number.
+     * @param max,    the highest possible number (inclusive).
+     */
+    public void fill(int[] target, int offset, int length, int min, int max) {
+        if (max < min) {
+            throw new IllegalArgumentException("The highest number must not be lower than the lowest number.");
+        }
+        long range = (long) max - min + 1;
+        // The amount of low values that has to be rejected: 2^32 mod range.
+        long threshold = ((1L << 32) - range) % range;
+        for (int done = 0; done < length; done += BATCH_SIZE) {
+            int batch = Math.min(BATCH_SIZE, length - done);
+            this.nextInts(raw, batch);
+            for (int i = 0; i < batch; i++) {
+                long product = (raw[i] & 0xFFFFFFFFL) * range;
+                while ((product & 0xFFFFFFFFL) < threshold) {
+                    product = (this.nextInt() & 0xFFFFFFFFL) * range;
+                }
+                target[offset + done + i] = (int) (min + (product >>> 32));
+            }
+        }
+    }
+
+    private static final class Splittable extends LocalRandomGenerator {
+        private final SplittableRandom random;
+
+        private Splittable(SplittableRandom random) {
+            this.random = random;
+        }
+
+        @Override
+        protected void nextInts(int[] target, int length) {
+            for (int i = 0; i < length; i++) {
+                target[i] = random.nextInt();
+            }
+        }
+
+        @Override
+        protected int nextInt() {
+            return random.nextInt();
+        }
+    }
+
+    private static final class Secure extends LocalRandomGenerator {
+        private final SecureRandom random;
+        // Secure random generators are much faster when asked for many bytes at once.
+        private final byte[] bytes = new byte[BATCH_SIZE * Integer.BYTES];
+        private final ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+
+        private Secure(SecureRandom random) {
+            this.random = random;
+        }
+
+        @Override
+        protected void nextInts(int[] target, int length) {
+            random.nextBytes(bytes);
+            buffer.clear();
+            buffer.asIntBuffer().get(target, 0, length);
+        }
+
+        @Override
+        protected int nextInt() {
+            return random.nextInt();
+        }
+    }
+}
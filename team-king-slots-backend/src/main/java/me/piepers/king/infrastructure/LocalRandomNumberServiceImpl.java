@@ -3,42 +3,82 @@ package me.piepers.king.infrastructure;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.serviceproxy.ServiceException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.Random;
-import java.util.stream.Collectors;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
 
 /**
- * Local random number implementation not for production use. Uses the java.util.{@link java.util.Random} class to
- * generate numbers.
+ * Local random number implementation that does not depend on an external service. Every thread that asks for numbers
+ * gets its own {@link LocalRandomGenerator} so that event loops never contend on one generator. The numbers are
+ * generated in bulk into an array and reduced to the range without bias.
+ * <p>
+ * The algorithm is configured with "algorithm" in the "local_random_number_service" configuration: "secure" (the
+ * default) uses a cryptographically strong {@link java.security.SecureRandom} per thread, optionally of the
+ * "secure_algorithm" that is configured (for example NativePRNGNonBlocking), "splittable" uses a
+ * {@link java.util.SplittableRandom} per thread which is faster but predictable and only meant for testing.
+ * <p>
+ * Like random.org, the highest number is inclusive.
  *
  * @author Bas Piepers
  */
 // TODO: add the notion of having an X amount of requests for testing purposes and to simulate remote service behavior.
 public class LocalRandomNumberServiceImpl implements RandomNumberService {
     private static final Logger LOGGER = LoggerFactory.getLogger(LocalRandomNumberServiceImpl.class);
+    private static final String DEFAULT_ALGORITHM = "secure";
+
+    private final ThreadLocal<LocalRandomGenerator> generators;
+
+    public LocalRandomNumberServiceImpl() {
+        this(new JsonObject());
+    }
+
+    public LocalRandomNumberServiceImpl(JsonObject configuration) {
+        JsonObject config = Optional.ofNullable(configuration.getJsonObject("local_random_number_service")).orElse(new JsonObject());
+        String algorithm = Optional.ofNullable(config.getString("algorithm")).orElse(DEFAULT_ALGORITHM);
+        String secureAlgorithm = config.getString("secure_algorithm");
+        if ("splittable".equals(algorithm)) {
+            this.generators = ThreadLocal.withInitial(LocalRandomGenerator::splittable);
+        } else if ("secure".equals(algorithm)) {
+            // Fail now rather than on the first request if the platform does not provide the algorithm.
+            this.secure(secureAlgorithm);
+            this.generators = ThreadLocal.withInitial(() -> this.secure(secureAlgorithm));
+        } else {
+            throw new IllegalArgumentException("Unknown random number algorithm: " + algorithm + ".");
+        }
+        LOGGER.info("Generating random numbers locally with the {} algorithm.", Optional.ofNullable(secureAlgorithm).orElse(algorithm));
+    }
+
+    private LocalRandomGenerator secure(String algorithm) {
+        try {
+            return LocalRandomGenerator.secure(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("The secure random algorithm " + algorithm + " is not available.", e);
+        }
+    }
 
     /**
-     * Uses the {@link Random#ints()} method to obtain the given amount of int random numbers and puts it into a
-     * {@link java.util.ArrayList} because duplicates may be present.
+     * Fills an array with the given amount of random numbers using the generator of the calling thread. Duplicates
+     * may be present.
      *
      * @param amount,        the amount of numbers to obtain.
      * @param min,           the lowest value a number in the list of random numbers should have.
      * @param max,           the highest value a number in the list of random number should have.
-     * @param resultHandler, the result handler that contains a collection (a list) with the numbers it received from the
+     * @param resultHandler, the result handler that contains an array with the numbers it received from the generator.
      */
     @Override
     public void getRandomNumbers(Integer amount, Integer min, Integer max, Handler<AsyncResult<RandomNumberResponseDto>> resultHandler) {
         LOGGER.debug("Generating {} of (non-unique) numbers with a lowest value of {} and a highest value of {}.", amount, min, max);
+        if (amount < 0 || max < min) {
+            resultHandler.handle(ServiceException.fail(400, "Invalid amount or range of random numbers."));
+            return;
+        }
 
-        Random r = new Random();
-
-        ArrayList<Integer> randomNumbers = r
-                .ints(amount, min, max)
-                .boxed()
-                .collect(Collectors.toCollection(ArrayList::new));
+        int[] randomNumbers = new int[amount];
+        generators.get().fill(randomNumbers, 0, amount, min, max);
         LOGGER.debug("Generated {} numbers.", amount);
         resultHandler.handle(Future.succeededFuture(RandomNumberResponseDto.local(randomNumbers)));
     }
@@ -0,0 +1,72 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Keeps track of the service implementations that are deployed in this JVM so that co-located callers can invoke them
+ * directly instead of via the event bus. Services are registered with the event bus address they are also bound to.
+ * <p>
+ * Calling a service directly means that domain objects like a {@link me.piepers.king.domain.Slot} are not encoded to
+ * and decoded from Json for every call. A service that owns mutable state still hands out copies of it (see
+ * {@link ContextBoundSlotRepository}). Whether callers should use the local binding
+ * is configured with the "local_binding" configuration item. Callers always fall back to the event bus in case a
+ * service is not registered locally. In a cluster, local binding is always on (see {@link RoutingSlotService}).
+ *
+ * @author Bas Piepers
+ */
+public final class LocalServiceRegistry {
+
+    private static final String LOCAL_SERVICES_MAP = "local-services";
+
+    private LocalServiceRegistry() {
+        // Utility class
+    }
+
+    /**
+     * @param configuration, the application configuration.
+     * @return true if co-located services must be invoked directly.
+     */
+    public static boolean isEnabled(JsonObject configuration) {
+        return Objects.nonNull(configuration) && configuration.getBoolean("local_binding", false);
+    }
+
+    public static <T> void register(Vertx vertx, String address, T service) {
+        services(vertx).put(address, new Registration(service));
+    }
+
+    public static void unregister(Vertx vertx, String address) {
+        services(vertx).remove(address);
+    }
+
+    /**
+     * @param vertx,   the vertx instance the service was registered with.
+     * @param address, the event bus address of the service.
+     * @param type,    the expected type of the service.
+     * @return the service that is registered locally with the given address or empty if there is none.
+     */
+    public static <T> Optional<T> lookup(Vertx vertx, String address, Class<T> type) {
+        return Optional.ofNullable(services(vertx).get(address))
+                .map(registration -> registration.service)
+                .filter(type::isInstance)
+                .map(type::cast);
+    }
+
+    private static LocalMap<String, Registration> services(Vertx vertx) {
+        return vertx.sharedData().getLocalMap(LOCAL_SERVICES_MAP);
+    }
+
+    // Allows a service to be stored in a local map without being copied.
+    private static final class Registration implements Shareable {
+        private final Object service;
+
+        private Registration(Object service) {
+            this.service = service;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.serviceproxy.ServiceException;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A bounded first-in-first-out queue of requests for random numbers that could not be served because the cache did not
+ * hold enough numbers. Instead of failing these requests, they wait until a new block of numbers arrives or until
+ * their deadline passes, whichever comes first.
+ * <p>
+ * Requests are served strictly in the order they arrived: a request that can not be served yet blocks the requests
+ * behind it so that large requests are not starved by small ones. When the queue is full, new requests are rejected
+ * right away. Rejected and expired requests fail with a {@link ServiceException} with code 503 and a debug info that
+ * tells the caller after how many seconds to retry ("retryAfter").
+ * <p>
+ * The queue keeps statistics about the time requests waited, see {@link #metrics()}.
+ * <p>
+ * The queue is not thread-safe with the exception of {@link #size()} and {@link #isEmpty()}. It is meant to be used from the context of the
+ * verticle that owns the cache.
+ *
+ * @author Bas Piepers
+ */
+public final class PendingNumberRequests {
+    public static final int UNAVAILABLE = 503;
+
+    private final Deque<Request> requests = new ArrayDeque<>();
+    private final int maxSize;
+    private final long timeoutNanos;
+    private final int retryAfterSeconds;
+    private volatile int size;
+    // The sum of the amounts of the waiting requests.
+    private int numbers;
+
+    private long served;
+    private long expired;
+    private long rejected;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    /**
+     * @param maxSize,           the maximum amount of requests that may wait.
+     * @param timeoutMillis,     the maximum time a request may wait.
+     * @param retryAfterSeconds, the amount of seconds after which a rejected caller may try again.
+     */
+    public PendingNumberRequests(int maxSize, long timeoutMillis, int retryAfterSeconds) {
+        this.maxSize = maxSize;
+        this.timeoutNanos = timeoutMillis * 1_000_000L;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return the amount of waiting requests. May be called from any thread.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the amount of numbers the waiting requests need.
+     */
+    public int numbers() {
+        return numbers;
+    }
+
+    /**
+     * @return true if no request is waiting. May be called from any thread.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds a request to the end of the queue or rejects it if the queue is full.
+     *
+     * @param amount,        the amount of numbers that is requested.
+     * @param now,           the current time in nanoseconds (see {@link System#nanoTime()}).
+     * @param resultHandler, the handler that receives the numbers or the failure.
+     * @return true if the request waits, false if it was rejected.
+     */
+    public boolean add(int amount, long now, Handler<AsyncResult<int[]>> resultHandler) {
+        if (requests.size() >= maxSize) {
+            rejected++;
+            resultHandler.handle(this.unavailable("Too many requests are waiting for random numbers."));
+            return false;
+        }
+        requests.addLast(new Request(amount, now, resultHandler));
+        numbers += amount;
+        size = requests.size();
+        return true;
+    }
+
+    /**
+     * Serves the waiting requests in order for as long as the cache holds enough numbers.
+     *
+     * @param cache, the cache to take the numbers from.
+     * @param now,   the current time in nanoseconds.
+     * @return the amount of requests that were served.
+     */
+    public int serve(RandomNumberRingBuffer cache, long now) {
+        int count = 0;
+        while (!requests.isEmpty()) {
+            Request request = requests.peekFirst();
+            if (cache.size() < request.amount) {
+                break;
+            }
+            int[] taken = new int[request.amount];
+            if (!cache.drain(taken, 0, request.amount)) {
+                break;
+            }
+            this.remove();
+            long waited = now - request.enqueued;
+            served++;
+            totalWaitNanos += waited;
+            maxWaitNanos = Math.max(maxWaitNanos, waited);
+            count++;
+            request.resultHandler.handle(Future.succeededFuture(taken));
+        }
+        return count;
+    }
+
+    /**
+     * Fails the requests that waited longer than the timeout.
+     *
+     * @param now, the current time in nanoseconds.
+     * @return the amount of requests that expired.
+     */
+    public int expire(long now) {
+        int count = 0;
+        // Requests are ordered by the time they were added so the oldest ones are at the front.
+        while (!requests.isEmpty() && now - requests.peekFirst().enqueued >= timeoutNanos) {
+            Request request = this.remove();
+            expired++;
+            count++;
+            request.resultHandler.handle(this.unavailable("Timed out waiting for random numbers."));
+        }
+        return count;
+    }
+
+    private Request remove() {
+        Request request = requests.removeFirst();
+        numbers -= request.amount;
+        size = requests.size();
+        return request;
+    }
+
+    private <T> AsyncResult<T> unavailable(String message) {
+        return ServiceException.fail(UNAVAILABLE, message, new JsonObject().put("retryAfter", retryAfterSeconds));
+    }
+
+    /**
+     * @return the amount of waiting requests and the amount of served, expired and rejected requests with the average
+     * and maximum time served requests waited, in milliseconds.
+     */
+    public JsonObject metrics() {
+        return new JsonObject()
+                .put("waiting", requests.size())
+                .put("served", served)
+                .put("expired", expired)
+                .put("rejected", rejected)
+                .put("averageWaitMs", served > 0 ? totalWaitNanos / served / 1_000_000.0 : 0.0)
+                .put("maxWaitMs", maxWaitNanos / 1_000_000.0);
+    }
+
+    private static final class Request {
+        private final int amount;
+        private final long enqueued;
+        private final Handler<AsyncResult<int[]>> resultHandler;
+
+        private Request(int amount, long enqueued, Handler<AsyncResult<int[]>> resultHandler) {
+            this.amount = amount;
+            this.enqueued = enqueued;
+            this.resultHandler = resultHandler;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.serviceproxy.ServiceException;
+
+/**
+ * Direct access to the cache of random numbers for co-located callers. The cache is normally reached by sending a
+ * message to the {@link #EVENT_BUS_ADDRESS}; with local binding (see {@link LocalServiceRegistry}) it is registered
+ * with that same address so that numbers can be taken without a round trip over the event bus. Implementations must
+ * allow concurrent callers.
+ *
+ * @author Bas Piepers
+ */
+public interface RandomNumberCache {
+
+    String EVENT_BUS_ADDRESS = "get.numbers";
+    // Replies with the statistics of the requests that had to wait for numbers.
+    String METRICS_ADDRESS = "get.numbers.metrics";
+
+    /**
+     * Takes exactly the given amount of numbers from the cache if it can deliver them right away, without waiting.
+     * Requests that wait for numbers go first, so it does not take any while there are. A caller falls back to
+     * {@link #take(int, Handler)} when no numbers were taken.
+     *
+     * @param target, the array the numbers are copied to, starting at index 0.
+     * @param amount, the amount of numbers to take.
+     * @return true if the numbers were taken, false if the cache is not able to deliver the requested amount right away.
+     */
+    boolean take(int[] target, int amount);
+
+    /**
+     * Takes the given amount of numbers from the cache. If the cache does not hold enough numbers, the request may wait
+     * until new numbers arrive. The default implementation does not wait.
+     *
+     * @param amount,        the amount of numbers to take.
+     * @param resultHandler, the handler that receives the numbers or a {@link ServiceException} if the cache is not
+     *                       able to deliver the requested amount in time.
+     */
+    default void take(int amount, Handler<AsyncResult<int[]>> resultHandler) {
+        int[] numbers = new int[amount];
+        if (this.take(numbers, amount)) {
+            resultHandler.handle(Future.succeededFuture(numbers));
+        } else {
+            resultHandler.handle(ServiceException.fail(503, "The amount of requested items is larger than we can handle at the moment."));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package me.piepers.king.infrastructure;
+
+/**
+ * Decides when and how many random numbers to request for a cache of random numbers, based on how fast numbers are
+ * taken from the cache and how long it takes to obtain a block of numbers.
+ * <p>
+ * The consumption rate (numbers per second) and the latency of a request are tracked as exponentially weighted moving
+ * averages. A refill starts when the numbers in the cache plus the numbers that have been requested but not yet
+ * received drop below the low watermark: the amount of numbers that is expected to be taken while a request is in
+ * flight (with a safety margin), but never less than the configured minimum threshold. A refill requests enough numbers
+ * to reach the high watermark: the low watermark plus the amount of numbers that is expected to be taken during the
+ * prefetch horizon. The size of a request is kept between the minimum and the maximum block size and within the free
+ * capacity of the cache.
+ * <p>
+ * Several requests may be in flight at the same time (up to a limit) so that a burst that consumes numbers faster than
+ * one request can deliver them is absorbed by additional requests.
+ * <p>
+ * The prefetcher is not thread-safe with the exception of {@link #lowWatermark()} which may be read by any thread. It
+ * is meant to be used from the context of the verticle that owns the cache.
+ *
+ * @author Bas Piepers
+ */
+public final class RandomNumberPrefetcher {
+    // The weight of a new latency measurement in the moving average.
+    private static final double LATENCY_WEIGHT = 0.25;
+    // The margin on the amount of numbers that are expected to be taken while a request is in flight.
+    private static final double SAFETY_FACTOR = 2.0;
+    private static final long INITIAL_LATENCY_NANOS = 1_000_000_000L;
+
+    private final int minThreshold;
+    private final int minBlock;
+    private final int maxBlock;
+    private final int maxInFlight;
+    private final double horizonSeconds;
+    private final double halfLifeNanos;
+
+    // Numbers per second.
+    private double rate;
+    private double latencyNanos = INITIAL_LATENCY_NANOS;
+    private boolean latencyMeasured;
+    private volatile int lowWatermark;
+
+    /**
+     * @param minThreshold,  the lowest low watermark, regardless of the consumption rate.
+     * @param minBlock,      the smallest amount of numbers to request at once.
+     * @param maxBlock,      the largest amount of numbers to request at once.
+     * @param maxInFlight,   the maximum amount of requests that may be in flight at the same time.
+     * @param horizonMillis, the period of consumption that one refill should cover.
+     * @param halfLifeMillis, the period after which a change in the consumption rate is weighted for half.
+     */
+    public RandomNumberPrefetcher(int minThreshold, int minBlock, int maxBlock, int maxInFlight, long horizonMillis, long halfLifeMillis) {
+        if (minBlock < 1 || maxBlock < minBlock || maxInFlight < 1 || halfLifeMillis < 1) {
+            throw new IllegalArgumentException("Invalid prefetch configuration.");
+        }
+        this.minThreshold = minThreshold;
+        this.minBlock = minBlock;
+        this.maxBlock = maxBlock;
+        this.maxInFlight = maxInFlight;
+        this.horizonSeconds = horizonMillis / 1000.0;
+        this.halfLifeNanos = halfLifeMillis * 1_000_000.0;
+        this.lowWatermark = minThreshold;
+    }
+
+    /**
+     * Updates the consumption rate with the amount of numbers that were taken during the given period.
+     *
+     * @param consumed,     the amount of numbers that were taken.
+     * @param elapsedNanos, the length of the period.
+     */
+    public void sample(long consumed, long elapsedNanos) {
+        if (elapsedNanos <= 0) {
+            return;
+        }
+        double instant = consumed * 1_000_000_000.0 / elapsedNanos;
+        double alpha = 1 - Math.pow(0.5, elapsedNanos / halfLifeNanos);
+        this.rate += alpha * (instant - rate);
+        this.updateLowWatermark();
+    }
+
+    /**
+     * Updates the latency with the time it took to obtain a block of numbers.
+     *
+     * @param nanos, the duration of the request.
+     */
+    public void recordLatency(long nanos) {
+        this.latencyNanos = latencyMeasured ? latencyNanos + LATENCY_WEIGHT * (nanos - latencyNanos) : nanos;
+        this.latencyMeasured = true;
+        this.updateLowWatermark();
+    }
+
+    private void updateLowWatermark() {
+        this.lowWatermark = (int) Math.min(Integer.MAX_VALUE / 2,
+                Math.max(minThreshold, Math.ceil(rate * latencyNanos / 1_000_000_000.0 * SAFETY_FACTOR)));
+    }
+
+    /**
+     * @return the consumption rate in numbers per second.
+     */
+    public double rate() {
+        return rate;
+    }
+
+    /**
+     * @return the amount of numbers below which a refill is started.
+     */
+    public int lowWatermark() {
+        return lowWatermark;
+    }
+
+    /**
+     * @return the amount of numbers a refill aims for.
+     */
+    public int highWatermark() {
+        return lowWatermark + (int) Math.min(Integer.MAX_VALUE / 2, Math.max(minBlock, Math.ceil(rate * horizonSeconds)));
+    }
+
+    /**
+     * Determines the size of the next request.
+     *
+     * @param available,        the amount of numbers in the cache.
+     * @param inFlightNumbers,  the amount of numbers that have been requested but not yet received.
+     * @param inFlightRequests, the amount of requests in flight.
+     * @param capacity,         the maximum amount of numbers the cache can hold.
+     * @return the amount of numbers to request now or 0 if no request is necessary or possible.
+     */
+    public int nextRequest(int available, int inFlightNumbers, int inFlightRequests, int capacity) {
+        long expected = (long) available + inFlightNumbers;
+        if (inFlightRequests >= maxInFlight || expected > lowWatermark) {
+            return 0;
+        }
+        long amount = Math.max(minBlock, Math.min(maxBlock, this.highWatermark() - expected));
+        amount = Math.min(amount, capacity - expected);
+        return amount >= minBlock ? (int) amount : 0;
+    }
+}
@@ -1,15 +1,23 @@
 package me.piepers.king.infrastructure;
 
 import io.vertx.codegen.annotations.DataObject;
+import io.vertx.codegen.annotations.GenIgnore;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import me.piepers.king.domain.JsonDomainObject;
 
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.UUID;
 
 /**
  * Inspired by the random.org service this Dto represents the responses of these kinds of services. Is used by all
  * implementations of the {@link RandomNumberService} interface but may be populated differently.
+ * <p>
+ * The numbers are kept in an int array. In json, they are written as a base64 string of packed little-endian ints so
+ * that a block of numbers passes the event bus without boxing every number.
  *
  * @author Bas Piepers
  */
@@ -19,10 +27,10 @@ public class RandomNumberResponseDto implements JsonDomainObject {
     private final Integer bitsUsed;
     private final Integer bitsLeft;
     private final Integer requestsLeft;
-    private final List<Integer> data;
+    private final int[] data;
 
 
-    public RandomNumberResponseDto(String id, Integer bitsUsed, Integer bitsLeft, Integer requestsLeft, List<Integer> data) {
+    public RandomNumberResponseDto(String id, Integer bitsUsed, Integer bitsLeft, Integer requestsLeft, int[] data) {
         this.id = id;
         this.bitsUsed = bitsUsed;
         this.bitsLeft = bitsLeft;
@@ -35,10 +43,31 @@ public class RandomNumberResponseDto implements JsonDomainObject {
         this.bitsUsed = jsonObject.getInteger("bitsUsed");
         this.bitsLeft = jsonObject.getInteger("bitsLeft");
         this.requestsLeft = jsonObject.getInteger("requestsLeft");
-        this.data = jsonObject.getJsonArray("data").getList();
+        Object value = jsonObject.getValue("data");
+        this.data = value instanceof JsonArray ? toArray((JsonArray) value) : unpack(jsonObject.getBinary("data"));
     }
 
-    public static RandomNumberResponseDto local(List<Integer> data) {
+    private static int[] toArray(JsonArray jsonArray) {
+        int[] numbers = new int[jsonArray.size()];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = jsonArray.getInteger(i);
+        }
+        return numbers;
+    }
+
+    private static int[] unpack(byte[] bytes) {
+        int[] numbers = new int[bytes.length / Integer.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(numbers);
+        return numbers;
+    }
+
+    private static byte[] pack(int[] numbers) {
+        ByteBuffer bytes = ByteBuffer.allocate(numbers.length * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.asIntBuffer().put(numbers);
+        return bytes.array();
+    }
+
+    public static RandomNumberResponseDto local(int[] data) {
         return new RandomNumberResponseDto(UUID.randomUUID().toString(), 0, Integer.MAX_VALUE, Integer.MAX_VALUE, data);
     }
 
@@ -58,10 +87,21 @@ public class RandomNumberResponseDto implements JsonDomainObject {
         return requestsLeft;
     }
 
-    public List<Integer> getData() {
+    @GenIgnore
+    public int[] getData() {
         return data;
     }
 
+    @Override
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("id", id)
+                .put("bitsUsed", bitsUsed)
+                .put("bitsLeft", bitsLeft)
+                .put("requestsLeft", requestsLeft)
+                .put("data", Base64.getEncoder().encodeToString(pack(data)));
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -73,7 +113,7 @@ public class RandomNumberResponseDto implements JsonDomainObject {
         if (!bitsUsed.equals(that.bitsUsed)) return false;
         if (!bitsLeft.equals(that.bitsLeft)) return false;
         if (!requestsLeft.equals(that.requestsLeft)) return false;
-        return data.equals(that.data);
+        return Arrays.equals(data, that.data);
     }
 
     @Override
@@ -82,7 +122,7 @@ public class RandomNumberResponseDto implements JsonDomainObject {
         result = 31 * result + bitsUsed.hashCode();
         result = 31 * result + bitsLeft.hashCode();
         result = 31 * result + requestsLeft.hashCode();
-        result = 31 * result + data.hashCode();
+        result = 31 * result + Arrays.hashCode(data);
         return result;
     }
 
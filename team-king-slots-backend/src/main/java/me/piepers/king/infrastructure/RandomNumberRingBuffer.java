@@ -0,0 +1,122 @@
+package me.piepers.king.infrastructure;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed capacity ring buffer of primitive random numbers with one producer and any amount of consumers. It replaces
+ * a queue of boxed integers: the numbers are stored in an int array, the size is known without traversing the buffer
+ * and consumers take numbers in bulk into an array they provide themselves.
+ * <p>
+ * The producer (the one that adds blocks of random numbers) publishes numbers by advancing the tail after the numbers
+ * have been written. Consumers claim numbers by advancing the head with a compare-and-set, so numbers are never handed
+ * out twice and a consumer never waits for a lock. Only one thread may add numbers at the same time.
+ * <p>
+ * The capacity is always rounded up to a power of two.
+ *
+ * @author Bas Piepers
+ */
+public final class RandomNumberRingBuffer {
+
+    private final int[] buffer;
+    private final int mask;
+    // The position of the next number to take. Only advanced by consumers.
+    private final AtomicLong head = new AtomicLong();
+    // The position of the next number to add. Only advanced by the producer.
+    private volatile long tail;
+
+    public RandomNumberRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("The capacity of the buffer must be between 1 and 2^30.");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.buffer = new int[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return the maximum amount of numbers this buffer can hold.
+     */
+    public int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * @return the amount of numbers that are currently available.
+     */
+    public int size() {
+        // Read the head first so the size is never negative.
+        long h = head.get();
+        return (int) (tail - h);
+    }
+
+    /**
+     * @return the amount of numbers that can be added before the buffer is full.
+     */
+    public int remaining() {
+        return buffer.length - this.size();
+    }
+
+    /**
+     * Adds one number. May only be called by the producer.
+     *
+     * @param number, the number to add.
+     * @return true if the number was added, false if the buffer is full.
+     */
+    public boolean offer(int number) {
+        long t = tail;
+        if (t - head.get() >= buffer.length) {
+            return false;
+        }
+        buffer[(int) t & mask] = number;
+        tail = t + 1;
+        return true;
+    }
+
+    /**
+     * Adds as many numbers of the given array as fit in the buffer. May only be called by the producer.
+     *
+     * @param numbers, the source of the numbers.
+     * @param offset,  the position of the first number in the source.
+     * @param length,  the amount of numbers to add.
+     * @return the amount of numbers that were actually added.
+     */
+    public int offer(int[] numbers, int offset, int length) {
+        long t = tail;
+        int free = (int) (buffer.length - (t - head.get()));
+        int amount = Math.min(free, length);
+        int index = (int) t & mask;
+        int first = Math.min(amount, buffer.length - index);
+        System.arraycopy(numbers, offset, buffer, index, first);
+        System.arraycopy(numbers, offset + first, buffer, 0, amount - first);
+        tail = t + amount;
+        return amount;
+    }
+
+    /**
+     * Takes exactly the given amount of numbers or none at all if not enough numbers are available.
+     *
+     * @param target, the array the numbers are copied to.
+     * @param offset, the position in the target of the first number.
+     * @param amount, the amount of numbers to take.
+     * @return true if the numbers were taken, false if less than the given amount were available.
+     */
+    public boolean drain(int[] target, int offset, int amount) {
+        while (true) {
+            long h = head.get();
+            if (tail - h < amount) {
+                return false;
+            }
+            int index = (int) h & mask;
+            int first = Math.min(amount, buffer.length - index);
+            System.arraycopy(buffer, index, target, offset, first);
+            System.arraycopy(buffer, 0, target, offset + first, amount - first);
+            // The producer can not have overwritten the copied numbers as long as the head did not move.
+            if (head.compareAndSet(h, h + amount)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package me.piepers.king.infrastructure;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A memory-mapped file of random numbers that were obtained but not yet used. Random numbers are bought against a daily
+ * quota, so the numbers that are left in the cache when the application stops are kept here instead of thrown away and
+ * the cache starts with them on the next boot without a call to the random service. The file can also be used to bank
+ * numbers that are bought while it is quiet for the busy hours.
+ * <p>
+ * The file starts with a header that holds the position up to which numbers have been written and the position up to
+ * which numbers have been consumed, followed by the numbers as packed ints. Numbers are only appended after the written
+ * position and only consumed from the consumed position, both positions only move forward and the data area is used
+ * as a circle. The positions are updated after the numbers have been copied so a number is never handed out twice,
+ * also not after a crash. Since the file is memory-mapped, a write survives the process; {@link #force()} also makes it
+ * survive the operating system.
+ * <p>
+ * The store is not thread-safe. It is meant to be used from the context of the verticle that owns the cache.
+ *
+ * @author Bas Piepers
+ */
+public final class RandomNumberStore implements AutoCloseable {
+    private static final int MAGIC = 0x524E4453;
+    private static final int VERSION = 1;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int WRITTEN_OFFSET = 16;
+    private static final int CONSUMED_OFFSET = 24;
+    private static final int HEADER_SIZE = 32;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final IntBuffer numbers;
+    private final int capacity;
+    private long written;
+    private long consumed;
+
+    private RandomNumberStore(FileChannel channel, MappedByteBuffer mapped, int capacity) {
+        this.channel = channel;
+        this.mapped = mapped;
+        this.capacity = capacity;
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        mapped.position(HEADER_SIZE);
+        this.numbers = mapped.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        mapped.position(0);
+    }
+
+    /**
+     * Opens the store in the given file or creates it if it does not exist. An existing file keeps the capacity it was
+     * created with.
+     *
+     * @param path,     the file.
+     * @param capacity, the maximum amount of numbers a new store can hold.
+     * @return the store.
+     * @throws IOException if the file can not be opened or is not a store of random numbers.
+     */
+    public static RandomNumberStore open(Path path, int capacity) throws IOException {
+        if (capacity < 1 || capacity > (Integer.MAX_VALUE - HEADER_SIZE) / Integer.BYTES) {
+            throw new IllegalArgumentException("The capacity of the store must be between 1 and " + (Integer.MAX_VALUE - HEADER_SIZE) / Integer.BYTES + ".");
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean created = channel.size() == 0;
+            if (!created && channel.size() < HEADER_SIZE) {
+                throw new IOException("The file " + path + " is not a store of random numbers.");
+            }
+            int size = created ? capacity : (int) ((channel.size() - HEADER_SIZE) / Integer.BYTES);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) size * Integer.BYTES);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (created) {
+                mapped.putInt(MAGIC_OFFSET, MAGIC);
+                mapped.putInt(VERSION_OFFSET, VERSION);
+                mapped.putLong(CAPACITY_OFFSET, size);
+                mapped.putLong(WRITTEN_OFFSET, 0L);
+                mapped.putLong(CONSUMED_OFFSET, 0L);
+            } else if (mapped.getInt(MAGIC_OFFSET) != MAGIC || mapped.getInt(VERSION_OFFSET) != VERSION
+                    || mapped.getLong(CAPACITY_OFFSET) != size) {
+                throw new IOException("The file " + path + " is not a store of random numbers.");
+            }
+            RandomNumberStore store = new RandomNumberStore(channel, mapped, size);
+            store.written = mapped.getLong(WRITTEN_OFFSET);
+            store.consumed = mapped.getLong(CONSUMED_OFFSET);
+            if (store.consumed < 0 || store.written < store.consumed || store.written - store.consumed > size) {
+                throw new IOException("The positions in " + path + " are corrupt.");
+            }
+            return store;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the maximum amount of numbers this store can hold.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the amount of numbers that are available.
+     */
+    public int size() {
+        return (int) (written - consumed);
+    }
+
+    /**
+     * @return the amount of numbers that can be added before the store is full.
+     */
+    public int remaining() {
+        return capacity - this.size();
+    }
+
+    /**
+     * Appends as many numbers of the given array as fit in the store.
+     *
+     * @param source, the source of the numbers.
+     * @param offset, the position of the first number in the source.
+     * @param length, the amount of numbers to add.
+     * @return the amount of numbers that were actually added.
+     */
+    public int append(int[] source, int offset, int length) {
+        int amount = Math.min(this.remaining(), length);
+        int index = (int) (written % capacity);
+        int first = Math.min(amount, capacity - index);
+        numbers.position(index);
+        numbers.put(source, offset, first);
+        numbers.position(0);
+        numbers.put(source, offset + first, amount - first);
+        this.written += amount;
+        mapped.putLong(WRITTEN_OFFSET, written);
+        return amount;
+    }
+
+    /**
+     * Consumes up to the given amount of numbers.
+     *
+     * @param target, the array the numbers are copied to.
+     * @param offset, the position in the target of the first number.
+     * @param amount, the maximum amount of numbers to take.
+     * @return the amount of numbers that were actually taken.
+     */
+    public int consume(int[] target, int offset, int amount) {
+        int taken = Math.min(this.size(), amount);
+        int index = (int) (consumed % capacity);
+        int first = Math.min(taken, capacity - index);
+        numbers.position(index);
+        numbers.get(target, offset, first);
+        numbers.position(0);
+        numbers.get(target, offset + first, taken - first);
+        this.consumed += taken;
+        mapped.putLong(CONSUMED_OFFSET, consumed);
+        return taken;
+    }
+
+    /**
+     * Writes the changes to the storage device. This blocks.
+     */
+    public void force() {
+        mapped.force();
+    }
+
+    /**
+     * Writes the changes to the storage device and closes the file.
+     *
+     * @throws IOException if the file can not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        this.force();
+        channel.close();
+    }
+}
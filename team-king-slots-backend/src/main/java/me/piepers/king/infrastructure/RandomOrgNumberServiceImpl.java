@@ -1,35 +1,72 @@
 package me.piepers.king.infrastructure;
 
+import io.reactivex.Single;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpVersion;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.reactivex.core.RxHelper;
+import io.vertx.reactivex.core.buffer.Buffer;
+import io.vertx.reactivex.ext.web.client.HttpResponse;
 import io.vertx.reactivex.ext.web.client.WebClient;
 import io.vertx.serviceproxy.ServiceException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An implementation of the random service that uses the random.org service to obtain real random numbers. Inspects
  * responses to verify if a next request might be problematic. Maintains this in the sharedData of Vertx to prevent
  * superfluous querying of the data.
+ * <p>
+ * All calls share one web client so that connections to random.org are kept alive and reused instead of paying for a
+ * new TCP and TLS handshake on every block. HTTP/2 is negotiated when the server supports it. A call that fails because
+ * of a connection problem, a time-out or a server error is retried a limited amount of times after a random delay that
+ * grows with every attempt. Blocks that are larger than random.org hands out in one call are requested with a batch of
+ * JSON-RPC calls in one round trip.
  *
  * @author Bas Piepers
  */
-// TODO: make unit-testable and write unit tests.
 public class RandomOrgNumberServiceImpl implements RandomNumberService {
     private static final Logger LOGGER = LoggerFactory.getLogger(RandomOrgNumberServiceImpl.class);
 
     private final static String BASE_URL = "/json-rpc/1/invoke";
+    private static final String DEFAULT_HOST = "api.random.org";
+    private static final Integer DEFAULT_PORT = 443;
+    private static final Boolean DEFAULT_SSL = true;
+    private static final Boolean DEFAULT_HTTP2 = true;
+    private static final Integer DEFAULT_MAX_POOL_SIZE = 4;
+    private static final Integer DEFAULT_CONNECT_TIMEOUT_MS = 5000;
+    private static final Long DEFAULT_REQUEST_TIMEOUT_MS = 10000L;
+    private static final Integer DEFAULT_IDLE_TIMEOUT_S = 60;
+    private static final Integer DEFAULT_MAX_RETRIES = 2;
+    private static final Long DEFAULT_RETRY_DELAY_MS = 200L;
+    // The maximum amount of numbers random.org generates in one call.
+    private static final Integer DEFAULT_MAX_NUMBERS_PER_CALL = 10000;
+
     private final String apiKey;
     private final io.vertx.reactivex.core.Vertx rxVertx;
+    private final WebClient webClient;
+    private final String host;
+    private final int port;
+    private final String path;
+    private final long requestTimeout;
+    private final int maxRetries;
+    private final long retryDelay;
+    private final int maxNumbersPerCall;
 
     public RandomOrgNumberServiceImpl(Vertx vertx, JsonObject configuration) throws Exception {
         this.rxVertx = new io.vertx.reactivex.core.Vertx(vertx);
@@ -44,34 +81,78 @@ public class RandomOrgNumberServiceImpl implements RandomNumberService {
                 .ofNullable(randomNrClientConfig.getString("api_key"))
                 .orElseThrow(() -> new Exception("This service requires an api_key configuration item to be present in the provided configuration object"));
 
+        this.host = Optional.ofNullable(randomNrClientConfig.getString("host")).orElse(DEFAULT_HOST);
+        this.port = Optional.ofNullable(randomNrClientConfig.getInteger("port")).orElse(DEFAULT_PORT);
+        this.path = Optional.ofNullable(randomNrClientConfig.getString("path")).orElse(BASE_URL);
+        this.requestTimeout = Optional.ofNullable(randomNrClientConfig.getLong("request_timeout_ms")).orElse(DEFAULT_REQUEST_TIMEOUT_MS);
+        this.maxRetries = Optional.ofNullable(randomNrClientConfig.getInteger("max_retries")).orElse(DEFAULT_MAX_RETRIES);
+        this.retryDelay = Optional.ofNullable(randomNrClientConfig.getLong("retry_delay_ms")).orElse(DEFAULT_RETRY_DELAY_MS);
+        this.maxNumbersPerCall = Optional.ofNullable(randomNrClientConfig.getInteger("max_numbers_per_call")).orElse(DEFAULT_MAX_NUMBERS_PER_CALL);
+
+        boolean ssl = Optional.ofNullable(randomNrClientConfig.getBoolean("ssl")).orElse(DEFAULT_SSL);
+        WebClientOptions options = new WebClientOptions();
+        options.setSsl(ssl);
+        options.setKeepAlive(true);
+        options.setMaxPoolSize(Optional.ofNullable(randomNrClientConfig.getInteger("max_pool_size")).orElse(DEFAULT_MAX_POOL_SIZE));
+        options.setConnectTimeout(Optional.ofNullable(randomNrClientConfig.getInteger("connect_timeout_ms")).orElse(DEFAULT_CONNECT_TIMEOUT_MS));
+        options.setIdleTimeout(Optional.ofNullable(randomNrClientConfig.getInteger("idle_timeout_s")).orElse(DEFAULT_IDLE_TIMEOUT_S));
+        options.setPipelining(Optional.ofNullable(randomNrClientConfig.getBoolean("pipelining")).orElse(false));
+        // HTTP/2 is negotiated during the TLS handshake and falls back to HTTP/1.1 if the server does not support it.
+        if (ssl && Optional.ofNullable(randomNrClientConfig.getBoolean("http2")).orElse(DEFAULT_HTTP2)) {
+            options.setProtocolVersion(HttpVersion.HTTP_2);
+            options.setUseAlpn(true);
+        }
+        this.webClient = WebClient.create(this.rxVertx, options);
     }
 
     @Override
     public void getRandomNumbers(Integer amount, Integer min, Integer max, Handler<AsyncResult<RandomNumberResponseDto>> resultHandler) {
         LOGGER.debug("Requesting {} of numbers with a lowest value of {} and a highest value of {}", amount, min, max);
-        JsonObject payLoad = new JsonObject();
-        payLoad.put("jsonRpc", "2.0");
-        WebClient webClient = WebClient.create(this.rxVertx);
-        webClient
-                .post(443, "api.random.org", BASE_URL)
-                .ssl(true)
-                .rxSendJsonObject(this.generatePostJsonObject(min, max, amount))
-                .doFinally(webClient::close)
-                .subscribe(response -> {
-                    if (response.statusCode() == 200) {
-                        LOGGER.debug("Retrieved valid response from random.org for {} items.", amount);
-                        RandomNumberResponseDto result = this.generateResultFromResponse(response.bodyAsJsonObject());
-                        LOGGER.debug("Generated result out of response: {}", result.toString());
-                        resultHandler.handle(Future.succeededFuture(result));
-                    } else {
+        // Larger amounts are split over several calls that are sent as one batch.
+        List<JsonObject> calls = new ArrayList<>();
+        for (int requested = 0; requested < amount; requested += maxNumbersPerCall) {
+            calls.add(this.generatePostJsonObject(min, max, Math.min(maxNumbersPerCall, amount - requested)));
+        }
+        Buffer payLoad = Buffer.buffer(calls.size() == 1 ? calls.get(0).encode() : new JsonArray(new ArrayList<>(calls)).encode());
+        this.send(payLoad, 0)
+                .map(response -> {
+                    if (response.statusCode() != 200) {
                         // TODO: code 402 or 403 codes indicate that not enough requests or bits are left to generate numbers.
                         LOGGER.error("Failure was retrieved while trying to get a response: {}|{}", response.statusCode(), response.statusMessage());
-                        resultHandler.handle(ServiceException.fail(response.statusCode(), response.statusMessage()));
+                        throw new ServiceException(response.statusCode(), response.statusMessage());
                     }
-
+                    LOGGER.debug("Retrieved valid response from random.org for {} items.", amount);
+                    return this.generateResultFromResponse(calls, response);
+                })
+                .subscribe(result -> {
+                    LOGGER.debug("Generated result out of response: {}", result.toString());
+                    resultHandler.handle(Future.succeededFuture(result));
                 }, throwable -> {
                     LOGGER.error("Failure while generating a response result({}).", throwable.getMessage());
-                    resultHandler.handle(Future.failedFuture(throwable));
+                    resultHandler.handle(throwable instanceof ServiceException ?
+                            Future.failedFuture(throwable) :
+                            ServiceException.fail(500, throwable.getMessage()));
+                });
+    }
+
+    private Single<HttpResponse<Buffer>> send(Buffer payLoad, int attempt) {
+        return this.webClient
+                .post(port, host, path)
+                .timeout(requestTimeout)
+                .putHeader("Content-Type", "application/json")
+                .rxSendBuffer(payLoad)
+                .flatMap(response -> response.statusCode() >= 500 || response.statusCode() == 429 ?
+                        Single.error(new ServiceException(response.statusCode(), response.statusMessage())) :
+                        Single.just(response))
+                .onErrorResumeNext(throwable -> {
+                    if (attempt >= maxRetries) {
+                        return Single.error(throwable);
+                    }
+                    // Full jitter: a random delay up to a limit that doubles with every attempt.
+                    long delay = ThreadLocalRandom.current().nextLong(retryDelay << attempt) + 1;
+                    LOGGER.warn("Call to random.org failed ({}). Retrying in {} ms.", throwable.getMessage(), delay);
+                    return Single.timer(delay, TimeUnit.MILLISECONDS, RxHelper.scheduler(rxVertx))
+                            .flatMap(tick -> this.send(payLoad, attempt + 1));
                 });
     }
 
@@ -89,20 +170,34 @@ public class RandomOrgNumberServiceImpl implements RandomNumberService {
         return payLoad;
     }
 
-    private RandomNumberResponseDto generateResultFromResponse(JsonObject jsonObject) {
-//        LOGGER.debug(jsonObject.encodePrettily());
-        JsonObject result = Optional.ofNullable(jsonObject.getJsonObject("result")).orElseThrow(this::unexpectedContentException);
-        JsonObject random = Optional.ofNullable(result.getJsonObject("random")).orElseThrow(this::unexpectedContentException);
-        JsonArray data = Optional.ofNullable(random.getJsonArray("data")).orElseThrow(this::unexpectedContentException);
-
-        // FIXME: since we know these are integers, can we do something to prevent having to cast?
-        List<Integer> numbers = data.stream().map(i -> (Integer) i).collect(Collectors.toList());
-        Integer bitsUsed = result.getInteger("bitsUsed");
-        Integer bitsLeft = result.getInteger("bitsLeft");
-        Integer requestsLeft = result.getInteger("requestsLeft");
-        String id = jsonObject.getString("id");
-
-        return new RandomNumberResponseDto(id, bitsUsed, bitsLeft, requestsLeft, numbers);
+    private RandomNumberResponseDto generateResultFromResponse(List<JsonObject> calls, HttpResponse<Buffer> response) {
+        List<RandomNumberResponseDto> results = RandomOrgResponseParser.parse(response.bodyAsBuffer().getDelegate().getBytes(),
+                calls.get(0).getJsonObject("params").getInteger("n"));
+        if (calls.size() == 1) {
+            return results.stream().findFirst().orElseThrow(this::unexpectedContentException);
+        }
+        // The responses of a batch may come in any order.
+        Map<String, RandomNumberResponseDto> responses = new HashMap<>();
+        for (RandomNumberResponseDto result : results) {
+            responses.put(result.getId(), result);
+        }
+        int[] numbers = new int[calls.stream().mapToInt(call -> call.getJsonObject("params").getInteger("n")).sum()];
+        int size = 0;
+        RandomNumberResponseDto last = null;
+        int bitsUsed = 0;
+        for (JsonObject call : calls) {
+            last = Optional.ofNullable(responses.get(call.getString("id"))).orElseThrow(this::unexpectedContentException);
+            int[] data = last.getData();
+            if (size + data.length > numbers.length) {
+                throw this.unexpectedContentException();
+            }
+            System.arraycopy(data, 0, numbers, size, data.length);
+            size += data.length;
+            bitsUsed += Optional.ofNullable(last.getBitsUsed()).orElse(0);
+        }
+        // The allowance that is left after the last call.
+        return new RandomNumberResponseDto(last.getId(), bitsUsed, last.getBitsLeft(), last.getRequestsLeft(),
+                size == numbers.length ? numbers : Arrays.copyOf(numbers, size));
     }
 
     private ServiceException unexpectedContentException() {
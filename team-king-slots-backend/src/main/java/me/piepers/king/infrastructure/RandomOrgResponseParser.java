@@ -0,0 +1,146 @@
+package me.piepers.king.infrastructure;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.vertx.serviceproxy.ServiceException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the responses of the JSON-RPC api of random.org without building a json tree. The numbers in the "data" array
+ * are written straight into an int array, so a large block does not create an object per number. Accepts a single
+ * response as well as the array of responses to a batch of calls. Fields that are not needed are skipped.
+ *
+ * @author Bas Piepers
+ */
+public final class RandomOrgResponseParser {
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private RandomOrgResponseParser() {
+    }
+
+    /**
+     * @param body,     the body of the response.
+     * @param sizeHint, the amount of numbers that is expected in one response.
+     * @return the responses in the order they appear in the body.
+     * @throws ServiceException with the code of the error if random.org responded with an error or code 500 if the
+     *                          content of the body is not what was expected.
+     */
+    public static List<RandomNumberResponseDto> parse(byte[] body, int sizeHint) {
+        List<RandomNumberResponseDto> responses = new ArrayList<>(1);
+        try (JsonParser parser = FACTORY.createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    responses.add(readResponse(parser, sizeHint));
+                }
+                if (parser.currentToken() != JsonToken.END_ARRAY) {
+                    throw unexpectedContent();
+                }
+            } else if (token == JsonToken.START_OBJECT) {
+                responses.add(readResponse(parser, sizeHint));
+            } else {
+                throw unexpectedContent();
+            }
+        } catch (IOException e) {
+            throw new ServiceException(500, "Unable to read the response: " + e.getMessage());
+        }
+        return responses;
+    }
+
+    private static RandomNumberResponseDto readResponse(JsonParser parser, int sizeHint) throws IOException {
+        String id = null;
+        Integer bitsUsed = null;
+        Integer bitsLeft = null;
+        Integer requestsLeft = null;
+        int[] data = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("id".equals(field)) {
+                id = parser.getValueAsString();
+            } else if ("error".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                throw readError(parser);
+            } else if ("result".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String resultField = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("random".equals(resultField)) {
+                        data = readRandom(parser, sizeHint);
+                    } else if ("bitsUsed".equals(resultField)) {
+                        bitsUsed = parser.getIntValue();
+                    } else if ("bitsLeft".equals(resultField)) {
+                        bitsLeft = parser.getIntValue();
+                    } else if ("requestsLeft".equals(resultField)) {
+                        requestsLeft = parser.getIntValue();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (data == null) {
+            throw unexpectedContent();
+        }
+        return new RandomNumberResponseDto(id, bitsUsed, bitsLeft, requestsLeft, data);
+    }
+
+    private static int[] readRandom(JsonParser parser, int sizeHint) throws IOException {
+        int[] data = null;
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw unexpectedContent();
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("data".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                data = readData(parser, sizeHint);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return data;
+    }
+
+    private static int[] readData(JsonParser parser, int sizeHint) throws IOException {
+        int[] data = new int[Math.max(sizeHint, 16)];
+        int size = 0;
+        while (parser.nextToken() == JsonToken.VALUE_NUMBER_INT) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = parser.getIntValue();
+        }
+        if (parser.currentToken() != JsonToken.END_ARRAY) {
+            throw unexpectedContent();
+        }
+        return size == data.length ? data : Arrays.copyOf(data, size);
+    }
+
+    private static ServiceException readError(JsonParser parser) throws IOException {
+        int code = 500;
+        String message = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("code".equals(field)) {
+                code = parser.getIntValue();
+            } else if ("message".equals(field)) {
+                message = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new ServiceException(code, message);
+    }
+
+    private static ServiceException unexpectedContent() {
+        return new ServiceException(500, "Unexpected content in the response.");
+    }
+}
@@ -0,0 +1,133 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+import me.piepers.king.domain.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * The {@link SlotService} of a node in a cluster. A request for a slot is handled by the node that owns the slot
+ * according to the {@link SlotRing}: by the service of this node if it is the owner, otherwise by the service of the
+ * owner via the event bus. Only the request and its result travel between nodes, the slot itself stays with its owner.
+ * A new slot is started on this node.
+ * <p>
+ * The service of every node is bound to its own address (see {@link #address(String)}). Requests that arrive on that
+ * address are never routed again, so nodes that briefly disagree about the ring can not send a request back and forth.
+ * <p>
+ * Spin and stop, the requests of every game, are not sent through the service proxy but on their own addresses (see
+ * {@link #bind()}) with the id of the slot as the body. The owner replies with the {@link Slot} or {@link SpinResult}
+ * itself so that it travels in the {@link me.piepers.king.domain.WireFormat} of the {@link DomainMessageCodec} instead
+ * of as json. A failure is replied as a {@link io.vertx.serviceproxy.ServiceException}, like the service proxy does.
+ *
+ * @author Bas Piepers
+ */
+public class RoutingSlotService implements SlotService {
+
+    private final Vertx vertx;
+    private final SlotRing ring;
+    private final SlotService local;
+    private final Map<String, SlotService> remotes = new ConcurrentHashMap<>();
+
+    public RoutingSlotService(Vertx vertx, SlotRing ring, SlotService local) {
+        this.vertx = vertx;
+        this.ring = ring;
+        this.local = local;
+    }
+
+    /**
+     * @param node, the id of a node.
+     * @return the event bus address of the slot service of the given node.
+     */
+    public static String address(String node) {
+        return SlotService.EVENT_BUS_ADDRESS + "." + node;
+    }
+
+    /**
+     * @param node, the id of a node.
+     * @return the address the given node spins its slots on, with the id of the slot as the body of the message.
+     */
+    public static String spinAddress(String node) {
+        return address(node) + ".spin";
+    }
+
+    /**
+     * @param node, the id of a node.
+     * @return the address the given node stops its slots on, with the id of the slot as the body of the message.
+     */
+    public static String stopAddress(String node) {
+        return address(node) + ".stop";
+    }
+
+    /**
+     * Answers the spins and stops that other nodes route to this node. Requires the local service to be bound to the
+     * {@link #address(String)} of this node as well, which registers the codec of the failures.
+     *
+     * @return this service, for chaining.
+     */
+    public RoutingSlotService bind() {
+        vertx.eventBus().<String>consumer(spinAddress(ring.getLocalNode()),
+                message -> local.spin(message.body(), result -> reply(message, result)));
+        vertx.eventBus().<String>consumer(stopAddress(ring.getLocalNode()),
+                message -> local.stop(message.body(), result -> reply(message, result)));
+        return this;
+    }
+
+    private SlotService serviceFor(String uuid) {
+        String owner = ring.ownerOf(uuid);
+        return ring.getLocalNode().equals(owner) ?
+                local :
+                remotes.computeIfAbsent(owner, node -> new SlotServiceVertxEBProxy(vertx, address(node)));
+    }
+
+    // Sends the request to the owner of the slot unless this node owns it.
+    private <T> void route(String uuid, Function<String, String> address, BiConsumer<String, Handler<AsyncResult<T>>> onLocal,
+                           Handler<AsyncResult<T>> resultHandler) {
+        String owner = ring.ownerOf(uuid);
+        if (ring.getLocalNode().equals(owner)) {
+            onLocal.accept(uuid, resultHandler);
+        } else {
+            vertx.eventBus().<T>send(address.apply(owner), uuid, reply -> resultHandler.handle(reply.map(Message::body)));
+        }
+    }
+
+    private static <T> void reply(Message<String> message, AsyncResult<T> result) {
+        message.reply(result.succeeded() ? result.result() : SlotServiceImpl.failure(result.cause()).cause());
+    }
+
+    @Override
+    public void start(Handler<AsyncResult<SlotId>> resultHandler) {
+        local.start(resultHandler);
+    }
+
+    @Override
+    public void quit(String uuid, Handler<AsyncResult<Void>> resultHandler) {
+        this.serviceFor(uuid).quit(uuid, resultHandler);
+    }
+
+    @Override
+    public void spin(String uuid, Handler<AsyncResult<Slot>> resultHandler) {
+        this.route(uuid, RoutingSlotService::spinAddress, local::spin, resultHandler);
+    }
+
+    @Override
+    public void stop(String uuid, Handler<AsyncResult<SpinResult>> resultHandler) {
+        this.route(uuid, RoutingSlotService::stopAddress, local::stop, resultHandler);
+    }
+
+    @Override
+    public void autoSpin(String uuid, int spins, Handler<AsyncResult<SpinBatch>> resultHandler) {
+        this.serviceFor(uuid).autoSpin(uuid, spins, resultHandler);
+    }
+
+    @Override
+    public void autoSpin(String uuid, int spins, Handler<JsonObject> spinHandler, Handler<AsyncResult<SpinBatch>> resultHandler) {
+        this.serviceFor(uuid).autoSpin(uuid, spins, spinHandler, resultHandler);
+    }
+}
@@ -0,0 +1,121 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import me.piepers.king.domain.Slot;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Routes the calls to a {@link SlotRepository} to one of several shards. Each shard is a repository with its own
+ * event bus address and is deployed on its own context (see SlotRepositoryVerticle) so that calls for the same
+ * {@link me.piepers.king.domain.SlotId} are always handled by the same shard, one at a time, while calls for different
+ * slots are spread over the available event loops.
+ * <p>
+ * The shard of a slot is determined by the hash of its id. With one shard, the repository is registered on the
+ * default event bus address of the {@link SlotRepository}.
+ * <p>
+ * With local binding, shards that are deployed in the same JVM are called directly (see {@link LocalServiceRegistry}
+ * and {@link ContextBoundSlotRepository}) and the event bus is only used for shards that are not registered locally.
+ *
+ * @author Bas Piepers
+ */
+public class ShardedSlotRepository implements SlotRepository {
+
+    private static final int DEFAULT_SHARDS = 1;
+
+    private final Vertx vertx;
+    private final SlotRepository[] shards;
+    // The shards that were found in the local registry, resolved on first use.
+    private final AtomicReferenceArray<SlotRepository> localShards;
+
+    public ShardedSlotRepository(Vertx vertx, int shards) {
+        this(vertx, shards, false);
+    }
+
+    public ShardedSlotRepository(Vertx vertx, int shards, boolean localBinding) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("A sharded repository needs at least one shard.");
+        }
+        this.vertx = vertx;
+        this.shards = new SlotRepository[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new SlotRepositoryVertxEBProxy(vertx, address(i, shards));
+        }
+        this.localShards = localBinding ? new AtomicReferenceArray<>(shards) : null;
+    }
+
+    /**
+     * @param configuration, the application configuration.
+     * @return the amount of shards that is configured for the slot repository.
+     */
+    public static int shards(JsonObject configuration) {
+        return Optional.ofNullable(configuration)
+                .map(config -> config.getJsonObject("slot_repository"))
+                .map(config -> config.getInteger("shards"))
+                .orElse(DEFAULT_SHARDS);
+    }
+
+    /**
+     * @param shard,  the index of the shard.
+     * @param shards, the total amount of shards.
+     * @return the event bus address of the given shard.
+     */
+    public static String address(int shard, int shards) {
+        return shards == 1 ? EVENT_BUS_ADDRESS : EVENT_BUS_ADDRESS + "." + shard;
+    }
+
+    /**
+     * @param uuid,   the id of a slot, may be null.
+     * @param shards, the total amount of shards.
+     * @return the index of the shard that owns the slot with the given id.
+     */
+    public static int shardOf(String uuid, int shards) {
+        return Objects.isNull(uuid) ? 0 : Math.floorMod(uuid.hashCode(), shards);
+    }
+
+    private SlotRepository shardFor(String uuid) {
+        int shard = shardOf(uuid, this.shards.length);
+        if (Objects.nonNull(this.localShards)) {
+            SlotRepository local = this.localShards.get(shard);
+            if (Objects.isNull(local)) {
+                local = LocalServiceRegistry
+                        .lookup(vertx, address(shard, this.shards.length), SlotRepository.class)
+                        .orElse(null);
+                this.localShards.set(shard, local);
+            }
+            if (Objects.nonNull(local)) {
+                return local;
+            }
+        }
+        return this.shards[shard];
+    }
+
+    private SlotRepository shardFor(Slot slot) {
+        return this.shardFor(Objects.nonNull(slot.getId()) ? slot.getId().getId() : null);
+    }
+
+    @Override
+    public void add(Slot slot, Handler<AsyncResult<Slot>> resultHandler) {
+        this.shardFor(slot).add(slot, resultHandler);
+    }
+
+    @Override
+    public void save(Slot slot, Handler<AsyncResult<Slot>> resultHandler) {
+        this.shardFor(slot).save(slot, resultHandler);
+    }
+
+    @Override
+    public void deleteById(String uuid, Handler<AsyncResult<Slot>> resultHandler) {
+        this.shardFor(uuid).deleteById(uuid, resultHandler);
+    }
+
+    @Override
+    public void findById(String uuid, Handler<AsyncResult<Slot>> resultHandler) {
+        this.shardFor(uuid).findById(uuid, resultHandler);
+    }
+}
@@ -0,0 +1,529 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.buffer.Buffer;
+import me.piepers.king.domain.Payline;
+import me.piepers.king.domain.Reel;
+import me.piepers.king.domain.ReelCell;
+import me.piepers.king.domain.Slot;
+import me.piepers.king.domain.SlotId;
+import me.piepers.king.domain.SlotStatus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of the changes to the slots of a repository, in two memory-mapped segment files, and a
+ * snapshot file with the state of all slots at the start of a segment.
+ * <p>
+ * A change is written as a record: the length of the payload, the payload and a CRC32 of the epoch of the segment and
+ * the payload. The payload is the type of the change, the id of the slot and the data of the change. A new slot is
+ * written completely as its json representation; a spin only as its status or as the drawn numbers with the bet and
+ * the win, all as variable length integers. A spin of a classic slot takes about 40 bytes.
+ * <p>
+ * Records are appended to the current segment. When it fills up, the journal switches to the other segment with the
+ * next epoch and a snapshot of all slots at that moment is written. The snapshot has the epoch of the new segment and
+ * replaces the records of the segments before it, so the old segment can be reused as soon as the snapshot is on disk.
+ * On boot, the snapshot is read and the records of the segments with the same or a later epoch are replayed in order.
+ * Replaying a segment stops at the first record that does not check out: one that was torn by a crash or that was left
+ * over from an earlier epoch.
+ * <p>
+ * Since the segments are memory-mapped, a record survives the process as soon as it is appended; {@link #force()} also
+ * makes it survive the operating system.
+ * <p>
+ * The segments and the snapshot start with the version of the format of the journal. Slots are stored as json and not
+ * in the {@link me.piepers.king.domain.WireFormat}, which may change between versions of the application: a field
+ * that is added to a slot does not change the format. A change to the format of the records increments the version,
+ * a journal of another version is not replayed but fails to open.
+ * <p>
+ * The journal is not thread-safe, except for {@link #force()} and {@link #writeSnapshot(Buffer)} which may run on a
+ * worker. It is meant to be used from the context of the verticle that owns the repository.
+ *
+ * @author Bas Piepers
+ */
+public final class SlotJournal implements AutoCloseable {
+    private static final int MAGIC = 0x534A524E;
+    private static final int SNAPSHOT_MAGIC = 0x53534E50;
+    private static final int VERSION = 2;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int EPOCH_OFFSET = 16;
+    private static final int HEADER_SIZE = 24;
+    // The length of the payload before it and the CRC after it.
+    private static final int FRAME_SIZE = 8;
+    // An epoch that was never used, for a segment that has not been written yet.
+    private static final long UNUSED = -1L;
+
+    private static final byte SLOT = 1;
+    private static final byte STATUS = 2;
+    private static final byte DRAW = 3;
+    private static final byte DELETED = 4;
+
+    private static final SlotStatus[] STATUSES = SlotStatus.values();
+
+    private final Path snapshotFile;
+    private final Segment[] segments;
+    private final CRC32 crc = new CRC32();
+    private Segment current;
+    // The segment before the current one can only be reused once the snapshot of the switch is on disk.
+    private volatile boolean previousCovered = true;
+
+    private SlotJournal(Path snapshotFile, Segment[] segments) {
+        this.snapshotFile = snapshotFile;
+        this.segments = segments;
+    }
+
+    /**
+     * Opens the journal with the given name in the given directory or creates it if it does not exist, and replays it.
+     * This blocks.
+     *
+     * @param directory,   the directory of the files of the journal.
+     * @param name,        the name of the journal, the files start with it.
+     * @param segmentSize, the size in bytes of a new segment. An existing segment keeps its size.
+     * @param slots,       the map the slots are restored in.
+     * @return the journal, ready to append to.
+     * @throws IOException if the files can not be opened or are not a slot journal.
+     */
+    public static SlotJournal open(Path directory, String name, int segmentSize, Map<SlotId, Slot> slots) throws IOException {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("A segment must be larger than " + HEADER_SIZE + " bytes.");
+        }
+        Files.createDirectories(directory);
+        Segment[] segments = new Segment[2];
+        try {
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = Segment.open(directory.resolve(name + "." + i + ".journal"), segmentSize, i == 0 ? 0L : UNUSED);
+            }
+            SlotJournal journal = new SlotJournal(directory.resolve(name + ".snapshot"), segments);
+            journal.replay(slots);
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            for (Segment segment : segments) {
+                if (Objects.nonNull(segment)) {
+                    segment.channel.close();
+                }
+            }
+            throw e;
+        }
+    }
+
+    private void replay(Map<SlotId, Slot> slots) throws IOException {
+        long epoch = this.readSnapshot(slots);
+        Segment first = segments[0].epoch <= segments[1].epoch ? segments[0] : segments[1];
+        Segment second = first == segments[0] ? segments[1] : segments[0];
+        for (Segment segment : new Segment[]{first, second}) {
+            if (segment.epoch >= epoch) {
+                segment.written = this.replay(segment, slots);
+            }
+        }
+        this.current = second.epoch >= epoch ? second : first;
+        if (current.epoch < epoch) {
+            // The snapshot covers everything that was written, start over in the next epoch.
+            current.reset(epoch);
+        }
+    }
+
+    // Applies the records of the segment in order and returns the position after the last valid record.
+    private int replay(Segment segment, Map<SlotId, Slot> slots) {
+        MappedByteBuffer mapped = segment.mapped;
+        int position = HEADER_SIZE;
+        while (position + FRAME_SIZE <= segment.capacity) {
+            int length = mapped.getInt(position);
+            if (length <= 0 || position + FRAME_SIZE + length > segment.capacity
+                    || this.checksum(segment.epoch, mapped, position + 4, length) != mapped.getInt(position + 4 + length)) {
+                break;
+            }
+            ByteBuffer record = mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            record.position(position + 4).limit(position + 4 + length);
+            this.apply(record, slots);
+            position += FRAME_SIZE + length;
+        }
+        return position;
+    }
+
+    private void apply(ByteBuffer record, Map<SlotId, Slot> slots) {
+        byte type = record.get();
+        if (type == SLOT) {
+            byte[] bytes = new byte[record.remaining()];
+            record.get(bytes);
+            Slot slot = new Slot(Buffer.buffer(bytes).toJsonObject());
+            slots.put(slot.getId(), slot);
+            return;
+        }
+        SlotId id = readId(record);
+        if (type == DELETED) {
+            slots.remove(id);
+            return;
+        }
+        Slot slot = slots.get(id);
+        if (Objects.isNull(slot)) {
+            return;
+        }
+        slot.setStatus(STATUSES[record.get()]);
+        if (type == DRAW) {
+            // The bet and the win are kept for the history, the state only needs the numbers.
+            readVarint(record);
+            readVarint(record);
+            int[] numbers = new int[(int) readVarint(record)];
+            for (int i = 0; i < numbers.length; i++) {
+                numbers[i] = (int) readVarint(record);
+            }
+            slot.getReel().assignNumbersToReels(numbers, 0).assignSymbols(slot.getReelConfig());
+        }
+    }
+
+    /**
+     * Appends a slot with all its state, for a new slot.
+     *
+     * @return false if the current segment is full.
+     */
+    public boolean appendSlot(Slot slot) {
+        byte[] bytes = slot.toJson().toBuffer().getBytes();
+        ByteBuffer record = this.begin(1 + bytes.length);
+        if (Objects.isNull(record)) {
+            return false;
+        }
+        record.put(SLOT).put(bytes);
+        return this.commit(record);
+    }
+
+    /**
+     * Appends the status of a slot, for example when it starts spinning.
+     *
+     * @return false if the current segment is full.
+     */
+    public boolean appendStatus(Slot slot) {
+        ByteBuffer record = this.begin(2 + idSize(slot.getId()));
+        if (Objects.isNull(record)) {
+            return false;
+        }
+        writeId(record.put(STATUS), slot.getId());
+        record.put((byte) slot.getStatus().ordinal());
+        return this.commit(record);
+    }
+
+    /**
+     * Appends the numbers that were drawn for a slot with the bet and the win of the spin.
+     *
+     * @return false if the current segment is full.
+     */
+    public boolean appendDraw(Slot slot, long win) {
+        Reel reel = slot.getReel();
+        long bet = 0;
+        for (Payline payline : reel.getPayLines()) {
+            bet += payline.isActive() ? payline.getBet() : 0;
+        }
+        List<List<ReelCell>> cells = reel.getCells();
+        int cellAmount = reel.getCellAmount();
+        // Every variable length integer takes at most 10 bytes.
+        ByteBuffer record = this.begin(2 + idSize(slot.getId()) + (3 + cellAmount) * 10);
+        if (Objects.isNull(record)) {
+            return false;
+        }
+        writeId(record.put(DRAW), slot.getId());
+        record.put((byte) slot.getStatus().ordinal());
+        writeVarint(record, bet);
+        writeVarint(record, win);
+        writeVarint(record, cellAmount);
+        for (int r = 0, rows = cells.size(); r < rows; r++) {
+            List<ReelCell> row = cells.get(r);
+            for (int c = 0, columns = row.size(); c < columns; c++) {
+                ReelCell cell = row.get(c);
+                writeVarint(record, Objects.nonNull(cell) ? cell.getValue() : 0);
+            }
+        }
+        return this.commit(record);
+    }
+
+    /**
+     * Appends the removal of a slot.
+     *
+     * @return false if the current segment is full.
+     */
+    public boolean appendDeleted(SlotId id) {
+        ByteBuffer record = this.begin(1 + idSize(id));
+        if (Objects.isNull(record)) {
+            return false;
+        }
+        writeId(record.put(DELETED), id);
+        return this.commit(record);
+    }
+
+    // A view on the free space of the current segment that fits the largest possible payload, or null if it is full.
+    private ByteBuffer begin(int maxLength) {
+        int position = current.written;
+        if (position + FRAME_SIZE + maxLength > current.capacity) {
+            return null;
+        }
+        ByteBuffer record = current.mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        record.position(position + 4);
+        return record;
+    }
+
+    // Writes the length and the CRC around the payload. The length goes last so a torn record is never valid.
+    private boolean commit(ByteBuffer record) {
+        int start = current.written;
+        int length = record.position() - start - 4;
+        current.mapped.putInt(start + 4 + length, this.checksum(current.epoch, current.mapped, start + 4, length));
+        current.mapped.putInt(start, length);
+        current.written = start + FRAME_SIZE + length;
+        return true;
+    }
+
+    private int checksum(long epoch, MappedByteBuffer mapped, int position, int length) {
+        crc.reset();
+        for (int shift = 0; shift < 64; shift += 8) {
+            crc.update((int) (epoch >>> shift));
+        }
+        ByteBuffer payload = mapped.duplicate();
+        payload.position(position).limit(position + length);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * @return the part of the current segment that is in use, between 0 and 1.
+     */
+    public double fill() {
+        return (double) (current.written - HEADER_SIZE) / (current.capacity - HEADER_SIZE);
+    }
+
+    /**
+     * @return true if the journal can switch to the other segment, which is the case when the snapshot of the previous
+     * switch is on disk.
+     */
+    public boolean canSwitch() {
+        return previousCovered;
+    }
+
+    /**
+     * Switches to the other segment and takes a snapshot of the given slots, which must be all slots that the journal
+     * keeps as they are at this moment. The snapshot must be written with {@link #writeSnapshot(Buffer)} before the
+     * journal can switch again.
+     *
+     * @param slots, all slots that the journal keeps.
+     * @return the snapshot.
+     */
+    public Buffer switchSegment(Collection<Slot> slots) {
+        if (!previousCovered) {
+            throw new IllegalStateException("The snapshot of the previous switch has not been written yet.");
+        }
+        long epoch = current.epoch + 1;
+        Buffer snapshot = Buffer.buffer()
+                .appendIntLE(SNAPSHOT_MAGIC)
+                .appendIntLE(VERSION)
+                .appendLongLE(epoch)
+                .appendIntLE(slots.size());
+        for (Slot slot : slots) {
+            int lengthPosition = snapshot.length();
+            snapshot.appendIntLE(0);
+            snapshot.appendBuffer(slot.toJson().toBuffer());
+            snapshot.setIntLE(lengthPosition, snapshot.length() - lengthPosition - 4);
+        }
+        CRC32 snapshotCrc = new CRC32();
+        snapshotCrc.update(snapshot.getBytes());
+        snapshot.appendIntLE((int) snapshotCrc.getValue());
+
+        this.current = current == segments[0] ? segments[1] : segments[0];
+        current.reset(epoch);
+        this.previousCovered = false;
+        return snapshot;
+    }
+
+    /**
+     * Writes a snapshot that was taken when switching segments to disk, replacing the previous one. This blocks.
+     *
+     * @param snapshot, the snapshot.
+     * @throws IOException if the snapshot can not be written.
+     */
+    public void writeSnapshot(Buffer snapshot) throws IOException {
+        Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = snapshot.getByteBuf().nioBuffer();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.previousCovered = true;
+    }
+
+    // Restores the slots of the snapshot and returns its epoch, 0 if there is none.
+    private long readSnapshot(Map<SlotId, Slot> slots) throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return 0L;
+        }
+        Buffer snapshot = Buffer.buffer(Files.readAllBytes(snapshotFile));
+        CRC32 snapshotCrc = new CRC32();
+        snapshotCrc.update(snapshot.getBytes(0, Math.max(0, snapshot.length() - 4)));
+        if (snapshot.length() < 24 || snapshot.getIntLE(0) != SNAPSHOT_MAGIC
+                || snapshot.getIntLE(snapshot.length() - 4) != (int) snapshotCrc.getValue()) {
+            throw new IOException("The file " + snapshotFile + " is not a valid snapshot of slots.");
+        }
+        checkVersion(snapshotFile, snapshot.getIntLE(4));
+        long epoch = snapshot.getLongLE(8);
+        int count = snapshot.getIntLE(16);
+        int position = 20;
+        for (int i = 0; i < count; i++) {
+            int length = snapshot.getIntLE(position);
+            Slot slot = new Slot(snapshot.slice(position + 4, position + 4 + length).toJsonObject());
+            slots.put(slot.getId(), slot);
+            position += 4 + length;
+        }
+        return epoch;
+    }
+
+    /**
+     * Writes the records to the storage device. This blocks.
+     */
+    public void force() {
+        for (Segment segment : segments) {
+            segment.mapped.force();
+        }
+    }
+
+    /**
+     * Writes the records to the storage device and closes the files.
+     *
+     * @throws IOException if a file can not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        this.force();
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+    }
+
+    private static void checkVersion(Path path, int version) throws IOException {
+        if (version != VERSION) {
+            throw new IOException("The file " + path + " was written in version " + version +
+                    " of the slot journal format, only version " + VERSION + " can be read.");
+        }
+    }
+
+    // Ids are written as the two halves of their UUID when they are one, otherwise as a string.
+    private static int idSize(SlotId id) {
+        return Objects.nonNull(asUuid(id.getId())) ? 17 : 3 + id.getId().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void writeId(ByteBuffer record, SlotId id) {
+        UUID uuid = asUuid(id.getId());
+        if (Objects.nonNull(uuid)) {
+            record.put((byte) 0).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        } else {
+            byte[] bytes = id.getId().getBytes(StandardCharsets.UTF_8);
+            record.put((byte) 1).putShort((short) bytes.length).put(bytes);
+        }
+    }
+
+    private static SlotId readId(ByteBuffer record) {
+        if (record.get() == 0) {
+            return SlotId.of(new UUID(record.getLong(), record.getLong()).toString());
+        }
+        byte[] bytes = new byte[record.getShort() & 0xFFFF];
+        record.get(bytes);
+        return SlotId.of(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private static UUID asUuid(String id) {
+        if (id.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            // Only when it reads back as the same string.
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void writeVarint(ByteBuffer record, long value) {
+        while ((value & ~0x7FL) != 0) {
+            record.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        record.put((byte) value);
+    }
+
+    private static long readVarint(ByteBuffer record) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = record.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private static final class Segment {
+        private final FileChannel channel;
+        private final MappedByteBuffer mapped;
+        private final int capacity;
+        private long epoch;
+        private int written = HEADER_SIZE;
+
+        private Segment(FileChannel channel, MappedByteBuffer mapped, int capacity, long epoch) {
+            this.channel = channel;
+            this.mapped = mapped;
+            this.capacity = capacity;
+            this.epoch = epoch;
+        }
+
+        private static Segment open(Path path, int size, long initialEpoch) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                boolean created = channel.size() == 0;
+                if (!created && (channel.size() <= HEADER_SIZE || channel.size() > Integer.MAX_VALUE)) {
+                    throw new IOException("The file " + path + " is not a segment of a slot journal.");
+                }
+                int capacity = created ? size : (int) channel.size();
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+                mapped.order(ByteOrder.LITTLE_ENDIAN);
+                if (created) {
+                    mapped.putInt(MAGIC_OFFSET, MAGIC);
+                    mapped.putInt(VERSION_OFFSET, VERSION);
+                    mapped.putLong(CAPACITY_OFFSET, capacity);
+                    mapped.putLong(EPOCH_OFFSET, initialEpoch);
+                } else if (mapped.getInt(MAGIC_OFFSET) != MAGIC) {
+                    throw new IOException("The file " + path + " is not a segment of a slot journal.");
+                } else {
+                    checkVersion(path, mapped.getInt(VERSION_OFFSET));
+                    if (mapped.getLong(CAPACITY_OFFSET) != capacity) {
+                        throw new IOException("The file " + path + " is not a segment of a slot journal.");
+                    }
+                }
+                return new Segment(channel, mapped, capacity, mapped.getLong(EPOCH_OFFSET));
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        // Records of an earlier epoch that are still in the segment no longer pass the check.
+        private void reset(long epoch) {
+            this.epoch = epoch;
+            this.written = HEADER_SIZE;
+            mapped.putLong(EPOCH_OFFSET, epoch);
+            mapped.putInt(HEADER_SIZE, 0);
+        }
+    }
+}
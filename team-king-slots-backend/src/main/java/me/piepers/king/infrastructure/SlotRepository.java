@@ -5,6 +5,7 @@ import io.vertx.codegen.annotations.VertxGen;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
 import me.piepers.king.domain.Slot;
 
 import java.util.List;
@@ -28,6 +29,48 @@ public interface SlotRepository {
         return new SlotRepositoryVertxEBProxy(vertx, EVENT_BUS_ADDRESS);
     }
 
+    /**
+     * Creates a proxy that routes the calls to the shard that owns the slot (see {@link ShardedSlotRepository}).
+     *
+     * @param vertx,  the vertx instance.
+     * @param shards, the amount of shards the repository is deployed with.
+     * @return a proxy to the (sharded) repository.
+     */
+    static SlotRepository createShardedProxy(Vertx vertx, int shards) {
+        return shards == 1 ? createProxy(vertx) : new ShardedSlotRepository(vertx, shards);
+    }
+
+    /**
+     * Creates a proxy that calls the shards that are deployed in this JVM directly and uses the event bus for the
+     * others (see {@link ShardedSlotRepository} and {@link LocalServiceRegistry}).
+     *
+     * @param vertx,  the vertx instance.
+     * @param shards, the amount of shards the repository is deployed with.
+     * @return a proxy to the (sharded) repository.
+     */
+    static SlotRepository createLocalProxy(Vertx vertx, int shards) {
+        return new ShardedSlotRepository(vertx, shards, true);
+    }
+
+    /**
+     * Creates the repository a slot service stores its slots in: the (sharded) repository of this node, called directly
+     * with local binding. In a cluster, slots that this node became the owner of are taken over from their previous
+     * owner (see {@link HandoffSlotRepository}).
+     *
+     * @param vertx,         the vertx instance.
+     * @param configuration, the application configuration.
+     * @return the repository.
+     */
+    static SlotRepository createForService(Vertx vertx, JsonObject configuration) {
+        int shards = ShardedSlotRepository.shards(configuration);
+        SlotRepository repository = LocalServiceRegistry.isEnabled(configuration) ?
+                createLocalProxy(vertx, shards) :
+                createShardedProxy(vertx, shards);
+        return LocalServiceRegistry.lookup(vertx, SlotRing.ADDRESS, SlotRing.class)
+                .<SlotRepository>map(ring -> new HandoffSlotRepository(vertx, ring, repository))
+                .orElse(repository);
+    }
+
     /**
      * Adds a new instance of a machine to the repository. Fails in case it already exists (based on the UUID).
      *
@@ -0,0 +1,181 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.json.JsonObject;
+import me.piepers.king.domain.SlotId;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A consistent hash ring of the nodes of a cluster that decides which node owns a slot. Every node is placed on the
+ * ring at a number of positions (virtual nodes) and a slot is owned by the node at the first position at or after the
+ * hash of its id. All requests for a slot are handled by its owner, so the state of a slot stays on one node.
+ * <p>
+ * When a node joins or leaves, only the slots between the positions of that node and the positions before them change
+ * owner. The ring remembers the arrangement before the last change so that the new owner of a slot can take it over
+ * from the previous owner (see {@link HandoffSlotRepository}). Until this node has {@link #joined()} the cluster, that
+ * is the arrangement of the other nodes: all slots this node owns were owned by one of them before it joined.
+ * <p>
+ * The ring is safe to use from any thread: a change replaces the arrangement as a whole.
+ *
+ * @author Bas Piepers
+ */
+public class SlotRing {
+    // The ring of a node is registered in the local service registry under this name.
+    public static final String ADDRESS = "slot.ring";
+    private static final Integer DEFAULT_VIRTUAL_NODES = 128;
+    // Ids are drawn until one is owned by this node; with many nodes that takes a few attempts.
+    private static final int MAX_ID_ATTEMPTS = 10000;
+
+    private final String localNode;
+    private final int virtualNodes;
+    private volatile Arrangement current;
+    private volatile Arrangement previous;
+    private volatile boolean joining = true;
+
+    public SlotRing(String localNode, int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("A node needs at least one position on the ring.");
+        }
+        this.localNode = localNode;
+        this.virtualNodes = virtualNodes;
+        this.current = new Arrangement(Collections.singleton(localNode), virtualNodes);
+        this.previous = current;
+    }
+
+    /**
+     * @param localNode,     the id of this node.
+     * @param configuration, the application configuration with the amount of "virtual_nodes" per node in "cluster".
+     * @return a ring that only contains this node.
+     */
+    public static SlotRing create(String localNode, JsonObject configuration) {
+        return new SlotRing(localNode, Optional.ofNullable(configuration.getJsonObject("cluster"))
+                .map(config -> config.getInteger("virtual_nodes"))
+                .orElse(DEFAULT_VIRTUAL_NODES));
+    }
+
+    public String getLocalNode() {
+        return localNode;
+    }
+
+    public Set<String> nodes() {
+        return current.nodes;
+    }
+
+    /**
+     * @param node, the id of the node that joined.
+     * @return true if the node was not on the ring yet.
+     */
+    public synchronized boolean add(String node) {
+        if (current.nodes.contains(node)) {
+            return false;
+        }
+        Set<String> nodes = new TreeSet<>(current.nodes);
+        nodes.add(node);
+        this.previous = joining ? this.withoutLocalNode(nodes) : current;
+        this.current = new Arrangement(nodes, virtualNodes);
+        return true;
+    }
+
+    /**
+     * @param node, the id of the node that left. This node never leaves its own ring.
+     * @return true if the node was on the ring.
+     */
+    public synchronized boolean remove(String node) {
+        if (localNode.equals(node) || !current.nodes.contains(node)) {
+            return false;
+        }
+        Set<String> nodes = new TreeSet<>(current.nodes);
+        nodes.remove(node);
+        this.previous = joining ? this.withoutLocalNode(current.nodes) : current;
+        this.current = new Arrangement(nodes, virtualNodes);
+        return true;
+    }
+
+    /**
+     * Marks the end of the discovery of the other nodes. From now on a node that is added joined after this node.
+     */
+    public void joined() {
+        this.joining = false;
+    }
+
+    private Arrangement withoutLocalNode(Set<String> nodes) {
+        Set<String> others = new TreeSet<>(nodes);
+        others.remove(localNode);
+        return new Arrangement(others, virtualNodes);
+    }
+
+    /**
+     * @param slotId, the id of a slot.
+     * @return the id of the node that owns the slot.
+     */
+    public String ownerOf(String slotId) {
+        return current.ownerOf(slotId);
+    }
+
+    public boolean isLocal(String slotId) {
+        return localNode.equals(this.ownerOf(slotId));
+    }
+
+    /**
+     * @param slotId, the id of a slot.
+     * @return the node that owned the slot before the last change of the ring, if that is another node.
+     */
+    public Optional<String> previousOwnerOf(String slotId) {
+        String owner = previous.ownerOf(slotId);
+        return owner.equals(current.ownerOf(slotId)) ? Optional.empty() : Optional.of(owner);
+    }
+
+    /**
+     * @return a new random slot id that is owned by this node.
+     */
+    public SlotId newLocalId() {
+        for (int attempt = 0; attempt < MAX_ID_ATTEMPTS; attempt++) {
+            SlotId id = SlotId.create();
+            if (this.isLocal(id.getId())) {
+                return id;
+            }
+        }
+        throw new IllegalStateException("Unable to find an id that is owned by node " + localNode + ".");
+    }
+
+    // A 64 bit FNV-1a hash with a final mix so that similar ids end up far apart on the ring.
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Arrangement {
+        private final Set<String> nodes;
+        private final NavigableMap<Long, String> positions = new TreeMap<>();
+
+        private Arrangement(Set<String> nodes, int virtualNodes) {
+            this.nodes = Collections.unmodifiableSet(new TreeSet<>(nodes));
+            for (String node : this.nodes) {
+                for (int i = 0; i < virtualNodes; i++) {
+                    positions.put(hash(node + "#" + i), node);
+                }
+            }
+        }
+
+        private String ownerOf(String slotId) {
+            Map.Entry<Long, String> entry = positions.ceilingEntry(hash(slotId));
+            return (entry == null ? positions.firstEntry() : entry).getValue();
+        }
+    }
+}
@@ -5,6 +5,7 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.serviceproxy.ServiceException;
 import me.piepers.king.domain.*;
@@ -12,7 +13,7 @@ import me.piepers.king.reactivex.infrastructure.SlotRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
+import java.util.Optional;
 
 /**
  * The service that responds to requests pertaining to slot machines.
@@ -21,18 +22,31 @@ import java.util.List;
  */
 public class SlotServiceImpl implements SlotService {
     private static final Logger LOGGER = LoggerFactory.getLogger(SlotServiceImpl.class);
+    private static final Integer DEFAULT_MAX_AUTO_SPINS = 10;
     private final SlotRepository repository;
     private final io.vertx.reactivex.core.Vertx rxVertx;
+    // Call co-located services directly instead of via the event bus.
+    private final boolean localBinding;
+    // The maximum amount of spins that can be played in one call.
+    private final int maxAutoSpins;
 
     public SlotServiceImpl(Vertx vertx) {
+        this(vertx, new JsonObject());
+    }
+
+    public SlotServiceImpl(Vertx vertx, JsonObject configuration) {
         this.rxVertx = new io.vertx.reactivex.core.Vertx(vertx);
-        this.repository = SlotRepository.createProxy(rxVertx);
+        this.localBinding = LocalServiceRegistry.isEnabled(configuration);
+        this.repository = SlotRepository.createForService(rxVertx, configuration);
+        this.maxAutoSpins = Optional.ofNullable(configuration.getJsonObject("slot_service"))
+                .map(config -> config.getInteger("max_auto_spins"))
+                .orElse(DEFAULT_MAX_AUTO_SPINS);
     }
 
     @Override
     public void start(Handler<AsyncResult<SlotId>> resultHandler) {
         // Instantiate a Slot
-        Slot slot = Slot.of(SlotType.CLASSIC, "John Doe");
+        Slot slot = Slot.of(newSlotId(rxVertx.getDelegate()), SlotType.CLASSIC, "John Doe");
         repository
                 // Store it
                 .rxAdd(slot)
@@ -71,29 +85,115 @@ public class SlotServiceImpl implements SlotService {
     public void stop(String uuid, Handler<AsyncResult<SpinResult>> resultHandler) {
         repository
                 .rxFindById(uuid)
-                .doOnSuccess(slot -> LOGGER.debug("Obtained slot from repo: {}", slot.toJson().encodePrettily()))
-                // We need some kind of status check here to prevent us from wasting random numbers.
-                .flatMap(slot -> slot.stop(this::getNumbersForReel))
+                .doOnSuccess(slot -> {
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Obtained slot from repo: {}", slot.toJson().encodePrettily());
+                    }
+                })
+                // Only draw numbers for a slot that is spinning so that no random numbers are wasted.
+                .flatMap(slot -> slot.getStatus() != SlotStatus.SPINNING ?
+                        Single.<SpinResult>error(new IllegalStateException("This slot machine is not spinning and can therefore not be stopped.")) :
+                        this.getNumbersFor(slot).map(numbers -> SpinResult.create(slot, slot.stop(numbers, 0))))
                 .doOnSuccess(spinResult -> {
-                    LOGGER.debug("Updating slot {}", spinResult.getSlot().toJson().encodePrettily());
-                    repository
-                            .rxSave(spinResult.getSlot())
-                            .subscribe();
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Updating slot {}", spinResult.getSlot().toJson().encodePrettily());
+                    }
                 })
+                // The result is only returned once the slot has been saved.
+                .flatMap(spinResult -> repository
+                        .rxSave(spinResult.getSlot())
+                        .doOnError(throwable -> LOGGER.error("Unable to save slot with id {}", uuid, throwable))
+                        .map(slot -> spinResult))
                 .subscribe(spinResult -> resultHandler.handle(Future.succeededFuture(spinResult)),
-                        throwable -> resultHandler.handle(ServiceException.fail(503, throwable.getMessage())));
+                        throwable -> resultHandler.handle(failure(throwable)));
+    }
+
+    @Override
+    public void autoSpin(String uuid, int spins, Handler<AsyncResult<SpinBatch>> resultHandler) {
+        this.autoSpin(uuid, spins, spin -> {
+        }, resultHandler);
+    }
+
+    @Override
+    public void autoSpin(String uuid, int spins, Handler<JsonObject> spinHandler, Handler<AsyncResult<SpinBatch>> resultHandler) {
+        if (spins < 1 || spins > maxAutoSpins) {
+            resultHandler.handle(ServiceException.fail(400, "The amount of spins must be between 1 and " + maxAutoSpins + "."));
+            return;
+        }
+        repository
+                .rxFindById(uuid)
+                // Only draw numbers for a slot that can be played so that no random numbers are wasted.
+                .flatMap(slot -> slot.getStatus() == SlotStatus.SPINNING ?
+                        Single.<SpinBatch>error(new IllegalStateException("The slot is already spinning.")) :
+                        // All numbers are drawn at once and the slot is saved once for all spins.
+                        this.getNumbers(spins * slot.getReel().getCellAmount())
+                                .flatMap(numbers -> {
+                                    SpinBatch spinBatch = slot.autoSpin(spins, numbers,
+                                            (batch, spin) -> spinHandler.handle(batch.spinToJson(spin)));
+                                    return repository.rxSave(slot).map(saved -> spinBatch);
+                                }))
+                .subscribe(spinBatch -> resultHandler.handle(Future.succeededFuture(spinBatch)),
+                        throwable -> resultHandler.handle(failure(throwable)));
     }
 
+    // In a cluster, a new slot gets an id that this node owns so that the requests for it are routed here.
+    static SlotId newSlotId(Vertx vertx) {
+        return LocalServiceRegistry.lookup(vertx, SlotRing.ADDRESS, SlotRing.class)
+                .map(SlotRing::newLocalId)
+                .orElseGet(SlotId::create);
+    }
+
+    // Keeps the code and the details of a service exception, for example when to retry after running out of numbers.
+    static <T> AsyncResult<T> failure(Throwable throwable) {
+        return throwable instanceof ServiceException ?
+                Future.failedFuture(throwable) :
+                ServiceException.fail(503, throwable.getMessage());
+    }
 
-    private Single<List<Integer>> getNumbersForReel(Slot slot) {
+    // Takes the numbers of one spin straight from the local cache if it has them right away.
+    private Single<int[]> getNumbersFor(Slot slot) {
+        int amount = slot.getReel().getCellAmount();
+        if (localBinding) {
+            Optional<RandomNumberCache> cache = LocalServiceRegistry
+                    .lookup(rxVertx.getDelegate(), RandomNumberCache.EVENT_BUS_ADDRESS, RandomNumberCache.class);
+            if (cache.isPresent()) {
+                int[] numbers = new int[amount];
+                if (cache.get().take(numbers, amount)) {
+                    return Single.just(numbers);
+                }
+            }
+        }
+        return this.getNumbers(amount);
+    }
+
+    private Single<int[]> getNumbers(int amount) {
+        if (localBinding) {
+            Optional<RandomNumberCache> cache = LocalServiceRegistry
+                    .lookup(rxVertx.getDelegate(), RandomNumberCache.EVENT_BUS_ADDRESS, RandomNumberCache.class);
+            if (cache.isPresent()) {
+                return Single.create(emitter -> cache.get().take(amount, result -> {
+                    if (result.succeeded()) {
+                        emitter.onSuccess(result.result());
+                    } else {
+                        emitter.onError(result.cause());
+                    }
+                }));
+            }
+        }
         return this.rxVertx
                 .eventBus()
-                .<JsonObject>rxSend("get.numbers", new JsonObject()
-                        .put("amount", slot.getReel().getCellAmount()))
-                .flatMap(message -> Single
-                        .just((List<Integer>)message
-                                .body()
-                                .getJsonArray("numbers")
-                                .getList()));
+                .<JsonObject>rxSend(RandomNumberCache.EVENT_BUS_ADDRESS, new JsonObject()
+                        .put("amount", amount))
+                .map(message -> toNumbers(message.body()));
+    }
+
+    // The numbers in the reply of the random number cache on the event bus.
+    static int[] toNumbers(JsonObject body) {
+        JsonArray jsonArray = body.getJsonArray("numbers");
+        int[] numbers = new int[jsonArray.size()];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = jsonArray.getInteger(i);
+        }
+        return numbers;
     }
 }
@@ -0,0 +1,162 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import me.piepers.king.domain.Slot;
+import me.piepers.king.domain.SlotId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Slots that were evicted from memory, in a file per slot in a directory. A file starts with a magic number and the
+ * version of the format, followed by the json representation of the slot. Like the {@link SlotJournal}, it does not
+ * use the {@link me.piepers.king.domain.WireFormat} so that spilled slots can still be read after the application was
+ * upgraded. A file of another version is not read.
+ * <p>
+ * The files are written, read and deleted on a worker, in the order in which they were asked for, and a written file
+ * is on disk before the write is done. Until then the slot is pending and handed out from memory.
+ * <p>
+ * The spill is not thread-safe and is meant to be used from the context of the verticle that owns the repository.
+ *
+ * @author Bas Piepers
+ */
+public class SlotSpill {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlotSpill.class);
+    private static final int MAGIC = 0x53535046;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final String EXTENSION = ".slot";
+
+    private final Vertx vertx;
+    private final Path directory;
+    // The slots that are being written.
+    private final Map<SlotId, Slot> pending = new HashMap<>();
+
+    /**
+     * Creates the directory if it does not exist. This blocks.
+     *
+     * @param vertx,     the vertx instance.
+     * @param directory, the directory of the files.
+     */
+    public SlotSpill(Vertx vertx, String directory) {
+        this.vertx = vertx;
+        this.directory = Paths.get(directory);
+        vertx.fileSystem().mkdirsBlocking(directory);
+    }
+
+    /**
+     * Writes the slot to its file. A slot that can not be written is lost.
+     *
+     * @param slot, the slot that was evicted.
+     */
+    public void write(Slot slot) {
+        SlotId id = slot.getId();
+        pending.put(id, slot);
+        Buffer bytes = encode(slot);
+        vertx.<Void>executeBlocking(future -> {
+            try {
+                Files.write(this.path(id), bytes.getBytes(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DSYNC);
+                future.complete();
+            } catch (IOException e) {
+                future.fail(e);
+            }
+        }, true, written -> {
+            // Unless it was deleted or written again in the meantime.
+            pending.remove(id, slot);
+            if (written.failed()) {
+                LOGGER.error("Unable to spill slot {}, it is lost.", id.getId(), written.cause());
+            }
+        });
+    }
+
+    /**
+     * Reads a slot. Fails if the slot was not spilled.
+     *
+     * @param id,            the id of the slot.
+     * @param resultHandler, the slot.
+     */
+    public void read(SlotId id, Handler<AsyncResult<Slot>> resultHandler) {
+        Slot slot = pending.get(id);
+        if (Objects.nonNull(slot)) {
+            resultHandler.handle(Future.succeededFuture(slot));
+            return;
+        }
+        vertx.<Slot>executeBlocking(future -> {
+            Path path = this.path(id);
+            try {
+                future.complete(decode(path, Buffer.buffer(Files.readAllBytes(path))));
+            } catch (NoSuchFileException e) {
+                future.fail(e);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Unable to read spilled slot {}.", id.getId(), e);
+                future.fail(e);
+            }
+        }, true, resultHandler);
+    }
+
+    /**
+     * Deletes the file of a slot if there is one.
+     *
+     * @param id, the id of the slot.
+     */
+    public void delete(SlotId id) {
+        pending.remove(id);
+        vertx.<Void>executeBlocking(future -> {
+            try {
+                Files.deleteIfExists(this.path(id));
+                future.complete();
+            } catch (IOException e) {
+                future.fail(e);
+            }
+        }, true, deleted -> {
+            if (deleted.failed()) {
+                LOGGER.error("Unable to delete spilled slot {}.", id.getId(), deleted.cause());
+            }
+        });
+    }
+
+    /**
+     * @return the slots that are being written.
+     */
+    public Collection<Slot> pending() {
+        return pending.values();
+    }
+
+    private Path path(SlotId id) {
+        return directory.resolve(id.getId() + EXTENSION);
+    }
+
+    private static Buffer encode(Slot slot) {
+        return Buffer.buffer()
+                .appendInt(MAGIC)
+                .appendInt(VERSION)
+                .appendBuffer(slot.toJson().toBuffer());
+    }
+
+    private static Slot decode(Path path, Buffer bytes) throws IOException {
+        if (bytes.length() < HEADER_SIZE || bytes.getInt(0) != MAGIC) {
+            throw new IOException("The file " + path + " is not a spilled slot.");
+        }
+        int version = bytes.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("The file " + path + " was written in version " + version +
+                    " of the spill format, only version " + VERSION + " can be read.");
+        }
+        return new Slot(bytes.slice(HEADER_SIZE, bytes.length()).toJsonObject());
+    }
+}
@@ -0,0 +1,237 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import me.piepers.king.domain.Slot;
+import me.piepers.king.domain.SlotId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The slots of a repository that are kept in memory.
+ * <p>
+ * With an "eviction" block in "slot_repository" the slots that were not used for "idle_ttl_ms" are evicted, so that
+ * abandoned sessions do not keep their slots forever. A {@link TimerWheel} with buckets of "tick_ms" keeps track of
+ * when slots become idle; a slot that was used since it was scheduled is scheduled again instead of evicted. At most
+ * "max_slots" slots are kept, the least recently used one is evicted when another one is added. Evicted slots are
+ * spilled to the "spill_directory" if there is one (see {@link SlotSpill}) and can be loaded from there. Without a
+ * spill directory they are gone. Without eviction all slots are kept.
+ * <p>
+ * The store is not thread-safe and is meant to be used from the context of the verticle that owns the repository.
+ *
+ * @author Bas Piepers
+ */
+public class SlotStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlotStore.class);
+    private static final Long DEFAULT_IDLE_TTL_MS = 1800000L;
+    private static final Long DEFAULT_TICK_MS = 1000L;
+    private static final Integer DEFAULT_WHEEL_SIZE = 512;
+    private static final Integer DEFAULT_MAX_SLOTS = 100000;
+
+    private final Vertx vertx;
+    private final Map<SlotId, StoredSlot> slots;
+    // Eviction, only set when it is configured.
+    private TimerWheel<StoredSlot> wheel;
+    private long idleTtl;
+    private long evictionTimer = -1L;
+    // Only set when evicted slots are spilled.
+    private SlotSpill spill;
+
+    public SlotStore(Vertx vertx, JsonObject configuration) {
+        this.vertx = vertx;
+        JsonObject eviction = Optional.ofNullable(configuration.getJsonObject("slot_repository"))
+                .map(config -> config.getJsonObject("eviction"))
+                .orElse(null);
+        if (Objects.isNull(eviction)) {
+            this.slots = new HashMap<>();
+            return;
+        }
+        int maxSlots = Optional.ofNullable(eviction.getInteger("max_slots")).orElse(DEFAULT_MAX_SLOTS);
+        long tick = Optional.ofNullable(eviction.getLong("tick_ms")).orElse(DEFAULT_TICK_MS);
+        this.idleTtl = Optional.ofNullable(eviction.getLong("idle_ttl_ms")).orElse(DEFAULT_IDLE_TTL_MS);
+        this.wheel = new TimerWheel<>(tick, Optional.ofNullable(eviction.getInteger("wheel_size")).orElse(DEFAULT_WHEEL_SIZE),
+                System.currentTimeMillis());
+        this.slots = new LinkedHashMap<SlotId, StoredSlot>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SlotId, StoredSlot> eldest) {
+                if (size() > maxSlots) {
+                    LOGGER.debug("Evicting slot {}, the maximum of {} slots is reached.", eldest.getKey().getId(), maxSlots);
+                    unschedule(eldest.getValue());
+                    spill(eldest.getValue().slot);
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.spill = Optional.ofNullable(eviction.getString("spill_directory"))
+                .map(directory -> new SlotSpill(vertx, directory))
+                .orElse(null);
+        this.evictionTimer = vertx.setPeriodic(tick, id -> this.evictIdleSlots());
+    }
+
+    /**
+     * @param id, the id of a slot.
+     * @return true if the slot is in memory, without counting as a use of it.
+     */
+    public boolean contains(SlotId id) {
+        return slots.containsKey(id);
+    }
+
+    /**
+     * @param id, the id of a slot.
+     * @return the slot if it is in memory, otherwise null.
+     */
+    public Slot get(SlotId id) {
+        StoredSlot stored = slots.get(id);
+        if (Objects.isNull(stored)) {
+            return null;
+        }
+        stored.use(stored.slot);
+        return stored.slot;
+    }
+
+    /**
+     * Keeps the slot in memory, replacing the slot with the same id.
+     *
+     * @param slot, the slot.
+     */
+    public void put(Slot slot) {
+        StoredSlot stored = slots.get(slot.getId());
+        if (Objects.nonNull(stored)) {
+            stored.use(slot);
+            return;
+        }
+        stored = new StoredSlot(slot);
+        slots.put(slot.getId(), stored);
+        if (Objects.nonNull(wheel)) {
+            stored.timeout = wheel.schedule(stored, stored.lastUsed + idleTtl);
+        }
+    }
+
+    /**
+     * Removes a slot from memory. A spilled version of it is left as it is.
+     *
+     * @param id, the id of the slot.
+     * @return the slot or null if it was not in memory.
+     */
+    public Slot remove(SlotId id) {
+        StoredSlot stored = slots.remove(id);
+        if (Objects.isNull(stored)) {
+            return null;
+        }
+        this.unschedule(stored);
+        return stored.slot;
+    }
+
+    /**
+     * Loads a spilled slot, without keeping it in memory.
+     *
+     * @param id,            the id of the slot.
+     * @param resultHandler, the slot, fails if it was not spilled.
+     */
+    public void load(SlotId id, Handler<AsyncResult<Slot>> resultHandler) {
+        if (Objects.isNull(spill)) {
+            resultHandler.handle(Future.failedFuture("Not found."));
+        } else {
+            spill.read(id, resultHandler);
+        }
+    }
+
+    /**
+     * Deletes the spilled version of a slot if there is one.
+     *
+     * @param id, the id of the slot.
+     */
+    public void deleteSpilled(SlotId id) {
+        if (Objects.nonNull(spill)) {
+            spill.delete(id);
+        }
+    }
+
+    /**
+     * @return the slots in memory and the slots that are being spilled, the latter are not on disk yet.
+     */
+    public Collection<Slot> unspilled() {
+        List<Slot> unspilled = new ArrayList<>(slots.size() + (Objects.nonNull(spill) ? spill.pending().size() : 0));
+        for (StoredSlot stored : slots.values()) {
+            unspilled.add(stored.slot);
+        }
+        if (Objects.nonNull(spill)) {
+            unspilled.addAll(spill.pending());
+        }
+        return unspilled;
+    }
+
+    /**
+     * @return the amount of slots in memory.
+     */
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * Stops evicting slots.
+     */
+    public void close() {
+        vertx.cancelTimer(evictionTimer);
+    }
+
+    // A slot that is removed is taken out of the wheel, so the wheel only holds slots that are stored.
+    private void unschedule(StoredSlot stored) {
+        if (Objects.nonNull(wheel)) {
+            wheel.cancel(stored.timeout);
+        }
+    }
+
+    // Only looks at the slots of which the time to live may have passed. Looking them up would make them the most
+    // recently used ones, so the slots that expire are taken as they are.
+    private void evictIdleSlots() {
+        long now = System.currentTimeMillis();
+        for (StoredSlot stored : wheel.advance(now)) {
+            if (stored.lastUsed + idleTtl <= now) {
+                LOGGER.debug("Evicting slot {}, it was not used for {} ms.", stored.slot.getId().getId(), now - stored.lastUsed);
+                slots.remove(stored.slot.getId());
+                this.spill(stored.slot);
+            } else {
+                stored.timeout = wheel.schedule(stored, stored.lastUsed + idleTtl);
+            }
+        }
+    }
+
+    private void spill(Slot slot) {
+        if (Objects.nonNull(spill)) {
+            spill.write(slot);
+        }
+    }
+
+    // A slot with the time it was last used and, with eviction, when it is looked at again.
+    private static final class StoredSlot {
+        private Slot slot;
+        private long lastUsed;
+        private TimerWheel.Timeout<StoredSlot> timeout;
+
+        private StoredSlot(Slot slot) {
+            this.slot = slot;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        private void use(Slot slot) {
+            this.slot = slot;
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+}
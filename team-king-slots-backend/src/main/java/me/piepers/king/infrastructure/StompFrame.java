@@ -0,0 +1,227 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A frame of the STOMP 1.2 protocol (https://stomp.github.io/stomp-specification-1.2.html): a command, headers and an
+ * optional body, terminated by a NUL byte. Header names and values are escaped as the specification prescribes, except
+ * in the CONNECT and CONNECTED frames. Only the part of the protocol that the slot push channel needs is supported; see
+ * {@link me.piepers.king.application.SlotStompBridge}.
+ *
+ * @author Bas Piepers
+ */
+public final class StompFrame {
+    public static final String CONNECT = "CONNECT";
+    public static final String STOMP = "STOMP";
+    public static final String CONNECTED = "CONNECTED";
+    public static final String SEND = "SEND";
+    public static final String SUBSCRIBE = "SUBSCRIBE";
+    public static final String UNSUBSCRIBE = "UNSUBSCRIBE";
+    public static final String DISCONNECT = "DISCONNECT";
+    public static final String MESSAGE = "MESSAGE";
+    public static final String RECEIPT = "RECEIPT";
+    public static final String ERROR = "ERROR";
+
+    private static final byte NUL = 0;
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private final String command;
+    private final Map<String, String> headers;
+    private final String body;
+
+    public StompFrame(String command, Map<String, String> headers, String body) {
+        this.command = command;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    public StompFrame(String command) {
+        this(command, new LinkedHashMap<>(), "");
+    }
+
+    /**
+     * Adds a header. A header that is already present keeps its first value, like the specification prescribes for
+     * repeated headers.
+     *
+     * @param name,  the name of the header.
+     * @param value, the value of the header.
+     * @return this frame, for chaining.
+     */
+    public StompFrame header(String name, String value) {
+        headers.putIfAbsent(name, value);
+        return this;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public String getHeader(String name) {
+        return headers.get(name);
+    }
+
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * Parses all frames in the given data. Heart beats (empty lines between frames) are skipped.
+     *
+     * @param data, one or more complete frames, for example the content of one web socket message.
+     * @return the frames.
+     * @throws IllegalArgumentException if the data is not a sequence of complete frames.
+     */
+    public static List<StompFrame> parse(Buffer data) {
+        List<StompFrame> frames = new ArrayList<>();
+        byte[] bytes = data.getBytes();
+        int position = 0;
+        while (position < bytes.length) {
+            if (bytes[position] == LF || bytes[position] == CR) {
+                position++;
+                continue;
+            }
+            int end = lineEnd(bytes, position);
+            String command = line(bytes, position, end);
+            position = end + 1;
+            boolean escaped = !CONNECT.equals(command) && !STOMP.equals(command) && !CONNECTED.equals(command);
+            Map<String, String> headers = new LinkedHashMap<>();
+            while (true) {
+                end = lineEnd(bytes, position);
+                String line = line(bytes, position, end);
+                position = end + 1;
+                if (line.isEmpty()) {
+                    break;
+                }
+                int colon = line.indexOf(':');
+                if (colon < 1) {
+                    throw new IllegalArgumentException("Invalid header: " + line);
+                }
+                String name = escaped ? unescape(line.substring(0, colon)) : line.substring(0, colon);
+                String value = escaped ? unescape(line.substring(colon + 1)) : line.substring(colon + 1);
+                headers.putIfAbsent(name, value);
+            }
+            int bodyEnd;
+            String contentLength = headers.get("content-length");
+            if (contentLength != null) {
+                int length = Integer.parseInt(contentLength);
+                // Compared before adding so that a huge length can not overflow the position of the end of the body.
+                if (length < 0 || length >= bytes.length - position || bytes[position + length] != NUL) {
+                    throw new IllegalArgumentException("The body does not match the content-length.");
+                }
+                bodyEnd = position + length;
+            } else {
+                bodyEnd = position;
+                while (bodyEnd < bytes.length && bytes[bodyEnd] != NUL) {
+                    bodyEnd++;
+                }
+                if (bodyEnd == bytes.length) {
+                    throw new IllegalArgumentException("The frame is not terminated.");
+                }
+            }
+            frames.add(new StompFrame(command, headers, new String(bytes, position, bodyEnd - position, StandardCharsets.UTF_8)));
+            position = bodyEnd + 1;
+        }
+        return frames;
+    }
+
+    /**
+     * @return the frame as it is sent, including the content-length of the body and the terminating NUL.
+     */
+    public String encode() {
+        StringBuilder builder = new StringBuilder(64 + body.length()).append(command).append('\n');
+        boolean escaped = !CONNECTED.equals(command);
+        headers.forEach((name, value) -> builder
+                .append(escaped ? escape(name) : name)
+                .append(':')
+                .append(escaped ? escape(value) : value)
+                .append('\n'));
+        if (!body.isEmpty() && !headers.containsKey("content-length")) {
+            builder.append("content-length:").append(body.getBytes(StandardCharsets.UTF_8).length).append('\n');
+        }
+        return builder.append('\n').append(body).append('\0').toString();
+    }
+
+    private static int lineEnd(byte[] bytes, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == LF) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("The frame is not terminated.");
+    }
+
+    private static String line(byte[] bytes, int from, int end) {
+        int length = end - from;
+        if (length > 0 && bytes[end - 1] == CR) {
+            length--;
+        }
+        return new String(bytes, from, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param value, a header name or value.
+     * @return the value with the characters that have a meaning in a frame escaped.
+     */
+    public static String escape(String value) {
+        StringBuilder builder = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = c == '\\' ? "\\\\" : c == '\n' ? "\\n" : c == '\r' ? "\\r" : c == ':' ? "\\c" : null;
+            if (replacement != null && builder == null) {
+                builder = new StringBuilder(value.length() + 8).append(value, 0, i);
+            }
+            if (builder != null) {
+                if (replacement != null) {
+                    builder.append(replacement);
+                } else {
+                    builder.append(c);
+                }
+            }
+        }
+        return builder == null ? value : builder.toString();
+    }
+
+    static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+            char next = ++i < value.length() ? value.charAt(i) : ' ';
+            switch (next) {
+                case '\\':
+                    builder.append('\\');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 'c':
+                    builder.append(':');
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid escape sequence in header: " + value);
+            }
+        }
+        return builder.toString();
+    }
+}
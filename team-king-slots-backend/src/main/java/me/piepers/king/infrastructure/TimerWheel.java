@@ -0,0 +1,121 @@
+package me.piepers.king.infrastructure;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A hashed timer wheel: a ring of buckets that each cover one tick. An element is put in the bucket of the tick its
+ * deadline falls in, so advancing the wheel only looks at the buckets of the ticks that passed instead of at all
+ * elements. A deadline that is further away than one turn of the wheel stays in its bucket until the turn it falls in.
+ * An element that is no longer needed is cancelled so the wheel does not hold on to it until its deadline.
+ * <p>
+ * The wheel is not thread safe.
+ *
+ * @param <E> the type of the elements that are scheduled.
+ * @author Bas Piepers
+ */
+public final class TimerWheel<E> {
+    private final long tick;
+    private final List<ArrayDeque<Timeout<E>>> buckets;
+    // The first tick that has not been advanced past yet.
+    private long current;
+    private int size;
+
+    /**
+     * @param tick,   the time one bucket covers.
+     * @param length, the amount of buckets.
+     * @param now,    the current time.
+     */
+    public TimerWheel(long tick, int length, long now) {
+        if (tick < 1 || length < 1) {
+            throw new IllegalArgumentException("Expect a tick of at least 1 and at least one bucket.");
+        }
+        this.tick = tick;
+        this.buckets = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            buckets.add(new ArrayDeque<>());
+        }
+        this.current = now / tick;
+    }
+
+    /**
+     * Schedules the element. A deadline that already passed expires with the next advance.
+     *
+     * @param element,  the element.
+     * @param deadline, the time at which the element expires.
+     * @return the timeout of the element, to cancel it with.
+     */
+    public Timeout<E> schedule(E element, long deadline) {
+        long at = Math.max(deadline / tick, current);
+        Timeout<E> timeout = new Timeout<>(element, deadline, (int) (at % buckets.size()));
+        buckets.get(timeout.bucket).add(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Removes an element before it expires. Only the elements in the bucket of the element are looked at.
+     *
+     * @param timeout, the timeout of the element.
+     * @return false if the element already expired or was cancelled.
+     */
+    public boolean cancel(Timeout<E> timeout) {
+        if (buckets.get(timeout.bucket).remove(timeout)) {
+            size--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Advances the wheel to the given time.
+     *
+     * @param now, the current time.
+     * @return the elements of which the deadline passed, in the order of their ticks.
+     */
+    public List<E> advance(long now) {
+        List<E> expired = new ArrayList<>();
+        long last = now / tick;
+        // After a full turn every bucket was looked at.
+        long end = Math.min(last, current + buckets.size() - 1);
+        for (long at = current; at <= end; at++) {
+            Iterator<Timeout<E>> timeouts = buckets.get((int) (at % buckets.size())).iterator();
+            while (timeouts.hasNext()) {
+                Timeout<E> timeout = timeouts.next();
+                if (timeout.deadline <= now) {
+                    expired.add(timeout.element);
+                    timeouts.remove();
+                    size--;
+                }
+            }
+        }
+        this.current = Math.max(current, last);
+        return expired;
+    }
+
+    /**
+     * @return the amount of elements that are scheduled.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * A scheduled element.
+     *
+     * @param <E> the type of the element.
+     */
+    public static final class Timeout<E> {
+        private final E element;
+        private final long deadline;
+        private final int bucket;
+
+        private Timeout(E element, long deadline, int bucket) {
+            this.element = element;
+            this.deadline = deadline;
+            this.bucket = bucket;
+        }
+    }
+}
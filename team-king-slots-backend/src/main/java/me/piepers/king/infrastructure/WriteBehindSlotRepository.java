@@ -0,0 +1,245 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.serviceproxy.ServiceException;
+import me.piepers.king.domain.Slot;
+import me.piepers.king.domain.SlotId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Keeps the slots that are played in memory in front of a backing {@link SlotRepository} and writes saved slots behind:
+ * a save only marks the slot as dirty and is answered right away. Once per "flush_interval_ms" the dirty slots are
+ * written to the backing repository in batches of at most "batch_size" saves at a time. A slot that is saved several
+ * times in an interval, like every spin and stop of a player, is written once.
+ * <p>
+ * Adding and deleting a slot are written through, so a slot that was quit is gone from the backing repository when
+ * the call is answered and a pending write of it is dropped. {@link #close(Handler)} writes what is still dirty. At
+ * most "max_cached" slots that are not dirty are kept, the least recently used ones are dropped first.
+ * <p>
+ * A slot that could not be written stays dirty and is written again with the next flush. Until then the backing
+ * repository has an older version of it, which is lost when the process stops without closing the repository.
+ * Therefore it is not meant to be put in front of the {@link JournalSlotRepository}, which commits saves in groups
+ * itself and only answers them once they are in the journal.
+ * <p>
+ * Like the {@link InMemorySlotRepository}, the repository must only be used from the context it was created on.
+ *
+ * @author Bas Piepers
+ */
+public class WriteBehindSlotRepository implements SlotRepository {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindSlotRepository.class);
+    private static final Long DEFAULT_FLUSH_INTERVAL_MS = 1000L;
+    private static final Integer DEFAULT_BATCH_SIZE = 256;
+    private static final Integer DEFAULT_MAX_CACHED = 100000;
+
+    private final Vertx vertx;
+    private final SlotRepository delegate;
+    private final int batchSize;
+    private final Map<SlotId, Slot> cache;
+    // The slots that were saved since they were last written, in the order they were first saved.
+    private final Set<SlotId> dirty = new LinkedHashSet<>();
+    private final long flushTimer;
+    private boolean flushing;
+    // The callers that wait for a flush that starts after the current one.
+    private List<Handler<AsyncResult<Void>>> waiting = new ArrayList<>();
+
+    public WriteBehindSlotRepository(Vertx vertx, SlotRepository delegate, long flushInterval, int batchSize, int maxCached) {
+        this.vertx = vertx;
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+        this.cache = new LinkedHashMap<SlotId, Slot>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SlotId, Slot> eldest) {
+                // Dirty slots stay until they are written.
+                return size() > maxCached && !dirty.contains(eldest.getKey());
+            }
+        };
+        this.flushTimer = vertx.setPeriodic(flushInterval, id -> this.flush(null));
+    }
+
+    /**
+     * Puts a write-behind cache in front of the given repository if the configuration has a "write_behind" block in
+     * "slot_repository".
+     *
+     * @param vertx,         the vertx instance.
+     * @param configuration, the application configuration.
+     * @param delegate,      the repository the slots are written to.
+     * @return the write-behind repository if it is configured.
+     */
+    public static Optional<WriteBehindSlotRepository> create(Vertx vertx, JsonObject configuration, SlotRepository delegate) {
+        return Optional.ofNullable(configuration.getJsonObject("slot_repository"))
+                .map(config -> config.getJsonObject("write_behind"))
+                .map(config -> new WriteBehindSlotRepository(vertx, delegate,
+                        Optional.ofNullable(config.getLong("flush_interval_ms")).orElse(DEFAULT_FLUSH_INTERVAL_MS),
+                        Optional.ofNullable(config.getInteger("batch_size")).orElse(DEFAULT_BATCH_SIZE),
+                        Optional.ofNullable(config.getInteger("max_cached")).orElse(DEFAULT_MAX_CACHED)));
+    }
+
+    @Override
+    public void add(Slot slot, Handler<AsyncResult<Slot>> resultHandler) {
+        if (Objects.nonNull(slot.getId()) && cache.containsKey(slot.getId())) {
+            resultHandler.handle(ServiceException.fail(503, "Unable to create slot because the given id already exists."));
+            return;
+        }
+        delegate.add(slot, result -> {
+            if (result.succeeded()) {
+                cache.put(slot.getId(), result.result());
+            }
+            resultHandler.handle(result);
+        });
+    }
+
+    @Override
+    public void save(Slot slot, Handler<AsyncResult<Slot>> resultHandler) {
+        if (Objects.isNull(slot.getId())) {
+            resultHandler.handle(ServiceException.fail(503, "Unable to save slot due to missing id."));
+            return;
+        }
+        dirty.add(slot.getId());
+        cache.put(slot.getId(), slot);
+        resultHandler.handle(Future.succeededFuture(slot));
+    }
+
+    @Override
+    public void deleteById(String uuid, Handler<AsyncResult<Slot>> resultHandler) {
+        if (Objects.isNull(uuid)) {
+            resultHandler.handle(ServiceException.fail(503, "Unable to delete slot due to missing slot id"));
+            return;
+        }
+        SlotId id = SlotId.of(uuid);
+        Slot cached = cache.remove(id);
+        boolean unwritten = dirty.remove(id);
+        delegate.deleteById(uuid, result -> {
+            if (result.failed() && unwritten && isNotFound(result.cause())) {
+                // The slot was never written, it only existed here.
+                resultHandler.handle(Future.succeededFuture(cached));
+            } else {
+                resultHandler.handle(result);
+            }
+        });
+    }
+
+    @Override
+    public void findById(String uuid, Handler<AsyncResult<Slot>> resultHandler) {
+        if (Objects.isNull(uuid)) {
+            resultHandler.handle(ServiceException.fail(503, "Unable to find a slot due to missing id."));
+            return;
+        }
+        SlotId id = SlotId.of(uuid);
+        Slot slot = cache.get(id);
+        if (Objects.nonNull(slot)) {
+            resultHandler.handle(Future.succeededFuture(slot));
+        } else {
+            delegate.findById(uuid, result -> {
+                if (result.succeeded()) {
+                    cache.putIfAbsent(id, result.result());
+                }
+                resultHandler.handle(result.map(found -> cache.getOrDefault(id, found)));
+            });
+        }
+    }
+
+    /**
+     * @return the amount of slots that were saved but not yet written to the backing repository.
+     */
+    public int dirtySlots() {
+        return dirty.size();
+    }
+
+    /**
+     * Stops flushing periodically and writes the slots that are still dirty.
+     *
+     * @param resultHandler, called when the slots are written, fails if any of them could not be written.
+     */
+    public void close(Handler<AsyncResult<Void>> resultHandler) {
+        vertx.cancelTimer(flushTimer);
+        this.flush(resultHandler);
+    }
+
+    /**
+     * Writes the slots that are dirty now to the backing repository. A flush that is asked for while another one runs
+     * starts when that one is done.
+     *
+     * @param resultHandler, called when the slots are written, may be null.
+     */
+    public void flush(Handler<AsyncResult<Void>> resultHandler) {
+        if (Objects.nonNull(resultHandler)) {
+            waiting.add(resultHandler);
+        }
+        if (flushing) {
+            return;
+        }
+        List<Handler<AsyncResult<Void>>> handlers = waiting;
+        this.waiting = new ArrayList<>();
+        if (dirty.isEmpty()) {
+            handlers.forEach(handler -> handler.handle(Future.succeededFuture()));
+            return;
+        }
+        List<SlotId> ids = new ArrayList<>(dirty);
+        dirty.clear();
+        this.flushing = true;
+        LOGGER.debug("Writing {} slot(s) to the backing repository.", ids.size());
+        this.write(ids, 0, 0, failed -> {
+            this.flushing = false;
+            AsyncResult<Void> result = failed == 0 ?
+                    Future.succeededFuture() :
+                    ServiceException.fail(503, "Unable to write " + failed + " slot(s), they are written again with the next flush.");
+            handlers.forEach(handler -> handler.handle(result));
+            if (!waiting.isEmpty()) {
+                this.flush(null);
+            }
+        });
+    }
+
+    private static boolean isNotFound(Throwable throwable) {
+        return throwable instanceof ServiceException && ((ServiceException) throwable).failureCode() == 404;
+    }
+
+    // Writes the batch that starts at the given position and then the next one. Hands back the amount that failed.
+    private void write(List<SlotId> ids, int from, int failed, Handler<Integer> doneHandler) {
+        if (from >= ids.size()) {
+            doneHandler.handle(failed);
+            return;
+        }
+        List<SlotId> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+        int[] pending = {batch.size()};
+        int[] failures = {failed};
+        for (SlotId id : batch) {
+            Slot slot = cache.get(id);
+            Handler<AsyncResult<Slot>> written = result -> {
+                if (result.failed()) {
+                    LOGGER.error("Unable to write slot {}, writing it again with the next flush.", id.getId(), result.cause());
+                    failures[0]++;
+                    // Unless it was deleted in the meantime.
+                    if (cache.containsKey(id)) {
+                        dirty.add(id);
+                    }
+                }
+                if (--pending[0] == 0) {
+                    this.write(ids, from + batch.size(), failures[0], doneHandler);
+                }
+            };
+            if (Objects.isNull(slot)) {
+                // Deleted after it was saved.
+                written.handle(Future.succeededFuture());
+            } else {
+                delegate.save(slot, written);
+            }
+        }
+    }
+}
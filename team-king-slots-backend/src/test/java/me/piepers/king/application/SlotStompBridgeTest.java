@@ -0,0 +1,143 @@
+package me.piepers.king.application;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.WebSocket;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.Checkpoint;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.serviceproxy.ServiceBinder;
+import me.piepers.king.infrastructure.RandomNumberCache;
+import me.piepers.king.infrastructure.SlotRepository;
+import me.piepers.king.infrastructure.StompFrame;
+import me.piepers.king.reactivex.domain.SlotService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(VertxExtension.class)
+public class SlotStompBridgeTest {
+    private Vertx vertx;
+    private SlotService slotService;
+    private int port;
+    private String slotId;
+
+    @BeforeEach
+    public void prepare() throws Exception {
+        this.vertx = Vertx.vertx();
+        new ServiceBinder(vertx)
+                .setAddress(SlotRepository.EVENT_BUS_ADDRESS)
+                .register(SlotRepository.class, SlotRepository.create(vertx));
+        vertx.eventBus().<JsonObject>consumer(RandomNumberCache.EVENT_BUS_ADDRESS, message -> message.reply(new JsonObject()
+                .put("numbers", new JsonArray(IntStream.range(0, message.body().getInteger("amount")).boxed().collect(Collectors.toList())))));
+        this.slotService = SlotService.newInstance(me.piepers.king.domain.SlotService.create(vertx));
+
+        CompletableFuture<HttpServer> server = new CompletableFuture<>();
+        vertx.runOnContext(v -> vertx.createHttpServer()
+                .websocketHandler(new SlotStompBridge(vertx, slotService, SlotStompBridge.DEFAULT_PATH))
+                .listen(0, result -> server.complete(result.result())));
+        this.port = server.get(5, TimeUnit.SECONDS).actualPort();
+        this.slotId = slotService.rxStart().blockingGet().getId();
+    }
+
+    @AfterEach
+    public void finish() {
+        vertx.close();
+    }
+
+    // Connects a client that hands every frame it receives to the given handler.
+    private void connect(Handler<StompFrame> frameHandler, Handler<WebSocket> connectHandler) {
+        vertx.createHttpClient().websocket(port, "localhost", SlotStompBridge.DEFAULT_PATH, webSocket -> {
+            webSocket.textMessageHandler(text -> StompFrame.parse(Buffer.buffer(text)).forEach(frameHandler::handle));
+            webSocket.writeTextMessage(new StompFrame(StompFrame.CONNECT).header("accept-version", "1.2").encode());
+            connectHandler.handle(webSocket);
+        });
+    }
+
+    private String subscribe(String id, String receipt) {
+        return new StompFrame(StompFrame.SUBSCRIBE)
+                .header("id", id)
+                .header("destination", "/topic/slot/" + slotId)
+                .header("receipt", receipt)
+                .encode();
+    }
+
+    private String send(String command) {
+        return new StompFrame(StompFrame.SEND).header("destination", "/app/slot/" + slotId + "/" + command).encode();
+    }
+
+    @Test
+    public void test_that_the_results_of_a_player_are_pushed_to_every_subscriber(VertxTestContext context) {
+        Checkpoint spectatorCheckpoint = context.checkpoint();
+        List<StompFrame> spectatorFrames = new ArrayList<>();
+        this.connect(frame -> {
+            spectatorFrames.add(frame);
+            if (StompFrame.RECEIPT.equals(frame.getCommand())) {
+                // The spectator follows the slot, now the player starts playing.
+                this.connect(playerFrame -> {
+                }, player -> player
+                        .writeTextMessage(this.send("spin"))
+                        .writeTextMessage(this.send("stop")));
+            } else if ("stop".equals(frame.getHeader("event"))) {
+                context.verify(() -> {
+                    assertThat(spectatorFrames.get(0).getCommand()).isEqualTo(StompFrame.CONNECTED);
+                    assertThat(spectatorFrames.get(2).getHeader("event")).isEqualTo("spin");
+                    assertThat(frame.getCommand()).isEqualTo(StompFrame.MESSAGE);
+                    assertThat(frame.getHeader("subscription")).isEqualTo("spectator");
+                    JsonObject spinResult = new JsonObject(frame.getBody());
+                    assertThat(spinResult.getJsonObject("slot").getString("id")).isEqualTo(slotId);
+                    assertThat(spinResult.containsKey("win")).isTrue();
+                    spectatorCheckpoint.flag();
+                });
+            }
+        }, spectator -> spectator.writeTextMessage(this.subscribe("spectator", "subscribed")));
+    }
+
+    @Test
+    public void test_that_a_failed_command_is_only_reported_to_the_sender(VertxTestContext context) {
+        Checkpoint playerCheckpoint = context.checkpoint();
+        this.connect(frame -> {
+            if (StompFrame.RECEIPT.equals(frame.getCommand())) {
+                return;
+            }
+            if (StompFrame.MESSAGE.equals(frame.getCommand())) {
+                context.verify(() -> {
+                    assertThat(frame.getHeader("event")).isEqualTo("error");
+                    assertThat(frame.getHeader("code")).isEqualTo("503");
+                    playerCheckpoint.flag();
+                });
+            }
+        }, player -> player
+                .writeTextMessage(this.subscribe("player", "subscribed"))
+                // The slot is not spinning.
+                .writeTextMessage(this.send("stop")));
+    }
+
+    @Test
+    public void test_that_a_client_must_connect_first(VertxTestContext context) {
+        Checkpoint closeCheckpoint = context.checkpoint();
+        vertx.createHttpClient().websocket(port, "localhost", SlotStompBridge.DEFAULT_PATH, webSocket -> {
+            List<StompFrame> frames = new ArrayList<>();
+            webSocket.textMessageHandler(text -> frames.addAll(StompFrame.parse(Buffer.buffer(text))));
+            webSocket.closeHandler(v -> context.verify(() -> {
+                assertThat(frames).extracting(StompFrame::getCommand).containsExactly(StompFrame.ERROR);
+                closeCheckpoint.flag();
+            }));
+            webSocket.writeTextMessage(this.send("spin"));
+        });
+    }
+}
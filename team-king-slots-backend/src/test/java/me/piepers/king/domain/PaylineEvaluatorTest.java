@@ -0,0 +1,86 @@
+package me.piepers.king.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the win calculation of the {@link PaylineEvaluator}.
+ *
+ * @author Bas Piepers
+ */
+public class PaylineEvaluatorTest {
+
+    private static final SubsequentSymbols[] AMOUNTS = {SubsequentSymbols.THREE, SubsequentSymbols.FOUR, SubsequentSymbols.FIVE};
+
+    private ReelConfig reelConfig() {
+        return ReelConfig.of(1, 10)
+                .addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.SEVEN, 1, 4, CellSymbolConfig.symbolScores(AMOUNTS, new Integer[]{100, 200, 500})))
+                .addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.BAR, 4, 8, CellSymbolConfig.symbolScores(AMOUNTS, new Integer[]{10, 20, 50})))
+                .addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.EMPTY, 8, 11, CellSymbolConfig.symbolScores(new SubsequentSymbols[0], new Integer[0])));
+    }
+
+    @Test
+    public void test_that_three_equal_symbols_on_an_active_payline_are_scored_with_the_bet() {
+        ReelConfig reelConfig = this.reelConfig();
+        Reel reel = Reel.of(3, 3)
+                .addPayline(1, new Integer[]{2, 2, 2}, true, 2)
+                .addPayline(2, new Integer[]{1, 1, 1}, true, 1);
+
+        reel.assignNumbersToReels(Arrays.asList(
+                8, 9, 10,
+                1, 2, 3,
+                4, 5, 6)).assignSymbols(reelConfig);
+
+        assertThat(reel.calculateWin(reelConfig)).isEqualTo(200L);
+    }
+
+    @Test
+    public void test_that_inactive_paylines_are_not_scored() {
+        ReelConfig reelConfig = this.reelConfig();
+        Reel reel = Reel.of(3, 3).addPayline(1, new Integer[]{2, 2, 2});
+
+        reel.assignNumbersToReels(Arrays.asList(
+                8, 9, 10,
+                1, 2, 3,
+                4, 5, 6)).assignSymbols(reelConfig);
+
+        assertThat(reel.calculateWin(reelConfig)).isEqualTo(0L);
+    }
+
+    @Test
+    public void test_that_subsequent_symbols_are_counted_from_the_left_and_line_wins_are_kept() {
+        ReelConfig reelConfig = this.reelConfig();
+        Reel reel = Reel.of(3, 5)
+                .addPayline(1, new Integer[]{1, 1, 1, 1, 1}, true, 1)
+                .addPayline(2, new Integer[]{2, 2, 2, 2, 2}, true, 1)
+                .addPayline(3, new Integer[]{3, 3, 3, 3, 3}, true, 1);
+
+        reel.assignNumbersToReels(Arrays.asList(
+                1, 2, 3, 3, 4,
+                4, 5, 6, 4, 7,
+                9, 8, 4, 8, 8)).assignSymbols(reelConfig);
+
+        // Four sevens on line 1, five bars on line 2 and no score for the two empty symbols on line 3.
+        assertThat(reel.calculateWin(reelConfig)).isEqualTo(250L);
+        PaylineEvaluator evaluator = reel.evaluatorFor(reelConfig);
+        assertThat(evaluator.lineCount()).isEqualTo(3);
+        for (int i = 0; i < evaluator.lineCount(); i++) {
+            long expected = evaluator.reference(i) == 1 ? 200L : evaluator.reference(i) == 2 ? 50L : 0L;
+            assertThat(evaluator.lineWin(i)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void test_that_changing_the_bet_of_a_payline_is_picked_up_by_a_compiled_evaluator() {
+        ReelConfig reelConfig = this.reelConfig();
+        Reel reel = Reel.of(3, 3).addPayline(1, new Integer[]{1, 1, 1}, true, 1);
+        reel.assignNumbersToReels(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9)).assignSymbols(reelConfig);
+
+        assertThat(reel.calculateWin(reelConfig)).isEqualTo(100L);
+        reel.getPayLines().forEach(payline -> payline.setBet(3));
+        assertThat(reel.calculateWin(reelConfig)).isEqualTo(300L);
+    }
+}
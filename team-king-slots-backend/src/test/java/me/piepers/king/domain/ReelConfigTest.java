@@ -59,4 +59,46 @@ public class ReelConfigTest {
 
         assertThat(rc.isValid()).isTrue();
     }
+
+    @Test
+    public void test_that_numbers_outside_of_the_range_make_the_config_invalid() {
+        ReelConfig rc = ReelConfig.of(1, 3);
+        rc.addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.BAR, CellSymbolConfig.symbolScores(new SubsequentSymbols[]{SubsequentSymbols.THREE}, new Integer[]{1}), 1, 2, 3, 4));
+
+        assertThat(rc.isValid()).isFalse();
+    }
+
+    @Test
+    public void test_that_symbols_are_resolved_for_assigned_numbers_only() {
+        ReelConfig rc = ReelConfig.of(1, 10);
+        rc.addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.SEVEN, CellSymbolConfig.symbolScores(new SubsequentSymbols[]{SubsequentSymbols.THREE}, new Integer[]{1}), 1, 10))
+                .addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.BELL, 2, 6, CellSymbolConfig.symbolScores(new SubsequentSymbols[]{SubsequentSymbols.THREE}, new Integer[]{1})));
+
+        assertThat(rc.symbolFor(1)).isEqualTo(CellSymbolConfig.Symbol.SEVEN);
+        assertThat(rc.symbolFor(10)).isEqualTo(CellSymbolConfig.Symbol.SEVEN);
+        assertThat(rc.symbolFor(2)).isEqualTo(CellSymbolConfig.Symbol.BELL);
+        assertThat(rc.symbolFor(5)).isEqualTo(CellSymbolConfig.Symbol.BELL);
+        assertThat(rc.symbolFor(6)).isEqualTo(CellSymbolConfig.Symbol.NONE);
+        assertThat(rc.symbolFor(0)).isEqualTo(CellSymbolConfig.Symbol.NONE);
+        assertThat(rc.symbolFor(11)).isEqualTo(CellSymbolConfig.Symbol.NONE);
+
+        // Adding a configuration recompiles the symbol table.
+        rc.addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.BAR, 6, 10, CellSymbolConfig.symbolScores(new SubsequentSymbols[]{SubsequentSymbols.THREE}, new Integer[]{1})));
+        assertThat(rc.symbolFor(6)).isEqualTo(CellSymbolConfig.Symbol.BAR);
+        assertThat(rc.isValid()).isTrue();
+    }
+
+    @Test
+    public void test_that_config_is_mapped_from_json_as_expected() {
+        ReelConfig rc = ReelConfig.of(1, 4);
+        rc.addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.SEVEN, 1, 3, CellSymbolConfig.symbolScores(new SubsequentSymbols[]{SubsequentSymbols.THREE}, new Integer[]{100})))
+                .addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.BAR, 3, 5, CellSymbolConfig.symbolScores(new SubsequentSymbols[]{SubsequentSymbols.THREE}, new Integer[]{10})));
+
+        ReelConfig mapped = new ReelConfig(rc.toJson());
+
+        assertThat(mapped.isValid()).isTrue();
+        assertThat(mapped.getCellConfig().size()).isEqualTo(2);
+        assertThat(mapped.symbolFor(2)).isEqualTo(CellSymbolConfig.Symbol.SEVEN);
+        assertThat(mapped.symbolFor(4)).isEqualTo(CellSymbolConfig.Symbol.BAR);
+    }
 }
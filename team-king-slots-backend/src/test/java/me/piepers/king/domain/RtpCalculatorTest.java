@@ -0,0 +1,69 @@
+package me.piepers.king.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests the exact RTP calculation of the {@link RtpCalculator}.
+ *
+ * @author Bas Piepers
+ */
+public class RtpCalculatorTest {
+
+    private static final SubsequentSymbols[] AMOUNTS = {SubsequentSymbols.THREE, SubsequentSymbols.FOUR, SubsequentSymbols.FIVE};
+
+    private ReelConfig reelConfig() {
+        return ReelConfig.of(1, 10)
+                .addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.SEVEN, 1, 4, CellSymbolConfig.symbolScores(AMOUNTS, new Integer[]{100, 200, 500})))
+                .addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.BAR, 4, 8, CellSymbolConfig.symbolScores(AMOUNTS, new Integer[]{10, 20, 50})))
+                .addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.EMPTY, 8, 11, CellSymbolConfig.symbolScores(new SubsequentSymbols[0], new Integer[0])));
+    }
+
+    @Test
+    public void test_that_the_rtp_of_a_line_of_three_is_exact() {
+        Reel reel = Reel.of(3, 3)
+                .addPayline(1, new Integer[]{2, 2, 2}, true, 2)
+                .addPayline(2, new Integer[]{1, 1, 1}, false, 1);
+        RtpCalculator calculator = new RtpCalculator(this.reelConfig(), 1, 10);
+
+        assertThat(calculator.probabilityOf(CellSymbolConfig.Symbol.SEVEN)).isCloseTo(0.3, within(1e-12));
+        // Three sevens: 0.3^3 * 100, three bars: 0.4^3 * 10.
+        assertThat(calculator.rtp(reel)).isCloseTo(0.027 * 100 + 0.064 * 10, within(1e-12));
+        assertThat(calculator.expectedWinByRun(3)[3]).isCloseTo(3.34, within(1e-12));
+    }
+
+    @Test
+    public void test_that_runs_shorter_than_the_line_are_counted_once() {
+        RtpCalculator calculator = new RtpCalculator(this.reelConfig(), 1, 10);
+
+        double[] expected = calculator.expectedWinByRun(5);
+
+        // Exactly three sevens followed by another symbol.
+        assertThat(expected[3]).isCloseTo(0.3 * 0.3 * 0.3 * 0.7 * 100 + 0.4 * 0.4 * 0.4 * 0.6 * 10, within(1e-12));
+        assertThat(expected[5]).isCloseTo(Math.pow(0.3, 5) * 500 + Math.pow(0.4, 5) * 50, within(1e-12));
+    }
+
+    @Test
+    public void test_that_the_exact_rtp_agrees_with_the_simulation() {
+        Slot slot = Slot.of(SlotType.FIVE_BY_THREE, "Player 1");
+
+        double rtp = RtpCalculator.of(slot).rtp(slot.getReel());
+        SimulationReport report = new RtpSimulator(slot.getReel(), slot.getReelConfig(), slot.getLowestNr(),
+                slot.getHighestNr(), ForkJoinPool.commonPool()).simulate(2_000_000, 3L);
+
+        assertThat(report.getRtp()).isCloseTo(rtp, within(6 * (report.getRtpHigh() - report.getRtpLow())));
+    }
+
+    @Test
+    public void test_that_a_slot_with_an_rtp_out_of_range_is_rejected() {
+        Slot slot = Slot.of(SlotType.CLASSIC, "Player 1");
+
+        assertThatThrownBy(() -> RtpCalculator.verify(slot, 0.99, 1.0)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(RtpCalculator.verify(slot, 0.0, 1.0)).isBetween(0.0, 1.0);
+    }
+}
@@ -0,0 +1,67 @@
+package me.piepers.king.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests the Monte Carlo simulation of the {@link RtpSimulator}.
+ *
+ * @author Bas Piepers
+ */
+public class RtpSimulatorTest {
+
+    private static final SubsequentSymbols[] AMOUNTS = {SubsequentSymbols.THREE, SubsequentSymbols.FOUR, SubsequentSymbols.FIVE};
+
+    private ReelConfig reelConfig() {
+        return ReelConfig.of(1, 10)
+                .addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.SEVEN, 1, 4, CellSymbolConfig.symbolScores(AMOUNTS, new Integer[]{100, 200, 500})))
+                .addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.BAR, 4, 8, CellSymbolConfig.symbolScores(AMOUNTS, new Integer[]{10, 20, 50})))
+                .addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.EMPTY, 8, 11, CellSymbolConfig.symbolScores(new SubsequentSymbols[0], new Integer[0])));
+    }
+
+    private RtpSimulator simulator() {
+        Reel reel = Reel.of(3, 3).addPayline(1, new Integer[]{2, 2, 2}, true, 1);
+        return new RtpSimulator(reel, this.reelConfig(), 1, 10, ForkJoinPool.commonPool());
+    }
+
+    @Test
+    public void test_that_the_simulated_rtp_matches_the_theoretical_rtp() {
+        // Three sevens: 0.3^3 * 100, three bars: 0.4^3 * 10.
+        double rtp = 0.027 * 100 + 0.064 * 10;
+        double hitRate = 0.027 + 0.064;
+
+        SimulationReport report = this.simulator().simulate(4_000_000, 42L);
+
+        assertThat(report.getSpins()).isEqualTo(4_000_000);
+        // Within about six standard errors, the 95% intervals themselves are expected to miss now and then.
+        assertThat(report.getRtp()).isCloseTo(rtp, within(0.05));
+        assertThat(report.getHitRate()).isCloseTo(hitRate, within(0.001));
+        assertThat(report.getRtpHigh() - report.getRtpLow()).isBetween(0.02, 0.05);
+        assertThat(report.getHitRateLow()).isLessThan(report.getHitRate());
+        assertThat(report.getMaxWin()).isEqualTo(100L);
+        // Wins of 10 times and 100 times the bet.
+        assertThat(report.getPayouts(0) + report.getPayouts(5) + report.getPayouts(8)).isEqualTo(4_000_000);
+    }
+
+    @Test
+    public void test_that_a_simulation_with_the_same_seed_gives_the_same_result() {
+        SimulationReport first = this.simulator().simulate(3_000_000, 7L);
+        SimulationReport second = this.simulator().simulate(3_000_000, 7L);
+
+        assertThat(second.getTotalWin()).isEqualTo(first.getTotalWin());
+        assertThat(second.getHitRate()).isEqualTo(first.getHitRate());
+    }
+
+    @Test
+    public void test_that_a_reel_without_active_paylines_can_not_be_simulated() {
+        Reel reel = Reel.of(3, 3).addPayline(1, new Integer[]{2, 2, 2});
+
+        assertThatThrownBy(() -> new RtpSimulator(reel, this.reelConfig(), 1, 10, ForkJoinPool.commonPool()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,64 @@
+package me.piepers.king.domain;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SlotTemplateTest {
+
+    @Test
+    public void test_that_slots_of_the_same_type_share_their_paylines() {
+        Slot first = Slot.of(SlotType.FIVE_BY_THREE, "Player 1");
+        Slot second = Slot.of(SlotType.FIVE_BY_THREE, "Player 2");
+
+        Payline firstLine = first.getReel().getPayLines().iterator().next();
+        Payline secondLine = second.getReel().getPayLines().iterator().next();
+        // The settings of a payline belong to the slot, the coordinates to the template.
+        assertThat(firstLine).isNotSameAs(secondLine);
+        assertThat(firstLine.getCoordinates()).isSameAs(secondLine.getCoordinates());
+        assertThat(first.getReel().evaluatorFor(first.getReelConfig()).lineLength(0)).isEqualTo(5);
+    }
+
+    @Test
+    public void test_that_a_slot_of_a_template_is_the_same_as_a_slot_that_is_built_by_hand() {
+        Slot slot = Slot.of(SlotType.FIVE_BY_FOUR, "Player 1");
+        Reel reel = Reel.of(4, 5).addPayline(1, new Integer[]{2, 2, 2, 2, 2}, true, 1);
+
+        assertThat(slot.getName()).isEqualTo("FiveByFour");
+        assertThat(slot.getReel()).isEqualTo(reel);
+        assertThat(slot.getLowestNr()).isEqualTo(0);
+        assertThat(slot.getHighestNr()).isEqualTo(100);
+        assertThat(slot.getStatus()).isEqualTo(SlotStatus.INITIALIZED);
+        assertThat(slot.getReelConfig()).isSameAs(SlotTemplate.of(SlotType.FIVE_BY_FOUR).getReelConfig());
+    }
+
+    @Test
+    public void test_that_a_restored_slot_uses_its_template_and_wins_the_same() {
+        Slot slot = Slot.of(SlotType.CLASSIC, "Player 1");
+        int[] sevens = IntStream.range(0, slot.getReel().getCellAmount()).map(i -> 1).toArray();
+        slot.getReel().assignNumbersToReels(sevens, 0).assignSymbols(slot.getReelConfig());
+
+        Slot fromJson = new Slot(slot.toJson());
+        Slot fromWire = new WireFormat.Reader(WireFormat.writeSlot(Buffer.buffer(), slot), 0).readSlot();
+
+        assertThat(fromJson.getReel().getTemplate()).isSameAs(SlotTemplate.of(SlotType.CLASSIC));
+        assertThat(fromWire.getReel().getTemplate()).isSameAs(SlotTemplate.of(SlotType.CLASSIC));
+        long win = slot.getReel().calculateWin(slot.getReelConfig());
+        assertThat(win).isGreaterThan(0);
+        assertThat(fromJson.getReel().calculateWin(fromJson.getReelConfig())).isEqualTo(win);
+        assertThat(fromWire.getReel().calculateWin(fromWire.getReelConfig())).isEqualTo(win);
+    }
+
+    @Test
+    public void test_that_templates_are_found_by_the_name_of_their_slots() {
+        for (SlotType type : SlotType.values()) {
+            SlotTemplate template = SlotTemplate.of(type);
+            assertThat(SlotTemplate.named(template.getName())).containsSame(template);
+            assertThat(template.getType()).isEqualTo(type);
+        }
+        assertThat(SlotTemplate.named("Unknown")).isEmpty();
+    }
+}
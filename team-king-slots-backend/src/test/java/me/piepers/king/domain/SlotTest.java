@@ -0,0 +1,68 @@
+package me.piepers.king.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SlotTest {
+    private static final int SPINS = 100000;
+
+    @Test
+    public void test_that_a_stop_assigns_the_numbers_and_calculates_the_win() {
+        Slot slot = Slot.of(SlotType.CLASSIC, "Player 1");
+        int[] numbers = new int[slot.getReel().getCellAmount()];
+        // Sevens on the middle row, the only payline.
+        numbers[3] = 1;
+        numbers[4] = 2;
+        numbers[5] = 3;
+
+        long win = slot.spin().stop(numbers, 0);
+
+        assertThat(slot.getStatus()).isEqualTo(SlotStatus.IDLE);
+        assertThat(slot.getReel().getCells().get(1)).allSatisfy(cell -> assertThat(cell.getSymbol()).isEqualTo(CellSymbolConfig.Symbol.SEVEN));
+        assertThat(win).isEqualTo(300L);
+        assertThat(slot.getReel().evaluatorFor(slot.getReelConfig()).lineWin(0)).isEqualTo(300L);
+    }
+
+    @Test
+    public void test_that_a_slot_that_is_not_spinning_can_not_be_stopped() {
+        Slot slot = Slot.of(SlotType.CLASSIC, "Player 1");
+
+        assertThatThrownBy(() -> slot.stop(new int[slot.getReel().getCellAmount()], 0)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void test_that_a_spin_does_not_allocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        Slot slot = Slot.of(SlotType.FIVE_BY_FOUR, "Player 1");
+        int cellAmount = slot.getReel().getCellAmount();
+        Random random = new Random(42);
+        int[] numbers = new int[SPINS * cellAmount];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = 1 + random.nextInt(100);
+        }
+        // The first spin compiles the evaluator.
+        this.play(slot, numbers, 1, cellAmount);
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        long wins = this.play(slot, numbers, SPINS, cellAmount);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertThat(wins).isGreaterThan(0);
+        // Less than a byte per spin, what is left is measuring itself.
+        assertThat(allocated).isLessThan(SPINS);
+    }
+
+    private long play(Slot slot, int[] numbers, int spins, int cellAmount) {
+        long wins = 0;
+        for (int spin = 0; spin < spins; spin++) {
+            wins += slot.spin().stop(numbers, spin * cellAmount);
+        }
+        return wins;
+    }
+}
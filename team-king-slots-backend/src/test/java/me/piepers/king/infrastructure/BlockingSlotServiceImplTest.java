@@ -0,0 +1,120 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.Context;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.Checkpoint;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.reactivex.core.Vertx;
+import io.vertx.serviceproxy.ServiceBinder;
+import io.vertx.serviceproxy.ServiceException;
+import me.piepers.king.reactivex.domain.SlotService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(VertxExtension.class)
+public class BlockingSlotServiceImplTest {
+    private Vertx vertx;
+    private SlotService service;
+
+    @BeforeEach
+    public void prepare() {
+        this.vertx = Vertx.vertx();
+        this.service = SlotService.createWithConfiguration(vertx, new JsonObject()
+                .put("slot_service", new JsonObject().put("mode", "blocking").put("blocking_timeout_ms", 2000)));
+        new ServiceBinder(vertx.getDelegate())
+                .setAddress(SlotRepository.EVENT_BUS_ADDRESS)
+                .register(SlotRepository.class, SlotRepository.create(vertx.getDelegate()));
+    }
+
+    @AfterEach
+    public void finish() {
+        vertx.close();
+    }
+
+    @Test
+    public void test_that_the_blocking_mode_is_selected_by_configuration() {
+        assertThat(service.getDelegate()).isInstanceOf(BlockingSlotServiceImpl.class);
+    }
+
+    @Test
+    public void test_that_a_spin_is_played_with_numbers_from_the_event_bus(VertxTestContext context) {
+        Checkpoint serviceCallCheckpoint = context.checkpoint();
+        vertx.eventBus().<JsonObject>consumer(RandomNumberCache.EVENT_BUS_ADDRESS, message -> message.reply(new JsonObject()
+                .put("numbers", new JsonArray(IntStream.range(0, message.body().getInteger("amount")).boxed().collect(Collectors.toList())))));
+
+        vertx.runOnContext(v -> service
+                .rxStart()
+                .flatMap(slotId -> service.rxSpin(slotId.getId()))
+                .flatMap(slot -> service.rxStop(slot.getId().getId()))
+                .subscribe(spinResult -> context.verify(() -> {
+                    assertThat(Vertx.currentContext()).isNotNull();
+                    assertThat(spinResult.getSlot().getReel().getCells().get(0).get(1).getValue()).isEqualTo(1);
+                    serviceCallCheckpoint.flag();
+                }), context::failNow));
+    }
+
+    @Test
+    public void test_that_when_slot_stop_while_slot_not_spinning_that_result_is_failure(VertxTestContext context) {
+        Checkpoint serviceCallCheckpoint = context.checkpoint();
+        vertx.runOnContext(v -> service
+                .rxStart()
+                .flatMap(slotId -> service.rxStop(slotId.getId()))
+                .subscribe(spinResult -> context.failNow(new IllegalStateException("Expected a failure.")),
+                        throwable -> context.verify(() -> {
+                            assertThat(throwable).isExactlyInstanceOf(ServiceException.class);
+                            assertThat(((ServiceException) throwable).failureCode()).isEqualTo(503);
+                            serviceCallCheckpoint.flag();
+                        })));
+    }
+
+    @Test
+    public void test_that_the_slot_is_played_on_the_context_of_the_caller(VertxTestContext context) {
+        Checkpoint serviceCallCheckpoint = context.checkpoint();
+        vertx.eventBus().<JsonObject>consumer(RandomNumberCache.EVENT_BUS_ADDRESS, message -> message.reply(new JsonObject()
+                .put("numbers", new JsonArray(IntStream.range(0, message.body().getInteger("amount")).boxed().collect(Collectors.toList())))));
+        List<Boolean> onEventLoop = new ArrayList<>();
+
+        vertx.runOnContext(v -> service
+                .rxStart()
+                .subscribe(slotId -> service.getDelegate().autoSpin(slotId.getId(), 2,
+                        spin -> onEventLoop.add(Context.isOnEventLoopThread()),
+                        result -> context.verify(() -> {
+                            assertThat(result.succeeded()).isTrue();
+                            assertThat(onEventLoop).containsExactly(true, true);
+                            serviceCallCheckpoint.flag();
+                        })), context::failNow));
+    }
+
+    @Test
+    public void test_that_with_local_binding_the_numbers_are_taken_from_the_cache(VertxTestContext context) {
+        Checkpoint serviceCallCheckpoint = context.checkpoint();
+        LocalServiceRegistry.register(vertx.getDelegate(), RandomNumberCache.EVENT_BUS_ADDRESS, (RandomNumberCache) (target, amount) -> {
+            Arrays.fill(target, 0, amount, 7);
+            return true;
+        });
+        SlotService localService = SlotService.createWithConfiguration(vertx, new JsonObject()
+                .put("local_binding", true)
+                .put("slot_service", new JsonObject().put("mode", "blocking")));
+
+        vertx.runOnContext(v -> localService
+                .rxStart()
+                .flatMap(slotId -> localService.rxAutoSpin(slotId.getId(), 3))
+                .subscribe(spinBatch -> context.verify(() -> {
+                    assertThat(spinBatch.getSpins()).isEqualTo(3);
+                    assertThat(spinBatch.spinToJson(2).getJsonArray("numbers").getInteger(0)).isEqualTo(7);
+                    serviceCallCheckpoint.flag();
+                }), context::failNow));
+    }
+}
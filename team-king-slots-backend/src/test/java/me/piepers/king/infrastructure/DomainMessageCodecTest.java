@@ -0,0 +1,73 @@
+package me.piepers.king.infrastructure;
+
+import io.reactivex.Single;
+import io.vertx.core.buffer.Buffer;
+import me.piepers.king.domain.Payline;
+import me.piepers.king.domain.Reel;
+import me.piepers.king.domain.Slot;
+import me.piepers.king.domain.SlotType;
+import me.piepers.king.domain.SpinResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DomainMessageCodecTest {
+
+    private static SpinResult spinResult() {
+        Slot slot = Slot.of(SlotType.FIVE_BY_FOUR, "Player 1");
+        List<Integer> numbers = IntStream.range(0, 20).map(i -> i * 5).boxed().collect(Collectors.toList());
+        return slot.spin().stop(s -> Single.just(numbers)).blockingGet();
+    }
+
+    private static <T> T roundTrip(DomainMessageCodec<T> codec, T object) {
+        // Prefix the buffer to make sure the codec respects the position it is given.
+        Buffer buffer = Buffer.buffer().appendString("header");
+        codec.encodeToWire(buffer, object);
+        return codec.decodeFromWire(6, buffer);
+    }
+
+    @Test
+    public void test_that_a_spin_result_survives_the_wire() {
+        SpinResult spinResult = spinResult();
+
+        SpinResult decoded = roundTrip(DomainMessageCodec.SPIN_RESULT, spinResult);
+
+        assertThat(decoded).isEqualTo(spinResult);
+        assertThat(decoded.getSlot().getReel().getCells()).isEqualTo(spinResult.getSlot().getReel().getCells());
+        assertThat(decoded.getWin()).isEqualTo(spinResult.getWin());
+    }
+
+    @Test
+    public void test_that_the_binary_form_is_much_smaller_than_json() {
+        SpinResult spinResult = spinResult();
+        Buffer buffer = Buffer.buffer();
+
+        DomainMessageCodec.SPIN_RESULT.encodeToWire(buffer, spinResult);
+
+        assertThat(buffer.length() * 4).isLessThan(spinResult.toJson().toBuffer().length());
+    }
+
+    @Test
+    public void test_that_paylines_with_large_coordinates_are_not_packed() {
+        Reel reel = Reel.of(20, 3)
+                .addPayline(1, new Integer[]{17, 2, 20}, true, 3)
+                .addPayline(2, new Integer[]{1, 2, 3}, false, 0);
+
+        assertThat(roundTrip(DomainMessageCodec.REEL, reel)).isEqualTo(reel);
+        Payline payline = Payline.of(-1, new Integer[]{1, 2, 3, 4, 5}, true, 1);
+        assertThat(roundTrip(DomainMessageCodec.PAYLINE, payline)).isEqualTo(payline);
+    }
+
+    @Test
+    public void test_that_local_messages_are_copied() {
+        Slot slot = Slot.of(SlotType.CLASSIC, "Player 1");
+
+        Slot transformed = DomainMessageCodec.SLOT.transform(slot);
+        assertThat(transformed).isNotSameAs(slot);
+        assertThat(transformed).isEqualTo(slot);
+    }
+}
@@ -0,0 +1,131 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.Checkpoint;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.reactivex.core.Vertx;
+import io.vertx.serviceproxy.ServiceException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(VertxExtension.class)
+public class FailoverRandomNumberServiceTest {
+    private Vertx vertx;
+
+    @BeforeEach
+    public void prepare() {
+        this.vertx = Vertx.vertx();
+    }
+
+    @AfterEach
+    public void finish() {
+        vertx.close();
+    }
+
+    private FailoverRandomNumberService service(long hedgeAfter) {
+        return new FailoverRandomNumberService(vertx.getDelegate(), new JsonObject()
+                .put("random_number_failover", new JsonObject().put("hedge_after_ms", hedgeAfter)));
+    }
+
+    private RandomNumberService answering(AtomicInteger calls, int requestsLeft) {
+        return (amount, min, max, resultHandler) -> {
+            calls.incrementAndGet();
+            resultHandler.handle(Future.succeededFuture(new RandomNumberResponseDto("id", 0, 0, requestsLeft, new int[amount])));
+        };
+    }
+
+    private RandomNumberService failing(AtomicInteger calls, int code) {
+        return (amount, min, max, resultHandler) -> {
+            calls.incrementAndGet();
+            resultHandler.handle(ServiceException.fail(code, "Failed"));
+        };
+    }
+
+    @Test
+    public void test_that_a_failing_source_fails_over_to_the_next(VertxTestContext context) {
+        Checkpoint serviceCallCheckpoint = context.checkpoint();
+        AtomicInteger primary = new AtomicInteger();
+        AtomicInteger fallback = new AtomicInteger();
+        FailoverRandomNumberService service = this.service(0)
+                .addSource("primary", this.failing(primary, 500), 1)
+                .addSource("fallback", this.answering(fallback, Integer.MAX_VALUE), 0);
+
+        vertx.runOnContext(v -> service.getRandomNumbers(5, 0, 9, result -> context.verify(() -> {
+            assertThat(result.succeeded()).isTrue();
+            assertThat(result.result().getData()).hasSize(5);
+            assertThat(primary.get()).isEqualTo(1);
+            assertThat(fallback.get()).isEqualTo(1);
+            assertThat(service.metrics().getJsonArray("sources").getJsonObject(0).getLong("failures")).isEqualTo(1L);
+            serviceCallCheckpoint.flag();
+        })));
+    }
+
+    @Test
+    public void test_that_an_exhausted_source_is_skipped(VertxTestContext context) {
+        Checkpoint serviceCallCheckpoint = context.checkpoint();
+        AtomicInteger primary = new AtomicInteger();
+        AtomicInteger fallback = new AtomicInteger();
+        FailoverRandomNumberService service = this.service(0)
+                .addSource("primary", this.failing(primary, 402), 1)
+                .addSource("fallback", this.answering(fallback, 10), 0);
+
+        vertx.runOnContext(v -> service.getRandomNumbers(5, 0, 9, first -> service.getRandomNumbers(5, 0, 9, second -> context.verify(() -> {
+            assertThat(second.succeeded()).isTrue();
+            assertThat(primary.get()).isEqualTo(1);
+            assertThat(fallback.get()).isEqualTo(2);
+            assertThat(second.result().getRequestsLeft()).isEqualTo(10);
+            assertThat(service.metrics().getJsonArray("sources").getJsonObject(0).getBoolean("exhausted")).isTrue();
+            serviceCallCheckpoint.flag();
+        }))));
+    }
+
+    @Test
+    public void test_that_a_slow_source_is_hedged(VertxTestContext context) {
+        Checkpoint serviceCallCheckpoint = context.checkpoint();
+        AtomicReference<Handler<AsyncResult<RandomNumberResponseDto>>> slow = new AtomicReference<>();
+        AtomicInteger fallback = new AtomicInteger();
+        FailoverRandomNumberService service = this.service(50)
+                .addSource("primary", (amount, min, max, resultHandler) -> slow.set(resultHandler), 1)
+                .addSource("fallback", this.answering(fallback, Integer.MAX_VALUE), 0);
+
+        vertx.runOnContext(v -> service.getRandomNumbers(5, 0, 9, result -> {
+            // The slow source answers after all.
+            slow.get().handle(Future.succeededFuture(new RandomNumberResponseDto("id", 0, 0, 1, new int[5])));
+            context.verify(() -> {
+                assertThat(result.succeeded()).isTrue();
+                assertThat(fallback.get()).isEqualTo(1);
+                JsonObject metrics = service.metrics();
+                assertThat(metrics.getLong("hedges")).isEqualTo(1L);
+                assertThat(metrics.getJsonArray("sources").getJsonObject(0).getLong("unused")).isEqualTo(1L);
+                serviceCallCheckpoint.flag();
+            });
+        }));
+    }
+
+    @Test
+    public void test_that_the_call_fails_when_all_sources_fail(VertxTestContext context) {
+        Checkpoint serviceCallCheckpoint = context.checkpoint();
+        AtomicInteger calls = new AtomicInteger();
+        FailoverRandomNumberService service = this.service(10)
+                .addSource("primary", this.failing(calls, 503), 1)
+                .addSource("fallback", this.failing(calls, 403), 1);
+
+        vertx.runOnContext(v -> service.getRandomNumbers(5, 0, 9, result -> context.verify(() -> {
+            assertThat(result.failed()).isTrue();
+            assertThat(calls.get()).isEqualTo(2);
+            assertThat(result.cause()).isInstanceOf(ServiceException.class);
+            serviceCallCheckpoint.flag();
+        })));
+    }
+}
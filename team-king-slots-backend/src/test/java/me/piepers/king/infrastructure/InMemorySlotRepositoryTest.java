@@ -0,0 +1,146 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.Checkpoint;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.serviceproxy.ServiceException;
+import me.piepers.king.domain.Slot;
+import me.piepers.king.domain.SlotType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(VertxExtension.class)
+public class InMemorySlotRepositoryTest {
+    private Vertx vertx;
+    private Path spillDirectory;
+
+    @BeforeEach
+    public void prepare() throws IOException {
+        this.vertx = Vertx.vertx();
+        this.spillDirectory = Files.createTempDirectory("slot-spill");
+    }
+
+    @AfterEach
+    public void finish() throws IOException {
+        vertx.close();
+        Files.walk(spillDirectory).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+
+    private static JsonObject configuration(JsonObject eviction) {
+        return new JsonObject().put("slot_repository", new JsonObject().put("eviction", new JsonObject()
+                .put("idle_ttl_ms", 100)
+                .put("tick_ms", 10)
+                .put("wheel_size", 8)
+                .mergeIn(eviction)));
+    }
+
+    @Test
+    public void test_that_idle_slots_are_evicted_and_used_slots_are_kept(VertxTestContext context) {
+        Checkpoint checkpoint = context.checkpoint();
+        vertx.runOnContext(v -> {
+            InMemorySlotRepository repository = new InMemorySlotRepository(vertx, configuration(new JsonObject()));
+            Slot idle = Slot.of(SlotType.CLASSIC, "John Doe");
+            Slot used = Slot.of(SlotType.CLASSIC, "Jane Doe");
+            repository.add(idle, result -> {
+            });
+            repository.add(used, result -> {
+            });
+            long timer = vertx.setPeriodic(40, id -> repository.findById(used.getId().getId(), result -> {
+            }));
+            vertx.setTimer(300, id -> {
+                vertx.cancelTimer(timer);
+                repository.findById(idle.getId().getId(), evicted -> repository.findById(used.getId().getId(), kept -> context.verify(() -> {
+                    assertThat(evicted.cause()).isInstanceOf(ServiceException.class);
+                    assertThat(((ServiceException) evicted.cause()).failureCode()).isEqualTo(404);
+                    assertThat(kept.result()).isEqualTo(used);
+                    checkpoint.flag();
+                })));
+            });
+        });
+    }
+
+    @Test
+    public void test_that_an_idle_slot_is_reloaded_from_the_spill_directory(VertxTestContext context) {
+        Checkpoint checkpoint = context.checkpoint();
+        vertx.runOnContext(v -> {
+            InMemorySlotRepository repository = new InMemorySlotRepository(vertx,
+                    configuration(new JsonObject().put("spill_directory", spillDirectory.toString())));
+            Slot slot = Slot.of(SlotType.FIVE_BY_THREE, "John Doe");
+            repository.add(slot, result -> {
+            });
+            vertx.setTimer(300, id -> {
+                context.verify(() -> assertThat(spillDirectory.resolve(slot.getId().getId() + ".slot")).exists());
+                repository.findById(slot.getId().getId(), reloaded -> context.verify(() -> {
+                    assertThat(reloaded.result()).isEqualTo(slot);
+                    checkpoint.flag();
+                }));
+            });
+        });
+    }
+
+    @Test
+    public void test_that_the_least_recently_used_slot_is_spilled_when_the_maximum_is_reached(VertxTestContext context) {
+        Checkpoint checkpoint = context.checkpoint();
+        vertx.runOnContext(v -> {
+            InMemorySlotRepository repository = new InMemorySlotRepository(vertx, configuration(new JsonObject()
+                    .put("idle_ttl_ms", 60000)
+                    .put("max_slots", 2)
+                    .put("spill_directory", spillDirectory.toString())));
+            Slot first = Slot.of(SlotType.CLASSIC, "First");
+            Slot second = Slot.of(SlotType.CLASSIC, "Second");
+            Slot third = Slot.of(SlotType.CLASSIC, "Third");
+            repository.add(first, result -> {
+            });
+            repository.add(second, result -> {
+            });
+            // Makes the second one the least recently used.
+            repository.findById(first.getId().getId(), result -> {
+            });
+            repository.add(third, result -> {
+            });
+            vertx.setTimer(50, id -> {
+                context.verify(() -> assertThat(spillDirectory.toFile().list()).containsExactly(second.getId().getId() + ".slot"));
+                repository.deleteById(second.getId().getId(), deleted -> vertx.setTimer(50, later -> context.verify(() -> {
+                    assertThat(deleted.result()).isEqualTo(second);
+                    assertThat(spillDirectory.toFile().list()).isEmpty();
+                    repository.findById(second.getId().getId(), found -> context.verify(() -> {
+                        assertThat(found.failed()).isTrue();
+                        checkpoint.flag();
+                    }));
+                })));
+            });
+        });
+    }
+
+    @Test
+    public void test_that_a_spilled_slot_of_another_format_version_is_not_reloaded(VertxTestContext context) throws IOException {
+        Slot slot = Slot.of(SlotType.CLASSIC, "John Doe");
+        Files.write(spillDirectory.resolve(slot.getId().getId() + ".slot"), Buffer.buffer()
+                .appendInt(0x53535046)
+                .appendInt(2)
+                .appendBuffer(slot.toJson().toBuffer())
+                .getBytes());
+        Checkpoint checkpoint = context.checkpoint();
+        vertx.runOnContext(v -> {
+            InMemorySlotRepository repository = new InMemorySlotRepository(vertx,
+                    configuration(new JsonObject().put("spill_directory", spillDirectory.toString())));
+            repository.findById(slot.getId().getId(), found -> context.verify(() -> {
+                assertThat(((ServiceException) found.cause()).failureCode()).isEqualTo(404);
+                checkpoint.flag();
+            }));
+        });
+    }
+}
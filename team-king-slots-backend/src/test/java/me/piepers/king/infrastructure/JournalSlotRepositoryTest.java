@@ -0,0 +1,223 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.serviceproxy.ServiceException;
+import me.piepers.king.domain.Slot;
+import me.piepers.king.domain.SlotId;
+import me.piepers.king.domain.SlotStatus;
+import me.piepers.king.domain.SlotType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JournalSlotRepositoryTest {
+    private Vertx vertx;
+    private Context context;
+    private Path directory;
+
+    @BeforeEach
+    public void prepare() throws IOException {
+        this.vertx = Vertx.vertx();
+        this.context = vertx.getOrCreateContext();
+        this.directory = Files.createTempDirectory("slot-journal");
+    }
+
+    @AfterEach
+    public void finish() throws IOException {
+        vertx.close();
+        Files.walk(directory).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+
+    private JournalSlotRepository open(int segmentSize) throws Exception {
+        return this.open(segmentSize, new JsonObject());
+    }
+
+    private JournalSlotRepository open(int segmentSize, JsonObject configuration) throws Exception {
+        configuration.put("slot_journal", new JsonObject()
+                .put("directory", directory.resolve("journal").toString())
+                .put("segment_size", segmentSize)
+                .put("fsync_interval_ms", 1));
+        CompletableFuture<JournalSlotRepository> opened = new CompletableFuture<>();
+        context.runOnContext(v -> {
+            try {
+                opened.complete(JournalSlotRepository.open(vertx, configuration, 0));
+            } catch (IOException e) {
+                opened.completeExceptionally(e);
+            }
+        });
+        return opened.get(10, TimeUnit.SECONDS);
+    }
+
+    private void close(JournalSlotRepository repository) throws Exception {
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        context.runOnContext(v -> {
+            repository.close();
+            closed.complete(null);
+        });
+        closed.get(10, TimeUnit.SECONDS);
+    }
+
+    // Calls the repository on its context and waits for the result.
+    private Slot call(Consumer<Handler<AsyncResult<Slot>>> operation) throws Exception {
+        CompletableFuture<Slot> result = new CompletableFuture<>();
+        context.runOnContext(v -> operation.accept(ar -> {
+            if (ar.succeeded()) {
+                result.complete(ar.result());
+            } else {
+                result.completeExceptionally(ar.cause());
+            }
+        }));
+        try {
+            return result.get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    // Plays one spin the way the slot service does.
+    private Slot spin(JournalSlotRepository repository, Slot slot, int number) throws Exception {
+        this.call(handler -> repository.save(slot.spin(), handler));
+        slot.setStatus(SlotStatus.IDLE);
+        slot.getReel()
+                .assignNumbersToReels(IntStream.range(0, slot.getReel().getCellAmount()).map(i -> 1 + (number + i) % 100).toArray(), 0)
+                .assignSymbols(slot.getReelConfig());
+        return this.call(handler -> repository.save(slot, handler));
+    }
+
+    @Test
+    public void test_that_slots_are_restored_after_a_restart() throws Exception {
+        JournalSlotRepository repository = this.open(1024 * 1024);
+        Slot played = Slot.of(SlotType.CLASSIC, "John Doe");
+        Slot spinning = Slot.of(SlotType.FIVE_BY_THREE, "Jane Doe");
+        Slot quit = Slot.of(SlotType.CLASSIC, "Quitter");
+        for (Slot slot : new Slot[]{played, spinning, quit}) {
+            Slot added = slot;
+            this.call(handler -> repository.add(added, handler));
+        }
+        this.spin(repository, played, 7);
+        this.spin(repository, played, 42);
+        this.call(handler -> repository.save(spinning.spin(), handler));
+        this.call(handler -> repository.deleteById(quit.getId().getId(), handler));
+        this.close(repository);
+
+        JournalSlotRepository restored = this.open(1024 * 1024);
+
+        assertThat(this.call(handler -> restored.findById(played.getId().getId(), handler))).isEqualTo(played);
+        assertThat(this.call(handler -> restored.findById(spinning.getId().getId(), handler)).getStatus()).isEqualTo(SlotStatus.SPINNING);
+        assertThatThrownBy(() -> this.call(handler -> restored.findById(quit.getId().getId(), handler)))
+                .isInstanceOf(ServiceException.class);
+    }
+
+    @Test
+    public void test_that_the_journal_switches_segments_with_a_snapshot() throws Exception {
+        // Room for a few dozen spins per segment.
+        JournalSlotRepository repository = this.open(4096);
+        Map<SlotId, Slot> slots = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            Slot slot = Slot.of(SlotType.CLASSIC, "Player " + i);
+            slots.put(slot.getId(), this.call(handler -> repository.add(slot, handler)));
+        }
+        for (int spin = 0; spin < 50; spin++) {
+            for (Slot slot : slots.values()) {
+                this.spin(repository, slot, spin);
+            }
+        }
+        this.close(repository);
+
+        assertThat(directory.resolve("journal").resolve("slots-0.snapshot")).exists();
+        JournalSlotRepository restored = this.open(4096);
+        for (Slot slot : slots.values()) {
+            assertThat(this.call(handler -> restored.findById(slot.getId().getId(), handler))).isEqualTo(slot);
+        }
+    }
+
+    @Test
+    public void test_that_a_torn_record_is_ignored() throws Exception {
+        JournalSlotRepository repository = this.open(4096);
+        Slot slot = Slot.of(SlotType.CLASSIC, "John Doe");
+        this.call(handler -> repository.add(slot, handler));
+        this.call(handler -> repository.save(slot.spin(), handler));
+        this.close(repository);
+
+        // Damage the last byte that was written, which belongs to the record of the spin.
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("journal").resolve("slots-0.0.journal").toFile(), "rw")) {
+            long position = file.length() - 1;
+            file.seek(position);
+            while (file.read() == 0) {
+                file.seek(--position);
+            }
+            file.seek(position);
+            file.write(0);
+        }
+
+        JournalSlotRepository restored = this.open(4096);
+        assertThat(this.call(handler -> restored.findById(slot.getId().getId(), handler)).getStatus()).isEqualTo(SlotStatus.INITIALIZED);
+    }
+
+    @Test
+    public void test_that_a_journal_of_another_format_version_is_not_replayed() throws Exception {
+        JournalSlotRepository repository = this.open(4096);
+        this.call(handler -> repository.add(Slot.of(SlotType.CLASSIC, "John Doe"), handler));
+        this.close(repository);
+
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("journal").resolve("slots-0.0.journal").toFile(), "rw")) {
+            file.seek(4);
+            file.write(1);
+        }
+
+        assertThatThrownBy(() -> this.open(4096))
+                .hasCauseInstanceOf(IOException.class)
+                .hasMessageContaining("version 1");
+    }
+
+    @Test
+    public void test_that_an_evicted_slot_is_reloaded_from_the_spill_directory_after_a_restart() throws Exception {
+        Path spillDirectory = directory.resolve("spill");
+        JsonObject eviction = new JsonObject().put("slot_repository", new JsonObject().put("eviction", new JsonObject()
+                .put("idle_ttl_ms", 60000)
+                .put("max_slots", 1)
+                .put("spill_directory", spillDirectory.toString())));
+        JournalSlotRepository repository = this.open(4096, eviction.copy());
+        Slot evicted = Slot.of(SlotType.CLASSIC, "John Doe");
+        Slot kept = Slot.of(SlotType.CLASSIC, "Jane Doe");
+        this.call(handler -> repository.add(evicted, handler));
+        this.spin(repository, evicted, 7);
+        this.call(handler -> repository.add(kept, handler));
+        Path spilled = spillDirectory.resolve(evicted.getId().getId() + ".slot");
+        for (int i = 0; i < 100 && !Files.exists(spilled); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(spilled).exists();
+        // Switches segments, the snapshots no longer have the evicted slot.
+        for (int spin = 0; spin < 100; spin++) {
+            this.spin(repository, kept, spin);
+        }
+        this.close(repository);
+
+        JournalSlotRepository restored = this.open(4096, eviction.copy());
+
+        assertThat(this.call(handler -> restored.findById(evicted.getId().getId(), handler))).isEqualTo(evicted);
+        assertThat(this.call(handler -> restored.findById(kept.getId().getId(), handler))).isEqualTo(kept);
+    }
+}
@@ -0,0 +1,191 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.core.shareddata.Counter;
+import io.vertx.core.shareddata.Lock;
+import io.vertx.core.spi.cluster.AsyncMultiMap;
+import io.vertx.core.spi.cluster.ChoosableIterable;
+import io.vertx.core.spi.cluster.ClusterManager;
+import io.vertx.core.spi.cluster.NodeListener;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * A cluster manager for tests that clusters the Vert.x instances in this JVM without any network discovery. The event
+ * bus between the instances is the regular clustered event bus. Only the maps that the event bus itself needs are
+ * supported.
+ *
+ * @author Bas Piepers
+ */
+public class LocalClusterManager implements ClusterManager {
+    private static final Map<String, LocalClusterManager> NODES = new ConcurrentHashMap<>();
+    private static final Map<String, Map<?, ? extends Set<?>>> MULTI_MAPS = new ConcurrentHashMap<>();
+    private static final Map<String, Map<?, ?>> SYNC_MAPS = new ConcurrentHashMap<>();
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private Vertx vertx;
+    private volatile NodeListener nodeListener;
+    private volatile boolean active;
+
+    @Override
+    public void setVertx(Vertx vertx) {
+        this.vertx = vertx;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> void getAsyncMultiMap(String name, Handler<AsyncResult<AsyncMultiMap<K, V>>> resultHandler) {
+        // The entries are shared, the results are handed back on the instance that asks.
+        Map<K, Set<V>> entries = (Map<K, Set<V>>) MULTI_MAPS.computeIfAbsent(name, key -> new ConcurrentHashMap<>());
+        this.complete(new LocalMultiMap<>(entries), resultHandler);
+    }
+
+    @Override
+    public <K, V> void getAsyncMap(String name, Handler<AsyncResult<AsyncMap<K, V>>> resultHandler) {
+        this.fail(resultHandler);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> Map<K, V> getSyncMap(String name) {
+        return (Map<K, V>) SYNC_MAPS.computeIfAbsent(name, key -> new ConcurrentHashMap<>());
+    }
+
+    @Override
+    public void getLockWithTimeout(String name, long timeout, Handler<AsyncResult<Lock>> resultHandler) {
+        this.fail(resultHandler);
+    }
+
+    @Override
+    public void getCounter(String name, Handler<AsyncResult<Counter>> resultHandler) {
+        this.fail(resultHandler);
+    }
+
+    @Override
+    public String getNodeID() {
+        return nodeId;
+    }
+
+    @Override
+    public List<String> getNodes() {
+        return new ArrayList<>(NODES.keySet());
+    }
+
+    @Override
+    public void nodeListener(NodeListener listener) {
+        this.nodeListener = listener;
+    }
+
+    @Override
+    public void join(Handler<AsyncResult<Void>> resultHandler) {
+        vertx.executeBlocking(future -> {
+            NODES.values().forEach(node -> node.notify(listener -> listener.nodeAdded(nodeId)));
+            NODES.put(nodeId, this);
+            active = true;
+            future.complete();
+        }, resultHandler);
+    }
+
+    @Override
+    public void leave(Handler<AsyncResult<Void>> resultHandler) {
+        vertx.executeBlocking(future -> {
+            active = false;
+            NODES.remove(nodeId);
+            NODES.values().forEach(node -> node.notify(listener -> listener.nodeLeft(nodeId)));
+            future.complete();
+        }, resultHandler);
+    }
+
+    @Override
+    public boolean isActive() {
+        return active;
+    }
+
+    private void notify(Handler<NodeListener> event) {
+        NodeListener listener = this.nodeListener;
+        if (listener != null) {
+            event.handle(listener);
+        }
+    }
+
+    private <T> void complete(T result, Handler<AsyncResult<T>> resultHandler) {
+        vertx.runOnContext(v -> resultHandler.handle(Future.succeededFuture(result)));
+    }
+
+    private <T> void fail(Handler<AsyncResult<T>> resultHandler) {
+        vertx.runOnContext(v -> resultHandler.handle(Future.failedFuture(new UnsupportedOperationException())));
+    }
+
+    private final class LocalMultiMap<K, V> implements AsyncMultiMap<K, V> {
+        private final Map<K, Set<V>> entries;
+
+        private LocalMultiMap(Map<K, Set<V>> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public void add(K key, V value, Handler<AsyncResult<Void>> resultHandler) {
+            entries.computeIfAbsent(key, k -> new CopyOnWriteArraySet<>()).add(value);
+            complete(null, resultHandler);
+        }
+
+        @Override
+        public void get(K key, Handler<AsyncResult<ChoosableIterable<V>>> resultHandler) {
+            complete(new RoundRobin<>(new ArrayList<>(entries.getOrDefault(key, new CopyOnWriteArraySet<>()))), resultHandler);
+        }
+
+        @Override
+        public void remove(K key, V value, Handler<AsyncResult<Boolean>> resultHandler) {
+            Set<V> values = entries.get(key);
+            complete(values != null && values.remove(value), resultHandler);
+        }
+
+        @Override
+        public void removeAllForValue(V value, Handler<AsyncResult<Void>> resultHandler) {
+            this.removeAllMatching(value::equals, resultHandler);
+        }
+
+        @Override
+        public void removeAllMatching(Predicate<V> matcher, Handler<AsyncResult<Void>> resultHandler) {
+            entries.values().forEach(values -> values.removeIf(matcher));
+            complete(null, resultHandler);
+        }
+    }
+
+    private static final class RoundRobin<V> implements ChoosableIterable<V> {
+        private final List<V> values;
+        private final AtomicInteger next = new AtomicInteger();
+
+        private RoundRobin(List<V> values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return values.isEmpty();
+        }
+
+        @Override
+        public V choose() {
+            return values.isEmpty() ? null : values.get(Math.floorMod(next.getAndIncrement(), values.size()));
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return values.iterator();
+        }
+    }
+}
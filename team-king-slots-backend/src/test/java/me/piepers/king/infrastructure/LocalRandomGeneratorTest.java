@@ -0,0 +1,61 @@
+package me.piepers.king.infrastructure;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LocalRandomGeneratorTest {
+
+    private int[] histogram(LocalRandomGenerator generator, int amount, int min, int max) {
+        int[] numbers = new int[amount];
+        generator.fill(numbers, 0, amount, min, max);
+        int[] histogram = new int[max - min + 1];
+        for (int number : numbers) {
+            histogram[number - min]++;
+        }
+        return histogram;
+    }
+
+    @Test
+    public void test_that_numbers_are_uniform_and_include_both_bounds() {
+        int[] histogram = this.histogram(LocalRandomGenerator.splittable(7L), 1_010_000, 0, 100);
+
+        // 10000 per number; five standard deviations is 500.
+        assertThat(Arrays.stream(histogram).min().getAsInt()).isGreaterThan(9500);
+        assertThat(Arrays.stream(histogram).max().getAsInt()).isLessThan(10500);
+    }
+
+    @Test
+    public void test_that_a_secure_generator_fills_the_range() throws NoSuchAlgorithmException {
+        int[] histogram = this.histogram(LocalRandomGenerator.secure(null), 100_000, -5, 5);
+
+        assertThat(histogram).doesNotContain(0);
+    }
+
+    @Test
+    public void test_that_the_same_seed_gives_the_same_numbers_and_only_the_requested_part_is_filled() {
+        int[] first = new int[3000];
+        int[] second = new int[3000];
+        LocalRandomGenerator.splittable(1L).fill(first, 1, 2998, 1, 6);
+        LocalRandomGenerator.splittable(1L).fill(second, 1, 2998, 1, 6);
+
+        assertThat(first).isEqualTo(second);
+        assertThat(first[0]).isZero();
+        assertThat(first[2999]).isZero();
+        assertThat(Arrays.stream(first, 1, 2999).allMatch(number -> number >= 1 && number <= 6)).isTrue();
+    }
+
+    @Test
+    public void test_that_the_full_range_of_ints_is_supported() {
+        int[] numbers = new int[1000];
+        LocalRandomGenerator.splittable(3L).fill(numbers, 0, 1000, Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+        assertThat(Arrays.stream(numbers).anyMatch(number -> number < 0)).isTrue();
+        assertThat(Arrays.stream(numbers).anyMatch(number -> number > 0)).isTrue();
+        assertThatThrownBy(() -> LocalRandomGenerator.splittable().fill(numbers, 0, 1, 1, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -33,7 +33,7 @@ public class LocalRandomNumberServiceImplTest {
         this.randomNumberService
                 .rxGetRandomNumbers(10, 0, 100)
                 .doFinally(() -> context.completeNow())
-                .subscribe(result -> assertThat(result.getData().size() == 10),
+                .subscribe(result -> assertThat(result.getData().length == 10),
                         throwable -> context.failed());
     }
 }
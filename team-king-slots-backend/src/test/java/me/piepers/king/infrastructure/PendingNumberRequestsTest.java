@@ -0,0 +1,82 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.serviceproxy.ServiceException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PendingNumberRequestsTest {
+    private static final long MILLI = 1_000_000L;
+
+    private RandomNumberRingBuffer cache(int amount) {
+        RandomNumberRingBuffer cache = new RandomNumberRingBuffer(64);
+        for (int i = 0; i < amount; i++) {
+            cache.offer(i);
+        }
+        return cache;
+    }
+
+    @Test
+    public void test_that_requests_are_served_in_order_once_numbers_arrive() {
+        PendingNumberRequests pending = new PendingNumberRequests(10, 1000, 1);
+        List<int[]> served = new ArrayList<>();
+        pending.add(3, 0, result -> served.add(result.result()));
+        pending.add(1, 0, result -> served.add(result.result()));
+
+        assertThat(pending.serve(this.cache(2), 0)).isEqualTo(0);
+        assertThat(pending.numbers()).isEqualTo(4);
+
+        RandomNumberRingBuffer cache = this.cache(5);
+        assertThat(pending.serve(cache, 10 * MILLI)).isEqualTo(2);
+        assertThat(served).containsExactly(new int[]{0, 1, 2}, new int[]{3});
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(pending.isEmpty()).isTrue();
+        assertThat(pending.metrics().getLong("served")).isEqualTo(2L);
+        assertThat(pending.metrics().getDouble("maxWaitMs")).isEqualTo(10.0);
+    }
+
+    @Test
+    public void test_that_a_large_request_is_not_overtaken_by_a_small_one() {
+        PendingNumberRequests pending = new PendingNumberRequests(10, 1000, 1);
+        List<Integer> served = new ArrayList<>();
+        pending.add(10, 0, result -> served.add(10));
+        pending.add(1, 0, result -> served.add(1));
+
+        assertThat(pending.serve(this.cache(5), 0)).isEqualTo(0);
+        assertThat(served).isEmpty();
+    }
+
+    @Test
+    public void test_that_requests_are_rejected_when_the_queue_is_full() {
+        PendingNumberRequests pending = new PendingNumberRequests(1, 1000, 3);
+        List<AsyncResult<int[]>> results = new ArrayList<>();
+        assertThat(pending.add(1, 0, results::add)).isTrue();
+        assertThat(pending.add(1, 0, results::add)).isFalse();
+
+        assertThat(results).hasSize(1);
+        ServiceException exception = (ServiceException) results.get(0).cause();
+        assertThat(exception.failureCode()).isEqualTo(503);
+        assertThat(exception.getDebugInfo().getInteger("retryAfter")).isEqualTo(3);
+        assertThat(pending.size()).isEqualTo(1);
+        assertThat(pending.metrics().getLong("rejected")).isEqualTo(1L);
+    }
+
+    @Test
+    public void test_that_requests_expire_after_the_timeout() {
+        PendingNumberRequests pending = new PendingNumberRequests(10, 100, 1);
+        List<AsyncResult<int[]>> results = new ArrayList<>();
+        pending.add(1, 0, results::add);
+        pending.add(1, 50 * MILLI, results::add);
+
+        assertThat(pending.expire(99 * MILLI)).isEqualTo(0);
+        assertThat(pending.expire(100 * MILLI)).isEqualTo(1);
+        assertThat(results).hasSize(1);
+        assertThat(((ServiceException) results.get(0).cause()).failureCode()).isEqualTo(503);
+        assertThat(pending.numbers()).isEqualTo(1);
+        assertThat(pending.metrics().getLong("expired")).isEqualTo(1L);
+    }
+}
@@ -0,0 +1,63 @@
+package me.piepers.king.infrastructure;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class RandomNumberPrefetcherTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    private RandomNumberPrefetcher prefetcher() {
+        return new RandomNumberPrefetcher(100, 1000, 10000, 2, 5000, 1000);
+    }
+
+    @Test
+    public void test_that_without_consumption_the_minimum_threshold_applies() {
+        RandomNumberPrefetcher prefetcher = this.prefetcher();
+
+        assertThat(prefetcher.lowWatermark()).isEqualTo(100);
+        assertThat(prefetcher.nextRequest(101, 0, 0, 1 << 16)).isEqualTo(0);
+        assertThat(prefetcher.nextRequest(100, 0, 0, 1 << 16)).isEqualTo(1000);
+    }
+
+    @Test
+    public void test_that_the_watermark_follows_the_consumption_rate_and_the_latency() {
+        RandomNumberPrefetcher prefetcher = this.prefetcher();
+
+        for (int i = 0; i < 100; i++) {
+            prefetcher.sample(200, SECOND / 10);
+        }
+        prefetcher.recordLatency(SECOND / 2);
+
+        assertThat(prefetcher.rate()).isCloseTo(2000.0, within(5.0));
+        // 2000 numbers per second during half a second, times two.
+        assertThat(prefetcher.lowWatermark()).isBetween(1990, 2010);
+        // Enough for the watermark plus five seconds of consumption, but not more than the largest block.
+        assertThat(prefetcher.nextRequest(1500, 0, 0, 1 << 16)).isEqualTo(10000);
+    }
+
+    @Test
+    public void test_that_several_requests_may_be_in_flight_up_to_the_limit() {
+        RandomNumberPrefetcher prefetcher = this.prefetcher();
+        for (int i = 0; i < 100; i++) {
+            prefetcher.sample(2000, SECOND / 10);
+        }
+        prefetcher.recordLatency(SECOND);
+
+        // A burst emptied the cache while a request of 10000 numbers is in flight.
+        assertThat(prefetcher.nextRequest(0, 10000, 1, 1 << 16)).isGreaterThan(0);
+        assertThat(prefetcher.nextRequest(0, 20000, 2, 1 << 16)).isEqualTo(0);
+    }
+
+    @Test
+    public void test_that_requests_do_not_exceed_the_capacity_of_the_cache() {
+        RandomNumberPrefetcher prefetcher = this.prefetcher();
+        for (int i = 0; i < 100; i++) {
+            prefetcher.sample(2000, SECOND / 10);
+        }
+
+        assertThat(prefetcher.nextRequest(0, 0, 0, 4000)).isEqualTo(4000);
+        assertThat(prefetcher.nextRequest(3500, 0, 0, 4000)).isEqualTo(0);
+    }
+}
@@ -0,0 +1,98 @@
+package me.piepers.king.infrastructure;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit test for the {@link RandomNumberRingBuffer}
+ *
+ * @author Bas Piepers
+ */
+public class RandomNumberRingBufferTest {
+
+    @Test
+    public void test_that_capacity_is_rounded_up_to_a_power_of_two() {
+        assertThat(new RandomNumberRingBuffer(1000).capacity()).isEqualTo(1024);
+        assertThat(new RandomNumberRingBuffer(1024).capacity()).isEqualTo(1024);
+        assertThatThrownBy(() -> new RandomNumberRingBuffer(0)).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void test_that_numbers_are_drained_in_order_across_the_end_of_the_buffer() {
+        RandomNumberRingBuffer buffer = new RandomNumberRingBuffer(8);
+        int[] target = new int[8];
+
+        assertThat(buffer.offer(new int[]{1, 2, 3, 4, 5, 6}, 0, 6)).isEqualTo(6);
+        assertThat(buffer.drain(target, 0, 5)).isTrue();
+        assertThat(buffer.offer(new int[]{7, 8, 9, 10, 11, 12, 13, 14}, 0, 8)).isEqualTo(7);
+        assertThat(buffer.size()).isEqualTo(8);
+        assertThat(buffer.remaining()).isEqualTo(0);
+        assertThat(buffer.offer(15)).isFalse();
+
+        assertThat(buffer.drain(target, 0, 8)).isTrue();
+        assertThat(target).containsExactly(6, 7, 8, 9, 10, 11, 12, 13);
+        assertThat(buffer.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_that_nothing_is_drained_when_not_enough_numbers_are_available() {
+        RandomNumberRingBuffer buffer = new RandomNumberRingBuffer(8);
+        buffer.offer(1);
+        buffer.offer(2);
+
+        assertThat(buffer.drain(new int[3], 0, 3)).isFalse();
+        assertThat(buffer.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_that_concurrent_consumers_never_receive_the_same_number() throws InterruptedException {
+        int total = 200_000;
+        int consumers = 4;
+        RandomNumberRingBuffer buffer = new RandomNumberRingBuffer(1024);
+        BitSet seen = new BitSet(total);
+        int[] duplicates = new int[1];
+        CountDownLatch done = new CountDownLatch(consumers);
+        ExecutorService executor = Executors.newFixedThreadPool(consumers);
+
+        for (int c = 0; c < consumers; c++) {
+            executor.execute(() -> {
+                int[] target = new int[5];
+                int taken = 0;
+                while (taken < total / consumers) {
+                    if (buffer.drain(target, 0, target.length)) {
+                        taken += target.length;
+                        synchronized (seen) {
+                            for (int number : target) {
+                                if (seen.get(number)) {
+                                    duplicates[0]++;
+                                }
+                                seen.set(number);
+                            }
+                        }
+                    }
+                }
+                done.countDown();
+            });
+        }
+
+        int next = 0;
+        while (next < total) {
+            if (buffer.offer(next)) {
+                next++;
+            }
+        }
+
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        assertThat(duplicates[0]).isEqualTo(0);
+        assertThat(seen.cardinality()).isEqualTo(total);
+    }
+}
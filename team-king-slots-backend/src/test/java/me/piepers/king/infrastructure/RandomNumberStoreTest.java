@@ -0,0 +1,67 @@
+package me.piepers.king.infrastructure;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RandomNumberStoreTest {
+    private Path file;
+
+    @BeforeEach
+    public void prepare() throws IOException {
+        this.file = Files.createTempFile("random-numbers", ".dat");
+        Files.delete(file);
+    }
+
+    @AfterEach
+    public void finish() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void test_that_unused_numbers_survive_a_restart() throws IOException {
+        try (RandomNumberStore store = RandomNumberStore.open(file, 10)) {
+            assertThat(store.append(new int[]{1, 2, 3, 4, 5}, 0, 5)).isEqualTo(5);
+            int[] target = new int[2];
+            assertThat(store.consume(target, 0, 2)).isEqualTo(2);
+            assertThat(target).containsExactly(1, 2);
+        }
+
+        try (RandomNumberStore store = RandomNumberStore.open(file, 100)) {
+            // The capacity of the existing file is kept.
+            assertThat(store.capacity()).isEqualTo(10);
+            assertThat(store.size()).isEqualTo(3);
+            int[] target = new int[5];
+            assertThat(store.consume(target, 0, 5)).isEqualTo(3);
+            assertThat(target).startsWith(3, 4, 5);
+        }
+    }
+
+    @Test
+    public void test_that_the_store_wraps_around_and_does_not_overflow() throws IOException {
+        try (RandomNumberStore store = RandomNumberStore.open(file, 4)) {
+            store.append(new int[]{1, 2, 3}, 0, 3);
+            store.consume(new int[2], 0, 2);
+
+            assertThat(store.append(new int[]{4, 5, 6, 7}, 0, 4)).isEqualTo(3);
+            int[] target = new int[4];
+            assertThat(store.consume(target, 0, 4)).isEqualTo(4);
+            assertThat(target).containsExactly(3, 4, 5, 6);
+            assertThat(store.size()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void test_that_a_file_that_is_not_a_store_is_rejected() throws IOException {
+        Files.write(file, new byte[64]);
+
+        assertThatThrownBy(() -> RandomNumberStore.open(file, 10)).isInstanceOf(IOException.class);
+    }
+}
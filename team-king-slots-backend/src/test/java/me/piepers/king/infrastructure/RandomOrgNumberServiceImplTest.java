@@ -0,0 +1,142 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.Checkpoint;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.reactivex.core.Vertx;
+import io.vertx.serviceproxy.ServiceException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the {@link RandomOrgNumberServiceImpl} against a local stub of the JSON-RPC api of random.org.
+ *
+ * @author Bas Piepers
+ */
+@ExtendWith(VertxExtension.class)
+public class RandomOrgNumberServiceImplTest {
+    private Vertx vertx;
+    private HttpServer stub;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger connections = new AtomicInteger();
+    // The amount of requests the stub fails before it answers.
+    private final AtomicInteger failures = new AtomicInteger();
+
+    @BeforeEach
+    public void prepare() throws Exception {
+        this.vertx = Vertx.vertx();
+        CompletableFuture<HttpServer> listening = new CompletableFuture<>();
+        vertx.getDelegate()
+                .createHttpServer()
+                .connectionHandler(connection -> connections.incrementAndGet())
+                .requestHandler(request -> request.bodyHandler(body -> this.answer(request, body.toString())))
+                .listen(0, "localhost", result -> listening.complete(result.result()));
+        this.stub = listening.get(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    public void finish() {
+        vertx.close();
+    }
+
+    private void answer(HttpServerRequest request, String body) {
+        requests.incrementAndGet();
+        if (failures.getAndDecrement() > 0) {
+            request.response().setStatusCode(503).end();
+            return;
+        }
+        String response = body.startsWith("[") ?
+                new JsonArray(body).stream().map(call -> this.result((JsonObject) call)).collect(JsonArray::new, JsonArray::add, JsonArray::addAll).encode() :
+                this.result(new JsonObject(body)).encode();
+        request.response().putHeader("Content-Type", "application/json").end(response);
+    }
+
+    private JsonObject result(JsonObject call) {
+        JsonObject params = call.getJsonObject("params");
+        JsonArray data = new JsonArray();
+        IntStream.range(0, params.getInteger("n")).forEach(i -> data.add(params.getInteger("min") + i % (params.getInteger("max") - params.getInteger("min") + 1)));
+        return new JsonObject()
+                .put("jsonrpc", "2.0")
+                .put("id", call.getString("id"))
+                .put("result", new JsonObject()
+                        .put("random", new JsonObject().put("data", data))
+                        .put("bitsUsed", params.getInteger("n"))
+                        .put("bitsLeft", 250000)
+                        .put("requestsLeft", 1000));
+    }
+
+    private RandomOrgNumberServiceImpl service() throws Exception {
+        return new RandomOrgNumberServiceImpl(vertx.getDelegate(), new JsonObject().put("random_number_client", new JsonObject()
+                .put("api_key", "test")
+                .put("host", "localhost")
+                .put("port", stub.actualPort())
+                .put("ssl", false)
+                .put("max_numbers_per_call", 100)
+                .put("retry_delay_ms", 10L)));
+    }
+
+    @Test
+    public void test_that_calls_share_a_connection(VertxTestContext context) throws Exception {
+        Checkpoint serviceCallCheckpoint = context.checkpoint();
+        RandomOrgNumberServiceImpl service = this.service();
+
+        service.getRandomNumbers(10, 0, 9, first -> service.getRandomNumbers(10, 0, 9, second -> context.verify(() -> {
+            assertThat(first.result().getData()).hasSize(10);
+            assertThat(second.result().getRequestsLeft()).isEqualTo(1000);
+            assertThat(requests.get()).isEqualTo(2);
+            assertThat(connections.get()).isEqualTo(1);
+            serviceCallCheckpoint.flag();
+        })));
+    }
+
+    @Test
+    public void test_that_a_large_block_is_requested_with_one_batch(VertxTestContext context) throws Exception {
+        Checkpoint serviceCallCheckpoint = context.checkpoint();
+
+        this.service().getRandomNumbers(250, 0, 99, result -> context.verify(() -> {
+            assertThat(result.succeeded()).isTrue();
+            assertThat(result.result().getData()).hasSize(250);
+            assertThat(result.result().getBitsUsed()).isEqualTo(250);
+            assertThat(requests.get()).isEqualTo(1);
+            serviceCallCheckpoint.flag();
+        }));
+    }
+
+    @Test
+    public void test_that_a_server_error_is_retried(VertxTestContext context) throws Exception {
+        Checkpoint serviceCallCheckpoint = context.checkpoint();
+        failures.set(2);
+
+        this.service().getRandomNumbers(10, 0, 9, result -> context.verify(() -> {
+            assertThat(result.succeeded()).isTrue();
+            assertThat(requests.get()).isEqualTo(3);
+            serviceCallCheckpoint.flag();
+        }));
+    }
+
+    @Test
+    public void test_that_the_call_fails_when_the_retries_are_exhausted(VertxTestContext context) throws Exception {
+        Checkpoint serviceCallCheckpoint = context.checkpoint();
+        failures.set(3);
+
+        this.service().getRandomNumbers(10, 0, 9, result -> context.verify(() -> {
+            assertThat(result.failed()).isTrue();
+            assertThat(((ServiceException) result.cause()).failureCode()).isEqualTo(503);
+            assertThat(requests.get()).isEqualTo(3);
+            serviceCallCheckpoint.flag();
+        }));
+    }
+}
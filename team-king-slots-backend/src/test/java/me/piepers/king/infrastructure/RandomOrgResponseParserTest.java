@@ -0,0 +1,61 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.serviceproxy.ServiceException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RandomOrgResponseParserTest {
+
+    private static final String RESPONSE = "{\"jsonrpc\":\"2.0\",\"result\":{\"random\":{\"data\":[1,5,4,6,6,4],\"completionTime\":\"2011-10-10 13:19:12Z\"}," +
+            "\"bitsUsed\":16,\"bitsLeft\":199984,\"requestsLeft\":9999,\"advisoryDelay\":0},\"id\":42}";
+
+    private List<RandomNumberResponseDto> parse(String body, int sizeHint) {
+        return RandomOrgResponseParser.parse(body.getBytes(StandardCharsets.UTF_8), sizeHint);
+    }
+
+    @Test
+    public void test_that_the_numbers_and_the_allowance_are_read() {
+        List<RandomNumberResponseDto> responses = this.parse(RESPONSE, 6);
+
+        assertThat(responses).hasSize(1);
+        RandomNumberResponseDto response = responses.get(0);
+        assertThat(response.getData()).containsExactly(1, 5, 4, 6, 6, 4);
+        assertThat(response.getId()).isEqualTo("42");
+        assertThat(response.getBitsUsed()).isEqualTo(16);
+        assertThat(response.getBitsLeft()).isEqualTo(199984);
+        assertThat(response.getRequestsLeft()).isEqualTo(9999);
+    }
+
+    @Test
+    public void test_that_the_data_grows_beyond_the_size_hint_and_is_trimmed() {
+        assertThat(this.parse(RESPONSE, 1).get(0).getData()).containsExactly(1, 5, 4, 6, 6, 4);
+        assertThat(this.parse(RESPONSE, 100).get(0).getData()).hasSize(6);
+    }
+
+    @Test
+    public void test_that_all_responses_of_a_batch_are_read() {
+        assertThat(this.parse("[" + RESPONSE + "," + RESPONSE.replace("42", "43") + "]", 6))
+                .extracting(RandomNumberResponseDto::getId)
+                .containsExactly("42", "43");
+    }
+
+    @Test
+    public void test_that_an_error_becomes_a_service_exception_with_its_code() {
+        assertThatThrownBy(() -> this.parse("{\"jsonrpc\":\"2.0\",\"error\":{\"code\":402,\"message\":\"The API key has exceeded its daily limit.\",\"data\":null},\"id\":1}", 6))
+                .isInstanceOf(ServiceException.class)
+                .matches(e -> ((ServiceException) e).failureCode() == 402);
+        assertThatThrownBy(() -> this.parse("[1,2,3]", 6)).isInstanceOf(ServiceException.class);
+    }
+
+    @Test
+    public void test_that_the_numbers_survive_the_json_of_the_dto() {
+        RandomNumberResponseDto response = this.parse(RESPONSE, 6).get(0);
+
+        assertThat(new RandomNumberResponseDto(response.toJson())).isEqualTo(response);
+    }
+}
@@ -0,0 +1,172 @@
+package me.piepers.king.infrastructure;
+
+import io.reactivex.Observable;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.Checkpoint;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.serviceproxy.ServiceBinder;
+import io.vertx.serviceproxy.ServiceException;
+import me.piepers.king.application.SlotRepositoryVerticle;
+import me.piepers.king.application.SlotRingVerticle;
+import me.piepers.king.domain.SlotId;
+import me.piepers.king.domain.SlotStatus;
+import me.piepers.king.reactivex.domain.SlotService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(VertxExtension.class)
+public class RoutingSlotServiceTest {
+    private static final JsonObject CONFIGURATION = new JsonObject()
+            .put("local_binding", true)
+            .put("cluster", new JsonObject().put("heartbeat_ms", 100));
+
+    private final List<Node> nodes = new ArrayList<>();
+    private Node nodeA;
+
+    @BeforeEach
+    public void prepare() throws Exception {
+        this.nodeA = this.startNode("a");
+    }
+
+    @AfterEach
+    public void finish() throws Exception {
+        for (Node node : nodes) {
+            CompletableFuture<Void> closed = new CompletableFuture<>();
+            node.vertx.close(result -> closed.complete(null));
+            closed.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    // Starts a node with everything the application sets up in a cluster and waits until all nodes know each other.
+    private Node startNode(String name) throws Exception {
+        CompletableFuture<Vertx> clustered = new CompletableFuture<>();
+        Vertx.clusteredVertx(new VertxOptions().setClusterManager(new LocalClusterManager()), result -> {
+            if (result.succeeded()) {
+                clustered.complete(result.result());
+            } else {
+                clustered.completeExceptionally(result.cause());
+            }
+        });
+        Node node = new Node(clustered.get(10, TimeUnit.SECONDS), new SlotRing(name, 128));
+        nodes.add(node);
+
+        DomainMessageCodec.registerDefaultCodecs(node.vertx.eventBus());
+        LocalServiceRegistry.register(node.vertx, SlotRing.ADDRESS, node.ring);
+        LocalServiceRegistry.register(node.vertx, RandomNumberCache.EVENT_BUS_ADDRESS, (RandomNumberCache) (target, amount) -> {
+            Arrays.fill(target, 0, amount, 1);
+            return true;
+        });
+        CompletableFuture<String> deployed = new CompletableFuture<>();
+        node.vertx.deployVerticle(SlotRepositoryVerticle.class.getName(), new DeploymentOptions().setConfig(CONFIGURATION),
+                result -> deployed.complete(result.result()));
+        deployed.get(10, TimeUnit.SECONDS);
+
+        me.piepers.king.domain.SlotService local = me.piepers.king.domain.SlotService.createWithConfiguration(node.vertx, CONFIGURATION);
+        new ServiceBinder(node.vertx).setAddress(RoutingSlotService.address(name))
+                .register(me.piepers.king.domain.SlotService.class, local);
+        node.service = SlotService.newInstance(new RoutingSlotService(node.vertx, node.ring, local).bind());
+        node.repository = SlotRepository.createLocalProxy(node.vertx, 1);
+
+        CompletableFuture<String> ringDeployed = new CompletableFuture<>();
+        node.vertx.deployVerticle(SlotRingVerticle.class.getName(), new DeploymentOptions().setConfig(CONFIGURATION),
+                result -> ringDeployed.complete(result.result()));
+        ringDeployed.get(10, TimeUnit.SECONDS);
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (nodes.stream().anyMatch(other -> other.ring.nodes().size() < nodes.size())) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(20);
+        }
+        return node;
+    }
+
+    @Test
+    public void test_that_a_slot_is_only_played_on_the_node_that_started_it(VertxTestContext context) throws Exception {
+        Checkpoint checkpoint = context.checkpoint();
+        Node nodeB = this.startNode("b");
+
+        nodeA.service.rxStart()
+                .map(SlotId::getId)
+                .flatMap(id -> nodeB.service.rxSpin(id)
+                        .flatMap(slot -> nodeB.service.rxStop(id)))
+                .subscribe(spinResult -> {
+                    String id = spinResult.getSlot().getId().getId();
+                    nodeB.repository.findById(id, onB -> nodeA.repository.findById(id, onA -> context.verify(() -> {
+                        assertThat(nodeA.ring.ownerOf(id)).isEqualTo("a");
+                        assertThat(onA.succeeded()).isTrue();
+                        assertThat(onB.failed()).isTrue();
+                        assertThat(((ServiceException) onB.cause()).failureCode()).isEqualTo(404);
+                        checkpoint.flag();
+                    })));
+                }, context::failNow);
+    }
+
+    @Test
+    public void test_that_a_new_owner_takes_over_a_slot_when_it_is_asked_for(VertxTestContext context) throws Exception {
+        Checkpoint checkpoint = context.checkpoint();
+        List<String> ids = Observable.range(0, 20)
+                .flatMapSingle(i -> nodeA.service.rxStart())
+                .map(SlotId::getId)
+                .toList()
+                .blockingGet();
+        Node nodeB = this.startNode("b");
+        String moved = ids.stream()
+                .filter(id -> nodeB.ring.isLocal(id))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("None of the slots moved to the new node."));
+
+        // Asked for on the previous owner, still ends up on the new owner.
+        nodeA.service.rxSpin(moved)
+                .subscribe(slot -> nodeB.repository.findById(moved, onB -> nodeA.repository.findById(moved, onA -> context.verify(() -> {
+                    assertThat(slot.getStatus()).isEqualTo(SlotStatus.SPINNING);
+                    assertThat(onB.succeeded()).isTrue();
+                    assertThat(onB.result().getStatus()).isEqualTo(SlotStatus.SPINNING);
+                    assertThat(onA.failed()).isTrue();
+                    checkpoint.flag();
+                }))), context::failNow);
+    }
+
+    @Test
+    public void test_that_the_failure_of_a_spin_on_another_node_keeps_its_code(VertxTestContext context) throws Exception {
+        Checkpoint checkpoint = context.checkpoint();
+        Node nodeB = this.startNode("b");
+        String unknown = SlotId.create().getId();
+        while (!"a".equals(nodeB.ring.ownerOf(unknown))) {
+            unknown = SlotId.create().getId();
+        }
+
+        nodeB.service.rxSpin(unknown)
+                .subscribe(slot -> context.failNow(new AssertionError("A slot that does not exist was spun.")),
+                        throwable -> context.verify(() -> {
+                            assertThat(throwable).isInstanceOf(ServiceException.class);
+                            assertThat(((ServiceException) throwable).failureCode()).isEqualTo(404);
+                            checkpoint.flag();
+                        }));
+    }
+
+    private static final class Node {
+        private final Vertx vertx;
+        private final SlotRing ring;
+        private SlotService service;
+        private SlotRepository repository;
+
+        private Node(Vertx vertx, SlotRing ring) {
+            this.vertx = vertx;
+            this.ring = ring;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package me.piepers.king.infrastructure;
+
+import io.reactivex.Observable;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.Checkpoint;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.reactivex.core.Vertx;
+import me.piepers.king.application.SlotRepositoryVerticle;
+import me.piepers.king.domain.Slot;
+import me.piepers.king.domain.SlotType;
+import me.piepers.king.reactivex.infrastructure.SlotRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(VertxExtension.class)
+public class ShardedSlotRepositoryTest {
+    private static final int SHARDS = 4;
+
+    private Vertx vertx;
+    private SlotRepository repository;
+
+    @BeforeEach
+    public void prepare(VertxTestContext context) {
+        this.vertx = Vertx.vertx();
+        this.repository = SlotRepository.createShardedProxy(vertx, SHARDS);
+        JsonObject configuration = new JsonObject().put("slot_repository", new JsonObject().put("shards", SHARDS));
+        Observable.range(0, SHARDS)
+                .flatMapCompletable(shard -> vertx.rxDeployVerticle(SlotRepositoryVerticle.class.getName(),
+                        new DeploymentOptions().setConfig(configuration.copy().put(SlotRepositoryVerticle.SHARD_CONFIG_KEY, shard)))
+                        .toCompletable())
+                .subscribe(context::completeNow, context::failNow);
+    }
+
+    @AfterEach
+    public void finish() {
+        vertx.close();
+    }
+
+    @Test
+    public void test_that_slots_are_stored_in_the_shard_that_owns_them(VertxTestContext context) {
+        Checkpoint checkpoint = context.checkpoint();
+        List<Slot> slots = IntStream.range(0, 20).mapToObj(i -> Slot.of(SlotType.CLASSIC, "Player " + i)).collect(Collectors.toList());
+
+        Observable.fromIterable(slots)
+                .flatMapSingle(slot -> repository.rxAdd(slot))
+                .ignoreElements()
+                .andThen(Observable.fromIterable(slots)
+                        .flatMapSingle(slot -> {
+                            String id = slot.getId().getId();
+                            // Ask the owning shard directly.
+                            return SlotRepository
+                                    .newInstance(new SlotRepositoryVertxEBProxy(vertx.getDelegate(),
+                                            ShardedSlotRepository.address(ShardedSlotRepository.shardOf(id, SHARDS), SHARDS)))
+                                    .rxFindById(id);
+                        }))
+                .toList()
+                .subscribe(found -> context.verify(() -> {
+                    assertThat(found).hasSize(slots.size());
+                    assertThat(found.stream().map(Slot::getId).collect(Collectors.toSet()))
+                            .isEqualTo(slots.stream().map(Slot::getId).collect(Collectors.toSet()));
+                    checkpoint.flag();
+                }), context::failNow);
+    }
+
+    @Test
+    public void test_that_deleted_slots_are_no_longer_found(VertxTestContext context) {
+        Checkpoint checkpoint = context.checkpoint();
+        Slot slot = Slot.of(SlotType.CLASSIC, "John Doe");
+
+        repository.rxAdd(slot)
+                .flatMap(added -> repository.rxDeleteById(added.getId().getId()))
+                .flatMap(deleted -> repository.rxFindById(deleted.getId().getId()))
+                .subscribe(found -> context.failNow(new AssertionError("The slot should have been deleted.")),
+                        throwable -> checkpoint.flag());
+    }
+}
@@ -0,0 +1,101 @@
+package me.piepers.king.infrastructure;
+
+import me.piepers.king.domain.SlotId;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SlotRingTest {
+    private static final List<String> SLOT_IDS = IntStream.range(0, 10000)
+            .mapToObj(i -> SlotId.create().getId())
+            .collect(Collectors.toList());
+
+    private static SlotRing ring(String localNode, String... others) {
+        SlotRing ring = new SlotRing(localNode, 128);
+        for (String node : others) {
+            ring.add(node);
+        }
+        ring.joined();
+        return ring;
+    }
+
+    @Test
+    public void test_that_slots_are_spread_over_all_nodes() {
+        SlotRing ring = ring("a", "b", "c", "d");
+
+        Map<String, Long> slotsPerNode = SLOT_IDS.stream()
+                .collect(Collectors.groupingBy(ring::ownerOf, Collectors.counting()));
+
+        assertThat(slotsPerNode).containsOnlyKeys("a", "b", "c", "d");
+        // Every node gets roughly a quarter of the slots.
+        assertThat(slotsPerNode.values()).allSatisfy(slots -> assertThat(slots).isBetween(1750L, 3250L));
+    }
+
+    @Test
+    public void test_that_only_slots_of_a_joining_node_change_owner() {
+        SlotRing ring = ring("a", "b", "c");
+        Map<String, String> before = SLOT_IDS.stream().collect(Collectors.toMap(Function.identity(), ring::ownerOf));
+
+        assertThat(ring.add("d")).isTrue();
+
+        SLOT_IDS.forEach(id -> {
+            String owner = ring.ownerOf(id);
+            if (!owner.equals(before.get(id))) {
+                assertThat(owner).isEqualTo("d");
+                assertThat(ring.previousOwnerOf(id)).contains(before.get(id));
+            } else {
+                assertThat(ring.previousOwnerOf(id)).isEmpty();
+            }
+        });
+    }
+
+    @Test
+    public void test_that_the_slots_of_a_leaving_node_are_taken_over_by_the_others() {
+        SlotRing ring = ring("a", "b", "c");
+        Map<String, String> before = SLOT_IDS.stream().collect(Collectors.toMap(Function.identity(), ring::ownerOf));
+
+        assertThat(ring.remove("c")).isTrue();
+        assertThat(ring.remove("a")).isFalse();
+
+        assertThat(ring.nodes()).containsExactly("a", "b");
+        SLOT_IDS.forEach(id -> {
+            if ("c".equals(before.get(id))) {
+                assertThat(ring.previousOwnerOf(id)).contains("c");
+            } else {
+                assertThat(ring.ownerOf(id)).isEqualTo(before.get(id));
+            }
+        });
+    }
+
+    @Test
+    public void test_that_the_slots_of_a_new_node_were_owned_by_the_nodes_that_were_already_there() {
+        SlotRing ring = new SlotRing("d", 128);
+        ring.add("a");
+        ring.add("b");
+        ring.add("c");
+        SlotRing others = ring("a", "b", "c");
+
+        SLOT_IDS.stream()
+                .filter(ring::isLocal)
+                .forEach(id -> assertThat(ring.previousOwnerOf(id)).contains(others.ownerOf(id)));
+    }
+
+    @Test
+    public void test_that_new_ids_are_owned_by_the_local_node() {
+        SlotRing ring = ring("a", "b", "c", "d");
+
+        IntStream.range(0, 100).forEach(i -> assertThat(ring.isLocal(ring.newLocalId().getId())).isTrue());
+    }
+
+    @Test
+    public void test_that_a_node_needs_a_position_on_the_ring() {
+        assertThatThrownBy(() -> new SlotRing("a", 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -1,5 +1,7 @@
 package me.piepers.king.infrastructure;
 
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import io.vertx.junit5.Checkpoint;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
@@ -12,6 +14,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 @ExtendWith(VertxExtension.class)
@@ -47,4 +56,102 @@ public class SlotServiceImplTest {
                             serviceCallCheckpoint.flag();
                         }));
     }
+
+    @Test
+    public void test_that_with_local_binding_the_service_changes_a_copy_of_the_stored_slot(VertxTestContext context) {
+        Checkpoint serviceCallCheckpoint = context.checkpoint();
+        me.piepers.king.infrastructure.SlotRepository repository = SlotRepository.create(vertx.getDelegate());
+        LocalServiceRegistry.register(vertx.getDelegate(), SlotRepository.EVENT_BUS_ADDRESS,
+                new ContextBoundSlotRepository(vertx.getDelegate(), vertx.getDelegate().getOrCreateContext(), repository));
+        LocalServiceRegistry.register(vertx.getDelegate(), RandomNumberCache.EVENT_BUS_ADDRESS, (RandomNumberCache) (target, amount) -> {
+            Arrays.fill(target, 0, amount, 1);
+            return true;
+        });
+        SlotService localService = SlotService.createWithConfiguration(vertx, new JsonObject().put("local_binding", true));
+
+        localService
+                .rxStart()
+                .flatMap(slotId -> localService.rxSpin(slotId.getId()))
+                .flatMap(slot -> localService.rxStop(slot.getId().getId()))
+                .subscribe(spinResult -> repository.findById(spinResult.getSlot().getId().getId(), found -> context.verify(() -> {
+                    assertThat(found.result()).isNotSameAs(spinResult.getSlot());
+                    assertThat(found.result()).isEqualTo(spinResult.getSlot());
+                    assertThat(spinResult.getSlot().getReel().getCells().get(0).get(0).getValue()).isEqualTo(1);
+                    serviceCallCheckpoint.flag();
+                })), context::failNow);
+    }
+
+    @Test
+    public void test_that_auto_spin_draws_the_numbers_for_all_spins_at_once(VertxTestContext context) {
+        Checkpoint serviceCallCheckpoint = context.checkpoint();
+        AtomicInteger requests = new AtomicInteger();
+        vertx.eventBus().<JsonObject>consumer(RandomNumberCache.EVENT_BUS_ADDRESS, message -> {
+            requests.incrementAndGet();
+            int amount = message.body().getInteger("amount");
+            message.reply(new JsonObject().put("numbers", new JsonArray(IntStream.range(0, amount).boxed().collect(Collectors.toList()))));
+        });
+
+        service
+                .rxStart()
+                .flatMap(slotId -> service.rxAutoSpin(slotId.getId(), 5))
+                .subscribe(spinBatch -> context.verify(() -> {
+                    assertThat(requests.get()).isEqualTo(1);
+                    assertThat(spinBatch.getSpins()).isEqualTo(5);
+                    assertThat(spinBatch.spinToJson(4).getJsonArray("numbers").getInteger(0)).isEqualTo(36);
+                    assertThat(spinBatch.spinToJson(0).getJsonArray("symbols").getString(1)).isEqualTo("SEVEN");
+                    serviceCallCheckpoint.flag();
+                }), context::failNow);
+    }
+
+    @Test
+    public void test_that_auto_spin_hands_over_every_spin_before_the_result(VertxTestContext context) {
+        Checkpoint serviceCallCheckpoint = context.checkpoint();
+        vertx.eventBus().<JsonObject>consumer(RandomNumberCache.EVENT_BUS_ADDRESS, message -> message.reply(new JsonObject()
+                .put("numbers", new JsonArray(IntStream.range(0, message.body().getInteger("amount")).boxed().collect(Collectors.toList())))));
+        List<JsonObject> spins = new ArrayList<>();
+
+        service
+                .rxStart()
+                .subscribe(slotId -> service.getDelegate().autoSpin(slotId.getId(), 3, spins::add, result -> context.verify(() -> {
+                    assertThat(result.succeeded()).isTrue();
+                    assertThat(spins).hasSize(3);
+                    assertThat(spins.get(2)).isEqualTo(result.result().spinToJson(2));
+                    serviceCallCheckpoint.flag();
+                })), context::failNow);
+    }
+
+    @Test
+    public void test_that_auto_spin_of_a_spinning_slot_draws_no_numbers(VertxTestContext context) {
+        Checkpoint serviceCallCheckpoint = context.checkpoint();
+        AtomicInteger requests = new AtomicInteger();
+        vertx.eventBus().<JsonObject>consumer(RandomNumberCache.EVENT_BUS_ADDRESS, message -> {
+            requests.incrementAndGet();
+            message.fail(500, "Not expected.");
+        });
+
+        service
+                .rxStart()
+                .flatMap(slotId -> service.rxSpin(slotId.getId()))
+                .flatMap(slot -> service.rxAutoSpin(slot.getId().getId(), 5))
+                .subscribe(spinBatch -> context.failNow(new IllegalStateException("Expected a failure.")),
+                        throwable -> context.verify(() -> {
+                            assertThat(throwable).isExactlyInstanceOf(ServiceException.class);
+                            assertThat(requests.get()).isEqualTo(0);
+                            serviceCallCheckpoint.flag();
+                        }));
+    }
+
+    @Test
+    public void test_that_auto_spin_rejects_too_many_spins(VertxTestContext context) {
+        Checkpoint serviceCallCheckpoint = context.checkpoint();
+        service
+                .rxStart()
+                .flatMap(slotId -> service.rxAutoSpin(slotId.getId(), 1000))
+                .subscribe(spinBatch -> context.failNow(new IllegalStateException("Expected a failure.")),
+                        throwable -> context.verify(() -> {
+                            assertThat(throwable).isExactlyInstanceOf(ServiceException.class);
+                            assertThat(((ServiceException) throwable).failureCode()).isEqualTo(400);
+                            serviceCallCheckpoint.flag();
+                        }));
+    }
 }
@@ -0,0 +1,59 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StompFrameTest {
+
+    @Test
+    public void test_that_several_frames_and_heart_beats_are_parsed() {
+        List<StompFrame> frames = StompFrame.parse(Buffer.buffer(
+                "CONNECT\naccept-version:1.2\nhost:a:b\n\n\0\n\r\nSEND\r\ndestination:/app/slot/1/spin\nreceipt:x\\cy\n\nhello\0"));
+
+        assertThat(frames).hasSize(2);
+        // The headers of a CONNECT frame are not escaped.
+        assertThat(frames.get(0).getHeader("host")).isEqualTo("a:b");
+        assertThat(frames.get(1).getCommand()).isEqualTo(StompFrame.SEND);
+        assertThat(frames.get(1).getHeader("receipt")).isEqualTo("x:y");
+        assertThat(frames.get(1).getBody()).isEqualTo("hello");
+    }
+
+    @Test
+    public void test_that_an_encoded_frame_is_parsed_to_the_same_frame() {
+        StompFrame frame = new StompFrame(StompFrame.MESSAGE, new java.util.LinkedHashMap<>(), "{\"a\":\"é\0\"}")
+                .header("destination", "/topic/slot/1")
+                .header("key", "a:b\nc\\d")
+                .header("key", "ignored");
+
+        StompFrame parsed = StompFrame.parse(Buffer.buffer(frame.encode())).get(0);
+
+        assertThat(parsed.getHeader("key")).isEqualTo("a:b\nc\\d");
+        assertThat(parsed.getHeader("content-length")).isEqualTo("11");
+        assertThat(parsed.getBody()).isEqualTo(frame.getBody());
+    }
+
+    @Test
+    public void test_that_incomplete_frames_are_rejected() {
+        assertThatThrownBy(() -> StompFrame.parse(Buffer.buffer("SEND\ndestination:x\n\nbody")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> StompFrame.parse(Buffer.buffer("SEND\ncontent-length:10\n\nbody\0")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> StompFrame.parse(Buffer.buffer("SEND\nheader\n\n\0")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void test_that_a_content_length_outside_of_the_frame_is_rejected() {
+        assertThatThrownBy(() -> StompFrame.parse(Buffer.buffer("SEND\ncontent-length:2147483647\n\nbody\0")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> StompFrame.parse(Buffer.buffer("SEND\ncontent-length:-3\n\nbody\0")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> StompFrame.parse(Buffer.buffer("SEND\ncontent-length:99999999999\n\nbody\0")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,71 @@
+package me.piepers.king.infrastructure;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TimerWheelTest {
+
+    @Test
+    public void test_that_elements_expire_when_their_deadline_passed() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 8, 0);
+        wheel.schedule("a", 25);
+        wheel.schedule("b", 15);
+        wheel.schedule("c", 70);
+
+        assertThat(wheel.advance(14)).isEmpty();
+        assertThat(wheel.advance(29)).containsExactly("b", "a");
+        assertThat(wheel.advance(69)).isEmpty();
+        assertThat(wheel.advance(70)).containsExactly("c");
+        assertThat(wheel.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_that_deadlines_beyond_one_turn_wait_for_their_turn() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 4, 0);
+        // Falls in the same bucket as 15 but one turn later.
+        wheel.schedule("late", 55);
+
+        assertThat(wheel.advance(20)).isEmpty();
+        assertThat(wheel.advance(40)).isEmpty();
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(60)).containsExactly("late");
+    }
+
+    @Test
+    public void test_that_a_long_pause_expires_everything_that_is_due() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 4, 0);
+        wheel.schedule("a", 5);
+        wheel.schedule("b", 35);
+        wheel.schedule("c", 1000);
+
+        assertThat(wheel.advance(500)).containsExactlyInAnyOrder("a", "b");
+        assertThat(wheel.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_that_a_passed_deadline_expires_with_the_next_advance() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 4, 100);
+        wheel.schedule("a", 50);
+
+        assertThat(wheel.advance(100)).containsExactly("a");
+    }
+
+    @Test
+    public void test_that_a_cancelled_element_does_not_expire() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 4, 0);
+        TimerWheel.Timeout<String> cancelled = wheel.schedule("a", 15);
+        wheel.schedule("b", 15);
+
+        assertThat(wheel.cancel(cancelled)).isTrue();
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(20)).containsExactly("b");
+        assertThat(wheel.cancel(cancelled)).isFalse();
+    }
+
+    @Test
+    public void test_that_a_wheel_needs_buckets() {
+        assertThatThrownBy(() -> new TimerWheel<String>(10, 0, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,151 @@
+package me.piepers.king.infrastructure;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.Checkpoint;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.serviceproxy.ServiceException;
+import me.piepers.king.domain.Slot;
+import me.piepers.king.domain.SlotType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(VertxExtension.class)
+public class WriteBehindSlotRepositoryTest {
+    // Long enough to only flush when a test asks for it.
+    private static final long FLUSH_INTERVAL = 3600000L;
+
+    private Vertx vertx;
+    private CountingSlotRepository backing;
+
+    @BeforeEach
+    public void prepare() {
+        this.vertx = Vertx.vertx();
+        this.backing = new CountingSlotRepository(vertx);
+    }
+
+    @AfterEach
+    public void finish() {
+        vertx.close();
+    }
+
+    @Test
+    public void test_that_repeated_saves_are_written_once_per_flush(VertxTestContext context) {
+        Checkpoint checkpoint = context.checkpoint();
+        vertx.runOnContext(v -> {
+            WriteBehindSlotRepository repository = new WriteBehindSlotRepository(vertx, backing, FLUSH_INTERVAL, 2, 100);
+            List<Slot> slots = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                Slot slot = Slot.of(SlotType.CLASSIC, "Player " + i);
+                slots.add(slot);
+                repository.add(slot, result -> {
+                });
+            }
+            for (int spin = 0; spin < 10; spin++) {
+                slots.forEach(slot -> repository.save(slot, result -> {
+                }));
+            }
+            context.verify(() -> {
+                assertThat(backing.saves).isEqualTo(0);
+                assertThat(repository.dirtySlots()).isEqualTo(5);
+            });
+            repository.flush(result -> context.verify(() -> {
+                assertThat(result.succeeded()).isTrue();
+                assertThat(backing.saves).isEqualTo(5);
+                assertThat(repository.dirtySlots()).isEqualTo(0);
+                checkpoint.flag();
+            }));
+        });
+    }
+
+    @Test
+    public void test_that_a_quit_slot_is_not_written_after_it_was_deleted(VertxTestContext context) {
+        Checkpoint checkpoint = context.checkpoint();
+        vertx.runOnContext(v -> {
+            WriteBehindSlotRepository repository = new WriteBehindSlotRepository(vertx, backing, FLUSH_INTERVAL, 2, 100);
+            Slot slot = Slot.of(SlotType.CLASSIC, "John Doe");
+            repository.add(slot, added -> repository.save(slot.spin(), saved ->
+                    repository.deleteById(slot.getId().getId(), deleted ->
+                            repository.flush(flushed -> backing.findById(slot.getId().getId(), found -> context.verify(() -> {
+                                assertThat(deleted.succeeded()).isTrue();
+                                assertThat(backing.saves).isEqualTo(0);
+                                assertThat(found.failed()).isTrue();
+                                checkpoint.flag();
+                            }))))));
+        });
+    }
+
+    @Test
+    public void test_that_slots_that_could_not_be_written_are_written_with_the_next_flush(VertxTestContext context) {
+        Checkpoint checkpoint = context.checkpoint();
+        vertx.runOnContext(v -> {
+            WriteBehindSlotRepository repository = new WriteBehindSlotRepository(vertx, backing, FLUSH_INTERVAL, 2, 100);
+            Slot slot = Slot.of(SlotType.CLASSIC, "John Doe");
+            backing.failing = true;
+            repository.save(slot, saved -> repository.flush(failed -> {
+                context.verify(() -> {
+                    assertThat(failed.failed()).isTrue();
+                    assertThat(repository.dirtySlots()).isEqualTo(1);
+                });
+                backing.failing = false;
+                repository.close(closed -> backing.findById(slot.getId().getId(), found -> context.verify(() -> {
+                    assertThat(closed.succeeded()).isTrue();
+                    assertThat(found.result()).isEqualTo(slot);
+                    checkpoint.flag();
+                })));
+            }));
+        });
+    }
+
+    @Test
+    public void test_that_slots_that_are_not_cached_are_read_from_the_backing_repository(VertxTestContext context) {
+        Checkpoint checkpoint = context.checkpoint();
+        vertx.runOnContext(v -> {
+            WriteBehindSlotRepository repository = new WriteBehindSlotRepository(vertx, backing, FLUSH_INTERVAL, 2, 1);
+            Slot first = Slot.of(SlotType.CLASSIC, "John Doe");
+            Slot second = Slot.of(SlotType.CLASSIC, "Jane Doe");
+            // Adding the second one drops the first one from the cache.
+            repository.add(first, added -> repository.add(second, alsoAdded ->
+                    repository.findById(first.getId().getId(), found -> context.verify(() -> {
+                        assertThat(found.result()).isEqualTo(first);
+                        assertThat(backing.finds).isEqualTo(1);
+                        checkpoint.flag();
+                    }))));
+        });
+    }
+
+    private static class CountingSlotRepository extends InMemorySlotRepository {
+        private int saves;
+        private int finds;
+        private boolean failing;
+
+        private CountingSlotRepository(Vertx vertx) {
+            super(vertx);
+        }
+
+        @Override
+        public void save(Slot slot, Handler<AsyncResult<Slot>> resultHandler) {
+            if (failing) {
+                resultHandler.handle(ServiceException.fail(503, "Unavailable."));
+            } else {
+                saves++;
+                super.save(slot, resultHandler);
+            }
+        }
+
+        @Override
+        public void findById(String uuid, Handler<AsyncResult<Slot>> resultHandler) {
+            finds++;
+            super.findById(uuid, resultHandler);
+        }
+    }
+}
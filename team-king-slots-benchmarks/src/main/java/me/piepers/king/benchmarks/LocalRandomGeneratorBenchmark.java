@@ -0,0 +1,41 @@
+package me.piepers.king.benchmarks;
+
+import me.piepers.king.infrastructure.LocalRandomGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generating a block of random numbers in the range of the slots with the local generators, reported per number.
+ *
+ * @author Bas Piepers
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocalRandomGeneratorBenchmark {
+    private static final int BLOCK = 10000;
+
+    @Param({"splittable", "secure"})
+    private String algorithm;
+
+    private LocalRandomGenerator generator;
+    private int[] target;
+
+    @Setup
+    public void setUp() throws NoSuchAlgorithmException {
+        this.generator = "secure".equals(algorithm) ? LocalRandomGenerator.secure(null) : LocalRandomGenerator.splittable(1L);
+        this.target = new int[BLOCK];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCK)
+    public int[] fill() {
+        generator.fill(target, 0, BLOCK, 0, 100);
+        return target;
+    }
+}
@@ -0,0 +1,45 @@
+package me.piepers.king.benchmarks;
+
+import me.piepers.king.infrastructure.RandomNumberRingBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Taking the numbers of one spin from the cache of the RandomNumberVerticle. The numbers are put back by the same
+ * thread (as the producer) so that the cache never runs dry.
+ *
+ * @author Bas Piepers
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RandomNumberCacheBenchmark {
+
+    @Param({"9", "20"})
+    private int amount;
+
+    private RandomNumberRingBuffer cache;
+    private int[] target;
+
+    @Setup
+    public void setUp() {
+        this.cache = new RandomNumberRingBuffer(1 << 16);
+        SplittableRandom random = new SplittableRandom(1);
+        while (cache.offer(random.nextInt(101))) {
+            // Fill the cache completely.
+        }
+        this.target = new int[amount];
+    }
+
+    @Benchmark
+    public int[] drainAndRefill() {
+        cache.drain(target, 0, amount);
+        cache.offer(target, 0, amount);
+        return target;
+    }
+}
@@ -0,0 +1,62 @@
+package me.piepers.king.benchmarks;
+
+import me.piepers.king.domain.Reel;
+import me.piepers.king.domain.ReelConfig;
+import me.piepers.king.domain.Slot;
+import me.piepers.king.domain.SlotType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Assigning the random numbers of a spin to the cells of a reel, the symbols of the cells and calculating the win.
+ *
+ * @author Bas Piepers
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReelBenchmark {
+
+    @Param({"CLASSIC", "FIVE_BY_FOUR"})
+    private SlotType slotType;
+
+    private Reel reel;
+    private ReelConfig reelConfig;
+    private List<Integer> numbers;
+    private int[] primitiveNumbers;
+
+    @Setup
+    public void setUp() {
+        Slot slot = Slot.of(slotType, "Benchmark");
+        this.reel = slot.getReel();
+        this.reelConfig = slot.getReelConfig();
+        SplittableRandom random = new SplittableRandom(1);
+        this.primitiveNumbers = IntStream.range(0, reel.getCellAmount()).map(i -> random.nextInt(101)).toArray();
+        this.numbers = IntStream.of(primitiveNumbers).boxed().collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Reel assignNumbersToReels() {
+        return reel.assignNumbersToReels(numbers);
+    }
+
+    @Benchmark
+    public Reel assignPrimitiveNumbersToReels() {
+        return reel.assignNumbersToReels(primitiveNumbers, 0);
+    }
+
+    @Benchmark
+    public long assignSymbolsAndCalculateWin() {
+        return reel.assignNumbersToReels(primitiveNumbers, 0)
+                .assignSymbols(reelConfig)
+                .calculateWin(reelConfig);
+    }
+}
@@ -0,0 +1,57 @@
+package me.piepers.king.benchmarks;
+
+import me.piepers.king.domain.CellSymbolConfig;
+import me.piepers.king.domain.ReelConfig;
+import me.piepers.king.domain.ScoreValue;
+import me.piepers.king.domain.Slot;
+import me.piepers.king.domain.SlotType;
+import me.piepers.king.domain.SubsequentSymbols;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validating a reel configuration and building the number assignment of a cell configuration from a range.
+ *
+ * @author Bas Piepers
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReelConfigBenchmark {
+
+    @Param({"100", "10000"})
+    private int range;
+
+    private ReelConfig reelConfig;
+    private Map<SubsequentSymbols, ScoreValue> scores;
+
+    @Setup
+    public void setUp() {
+        this.reelConfig = Slot.of(SlotType.CLASSIC, "Benchmark").getReelConfig();
+        this.scores = CellSymbolConfig.symbolScores(new SubsequentSymbols[]{SubsequentSymbols.THREE}, new Integer[]{100});
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return reelConfig.isValid();
+    }
+
+    @Benchmark
+    public CellSymbolConfig cellSymbolConfigOfRange() {
+        return CellSymbolConfig.of(CellSymbolConfig.Symbol.SEVEN, 1, range + 1, scores);
+    }
+
+    @Benchmark
+    public ReelConfig buildAndValidate() {
+        ReelConfig config = ReelConfig.of(1, range)
+                .addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.SEVEN, 1, range / 2 + 1, scores))
+                .addCellConfig(CellSymbolConfig.of(CellSymbolConfig.Symbol.BAR, range / 2 + 1, range + 1, scores));
+        config.isValid();
+        return config;
+    }
+}
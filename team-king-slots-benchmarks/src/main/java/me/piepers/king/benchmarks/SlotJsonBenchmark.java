@@ -0,0 +1,75 @@
+package me.piepers.king.benchmarks;
+
+import io.reactivex.Single;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import me.piepers.king.domain.Slot;
+import me.piepers.king.domain.SlotType;
+import me.piepers.king.infrastructure.DomainMessageCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The conversion of a slot to and from json, which happens on every call over the event bus, compared with the binary
+ * codec.
+ *
+ * @author Bas Piepers
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlotJsonBenchmark {
+
+    private Slot slot;
+    private JsonObject json;
+    private String encoded;
+    private Buffer binary;
+
+    @Setup
+    public void setUp() {
+        List<Integer> numbers = IntStream.range(0, 20).map(i -> i * 5).boxed().collect(Collectors.toList());
+        this.slot = Slot.of(SlotType.FIVE_BY_FOUR, "Benchmark")
+                .spin()
+                .stop(s -> Single.just(numbers))
+                .blockingGet()
+                .getSlot();
+        this.json = slot.toJson();
+        this.encoded = json.encode();
+        this.binary = Buffer.buffer();
+        DomainMessageCodec.SLOT.encodeToWire(binary, slot);
+    }
+
+    @Benchmark
+    public JsonObject toJson() {
+        return slot.toJson();
+    }
+
+    @Benchmark
+    public Slot fromJson() {
+        return new Slot(json);
+    }
+
+    @Benchmark
+    public Slot encodeAndDecodeJson() {
+        return new Slot(new JsonObject(slot.toJson().encode()));
+    }
+
+    @Benchmark
+    public Slot decodeJson() {
+        return new Slot(new JsonObject(encoded));
+    }
+
+    @Benchmark
+    public Slot encodeAndDecodeBinary() {
+        Buffer buffer = Buffer.buffer(binary.length());
+        DomainMessageCodec.SLOT.encodeToWire(buffer, slot);
+        return DomainMessageCodec.SLOT.decodeFromWire(0, buffer);
+    }
+}
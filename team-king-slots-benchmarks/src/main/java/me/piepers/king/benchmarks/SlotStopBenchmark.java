@@ -0,0 +1,55 @@
+package me.piepers.king.benchmarks;
+
+import io.reactivex.Single;
+import me.piepers.king.domain.Slot;
+import me.piepers.king.domain.SlotType;
+import me.piepers.king.domain.SpinResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * One spin of a slot in the domain layer: spinning and stopping it with the numbers that were drawn, either with the
+ * reactive stop that fetches a list of numbers or with the stop that takes the numbers from a primitive buffer. Run
+ * with "-prof gc" to see the allocations per spin (gc.alloc.rate.norm), the primitive stop should show ~0 bytes.
+ *
+ * @author Bas Piepers
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlotStopBenchmark {
+
+    @Param({"CLASSIC", "FIVE_BY_FOUR"})
+    private SlotType slotType;
+
+    private Slot slot;
+    private List<Integer> numbers;
+    private int[] primitiveNumbers;
+
+    @Setup
+    public void setUp() {
+        this.slot = Slot.of(slotType, "Benchmark");
+        SplittableRandom random = new SplittableRandom(1);
+        this.primitiveNumbers = new int[slot.getReel().getCellAmount()];
+        IntStream.range(0, primitiveNumbers.length).forEach(i -> primitiveNumbers[i] = 1 + random.nextInt(100));
+        this.numbers = IntStream.of(primitiveNumbers).boxed().collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public SpinResult stopWithFetcher() {
+        return slot.spin().stop(s -> Single.just(numbers)).blockingGet();
+    }
+
+    @Benchmark
+    public long stopWithNumberBuffer() {
+        return slot.spin().stop(primitiveNumbers, 0);
+    }
+}
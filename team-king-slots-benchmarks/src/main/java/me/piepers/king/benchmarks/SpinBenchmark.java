@@ -0,0 +1,112 @@
+package me.piepers.king.benchmarks;
+
+import io.vertx.core.Context;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.serviceproxy.ServiceBinder;
+import me.piepers.king.application.RandomNumberVerticle;
+import me.piepers.king.application.SlotRepositoryVerticle;
+import me.piepers.king.domain.SlotService;
+import me.piepers.king.domain.SpinResult;
+import me.piepers.king.infrastructure.LocalRandomNumberServiceImpl;
+import me.piepers.king.infrastructure.RandomNumberService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A complete spin (spin and stop) of a slot through the SlotService on an embedded Vert.x instance with the slot
+ * repository and the random number cache deployed, either called directly (local binding) or via the event bus, and
+ * with either the reactive or the blocking implementation of the service.
+ *
+ * @author Bas Piepers
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpinBenchmark {
+
+    @Param({"true", "false"})
+    private boolean localBinding;
+
+    @Param({"rx", "blocking"})
+    private String mode;
+
+    private Vertx vertx;
+    private Context context;
+    private SlotService slotService;
+    private String slotId;
+
+    @Setup
+    public void setUp() {
+        this.vertx = Vertx.vertx();
+        JsonObject configuration = new JsonObject()
+                .put("local_binding", localBinding)
+                .put("slot_service", new JsonObject().put("mode", mode))
+                .put("random_number_service", new JsonObject()
+                        .put("initial_block_on_start", true)
+                        .put("block_amount", 10000)
+                        .put("min_threshold", 5000)
+                        .put("max_nrs_per_request", 100)
+                        .put("lowest_number", 0)
+                        .put("highest_number", 100));
+
+        new ServiceBinder(vertx)
+                .setAddress(RandomNumberService.EVENT_BUS_ADDRESS)
+                .register(RandomNumberService.class, new LocalRandomNumberServiceImpl());
+        this.<String>await(future -> vertx.deployVerticle(SlotRepositoryVerticle.class.getName(),
+                new DeploymentOptions().setConfig(configuration), future));
+        this.<String>await(future -> vertx.deployVerticle(RandomNumberVerticle.class.getName(),
+                new DeploymentOptions().setConfig(configuration), future));
+
+        SlotService service = SlotService.createWithConfiguration(vertx, configuration);
+        if (localBinding) {
+            this.slotService = service;
+        } else {
+            new ServiceBinder(vertx).setAddress(SlotService.EVENT_BUS_ADDRESS).register(SlotService.class, service);
+            this.slotService = SlotService.createProxy(vertx);
+        }
+        this.context = vertx.getOrCreateContext();
+        this.slotId = this.<String>await(future -> context.runOnContext(v -> slotService.start(result ->
+                future.handle(result.map(id -> id.getId())))));
+        // Give the random number cache time to get its first block.
+        this.<Void>await(future -> vertx.setTimer(500, id -> future.complete()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.<Void>await(future -> vertx.close(future));
+    }
+
+    @Benchmark
+    public SpinResult spinAndStop() {
+        return this.await(future -> context.runOnContext(v -> slotService.spin(slotId, spun -> {
+            if (spun.failed()) {
+                future.fail(spun.cause());
+            } else {
+                slotService.stop(slotId, future);
+            }
+        })));
+    }
+
+    private <T> T await(Consumer<Future<T>> operation) {
+        CompletableFuture<T> completable = new CompletableFuture<>();
+        Future<T> future = Future.future();
+        future.setHandler(result -> {
+            if (result.succeeded()) {
+                completable.complete(result.result());
+            } else {
+                completable.completeExceptionally(result.cause());
+            }
+        });
+        operation.accept(future);
+        return completable.join();
+    }
+}